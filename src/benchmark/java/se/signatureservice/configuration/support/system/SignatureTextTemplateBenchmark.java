@@ -0,0 +1,76 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+/**
+ * Benchmark comparing rendering of a compiled visible signature text template with
+ * replacing the placeholders of the template string for every signature.
+ */
+public class SignatureTextTemplateBenchmark {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int ITERATIONS = 2_000_000;
+
+    private static final String[] SIGNER_NAMES = {"Tobias Agerberg", "Anna Andersson", "Erik Eriksson"};
+    private static final String TIMESTAMP = "2026-10-19 12:00:00";
+
+    private static long blackhole;
+
+    public static void main(String[] args) {
+        VisibleSignatureConfig config = new VisibleSignatureConfig();
+        SignatureTextTemplate template = SignatureTextTemplate.compile(config);
+        String templateText = template.getTemplate();
+
+        String naive = naive(config, templateText, SIGNER_NAMES[0]);
+        String compiled = template.render(SIGNER_NAMES[0], TIMESTAMP);
+        if (!naive.equals(compiled)) {
+            throw new IllegalStateException("Rendered texts differ: '" + naive + "' != '" + compiled + "'");
+        }
+
+        StringBuilder buffer = new StringBuilder(128);
+        for (int round = 0; round < 3; round++) {
+            long naiveTime = run(() -> {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    blackhole += naive(config, templateText, SIGNER_NAMES[i % SIGNER_NAMES.length]).length();
+                }
+            });
+            long compiledTime = run(() -> {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    buffer.setLength(0);
+                    blackhole += template.render(buffer, SIGNER_NAMES[i % SIGNER_NAMES.length], TIMESTAMP).length();
+                }
+            });
+            System.out.printf("round %d: naive replace %.1f ns/op, compiled template %.1f ns/op%n", round,
+                    (double) naiveTime / ITERATIONS, (double) compiledTime / ITERATIONS);
+        }
+        System.out.println("(" + blackhole + ")");
+    }
+
+    private static String naive(VisibleSignatureConfig config, String templateText, String signerName) {
+        return templateText
+                .replace("{" + SignatureTextTemplate.HEADLINE_TEXT + "}", config.getHeadlineText())
+                .replace("{" + SignatureTextTemplate.SIGNER_LABEL + "}", config.getSignerLabel())
+                .replace("{" + SignatureTextTemplate.TIME_STAMP_LABEL + "}", config.getTimeStampLabel())
+                .replace("{" + SignatureTextTemplate.SIGNER_NAME + "}", signerName)
+                .replace("{" + SignatureTextTemplate.TIMESTAMP + "}", TIMESTAMP);
+    }
+
+    private static long run(Runnable benchmark) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        benchmark.run();
+        return System.nanoTime() - start;
+    }
+}
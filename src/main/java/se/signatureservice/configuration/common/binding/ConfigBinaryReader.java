@@ -0,0 +1,169 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads configuration values written by {@link ConfigBinaryWriter} from a byte buffer, such as
+ * a memory mapped file. Reading past the end of the buffer or an unknown type tag is reported
+ * as an IOException.
+ */
+public class ConfigBinaryReader {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer buffer to read from, starting at its current position.
+     */
+    public ConfigBinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return get() != 0;
+    }
+
+    public int readInt() throws IOException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public long readLong() throws IOException {
+        try {
+            return buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    /**
+     * @return the string read, may be null.
+     * @throws IOException if the data is invalid.
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw truncated();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the list read, may be null.
+     * @throws IOException if the data is invalid.
+     */
+    public List<String> readStringList() throws IOException {
+        int size = readSize();
+        if (size == -1) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString());
+        }
+        return list;
+    }
+
+    /**
+     * Read a value written by {@link ConfigBinaryWriter#writeValue(Object)}.
+     *
+     * @return the value read, may be null.
+     * @throws IOException if the data is invalid.
+     */
+    public Object readValue() throws IOException {
+        byte tag = get();
+        switch (tag) {
+            case ConfigBinaryWriter.TAG_NULL:
+                return null;
+            case ConfigBinaryWriter.TAG_STRING:
+                return readString();
+            case ConfigBinaryWriter.TAG_FALSE:
+                return Boolean.FALSE;
+            case ConfigBinaryWriter.TAG_TRUE:
+                return Boolean.TRUE;
+            case ConfigBinaryWriter.TAG_INT:
+                return readInt();
+            case ConfigBinaryWriter.TAG_LONG:
+                return readLong();
+            case ConfigBinaryWriter.TAG_FLOAT:
+                return readFloat();
+            case ConfigBinaryWriter.TAG_DOUBLE:
+                return Double.longBitsToDouble(readLong());
+            case ConfigBinaryWriter.TAG_LIST:
+                int size = readCount();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            case ConfigBinaryWriter.TAG_MAP:
+                int entries = readCount();
+                Map<String, Object> map = new LinkedHashMap<>((int) (entries / 0.75f) + 1);
+                for (int i = 0; i < entries; i++) {
+                    map.put(readString(), readValue());
+                }
+                return map;
+            default:
+                throw new IOException("Invalid configuration value type tag: " + tag);
+        }
+    }
+
+    private int readSize() throws IOException {
+        int size = readInt();
+        // Each element takes at least one byte, a larger size can only come from invalid data.
+        if (size < -1 || size > buffer.remaining()) {
+            throw truncated();
+        }
+        return size;
+    }
+
+    private int readCount() throws IOException {
+        int count = readSize();
+        if (count == -1) {
+            throw truncated();
+        }
+        return count;
+    }
+
+    private byte get() throws IOException {
+        try {
+            return buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    private static IOException truncated() {
+        return new IOException("Invalid or truncated binary configuration data");
+    }
+}
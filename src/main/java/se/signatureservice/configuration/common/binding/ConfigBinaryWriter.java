@@ -0,0 +1,154 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes configuration values in the compact binary format read by {@link ConfigBinaryReader}.
+ *
+ * Primitive values are written as fixed size big-endian values. Strings are written as their
+ * UTF-8 length followed by the UTF-8 bytes, or length -1 for null. Other values, such as the
+ * contents of maps, are written with a one byte type tag.
+ */
+public class ConfigBinaryWriter {
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_STRING = 1;
+    static final byte TAG_FALSE = 2;
+    static final byte TAG_TRUE = 3;
+    static final byte TAG_INT = 4;
+    static final byte TAG_LONG = 5;
+    static final byte TAG_FLOAT = 6;
+    static final byte TAG_DOUBLE = 7;
+    static final byte TAG_LIST = 8;
+    static final byte TAG_MAP = 9;
+
+    private final DataOutputStream out;
+
+    /**
+     * @param out stream to write to.
+     */
+    public ConfigBinaryWriter(OutputStream out) {
+        this.out = out instanceof DataOutputStream ? (DataOutputStream) out : new DataOutputStream(out);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    public void writeFloat(float value) throws IOException {
+        out.writeFloat(value);
+    }
+
+    /**
+     * @param value the string to write, may be null.
+     * @throws IOException if an error occurred writing the value.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param value the list to write, may be null.
+     * @throws IOException if an error occurred writing the value.
+     */
+    public void writeStringList(List<String> value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.size());
+        for (String item : value) {
+            writeString(item);
+        }
+    }
+
+    /**
+     * Write a configuration value of any supported type: null, String, Boolean, Integer, Long,
+     * Float, Double, List or Map with String keys, where lists and maps contain supported values.
+     *
+     * @param value the value to write, may be null.
+     * @throws IOException if the value is of an unsupported type or an error occurred writing the value.
+     */
+    public void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof List<?>) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TAG_LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(item);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TAG_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    throw new IOException("Unsupported configuration map key: " + entry.getKey());
+                }
+                writeString((String) entry.getKey());
+                writeValue(entry.getValue());
+            }
+        } else {
+            throw new IOException("Unsupported configuration value type: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Flush the underlying stream.
+     *
+     * @throws IOException if an error occurred flushing the stream.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
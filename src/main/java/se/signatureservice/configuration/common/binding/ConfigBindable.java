@@ -0,0 +1,37 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a configuration class for which a {@link ConfigBinder} is generated at build time.
+ *
+ * The generated binder is named after the class with the suffix "Binder", is placed in the
+ * same package and binds to the fields annotated with {@link ConfigProperty}. The class must
+ * have an accessible no-argument constructor and the annotated fields must not be private.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ConfigBindable {
+
+    /**
+     * @return name of the configuration section, used in error messages.
+     */
+    String value();
+}
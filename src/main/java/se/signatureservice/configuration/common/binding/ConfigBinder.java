@@ -0,0 +1,299 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds configuration values to the fields of a configuration object without reflection.
+ *
+ * Implementations are generated at build time for classes annotated with {@link ConfigBindable}.
+ * Each setting is identified by an index, found from its name using a switch, and converted
+ * using {@link se.signatureservice.configuration.common.utils.ConfigUtils}.
+ *
+ * @param <T> the configuration class.
+ */
+public abstract class ConfigBinder<T> {
+
+    /**
+     * @return name of the configuration section, used in error messages.
+     */
+    public abstract String getSection();
+
+    /**
+     * @return number of settings handled by this binder.
+     */
+    public abstract int getPropertyCount();
+
+    /**
+     * @param name name of a setting.
+     * @return index of the setting or -1 if the setting is unknown.
+     */
+    public abstract int indexOf(String name);
+
+    /**
+     * @param index index of a setting.
+     * @return name of the setting.
+     */
+    public abstract String getName(int index);
+
+    /**
+     * @param index index of a setting.
+     * @return type of the setting.
+     */
+    public abstract ConfigPropertyType getPropertyType(int index);
+
+    /**
+     * @param index index of a setting.
+     * @return binder of the nested configuration object, or null if the setting is not of
+     * type {@link ConfigPropertyType#NESTED}.
+     */
+    public abstract ConfigBinder<?> getNestedBinder(int index);
+
+    /**
+     * @return bit mask with the bits of the indexes of all required settings set.
+     */
+    public abstract long getRequiredMask();
+
+    /**
+     * @return new configuration object with default values.
+     */
+    public abstract T newInstance();
+
+    /**
+     * Convert and set the value of one setting.
+     *
+     * @param target the configuration object to update.
+     * @param index index of the setting.
+     * @param value the raw value, the current value of the field is kept if null or empty.
+     * @return null if the value was set, otherwise an error message describing the invalid value.
+     */
+    public abstract String bindValue(T target, int index, Object value);
+
+    /**
+     * Write the values of all settings in binary form, in index order. Nested configuration
+     * objects are written using their own binders.
+     *
+     * @param source the configuration object to write.
+     * @param out the writer to write to.
+     * @throws IOException if an error occurred writing the values.
+     */
+    public abstract void write(T source, ConfigBinaryWriter out) throws IOException;
+
+    /**
+     * Read a configuration object written by {@link #write(Object, ConfigBinaryWriter)}. The values
+     * are assigned without conversion, they must have been validated when bound. Derived state is
+     * updated by {@link #validate(Object)}.
+     *
+     * @param in the reader to read from.
+     * @return new configuration object.
+     * @throws IOException if the data is invalid.
+     */
+    public abstract T read(ConfigBinaryReader in) throws IOException;
+
+    /**
+     * @return hash of the names and types of all settings, including nested configuration
+     * objects, changed whenever the binary form written by this binder changes.
+     */
+    public abstract long getSchemaHash();
+
+    /**
+     * Replace the strings of all settings with canonical instances from the given pool, including
+     * nested configuration objects. Lists and maps are replaced by unmodifiable pooled copies, so
+     * the configuration object must not be modified afterwards.
+     *
+     * @param target the configuration object to update.
+     * @param interner the pool of canonical values.
+     */
+    public abstract void intern(T target, ConfigInterner interner);
+
+    /**
+     * Add the strings, lists and maps of all settings of a configuration object previously
+     * updated by {@link #intern(Object, ConfigInterner)} to a pool as canonical instances,
+     * including nested configuration objects. See {@link ConfigInterner#seed(String)}.
+     *
+     * @param source the interned configuration object.
+     * @param interner the pool to seed.
+     */
+    public abstract void seed(T source, ConfigInterner interner);
+
+    /**
+     * Create a deep copy of a configuration object. Lists and maps are copied, nested
+     * configuration objects are copied using their own binders. Derived state is updated by
+     * {@link #validate(Object)}.
+     *
+     * @param source the configuration object to copy.
+     * @return new configuration object with the same values.
+     * @throws IllegalArgumentException if the source contains invalid values.
+     */
+    public abstract T copy(T source);
+
+    /**
+     * Validate the settings of a configuration object together and update state derived from
+     * them. Called after all settings have been bound, read or copied. Generated binders call the
+     * method of the configuration class annotated with {@link ConfigValidate}, if any.
+     *
+     * @param target the configuration object to validate.
+     * @throws InternalErrorException if the settings are invalid.
+     */
+    public void validate(T target) throws InternalErrorException {
+    }
+
+    /**
+     * @param index index of a setting.
+     * @return error message used when the setting has an invalid value or a required setting is missing.
+     */
+    public String getErrorMessage(int index) {
+        return "Invalid value for '" + getName(index) + "' in " + getSection() + " configuration";
+    }
+
+    /**
+     * Binds all known settings from the given map to the target in one pass over the map.
+     * Unknown settings are ignored. All invalid values and missing required settings are
+     * collected and reported together, after which the target is validated by {@link #validate(Object)}.
+     *
+     * @param config map of setting name to raw value.
+     * @param target the configuration object to update.
+     * @return the given target.
+     * @throws InternalErrorException if any setting was invalid or any required setting was missing.
+     */
+    public T bind(Map<String, ?> config, T target) throws InternalErrorException {
+        List<String> errors = null;
+        long found = 0;
+        for (Map.Entry<String, ?> entry : config.entrySet()) {
+            int index = indexOf(entry.getKey());
+            if (index < 0) {
+                continue;
+            }
+            found |= 1L << index;
+            String error = bindValue(target, index, entry.getValue());
+            if (error != null) {
+                errors = addError(errors, error);
+            }
+        }
+        errors = checkRequired(found, errors);
+        throwIfErrors(errors);
+        validate(target);
+        return target;
+    }
+
+    /**
+     * Validate a configuration object read in binary form.
+     *
+     * @param target the configuration object read.
+     * @return the given target.
+     * @throws IOException if the settings are invalid.
+     */
+    protected T validateRead(T target) throws IOException {
+        try {
+            validate(target);
+        } catch (InternalErrorException e) {
+            throw new IOException("Invalid " + getSection() + " configuration data: " + e.getMessage(), e);
+        }
+        return target;
+    }
+
+    /**
+     * Validate a copied configuration object.
+     *
+     * @param target the copy.
+     * @return the given target.
+     * @throws IllegalArgumentException if the settings are invalid.
+     */
+    protected T validateCopy(T target) {
+        try {
+            validate(target);
+        } catch (InternalErrorException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return target;
+    }
+
+    /**
+     * Adds an error message for each required setting that wasn't found.
+     *
+     * @param found bit mask with the bits of the indexes of all found settings set.
+     * @param errors list of collected error messages, may be null.
+     * @return the list of collected error messages, null if there are no errors.
+     */
+    public List<String> checkRequired(long found, List<String> errors) {
+        long missing = getRequiredMask() & ~found;
+        while (missing != 0) {
+            errors = addError(errors, getErrorMessage(Long.numberOfTrailingZeros(missing)));
+            missing &= missing - 1;
+        }
+        return errors;
+    }
+
+    /**
+     * @param errors list of collected error messages, may be null.
+     * @throws InternalErrorException if there are any collected error messages.
+     */
+    public static void throwIfErrors(List<String> errors) throws InternalErrorException {
+        if (errors != null) {
+            throw new InternalErrorException(String.join(", ", errors));
+        }
+    }
+
+    /**
+     * @param list list to copy, may be null.
+     * @return modifiable copy of the list, or null if the list is null.
+     */
+    protected static List<String> copyList(List<String> list) {
+        return list != null ? new ArrayList<>(list) : null;
+    }
+
+    /**
+     * @param map map of maps to copy, may be null.
+     * @return modifiable copy of the map and its maps, or null if the map is null. List values
+     * are copied as well.
+     */
+    protected static Map<String, Map<String, Object>> copyMapOfMaps(Map<String, Map<String, Object>> map) {
+        if (map == null) {
+            return null;
+        }
+        Map<String, Map<String, Object>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+            Map<String, Object> values = null;
+            if (entry.getValue() != null) {
+                values = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> value : entry.getValue().entrySet()) {
+                    values.put(value.getKey(), value.getValue() instanceof List<?>
+                            ? new ArrayList<>((List<?>) value.getValue()) : value.getValue());
+                }
+            }
+            copy.put(entry.getKey(), values);
+        }
+        return copy;
+    }
+
+    /**
+     * @param errors list of collected error messages, may be null.
+     * @param error error message to add.
+     * @return the list of collected error messages, created if needed.
+     */
+    public static List<String> addError(List<String> errors, String error) {
+        if (errors == null) {
+            errors = new ArrayList<>(2);
+        }
+        errors.add(error);
+        return errors;
+    }
+}
@@ -0,0 +1,60 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.io.IOException;
+
+/**
+ * Pull parser reading structured configuration, such as JSON, one token at a time without
+ * building the whole configuration in memory.
+ *
+ * @see StreamingConfigBinder
+ */
+public interface ConfigParser {
+
+    /**
+     * Read the next token.
+     *
+     * @return the next token, or null at the end of the document.
+     * @throws IOException if the input could not be read or is invalid.
+     */
+    ConfigToken next() throws IOException;
+
+    /**
+     * @return the text of the current field name or value token.
+     */
+    String getText();
+
+    /**
+     * Get the text of the current token without creating a string. The returned sequence is only
+     * valid until the next call to {@link #next()}.
+     *
+     * @return the text of the current field name or value token.
+     */
+    default CharSequence getTextCharacters() {
+        return getText();
+    }
+
+    /**
+     * Skip the children of the current token if it is {@link ConfigToken#START_OBJECT} or
+     * {@link ConfigToken#START_ARRAY}, the current token is then the matching end token.
+     *
+     * @throws IOException if the input could not be read or is invalid.
+     */
+    void skipChildren() throws IOException;
+
+    /**
+     * @return current line number, starting at 1, used in error messages.
+     */
+    int getLine();
+}
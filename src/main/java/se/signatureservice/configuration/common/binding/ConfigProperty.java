@@ -0,0 +1,42 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a {@link ConfigBindable} class that should be bound from configuration.
+ *
+ * Supported field types are String, boolean, int, long and float (primitive or boxed),
+ * List&lt;String&gt;, Map&lt;String, Map&lt;String,Object&gt;&gt; and other {@link ConfigBindable} classes.
+ * The value of the field when binding starts is used as default if the setting is missing or empty.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface ConfigProperty {
+
+    /**
+     * @return name of the setting, defaults to the name of the field.
+     */
+    String name() default "";
+
+    /**
+     * @return true if the setting must be specified.
+     */
+    boolean required() default false;
+}
@@ -0,0 +1,59 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+/**
+ * Type of a setting handled by a {@link ConfigBinder}.
+ */
+public enum ConfigPropertyType {
+
+    /**
+     * String value.
+     */
+    STRING,
+
+    /**
+     * Boolean value, given as boolean or string.
+     */
+    BOOLEAN,
+
+    /**
+     * Integer value, given as number or string.
+     */
+    INT,
+
+    /**
+     * Long value, given as number or string.
+     */
+    LONG,
+
+    /**
+     * Float value, given as number or string.
+     */
+    FLOAT,
+
+    /**
+     * List of strings.
+     */
+    LIST,
+
+    /**
+     * Map of named maps, such as requestedCertAttributes.
+     */
+    MAP,
+
+    /**
+     * Nested configuration object with its own binder, see {@link ConfigBinder#getNestedBinder(int)}.
+     */
+    NESTED
+}
@@ -0,0 +1,36 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+/**
+ * Tokens returned by a {@link ConfigParser}.
+ */
+public enum ConfigToken {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    FIELD_NAME,
+    VALUE_STRING,
+    VALUE_NUMBER,
+    VALUE_TRUE,
+    VALUE_FALSE,
+    VALUE_NULL;
+
+    /**
+     * @return true if the token is a string, number, boolean or null value.
+     */
+    public boolean isScalarValue() {
+        return this != START_OBJECT && this != END_OBJECT && this != START_ARRAY && this != END_ARRAY && this != FIELD_NAME;
+    }
+}
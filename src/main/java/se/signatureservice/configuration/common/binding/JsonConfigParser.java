@@ -0,0 +1,334 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming JSON {@link ConfigParser}, reading from a character stream with a small fixed
+ * size buffer.
+ */
+public class JsonConfigParser implements ConfigParser {
+
+    private static final int STATE_BEFORE_VALUE = 0;
+    private static final int STATE_AFTER_VALUE = 1;
+    private static final int STATE_OBJECT_START = 2;
+    private static final int STATE_BEFORE_NAME = 3;
+    private static final int STATE_AFTER_NAME = 4;
+    private static final int STATE_ARRAY_START = 5;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int line = 1;
+
+    private final StringBuilder text = new StringBuilder();
+    private String textValue;
+    private ConfigToken token;
+    private int state = STATE_BEFORE_VALUE;
+    // Stack of open containers, true for objects and false for arrays.
+    private boolean[] stack = new boolean[16];
+    private int depth;
+
+    /**
+     * @param reader reader to parse JSON from, not closed by the parser.
+     */
+    public JsonConfigParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ConfigToken next() throws IOException {
+        textValue = null;
+        while (true) {
+            int c = skipWhitespace();
+            switch (state) {
+                case STATE_AFTER_NAME:
+                    if (c != ':') {
+                        throw error("Expected ':'", c);
+                    }
+                    state = STATE_BEFORE_VALUE;
+                    continue;
+                case STATE_AFTER_VALUE:
+                    if (depth == 0) {
+                        if (c != -1) {
+                            throw error("Unexpected data after end of document", c);
+                        }
+                        return token = null;
+                    }
+                    if (c == ',') {
+                        state = stack[depth - 1] ? STATE_BEFORE_NAME : STATE_BEFORE_VALUE;
+                        continue;
+                    }
+                    if (c == '}' && stack[depth - 1]) {
+                        return endContainer(ConfigToken.END_OBJECT);
+                    }
+                    if (c == ']' && !stack[depth - 1]) {
+                        return endContainer(ConfigToken.END_ARRAY);
+                    }
+                    throw error("Expected ',' or end of " + (stack[depth - 1] ? "object" : "array"), c);
+                case STATE_OBJECT_START:
+                case STATE_BEFORE_NAME:
+                    if (c == '}' && state == STATE_OBJECT_START) {
+                        return endContainer(ConfigToken.END_OBJECT);
+                    }
+                    if (c != '"') {
+                        throw error("Expected field name", c);
+                    }
+                    readString();
+                    state = STATE_AFTER_NAME;
+                    return token = ConfigToken.FIELD_NAME;
+                default:
+                    if (c == ']' && state == STATE_ARRAY_START) {
+                        return endContainer(ConfigToken.END_ARRAY);
+                    }
+                    if (c == -1 && depth == 0 && token == null) {
+                        return null;
+                    }
+                    return token = readValue(c);
+            }
+        }
+    }
+
+    @Override
+    public String getText() {
+        if (textValue == null) {
+            textValue = text.toString();
+        }
+        return textValue;
+    }
+
+    @Override
+    public CharSequence getTextCharacters() {
+        return textValue != null ? textValue : text;
+    }
+
+    @Override
+    public void skipChildren() throws IOException {
+        if (token != ConfigToken.START_OBJECT && token != ConfigToken.START_ARRAY) {
+            return;
+        }
+        int target = depth - 1;
+        while (depth > target) {
+            if (next() == null) {
+                throw error("Unexpected end of document", -1);
+            }
+        }
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    private ConfigToken readValue(int c) throws IOException {
+        state = STATE_AFTER_VALUE;
+        text.setLength(0);
+        switch (c) {
+            case '{':
+                push(true);
+                state = STATE_OBJECT_START;
+                return ConfigToken.START_OBJECT;
+            case '[':
+                push(false);
+                state = STATE_ARRAY_START;
+                return ConfigToken.START_ARRAY;
+            case '"':
+                readString();
+                return ConfigToken.VALUE_STRING;
+            case 't':
+                readLiteral("true");
+                return ConfigToken.VALUE_TRUE;
+            case 'f':
+                readLiteral("false");
+                return ConfigToken.VALUE_FALSE;
+            case 'n':
+                readLiteral("null");
+                return ConfigToken.VALUE_NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber(c);
+                    return ConfigToken.VALUE_NUMBER;
+                }
+                throw error("Expected value", c);
+        }
+    }
+
+    private ConfigToken endContainer(ConfigToken endToken) {
+        depth--;
+        state = STATE_AFTER_VALUE;
+        text.setLength(0);
+        return token = endToken;
+    }
+
+    private void push(boolean object) {
+        if (depth == stack.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = object;
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == -1 || c == '\n') {
+                throw error("Unterminated string", c);
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) c);
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape", c);
+                        }
+                        value = value * 16 + digit;
+                    }
+                    text.append((char) value);
+                    break;
+                default:
+                    throw error("Invalid escape sequence", c);
+            }
+        }
+    }
+
+    /**
+     * Read a number following the JSON grammar: an optional minus sign, an integer part without
+     * leading zeros, an optional fraction and an optional exponent.
+     */
+    private void readNumber(int c) throws IOException {
+        text.append((char) c);
+        if (c == '-') {
+            readDigit();
+            c = text.charAt(1);
+        }
+        if (c != '0') {
+            readDigits();
+        }
+        if (peek() == '.') {
+            text.append((char) read());
+            readDigit();
+            readDigits();
+        }
+        c = peek();
+        if (c == 'e' || c == 'E') {
+            text.append((char) read());
+            c = peek();
+            if (c == '+' || c == '-') {
+                text.append((char) read());
+            }
+            readDigit();
+            readDigits();
+        }
+    }
+
+    private void readDigit() throws IOException {
+        int c = peek();
+        if (c < '0' || c > '9') {
+            throw error("Invalid number, expected digit", c);
+        }
+        text.append((char) read());
+    }
+
+    private void readDigits() throws IOException {
+        int c;
+        while ((c = peek()) >= '0' && c <= '9') {
+            text.append((char) read());
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        text.append(literal.charAt(0));
+        for (int i = 1; i < literal.length(); i++) {
+            int c = read();
+            if (c != literal.charAt(i)) {
+                throw error("Invalid literal, expected " + literal, c);
+            }
+            text.append((char) c);
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private IOException error(String message, int c) {
+        return new IOException(message + ", found " + (c == -1 ? "end of document" : "'" + (char) c + "'") + " at line " + line);
+    }
+}
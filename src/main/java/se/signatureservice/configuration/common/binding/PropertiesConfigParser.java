@@ -0,0 +1,226 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming parser of the properties format, returning one key and value at a time.
+ *
+ * Follows the format read by {@link java.util.Properties#load(Reader)}: comment lines starting
+ * with '#' or '!', keys separated from values by '=', ':' or whitespace, line continuation with
+ * a trailing backslash and backslash escapes including unicode escapes. Leading and trailing
+ * whitespace is removed from values.
+ */
+public class PropertiesConfigParser {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int line;
+    private int startLine;
+
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+
+    /**
+     * @param reader reader to parse properties from, not closed by the parser.
+     */
+    public PropertiesConfigParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next property.
+     *
+     * @return true if a property was read, false at the end of the input.
+     * @throws IOException if the input could not be read or contains an invalid escape sequence.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int c = read();
+            line++;
+            while (c == ' ' || c == '\t' || c == '\f') {
+                c = read();
+            }
+            if (c == -1) {
+                return false;
+            }
+            if (c == '\n' || c == '\r') {
+                endLine(c);
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                skipLine();
+                continue;
+            }
+            startLine = line;
+            key.setLength(0);
+            value.setLength(0);
+            c = readPart(c, key, true);
+            while (c == ' ' || c == '\t' || c == '\f') {
+                c = read();
+            }
+            if (c == '=' || c == ':') {
+                c = read();
+                while (c == ' ' || c == '\t' || c == '\f') {
+                    c = read();
+                }
+            }
+            endLine(readPart(c, value, false));
+            int end = value.length();
+            while (end > 0 && Character.isWhitespace(value.charAt(end - 1))) {
+                end--;
+            }
+            value.setLength(end);
+            return true;
+        }
+    }
+
+    /**
+     * @return key of the current property.
+     */
+    public String getKey() {
+        return key.toString();
+    }
+
+    /**
+     * @return value of the current property, without leading and trailing whitespace.
+     */
+    public String getValue() {
+        return value.toString();
+    }
+
+    /**
+     * Get the value of the current property without creating a string. The returned sequence
+     * is only valid until the next call to {@link #next()}.
+     *
+     * @return value of the current property, without leading and trailing whitespace.
+     */
+    public CharSequence getValueCharacters() {
+        return value;
+    }
+
+    /**
+     * @return line number of the start of the current property.
+     */
+    public int getLine() {
+        return startLine;
+    }
+
+    /**
+     * Read a key or value until the end of the logical line, or for keys an unescaped separator.
+     *
+     * @return the character ending the part, -1 or a line break for the end of the line.
+     */
+    private int readPart(int c, StringBuilder out, boolean isKey) throws IOException {
+        while (true) {
+            if (c == -1 || c == '\n' || c == '\r') {
+                return c;
+            }
+            if (isKey && (c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f')) {
+                return c;
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case -1:
+                        return c;
+                    case '\r':
+                    case '\n':
+                        // Line continuation, skip the line break and leading whitespace of the next line.
+                        if (c == '\r' && peek() == '\n') {
+                            read();
+                        }
+                        line++;
+                        c = read();
+                        while (c == ' ' || c == '\t' || c == '\f') {
+                            c = read();
+                        }
+                        continue;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        int unicode = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw new IOException("Invalid unicode escape at line " + line);
+                            }
+                            unicode = unicode * 16 + digit;
+                        }
+                        out.append((char) unicode);
+                        break;
+                    default:
+                        out.append((char) c);
+                }
+            } else {
+                out.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && c != '\n' && c != '\r');
+        endLine(c);
+    }
+
+    /**
+     * Consume the '\n' of a "\r\n" line break ending a line.
+     */
+    private void endLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
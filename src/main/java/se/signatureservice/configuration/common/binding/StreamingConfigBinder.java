@@ -0,0 +1,361 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds configuration read by a streaming parser directly to configuration objects, validating
+ * each value as it is read.
+ *
+ * Scalar settings are converted from the parsed text and nested configuration objects are bound
+ * while they are parsed, so no map tree of the whole configuration is built. Only the values of
+ * list and map settings, such as authorizedConsumerURLs or trustedAuthenticationServices, are
+ * collected before they are bound. Unknown settings are skipped. As with
+ * {@link ConfigBinder#bind(Map, Object)} all errors are collected and reported together, and each
+ * object bound without errors is validated by {@link ConfigBinder#validate(Object)}.
+ */
+public final class StreamingConfigBinder {
+
+    private StreamingConfigBinder() {
+    }
+
+    /**
+     * Bind a single configuration object.
+     *
+     * @param parser parser positioned before the object.
+     * @param binder binder of the configuration class.
+     * @param target the configuration object to update.
+     * @param <T> the configuration class.
+     * @return the given target.
+     * @throws IOException if the input could not be read or is not a valid document.
+     * @throws InternalErrorException if any setting was invalid or any required setting was missing.
+     */
+    public static <T> T bind(ConfigParser parser, ConfigBinder<T> binder, T target) throws IOException, InternalErrorException {
+        expectObject(parser, parser.next());
+        ConfigBinder.throwIfErrors(bindObject(parser, binder, target, null));
+        return target;
+    }
+
+    /**
+     * Bind a document containing several named configuration objects, such as all support
+     * profiles of a node, one object at a time.
+     *
+     * @param parser parser positioned before the document object.
+     * @param binder binder of the configuration class.
+     * @param errors map to add error messages to, by name, for objects with invalid settings.
+     * @param <T> the configuration class.
+     * @return configuration objects by name, for all objects bound without errors.
+     * @throws IOException if the input could not be read or is not a valid document.
+     */
+    public static <T> Map<String, T> bindAll(ConfigParser parser, ConfigBinder<T> binder, Map<String, String> errors) throws IOException {
+        expectObject(parser, parser.next());
+        Map<String, T> result = new LinkedHashMap<>();
+        ConfigToken token;
+        while ((token = parser.next()) == ConfigToken.FIELD_NAME) {
+            String name = parser.getText();
+            token = parser.next();
+            if (token != ConfigToken.START_OBJECT) {
+                parser.skipChildren();
+                errors.put(name, "Invalid " + binder.getSection() + " configuration, expected object");
+                continue;
+            }
+            T target = binder.newInstance();
+            List<String> objectErrors = bindObject(parser, binder, target, null);
+            if (objectErrors == null) {
+                result.put(name, target);
+            } else {
+                errors.put(name, String.join(", ", objectErrors));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bind a configuration object from properties, where nested configuration objects, lists and
+     * maps are given using dotted keys, ex: "timeStamp.url", "authorizedConsumerURLs.0" or
+     * "trustedAuthenticationServices.iDPTest.entityId".
+     *
+     * @param parser the properties parser.
+     * @param binder binder of the configuration class.
+     * @param target the configuration object to update.
+     * @param <T> the configuration class.
+     * @return the given target.
+     * @throws IOException if the input could not be read.
+     * @throws InternalErrorException if any setting was invalid or any required setting was missing.
+     */
+    public static <T> T bind(PropertiesConfigParser parser, ConfigBinder<T> binder, T target) throws IOException, InternalErrorException {
+        PropertiesLevel root = new PropertiesLevel(binder, target);
+        List<String> errors = null;
+        while (parser.next()) {
+            String error = root.bind(parser.getKey(), parser.getValueCharacters());
+            if (error != null) {
+                errors = ConfigBinder.addError(errors, error);
+            }
+        }
+        ConfigBinder.throwIfErrors(root.finish(errors));
+        return target;
+    }
+
+    /**
+     * Bind the settings of an object, the parser is positioned after its start token.
+     *
+     * @return the list of collected error messages, null if there are no errors.
+     */
+    private static <T> List<String> bindObject(ConfigParser parser, ConfigBinder<T> binder, T target, List<String> errors) throws IOException {
+        long found = 0;
+        ConfigToken token;
+        while ((token = parser.next()) == ConfigToken.FIELD_NAME) {
+            int index = binder.indexOf(parser.getText());
+            token = parser.next();
+            if (index < 0) {
+                parser.skipChildren();
+                continue;
+            }
+            found |= 1L << index;
+            String error;
+            if (token == ConfigToken.START_OBJECT && binder.getPropertyType(index) == ConfigPropertyType.NESTED) {
+                List<String> nestedErrors = bindNested(parser, binder.getNestedBinder(index), binder, target, index);
+                if (nestedErrors != null) {
+                    for (String nestedError : nestedErrors) {
+                        errors = ConfigBinder.addError(errors, nestedError);
+                    }
+                }
+                continue;
+            } else if (token.isScalarValue()) {
+                Object value = null;
+                if (token != ConfigToken.VALUE_NULL) {
+                    value = isPrimitiveType(binder.getPropertyType(index)) ? parser.getTextCharacters() : parser.getText();
+                }
+                error = binder.bindValue(target, index, value);
+            } else {
+                error = binder.bindValue(target, index, readTree(parser, token));
+            }
+            if (error != null) {
+                errors = ConfigBinder.addError(errors, error);
+            }
+        }
+        if (token != ConfigToken.END_OBJECT) {
+            throw new IOException("Invalid configuration document, expected field name at line " + parser.getLine());
+        }
+        return validate(binder, target, binder.checkRequired(found, errors));
+    }
+
+    /**
+     * Validate a bound object if all its settings were valid.
+     *
+     * @return the list of collected error messages, null if there are no errors.
+     */
+    private static <T> List<String> validate(ConfigBinder<T> binder, T target, List<String> errors) {
+        if (errors == null) {
+            try {
+                binder.validate(target);
+            } catch (InternalErrorException e) {
+                errors = ConfigBinder.addError(null, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    private static <N, T> List<String> bindNested(ConfigParser parser, ConfigBinder<N> nestedBinder, ConfigBinder<T> binder,
+                                                  T target, int index) throws IOException {
+        N nested = nestedBinder.newInstance();
+        List<String> errors = bindObject(parser, nestedBinder, nested, null);
+        if (errors == null) {
+            String error = binder.bindValue(target, index, nested);
+            if (error != null) {
+                errors = ConfigBinder.addError(null, error);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Read the value of the current token as a tree of maps, lists and scalar values.
+     */
+    private static Object readTree(ConfigParser parser, ConfigToken token) throws IOException {
+        if (token == null) {
+            throw new IOException("Invalid configuration document, unexpected end of document");
+        }
+        switch (token) {
+            case START_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                while ((token = parser.next()) == ConfigToken.FIELD_NAME) {
+                    String name = parser.getText();
+                    map.put(name, readTree(parser, parser.next()));
+                }
+                if (token != ConfigToken.END_OBJECT) {
+                    throw new IOException("Invalid configuration document, expected field name at line " + parser.getLine());
+                }
+                return map;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while ((token = parser.next()) != ConfigToken.END_ARRAY) {
+                    list.add(readTree(parser, token));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER:
+                return parseNumber(parser.getText());
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Invalid configuration document, unexpected " + token + " at line " + parser.getLine());
+        }
+    }
+
+    private static Object parseNumber(String text) {
+        try {
+            long value = Long.parseLong(text);
+            if (value == (int) value) {
+                return (int) value;
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e2) {
+                return text;
+            }
+        }
+    }
+
+    /**
+     * @return true for types parsed from the text of a value without creating a string.
+     */
+    private static boolean isPrimitiveType(ConfigPropertyType type) {
+        return type == ConfigPropertyType.BOOLEAN || type == ConfigPropertyType.INT
+                || type == ConfigPropertyType.LONG || type == ConfigPropertyType.FLOAT;
+    }
+
+    private static void expectObject(ConfigParser parser, ConfigToken token) throws IOException {
+        if (token != ConfigToken.START_OBJECT) {
+            throw new IOException("Invalid configuration document, expected object at line " + parser.getLine());
+        }
+    }
+
+    /**
+     * Settings of one configuration object bound from properties.
+     */
+    private static final class PropertiesLevel {
+        private final ConfigBinder<Object> binder;
+        private final Object target;
+        private long found;
+        private Map<Integer, PropertiesLevel> nested;
+        private Map<Integer, Map<String, Object>> trees;
+
+        @SuppressWarnings("unchecked")
+        private PropertiesLevel(ConfigBinder<?> binder, Object target) {
+            this.binder = (ConfigBinder<Object>) binder;
+            this.target = target;
+        }
+
+        /**
+         * Bind one property.
+         *
+         * @return error message or null.
+         */
+        @SuppressWarnings("unchecked")
+        private String bind(String key, CharSequence value) {
+            PropertiesLevel level = this;
+            int start = 0;
+            while (true) {
+                int dot = key.indexOf('.', start);
+                int index = level.binder.indexOf(dot == -1 ? key.substring(start) : key.substring(start, dot));
+                if (index < 0) {
+                    return null;
+                }
+                level.found |= 1L << index;
+                ConfigPropertyType type = level.binder.getPropertyType(index);
+                if (dot == -1) {
+                    return level.binder.bindValue(level.target, index, isPrimitiveType(type) ? value : value.toString());
+                }
+                if (type == ConfigPropertyType.NESTED) {
+                    if (level.nested == null) {
+                        level.nested = new HashMap<>();
+                    }
+                    ConfigBinder<?> nestedBinder = level.binder.getNestedBinder(index);
+                    level = level.nested.computeIfAbsent(index, k -> new PropertiesLevel(nestedBinder, nestedBinder.newInstance()));
+                    start = dot + 1;
+                    continue;
+                }
+                if (type != ConfigPropertyType.LIST && type != ConfigPropertyType.MAP) {
+                    return level.binder.getErrorMessage(index);
+                }
+                if (level.trees == null) {
+                    level.trees = new HashMap<>();
+                }
+                Map<String, Object> current = level.trees.computeIfAbsent(index, k -> new LinkedHashMap<>());
+                start = dot + 1;
+                while ((dot = key.indexOf('.', start)) != -1) {
+                    Object child = current.computeIfAbsent(key.substring(start, dot), k -> new LinkedHashMap<String, Object>());
+                    if (!(child instanceof Map<?, ?>)) {
+                        return level.binder.getErrorMessage(index);
+                    }
+                    current = (Map<String, Object>) child;
+                    start = dot + 1;
+                }
+                if (current.get(key.substring(start)) instanceof Map<?, ?>) {
+                    return level.binder.getErrorMessage(index);
+                }
+                current.put(key.substring(start), value.toString());
+                return null;
+            }
+        }
+
+        /**
+         * Bind collected nested objects, lists and maps and check required settings.
+         *
+         * @return the list of collected error messages, null if there are no errors.
+         */
+        private List<String> finish(List<String> errors) {
+            if (nested != null) {
+                for (Map.Entry<Integer, PropertiesLevel> entry : nested.entrySet()) {
+                    List<String> nestedErrors = entry.getValue().finish(null);
+                    if (nestedErrors == null) {
+                        String error = binder.bindValue(target, entry.getKey(), entry.getValue().target);
+                        if (error != null) {
+                            errors = ConfigBinder.addError(errors, error);
+                        }
+                    } else {
+                        for (String error : nestedErrors) {
+                            errors = ConfigBinder.addError(errors, error);
+                        }
+                    }
+                }
+            }
+            if (trees != null) {
+                for (Map.Entry<Integer, Map<String, Object>> entry : trees.entrySet()) {
+                    String error = binder.bindValue(target, entry.getKey(), ConfigUtils.convertIndexedMaps(entry.getValue()));
+                    if (error != null) {
+                        errors = ConfigBinder.addError(errors, error);
+                    }
+                }
+            }
+            return validate(binder, target, binder.checkRequired(found, errors));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import se.signatureservice.configuration.common.InvalidArgumentException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Identifies a cached entry by its context id and key. Global entries have a null context id.
+ *
+ * Keys are ordered by context id, with global entries first, and then by key, so all entries
+ * of one context are adjacent.
+ */
+public final class CacheEntryKey implements Comparable<CacheEntryKey> {
+
+    private final String contextId;
+    private final String key;
+
+    /**
+     * @param contextId the context id of the entry, null for global entries.
+     * @param key the key of the entry, never null.
+     */
+    public CacheEntryKey(String contextId, String key) {
+        this.contextId = contextId;
+        this.key = Objects.requireNonNull(key, "key");
+    }
+
+    /**
+     * @return the context id of the entry, null for global entries.
+     */
+    public String getContextId() {
+        return contextId;
+    }
+
+    /**
+     * @return the key of the entry.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public int compareTo(CacheEntryKey other) {
+        if (contextId == null) {
+            if (other.contextId != null) {
+                return -1;
+            }
+        } else {
+            if (other.contextId == null) {
+                return 1;
+            }
+            int c = contextId.compareTo(other.contextId);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return key.compareTo(other.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheEntryKey)) {
+            return false;
+        }
+        CacheEntryKey other = (CacheEntryKey) o;
+        return key.equals(other.key) && Objects.equals(contextId, other.contextId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(contextId) + key.hashCode();
+    }
+
+    public String toString() {
+        return "CacheEntryKey [ contextId=" + contextId + ", key=" + key + " ]";
+    }
+
+    /**
+     * @return opaque scan cursor positioned after this key.
+     */
+    String toCursor() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(contextId != null);
+            if (contextId != null) {
+                out.writeUTF(contextId);
+            }
+            out.writeUTF(key);
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding scan cursor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param cursor scan cursor created by {@link #toCursor()}.
+     * @return the key the cursor is positioned after.
+     * @throws InvalidArgumentException if the cursor is invalid.
+     */
+    static CacheEntryKey fromCursor(String cursor) throws InvalidArgumentException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            String contextId = in.readBoolean() ? in.readUTF() : null;
+            return new CacheEntryKey(contextId, in.readUTF());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidArgumentException("Invalid cache scan cursor specified: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+/**
+ * Immutable event describing a change of a cached entry. The value itself isn't included,
+ * listeners fetch it from the provider if needed.
+ */
+public final class CacheEvent {
+
+    private final CacheEventType type;
+    private final String contextId;
+    private final String key;
+    private final long timestamp;
+
+    /**
+     * @param type the type of change.
+     * @param contextId the context id of the entry, null for global entries.
+     * @param key the key of the entry.
+     * @param timestamp time of the change in milliseconds since epoch.
+     */
+    public CacheEvent(CacheEventType type, String contextId, String key, long timestamp) {
+        this.type = type;
+        this.contextId = contextId;
+        this.key = key;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the type of change.
+     */
+    public CacheEventType getType() {
+        return type;
+    }
+
+    /**
+     * @return the context id of the entry, null for global entries.
+     */
+    public String getContextId() {
+        return contextId;
+    }
+
+    /**
+     * @return the key of the entry.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return time of the change in milliseconds since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String toString() {
+        return "CacheEvent [ type=" + type + ", contextId=" + contextId + ", key=" + key + ", timestamp=" + timestamp + " ]";
+    }
+}
@@ -0,0 +1,52 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import java.util.List;
+
+/**
+ * Batch of cache events delivered to a {@link CacheEventListener}.
+ */
+public final class CacheEventBatch {
+
+    private final List<CacheEvent> events;
+    private final long droppedEvents;
+
+    /**
+     * @param events the events in the order they occurred.
+     * @param droppedEvents number of events dropped since the previous batch.
+     */
+    public CacheEventBatch(List<CacheEvent> events, long droppedEvents) {
+        this.events = events;
+        this.droppedEvents = droppedEvents;
+    }
+
+    /**
+     * @return unmodifiable list of events in the order they occurred, may be empty if only
+     * dropped events are reported.
+     */
+    public List<CacheEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Number of events dropped since the previous batch since the listener didn't keep up.
+     * If not zero the listener has missed changes and must rebuild any derived state, see
+     * {@link CacheEventListener}.
+     *
+     * @return number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+}
@@ -0,0 +1,233 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Help class used by cache providers to deliver change events to subscribed listeners.
+ *
+ * Each subscription has a bounded queue. Publishing never blocks, if the queue of a slow
+ * listener is full the event is dropped and the number of dropped events is reported in
+ * the next batch delivered to that listener, see {@link CacheEventListener} for how listeners
+ * must handle dropped events. Batches are delivered on the given executor,
+ * with at most one batch in progress per subscription.
+ */
+public class CacheEventDispatcher {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Create a dispatcher delivering events on its own daemon threads, released by {@link #close()}.
+     */
+    public CacheEventDispatcher() {
+        ownedExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "cache-event-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        executor = ownedExecutor;
+    }
+
+    /**
+     * Create a dispatcher delivering events on the given executor.
+     *
+     * @param executor executor used to deliver batches, not shut down by this dispatcher.
+     */
+    public CacheEventDispatcher(Executor executor) {
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param listener the listener to deliver events to.
+     * @param queueCapacity maximum number of undelivered events before events are dropped.
+     * @param maxBatchSize maximum number of events in each delivered batch.
+     * @return subscription handle used to stop delivery.
+     */
+    public CacheEventSubscription subscribe(CacheEventListener listener, int queueCapacity, int maxBatchSize) {
+        if (listener == null || queueCapacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid cache event subscription, listener required and queue capacity and batch size must be positive");
+        }
+        Subscription subscription = new Subscription(listener, queueCapacity, maxBatchSize);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return true if there are active subscriptions, can be used to avoid work when nobody listens.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Publish an event to all subscriptions, never blocks.
+     *
+     * @param type the type of change.
+     * @param contextId the context id of the entry, null for global entries.
+     * @param key the key of the entry.
+     */
+    public void publish(CacheEventType type, String contextId, String key) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publish(new CacheEvent(type, contextId, key, System.currentTimeMillis()));
+    }
+
+    /**
+     * Publish an event to all subscriptions, never blocks. Used to forward events received from
+     * another provider, such as a shard, keeping their original timestamp.
+     *
+     * @param event the event to publish.
+     */
+    public void publish(CacheEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Report events dropped before they reached this dispatcher, such as events dropped by a shard
+     * whose events are forwarded. The events are counted as dropped by all subscriptions.
+     *
+     * @param count number of dropped events.
+     */
+    public void publishDropped(long count) {
+        if (count <= 0) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.addDropped(count);
+        }
+    }
+
+    /**
+     * Closes all subscriptions and releases the dispatcher threads if owned by this dispatcher.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private final class Subscription implements CacheEventSubscription, Runnable {
+        private final CacheEventListener listener;
+        private final BlockingQueue<CacheEvent> queue;
+        private final int maxBatchSize;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong droppedSinceLastBatch = new AtomicLong();
+        private final AtomicLong droppedTotal = new AtomicLong();
+        private volatile boolean closed;
+
+        Subscription(CacheEventListener listener, int queueCapacity, int maxBatchSize) {
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        void offer(CacheEvent event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                droppedSinceLastBatch.incrementAndGet();
+                droppedTotal.incrementAndGet();
+            }
+            schedule();
+        }
+
+        void addDropped(long count) {
+            if (closed) {
+                return;
+            }
+            droppedSinceLastBatch.addAndGet(count);
+            droppedTotal.addAndGet(count);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<CacheEvent> events = new ArrayList<>(Math.min(maxBatchSize, queue.size()));
+                queue.drainTo(events, maxBatchSize);
+                long dropped = droppedSinceLastBatch.getAndSet(0);
+                if (!closed && (!events.isEmpty() || dropped > 0)) {
+                    try {
+                        listener.onEvents(new CacheEventBatch(Collections.unmodifiableList(events), dropped));
+                    } catch (RuntimeException e) {
+                        // A failing listener must not stop delivery of later batches.
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!closed && (!queue.isEmpty() || droppedSinceLastBatch.get() > 0)) {
+                    schedule();
+                }
+            }
+        }
+
+        @Override
+        public long getDroppedEvents() {
+            return droppedTotal.get();
+        }
+
+        @Override
+        public int getPendingEvents() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            queue.clear();
+        }
+    }
+}
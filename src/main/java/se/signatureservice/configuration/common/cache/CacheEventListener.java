@@ -0,0 +1,37 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+/**
+ * Listener receiving batches of change events from a cache provider.
+ *
+ * Batches are delivered asynchronously, one at a time and in order, for each subscription.
+ * A listener that can't keep up doesn't block cache writers, instead events are dropped
+ * and reported through {@link CacheEventBatch#getDroppedEvents()}.
+ * <p>
+ * Any type of event can be dropped, including expire and evict events. A listener keeping
+ * copies derived from cache entries must therefore treat a batch with a non-zero dropped
+ * count as a lost synchronization point: the copies can't be patched from the delivered
+ * events alone and have to be rebuilt by reading the current entries through
+ * {@link CacheProvider#scan(String, String, String, int)}.
+ */
+@FunctionalInterface
+public interface CacheEventListener {
+
+    /**
+     * Called with the next batch of events.
+     *
+     * @param batch batch of events, never null.
+     */
+    void onEvents(CacheEventBatch batch);
+}
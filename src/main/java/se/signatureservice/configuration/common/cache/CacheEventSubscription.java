@@ -0,0 +1,40 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+/**
+ * Handle of a registered {@link CacheEventListener}.
+ */
+public interface CacheEventSubscription extends AutoCloseable {
+
+    /**
+     * @return total number of events dropped for this subscription since the listener didn't keep up.
+     */
+    long getDroppedEvents();
+
+    /**
+     * @return number of events waiting to be delivered.
+     */
+    int getPendingEvents();
+
+    /**
+     * @return true if the subscription has been closed.
+     */
+    boolean isClosed();
+
+    /**
+     * Stops delivery of events to the listener, pending events are discarded.
+     */
+    @Override
+    void close();
+}
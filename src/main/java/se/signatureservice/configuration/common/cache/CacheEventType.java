@@ -0,0 +1,39 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+/**
+ * Type of change that occurred for a cached entry.
+ */
+public enum CacheEventType {
+    /**
+     * A value was stored for a key that had no valid value.
+     */
+    INSERT,
+    /**
+     * The value of an existing entry was replaced.
+     */
+    UPDATE,
+    /**
+     * An entry was explicitly deleted.
+     */
+    DELETE,
+    /**
+     * An entry was removed since its time to live passed.
+     */
+    EXPIRE,
+    /**
+     * An entry was removed by the provider to free resources.
+     */
+    EVICT
+}
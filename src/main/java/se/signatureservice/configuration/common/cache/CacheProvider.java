@@ -14,6 +14,7 @@ package se.signatureservice.configuration.common.cache;
 
 import se.signatureservice.configuration.common.InternalErrorException;
 import se.signatureservice.configuration.common.InvalidArgumentException;
+import se.signatureservice.configuration.common.OperationNotSupportedException;
 
 import java.io.IOException;
 import java.util.Properties;
@@ -217,6 +218,201 @@ public interface CacheProvider {
      */
     void delete(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException;
 
+    /**
+     * Method to atomically set a String value only if no value exists for the key.
+     *
+     * Used for object with a global scope or where context is calculated manually using a unique key.
+     *
+     * @param key the key identifying the object.
+     * @param value String representation of the value
+     * @param metaData containing extra meta data related to the object such as time to live etc. If no meta data
+     * tag is supplied is the provider default time to live used.
+     * @return true if the value was stored, false if a value already existed.
+     * @throws InvalidArgumentException invalid key or value was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default boolean setIfAbsent(String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation setIfAbsent not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically set a String value only if no value exists for the key.
+     *
+     * @param contextId the id of the transaction or session or other applicable context.
+     * @param key the key identifying the object.
+     * @param value String representation of the value
+     * @param metaData containing extra meta data related to the object such as time to live etc. If no meta data
+     * tag is supplied is the provider default time to live used.
+     * @return true if the value was stored, false if a value already existed.
+     * @throws InvalidArgumentException invalid key or value was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default boolean setIfAbsent(String contextId, String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation setIfAbsent not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically replace a String value only if the current value equals the expected value.
+     *
+     * Used for object with a global scope or where context is calculated manually using a unique key.
+     *
+     * @param key the key identifying the object.
+     * @param expectedValue the value that must currently be cached, null if no value should exist.
+     * @param newValue String representation of the new value
+     * @param metaData containing extra meta data related to the new value such as time to live etc. If no meta data
+     * tag is supplied is the provider default time to live used.
+     * @return true if the value was replaced, false if the current value didn't match.
+     * @throws InvalidArgumentException invalid key or value was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default boolean compareAndSet(String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation compareAndSet not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically replace a String value only if the current value equals the expected value.
+     *
+     * @param contextId the id of the transaction or session or other applicable context.
+     * @param key the key identifying the object.
+     * @param expectedValue the value that must currently be cached, null if no value should exist.
+     * @param newValue String representation of the new value
+     * @param metaData containing extra meta data related to the new value such as time to live etc. If no meta data
+     * tag is supplied is the provider default time to live used.
+     * @return true if the value was replaced, false if the current value didn't match.
+     * @throws InvalidArgumentException invalid key or value was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default boolean compareAndSet(String contextId, String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation compareAndSet not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically add a delta to a counter, creating the counter if it doesn't exist.
+     * The counter is stored as a decimal String value.
+     *
+     * Used for object with a global scope or where context is calculated manually using a unique key.
+     *
+     * @param key the key identifying the counter.
+     * @param delta the value to add, may be negative.
+     * @param metaData containing extra meta data such as time to live, only applied when the counter
+     * is created. If no meta data tag is supplied is the provider default time to live used.
+     * @return the value of the counter after the delta was added.
+     * @throws InvalidArgumentException invalid key was given or the existing value isn't a number.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default long incrementAndGet(String key, long delta, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation incrementAndGet not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically add a delta to a counter, creating the counter if it doesn't exist.
+     * The counter is stored as a decimal String value.
+     *
+     * @param contextId the id of the transaction or session or other applicable context.
+     * @param key the key identifying the counter.
+     * @param delta the value to add, may be negative.
+     * @param metaData containing extra meta data such as time to live, only applied when the counter
+     * is created. If no meta data tag is supplied is the provider default time to live used.
+     * @return the value of the counter after the delta was added.
+     * @throws InvalidArgumentException invalid key was given or the existing value isn't a number.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default long incrementAndGet(String contextId, String key, long delta, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation incrementAndGet not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically fetch and delete a String value, useful for one-time-use entries.
+     *
+     * Used for object with a global scope or where context is calculated manually using a unique key.
+     *
+     * @param key the key identifying the object.
+     * @return the deleted value or null if no valid value was found.
+     * @throws InvalidArgumentException invalid key was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default String getAndDelete(String key) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation getAndDelete not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to atomically fetch and delete a String value, useful for one-time-use entries.
+     *
+     * @param contextId the id of the transaction or session or other applicable context.
+     * @param key the key identifying the object.
+     * @return the deleted value or null if no valid value was found.
+     * @throws InvalidArgumentException invalid key was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support atomic operations.
+     */
+    default String getAndDelete(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Operation getAndDelete not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to list the keys of cached entries, one page at a time.
+     *
+     * Scans are incremental and weakly consistent, the keyspace is never materialized and writers are
+     * never blocked. Entries added or removed during a scan may or may not be returned, but entries
+     * present during the whole scan are returned exactly once.
+     *
+     * @param contextId only return entries with this context id, null to return all entries.
+     * @param keyPrefix only return entries whose key starts with this prefix, null to return all keys.
+     * @param cursor cursor returned in the previous page, null to start a new scan.
+     * @param pageSize maximum number of keys to return in the page.
+     * @return the next page of keys, with a cursor to the following page unless the scan is complete.
+     * @throws InvalidArgumentException if an invalid cursor or page size was given.
+     * @throws java.io.IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the provider doesn't support scans.
+     */
+    default CacheScanPage scan(String contextId, String keyPrefix, String cursor, int pageSize) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        throw new OperationNotSupportedException("Scan not supported by cache provider " + getClass().getName());
+    }
+
+    /**
+     * Method to register a listener receiving asynchronous batches of change events (insert, update,
+     * delete, expire and evict) for entries in this cache, using default queue capacity and batch size.
+     *
+     * @param listener the listener to deliver events to.
+     * @return subscription handle used to stop delivery.
+     * @throws OperationNotSupportedException if the provider doesn't support change events.
+     */
+    default CacheEventSubscription subscribe(CacheEventListener listener) throws OperationNotSupportedException {
+        return subscribe(listener, CacheEventDispatcher.DEFAULT_QUEUE_CAPACITY, CacheEventDispatcher.DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Method to register a listener receiving asynchronous batches of change events (insert, update,
+     * delete, expire and evict) for entries in this cache. Cache writers are never blocked by slow
+     * listeners, if more than queueCapacity events are waiting are new events dropped and reported
+     * in the next delivered batch.
+     *
+     * @param listener the listener to deliver events to.
+     * @param queueCapacity maximum number of undelivered events before events are dropped.
+     * @param maxBatchSize maximum number of events in each delivered batch.
+     * @return subscription handle used to stop delivery.
+     * @throws OperationNotSupportedException if the provider doesn't support change events.
+     */
+    default CacheEventSubscription subscribe(CacheEventListener listener, int queueCapacity, int maxBatchSize) throws OperationNotSupportedException {
+        throw new OperationNotSupportedException("Change events not supported by cache provider " + getClass().getName());
+    }
+
     /**
      * Method signaling to the provider that the connection should be closed down and resources should be released.
      *
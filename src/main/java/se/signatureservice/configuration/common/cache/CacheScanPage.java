@@ -0,0 +1,57 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import java.util.List;
+
+/**
+ * One page of entry keys returned by a cache scan.
+ */
+public final class CacheScanPage {
+
+    private final List<CacheEntryKey> keys;
+    private final String nextCursor;
+
+    /**
+     * @param keys the keys found in this page.
+     * @param nextCursor cursor to fetch the next page with, null if the scan is complete.
+     */
+    public CacheScanPage(List<CacheEntryKey> keys, String nextCursor) {
+        this.keys = keys;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Keys found in this page. A page may contain fewer keys than requested, even none,
+     * without the scan being complete.
+     *
+     * @return unmodifiable list of keys.
+     */
+    public List<CacheEntryKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return cursor to fetch the next page with, null if the scan is complete.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return true if there are no more pages.
+     */
+    public boolean isComplete() {
+        return nextCursor == null;
+    }
+}
@@ -0,0 +1,490 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.InvalidArgumentException;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache provider keeping all entries in the memory of the current JVM.
+ *
+ * Useful for single node installations, for development and as in-process delegate
+ * when testing composite providers such as {@link ShardedCacheProvider}.
+ *
+ * Expired entries are removed lazily when accessed or by calling {@link #purgeExpired()}.
+ * If a maximum number of entries is configured, the oldest of a small sample of entries
+ * following the inserted key is evicted when the limit is exceeded. The atomic operations are performed as single updates
+ * of the underlying concurrent map.
+ */
+public class InMemoryCacheProvider implements CacheProvider {
+
+    /**
+     * Optional setting specifying the default time to live in seconds for entries that
+     * are stored without meta data. If not set are entries kept until deleted.
+     */
+    public static final String PROPERTY_DEFAULT_TIME_TO_LIVE = "cache.inmemory.defaulttimetolive";
+
+    /**
+     * Optional setting specifying the maximum number of entries to keep. If not set
+     * is the number of entries unlimited.
+     */
+    public static final String PROPERTY_MAX_ENTRIES = "cache.inmemory.maxentries";
+
+    private static final int EVICTION_SAMPLE_SIZE = 5;
+
+    /**
+     * Maximum number of entries examined by one scan call, to keep calls short when few
+     * entries match the filter.
+     */
+    private static final int MAX_SCAN_EXAMINED_FACTOR = 16;
+
+    // Sorted by context id and key, so scans can resume after the last returned key and all
+    // entries of one context can be found with a range lookup.
+    private final ConcurrentNavigableMap<CacheEntryKey, Entry> entries = new ConcurrentSkipListMap<>();
+    // Maintained on every insert and removal, ConcurrentSkipListMap.size() traverses all entries.
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private final CacheEventDispatcher eventDispatcher = new CacheEventDispatcher();
+
+    private Integer defaultTimeToLive;
+    private Integer maxEntries;
+
+    /**
+     * Method called by CacheService to initialize this provider.
+     *
+     * @param properties configuration from system configuration, never null.
+     * @throws InvalidArgumentException if invalid properties was found.
+     */
+    @Override
+    public void init(Properties properties) throws InvalidArgumentException {
+        try {
+            defaultTimeToLive = ConfigUtils.parseInteger(properties.getProperty(PROPERTY_DEFAULT_TIME_TO_LIVE),
+                    "Invalid value for '" + PROPERTY_DEFAULT_TIME_TO_LIVE + "' in cache configuration");
+            maxEntries = ConfigUtils.parseInteger(properties.getProperty(PROPERTY_MAX_ENTRIES),
+                    "Invalid value for '" + PROPERTY_MAX_ENTRIES + "' in cache configuration");
+        } catch (InternalErrorException e) {
+            throw new InvalidArgumentException(e.getMessage(), e);
+        }
+        if (maxEntries != null && maxEntries < 1) {
+            throw new InvalidArgumentException("Invalid value for '" + PROPERTY_MAX_ENTRIES + "' in cache configuration, must be positive");
+        }
+    }
+
+    @Override
+    public String get(String key) throws InvalidArgumentException {
+        return get(null, key);
+    }
+
+    @Override
+    public String get(String contextId, String key) throws InvalidArgumentException {
+        Entry entry = getEntry(contextId, key);
+        return entry != null ? entry.asString() : null;
+    }
+
+    @Override
+    public byte[] getBinary(String key) throws InvalidArgumentException {
+        return getBinary(null, key);
+    }
+
+    @Override
+    public byte[] getBinary(String contextId, String key) throws InvalidArgumentException {
+        Entry entry = getEntry(contextId, key);
+        return entry != null ? entry.asBinary() : null;
+    }
+
+    @Override
+    public void set(String key, String value) throws InvalidArgumentException {
+        set(null, key, value, null);
+    }
+
+    @Override
+    public void set(String contextId, String key, String value) throws InvalidArgumentException {
+        set(contextId, key, value, null);
+    }
+
+    @Override
+    public void set(String key, String value, MetaData metaData) throws InvalidArgumentException {
+        set(null, key, value, metaData);
+    }
+
+    @Override
+    public void set(String contextId, String key, String value, MetaData metaData) throws InvalidArgumentException {
+        put(contextId, key, value, metaData);
+    }
+
+    @Override
+    public void set(String key, byte[] value) throws InvalidArgumentException {
+        set(null, key, value, null);
+    }
+
+    @Override
+    public void set(String contextId, String key, byte[] value) throws InvalidArgumentException {
+        set(contextId, key, value, null);
+    }
+
+    @Override
+    public void set(String key, byte[] value, MetaData metaData) throws InvalidArgumentException {
+        set(null, key, value, metaData);
+    }
+
+    @Override
+    public void set(String contextId, String key, byte[] value, MetaData metaData) throws InvalidArgumentException {
+        put(contextId, key, value != null ? value.clone() : null, metaData);
+    }
+
+    @Override
+    public void delete(String key) throws InvalidArgumentException {
+        delete(null, key);
+    }
+
+    @Override
+    public void delete(String contextId, String key) throws InvalidArgumentException {
+        Entry removed = entries.remove(toEntryKey(contextId, key));
+        if (removed != null) {
+            entryCount.decrementAndGet();
+            publish(removed.isExpired(System.currentTimeMillis()) ? CacheEventType.EXPIRE : CacheEventType.DELETE, contextId, key);
+        }
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, MetaData metaData) throws InvalidArgumentException {
+        return setIfAbsent(null, key, value, metaData);
+    }
+
+    @Override
+    public boolean setIfAbsent(String contextId, String key, String value, MetaData metaData) throws InvalidArgumentException {
+        return compareAndSet(contextId, key, null, value, metaData);
+    }
+
+    @Override
+    public boolean compareAndSet(String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException {
+        return compareAndSet(null, key, expectedValue, newValue, metaData);
+    }
+
+    @Override
+    public boolean compareAndSet(String contextId, String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException {
+        if (newValue == null) {
+            throw new InvalidArgumentException("Invalid value specified for cache entry '" + key + "': null");
+        }
+        CacheEntryKey entryKey = toEntryKey(contextId, key);
+        long expireTime = calculateExpireTime(metaData);
+        // [0] expired entry found, [1] new value stored, [2] previous value existed, [3] entry existed
+        boolean[] outcome = new boolean[4];
+        entries.compute(entryKey, (k, current) -> {
+            long now = System.currentTimeMillis();
+            outcome[0] = false;
+            outcome[1] = false;
+            outcome[2] = false;
+            outcome[3] = current != null;
+            if (current != null && current.isExpired(now)) {
+                outcome[0] = true;
+                current = null;
+            }
+            boolean matches = expectedValue == null ? current == null : current != null && expectedValue.equals(current.asString());
+            if (matches) {
+                outcome[1] = true;
+                outcome[2] = current != null;
+                return new Entry(newValue, now, expireTime);
+            }
+            return current;
+        });
+        if (outcome[3] && !outcome[1] && outcome[0]) {
+            // The expired entry was removed.
+            entryCount.decrementAndGet();
+        } else if (!outcome[3] && outcome[1]) {
+            entryCount.incrementAndGet();
+        }
+        if (outcome[0]) {
+            publish(CacheEventType.EXPIRE, contextId, key);
+        }
+        if (outcome[1]) {
+            publish(outcome[2] ? CacheEventType.UPDATE : CacheEventType.INSERT, contextId, key);
+            if (!outcome[2]) {
+                evictIfNeeded(entryKey);
+            }
+        }
+        return outcome[1];
+    }
+
+    @Override
+    public long incrementAndGet(String key, long delta, MetaData metaData) throws InvalidArgumentException {
+        return incrementAndGet(null, key, delta, metaData);
+    }
+
+    @Override
+    public long incrementAndGet(String contextId, String key, long delta, MetaData metaData) throws InvalidArgumentException {
+        CacheEntryKey entryKey = toEntryKey(contextId, key);
+        long[] result = new long[1];
+        // [0] new entry created, [1] entry existed, [2] expired entry replaced
+        boolean[] created = new boolean[3];
+        try {
+            entries.compute(entryKey, (k, current) -> {
+                long now = System.currentTimeMillis();
+                created[1] = current != null;
+                created[2] = current != null && current.isExpired(now);
+                if (current == null || created[2]) {
+                    result[0] = delta;
+                    created[0] = true;
+                    return new Entry(Long.toString(delta), now, calculateExpireTime(metaData));
+                }
+                created[0] = false;
+                result[0] = Math.addExact(Long.parseLong(current.asString()), delta);
+                return new Entry(Long.toString(result[0]), current.created, current.expireTime);
+            });
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new InvalidArgumentException("Cache entry '" + key + "' doesn't contain a valid counter value: " + e.getMessage(), e);
+        }
+        if (!created[1]) {
+            entryCount.incrementAndGet();
+        }
+        if (created[2]) {
+            publish(CacheEventType.EXPIRE, contextId, key);
+        }
+        publish(created[0] ? CacheEventType.INSERT : CacheEventType.UPDATE, contextId, key);
+        if (created[0]) {
+            evictIfNeeded(entryKey);
+        }
+        return result[0];
+    }
+
+    @Override
+    public String getAndDelete(String key) throws InvalidArgumentException {
+        return getAndDelete(null, key);
+    }
+
+    @Override
+    public String getAndDelete(String contextId, String key) throws InvalidArgumentException {
+        Entry entry = entries.remove(toEntryKey(contextId, key));
+        if (entry == null) {
+            return null;
+        }
+        entryCount.decrementAndGet();
+        if (entry.isExpired(System.currentTimeMillis())) {
+            publish(CacheEventType.EXPIRE, contextId, key);
+            return null;
+        }
+        publish(CacheEventType.DELETE, contextId, key);
+        return entry.asString();
+    }
+
+    @Override
+    public CacheEventSubscription subscribe(CacheEventListener listener, int queueCapacity, int maxBatchSize) {
+        return eventDispatcher.subscribe(listener, queueCapacity, maxBatchSize);
+    }
+
+    @Override
+    public CacheScanPage scan(String contextId, String keyPrefix, String cursor, int pageSize) throws InvalidArgumentException {
+        if (pageSize < 1) {
+            throw new InvalidArgumentException("Invalid page size specified for cache scan: " + pageSize);
+        }
+
+        NavigableMap<CacheEntryKey, Entry> range;
+        if (cursor != null) {
+            range = entries.tailMap(CacheEntryKey.fromCursor(cursor), false);
+        } else if (contextId != null) {
+            range = entries.tailMap(new CacheEntryKey(contextId, keyPrefix != null ? keyPrefix : ""), true);
+        } else {
+            range = entries;
+        }
+
+        long now = System.currentTimeMillis();
+        int maxExamined = pageSize > Integer.MAX_VALUE / MAX_SCAN_EXAMINED_FACTOR ? Integer.MAX_VALUE : pageSize * MAX_SCAN_EXAMINED_FACTOR;
+        int examined = 0;
+        List<CacheEntryKey> keys = new ArrayList<>(Math.min(pageSize, 64));
+        CacheEntryKey last = null;
+        for (Map.Entry<CacheEntryKey, Entry> e : range.entrySet()) {
+            CacheEntryKey entryKey = e.getKey();
+            if (contextId != null) {
+                // Entries of a context are adjacent and sorted by key, so the first key outside the
+                // context or the prefix ends the scan.
+                if (!contextId.equals(entryKey.getContextId()) || (keyPrefix != null && !entryKey.getKey().startsWith(keyPrefix))) {
+                    return new CacheScanPage(Collections.unmodifiableList(keys), null);
+                }
+            }
+            last = entryKey;
+            if ((keyPrefix == null || entryKey.getKey().startsWith(keyPrefix)) && !e.getValue().isExpired(now)) {
+                keys.add(entryKey);
+            }
+            if (keys.size() >= pageSize || ++examined >= maxExamined) {
+                return new CacheScanPage(Collections.unmodifiableList(keys), last.toCursor());
+            }
+        }
+        return new CacheScanPage(Collections.unmodifiableList(keys), null);
+    }
+
+    /**
+     * Removes all expired entries, should be called regularly if entries are written with a
+     * time to live but not read again, to release memory and deliver expire events in time.
+     *
+     * @return number of removed entries.
+     */
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Map.Entry<CacheEntryKey, Entry> e : entries.entrySet()) {
+            if (e.getValue().isExpired(now) && entries.remove(e.getKey(), e.getValue())) {
+                entryCount.decrementAndGet();
+                publish(CacheEventType.EXPIRE, e.getKey().getContextId(), e.getKey().getKey());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all entries from the cache and stops delivery of change events.
+     */
+    @Override
+    public void close() {
+        entries.clear();
+        entryCount.set(0);
+        eventDispatcher.close();
+    }
+
+    /**
+     * @return number of entries currently held, including expired entries not yet removed.
+     */
+    public int size() {
+        return entryCount.get();
+    }
+
+    private void put(String contextId, String key, Object value, MetaData metaData) throws InvalidArgumentException {
+        if (value == null) {
+            throw new InvalidArgumentException("Invalid value specified for cache entry '" + key + "': null");
+        }
+        long now = System.currentTimeMillis();
+        CacheEntryKey entryKey = toEntryKey(contextId, key);
+        Entry previous = entries.put(entryKey, new Entry(value, now, calculateExpireTime(metaData)));
+        if (previous == null) {
+            entryCount.incrementAndGet();
+        }
+        if (previous == null || previous.isExpired(now)) {
+            if (previous != null) {
+                publish(CacheEventType.EXPIRE, contextId, key);
+            }
+            publish(CacheEventType.INSERT, contextId, key);
+            evictIfNeeded(entryKey);
+        } else {
+            publish(CacheEventType.UPDATE, contextId, key);
+        }
+    }
+
+    private Entry getEntry(String contextId, String key) throws InvalidArgumentException {
+        CacheEntryKey entryKey = toEntryKey(contextId, key);
+        Entry entry = entries.get(entryKey);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(entryKey, entry)) {
+                entryCount.decrementAndGet();
+                publish(CacheEventType.EXPIRE, contextId, key);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Evicts entries while the maximum number of entries is exceeded, each time removing
+     * the oldest of a small sample of entries.
+     *
+     * @param insertedKey key of the inserted entry, sampling starts after it.
+     */
+    private void evictIfNeeded(CacheEntryKey insertedKey) {
+        Integer limit = maxEntries;
+        if (limit == null) {
+            return;
+        }
+        while (entryCount.get() > limit) {
+            // Sampling after the inserted key spreads evictions over the whole keyspace instead of
+            // always hitting the first keys in sort order.
+            Map.Entry<CacheEntryKey, Entry> oldest = null;
+            Iterator<Map.Entry<CacheEntryKey, Entry>> iterator = entries.tailMap(insertedKey, false).entrySet().iterator();
+            for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+                if (!iterator.hasNext()) {
+                    iterator = entries.entrySet().iterator();
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<CacheEntryKey, Entry> candidate = iterator.next();
+                if (oldest == null || candidate.getValue().created < oldest.getValue().created) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                entryCount.decrementAndGet();
+                publish(CacheEventType.EVICT, oldest.getKey().getContextId(), oldest.getKey().getKey());
+            }
+        }
+    }
+
+    private void publish(CacheEventType type, String contextId, String key) {
+        eventDispatcher.publish(type, contextId, key);
+    }
+
+    private long calculateExpireTime(MetaData metaData) {
+        Integer timeToLive = metaData != null && metaData.getTimeToLive() != null ? metaData.getTimeToLive() : defaultTimeToLive;
+        if (timeToLive == null) {
+            return Long.MAX_VALUE;
+        }
+        return System.currentTimeMillis() + timeToLive * 1000L;
+    }
+
+    private static CacheEntryKey toEntryKey(String contextId, String key) throws InvalidArgumentException {
+        if (key == null) {
+            throw new InvalidArgumentException("Invalid key specified for cache entry: null");
+        }
+        return new CacheEntryKey(contextId, key);
+    }
+
+    /**
+     * Cached value, either a String or a byte array, together with its creation and expire time.
+     */
+    private static final class Entry {
+        final Object value;
+        final long created;
+        final long expireTime;
+
+        Entry(Object value, long created, long expireTime) {
+            this.value = value;
+            this.created = created;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpired(long now) {
+            return expireTime <= now;
+        }
+
+        String asString() {
+            return value instanceof String ? (String) value : new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+
+        byte[] asBinary() {
+            return value instanceof String ? ((String) value).getBytes(StandardCharsets.UTF_8) : ((byte[]) value).clone();
+        }
+    }
+}
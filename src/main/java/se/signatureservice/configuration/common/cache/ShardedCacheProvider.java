@@ -0,0 +1,708 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.InvalidArgumentException;
+import se.signatureservice.configuration.common.OperationNotSupportedException;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache provider spreading entries over a number of delegate providers (shards) using
+ * consistent hashing with virtual nodes.
+ *
+ * Entries stored under a context id are routed using the context id only, so all state
+ * belonging to one transaction or session ends up on the same shard. Global entries are
+ * routed using their key.
+ *
+ * Adding or removing a shard only moves the keys owned by that shard, roughly 1/N of the
+ * keyspace. Entries are not migrated between shards, moved keys are simply looked up on
+ * their new shard and will be missing there until set again.
+ *
+ * Shards can either be given as already created provider instances in the constructor or
+ * be created from configuration in {@link #init(Properties)}, example:
+ * <pre>
+ * cache.sharded.shards=node1,node2
+ * cache.sharded.virtualnodes=160
+ * cache.sharded.shard.node1.class=com.example.SomeCacheProvider
+ * cache.sharded.shard.node1.some.setting=value
+ * cache.sharded.shard.node2.class=com.example.SomeCacheProvider
+ * </pre>
+ * Settings prefixed with <code>cache.sharded.shard.&lt;name&gt;.</code> are given to the
+ * delegate with the prefix removed, overriding any global settings with the same name.
+ *
+ * Atomic operations are forwarded to the owning shard and are supported if the delegates support them.
+ * Change event subscriptions are registered on every shard, including shards added later, and
+ * the events of all shards are delivered to the listener through one dispatcher per subscription.
+ * Scans visit the shards one at a time, each shard acting as a segment of the keyspace.
+ */
+public class ShardedCacheProvider implements CacheProvider {
+
+    /**
+     * Comma separated list of shard names, required if no shards was given in constructor.
+     */
+    public static final String PROPERTY_SHARDS = "cache.sharded.shards";
+
+    /**
+     * Number of virtual nodes to place on the hash ring for each shard.
+     */
+    public static final String PROPERTY_VIRTUAL_NODES = "cache.sharded.virtualnodes";
+
+    /**
+     * Prefix of shard specific settings, followed by the shard name and a dot.
+     */
+    public static final String PROPERTY_SHARD_PREFIX = "cache.sharded.shard.";
+
+    /**
+     * Shard specific setting containing the class name of the delegate provider.
+     */
+    public static final String PROPERTY_SHARD_CLASS = "class";
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final Map<String, CacheProvider> shards = new LinkedHashMap<>();
+    private final List<ShardedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private int virtualNodes;
+    private volatile HashRing ring;
+
+    /**
+     * Create a sharded provider where all shards are created from configuration
+     * when {@link #init(Properties)} is called.
+     */
+    public ShardedCacheProvider() {
+        this(Collections.emptyMap(), DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Create a sharded provider using the given delegates. The delegates are initialized
+     * when {@link #init(Properties)} is called.
+     *
+     * @param shards map of unique shard name to delegate provider.
+     */
+    public ShardedCacheProvider(Map<String, CacheProvider> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Create a sharded provider using the given delegates. The delegates are initialized
+     * when {@link #init(Properties)} is called.
+     *
+     * @param shards map of unique shard name to delegate provider.
+     * @param virtualNodes number of virtual nodes on the hash ring for each shard.
+     */
+    public ShardedCacheProvider(Map<String, CacheProvider> shards, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Number of virtual nodes must be positive: " + virtualNodes);
+        }
+        for (String shardName : shards.keySet()) {
+            if (!isValidShardName(shardName)) {
+                throw new IllegalArgumentException("Invalid shard name: " + shardName);
+            }
+        }
+        this.shards.putAll(shards);
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(this.shards, virtualNodes);
+    }
+
+    /**
+     * Initializes all delegates, creating them from configuration first if no delegates
+     * was given in the constructor.
+     *
+     * @param properties configuration from system configuration, never null.
+     * @throws InvalidArgumentException if invalid properties was found.
+     * @throws IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     */
+    @Override
+    public void init(Properties properties) throws InvalidArgumentException, IOException, InternalErrorException {
+        synchronized (shards) {
+            virtualNodes = ConfigUtils.parseInteger(properties.getProperty(PROPERTY_VIRTUAL_NODES),
+                    "Invalid value for '" + PROPERTY_VIRTUAL_NODES + "' in cache configuration", false, virtualNodes);
+            if (virtualNodes < 1) {
+                throw new InvalidArgumentException("Invalid value for '" + PROPERTY_VIRTUAL_NODES + "' in cache configuration, must be positive");
+            }
+
+            if (shards.isEmpty()) {
+                String shardNames = properties.getProperty(PROPERTY_SHARDS);
+                if (shardNames == null || shardNames.trim().isEmpty()) {
+                    throw new InvalidArgumentException("Required setting '" + PROPERTY_SHARDS + "' missing in cache configuration");
+                }
+                for (String shardName : shardNames.split(",")) {
+                    shardName = shardName.trim();
+                    if (!shardName.isEmpty()) {
+                        if (!isValidShardName(shardName)) {
+                            throw new InvalidArgumentException("Invalid shard name in '" + PROPERTY_SHARDS + "' in cache configuration: " + shardName);
+                        }
+                        shards.put(shardName, createShard(shardName, properties));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, CacheProvider> shard : shards.entrySet()) {
+                shard.getValue().init(getShardProperties(shard.getKey(), properties));
+            }
+            ring = new HashRing(shards, virtualNodes);
+            try {
+                for (ShardedSubscription subscription : subscriptions) {
+                    subscription.subscribeShards(shards);
+                }
+            } catch (OperationNotSupportedException e) {
+                throw new InvalidArgumentException("Shards don't support change events required by active subscriptions: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Adds a shard to the ring. The provider must already be initialized. Active change event
+     * subscriptions are registered on the new shard.
+     *
+     * @param shardName unique name of the shard.
+     * @param provider initialized delegate provider.
+     * @throws InvalidArgumentException if a shard with the same name already exists, or if there are
+     * active change event subscriptions and the provider doesn't support change events.
+     */
+    public void addShard(String shardName, CacheProvider provider) throws InvalidArgumentException {
+        synchronized (shards) {
+            if (!isValidShardName(shardName) || provider == null || shards.containsKey(shardName)) {
+                throw new InvalidArgumentException("Invalid or already existing shard specified: " + shardName);
+            }
+            try {
+                for (ShardedSubscription subscription : subscriptions) {
+                    subscription.subscribeShard(shardName, provider);
+                }
+            } catch (OperationNotSupportedException e) {
+                for (ShardedSubscription subscription : subscriptions) {
+                    subscription.unsubscribeShard(shardName);
+                }
+                throw new InvalidArgumentException("Shard '" + shardName + "' doesn't support change events required by active subscriptions", e);
+            }
+            shards.put(shardName, provider);
+            ring = new HashRing(shards, virtualNodes);
+        }
+    }
+
+    /**
+     * Removes a shard from the ring. The removed provider is not closed, but change event
+     * subscriptions registered on it are.
+     *
+     * @param shardName name of the shard to remove.
+     * @return the removed provider or null if no shard with given name existed.
+     */
+    public CacheProvider removeShard(String shardName) {
+        synchronized (shards) {
+            CacheProvider removed = shards.remove(shardName);
+            if (removed != null) {
+                ring = new HashRing(shards, virtualNodes);
+                for (ShardedSubscription subscription : subscriptions) {
+                    subscription.unsubscribeShard(shardName);
+                }
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * @return names of all current shards.
+     */
+    public List<String> getShardNames() {
+        return ring.getShardNames();
+    }
+
+    /**
+     * Method to find which shard an entry is routed to.
+     *
+     * @param contextId the context id of the entry, null for global entries.
+     * @param key the key of the entry.
+     * @return the name of the shard owning the entry.
+     * @throws InvalidArgumentException if no key was given or no shards are configured.
+     */
+    public String getShardName(String contextId, String key) throws InvalidArgumentException {
+        return ring.getShardName(routingKey(contextId, key));
+    }
+
+    @Override
+    public String get(String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        return shardFor(null, key).get(key);
+    }
+
+    @Override
+    public String get(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        return shardFor(contextId, key).get(contextId, key);
+    }
+
+    @Override
+    public byte[] getBinary(String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        return shardFor(null, key).getBinary(key);
+    }
+
+    @Override
+    public byte[] getBinary(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        return shardFor(contextId, key).getBinary(contextId, key);
+    }
+
+    @Override
+    public void set(String key, String value) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(null, key).set(key, value);
+    }
+
+    @Override
+    public void set(String contextId, String key, String value) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(contextId, key).set(contextId, key, value);
+    }
+
+    @Override
+    public void set(String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(null, key).set(key, value, metaData);
+    }
+
+    @Override
+    public void set(String contextId, String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(contextId, key).set(contextId, key, value, metaData);
+    }
+
+    @Override
+    public void set(String key, byte[] value) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(null, key).set(key, value);
+    }
+
+    @Override
+    public void set(String contextId, String key, byte[] value) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(contextId, key).set(contextId, key, value);
+    }
+
+    @Override
+    public void set(String key, byte[] value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(null, key).set(key, value, metaData);
+    }
+
+    @Override
+    public void set(String contextId, String key, byte[] value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(contextId, key).set(contextId, key, value, metaData);
+    }
+
+    @Override
+    public void delete(String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(null, key).delete(key);
+    }
+
+    @Override
+    public void delete(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException {
+        shardFor(contextId, key).delete(contextId, key);
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(null, key).setIfAbsent(key, value, metaData);
+    }
+
+    @Override
+    public boolean setIfAbsent(String contextId, String key, String value, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(contextId, key).setIfAbsent(contextId, key, value, metaData);
+    }
+
+    @Override
+    public boolean compareAndSet(String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(null, key).compareAndSet(key, expectedValue, newValue, metaData);
+    }
+
+    @Override
+    public boolean compareAndSet(String contextId, String key, String expectedValue, String newValue, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(contextId, key).compareAndSet(contextId, key, expectedValue, newValue, metaData);
+    }
+
+    @Override
+    public long incrementAndGet(String key, long delta, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(null, key).incrementAndGet(key, delta, metaData);
+    }
+
+    @Override
+    public long incrementAndGet(String contextId, String key, long delta, MetaData metaData) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(contextId, key).incrementAndGet(contextId, key, delta, metaData);
+    }
+
+    @Override
+    public String getAndDelete(String key) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(null, key).getAndDelete(key);
+    }
+
+    @Override
+    public String getAndDelete(String contextId, String key) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        return shardFor(contextId, key).getAndDelete(contextId, key);
+    }
+
+    /**
+     * Scans the shards one after the other, in shard name order. If a context id is given only
+     * the shard owning that context is scanned.
+     *
+     * @param contextId only return entries with this context id, null to return all entries.
+     * @param keyPrefix only return entries whose key starts with this prefix, null to return all keys.
+     * @param cursor cursor returned in the previous page, null to start a new scan.
+     * @param pageSize maximum number of keys to return in the page.
+     * @return the next page of keys, with a cursor to the following page unless the scan is complete.
+     * @throws InvalidArgumentException if an invalid cursor or page size was given.
+     * @throws IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     * @throws OperationNotSupportedException if the shards doesn't support scans.
+     */
+    @Override
+    public CacheScanPage scan(String contextId, String keyPrefix, String cursor, int pageSize) throws InvalidArgumentException, IOException, InternalErrorException, OperationNotSupportedException {
+        HashRing current = ring;
+        if (contextId != null) {
+            return current.getShard(contextId).scan(contextId, keyPrefix, cursor, pageSize);
+        }
+        if (current.shardNames.length == 0) {
+            return new CacheScanPage(Collections.emptyList(), null);
+        }
+
+        int shard = 0;
+        String shardCursor = null;
+        if (cursor != null) {
+            String[] parts = decodeShardCursor(cursor);
+            // If the shard of the cursor was removed the scan continues with the following shard.
+            shard = Arrays.binarySearch(current.shardNames, parts[0]);
+            if (shard >= 0) {
+                shardCursor = parts[1];
+            } else {
+                shard = -shard - 1;
+                if (shard == current.shardNames.length) {
+                    return new CacheScanPage(Collections.emptyList(), null);
+                }
+            }
+        }
+
+        CacheScanPage page = current.providers[shard].scan(null, keyPrefix, shardCursor, pageSize);
+        String nextCursor;
+        if (page.getNextCursor() != null) {
+            nextCursor = encodeShardCursor(current.shardNames[shard], page.getNextCursor());
+        } else if (shard + 1 < current.shardNames.length) {
+            nextCursor = encodeShardCursor(current.shardNames[shard + 1], null);
+        } else {
+            nextCursor = null;
+        }
+        return new CacheScanPage(page.getKeys(), nextCursor);
+    }
+
+    /**
+     * Subscribes the listener to all shards, including shards added later. The events of all shards
+     * are forwarded to a dispatcher owned by the subscription, so batches are delivered to the
+     * listener one at a time, with the events of each shard in order. Events dropped by a shard
+     * are reported as dropped by the subscription.
+     *
+     * @param listener the listener to deliver events to.
+     * @param queueCapacity maximum number of undelivered events, per shard and for the subscription,
+     * before events are dropped.
+     * @param maxBatchSize maximum number of events in each delivered batch.
+     * @return subscription handle closing the subscriptions of all shards.
+     * @throws OperationNotSupportedException if any of the shards doesn't support change events.
+     */
+    @Override
+    public CacheEventSubscription subscribe(CacheEventListener listener, int queueCapacity, int maxBatchSize) throws OperationNotSupportedException {
+        synchronized (shards) {
+            ShardedSubscription subscription = new ShardedSubscription(listener, queueCapacity, maxBatchSize);
+            try {
+                subscription.subscribeShards(shards);
+            } catch (OperationNotSupportedException | RuntimeException e) {
+                subscription.close();
+                throw e;
+            }
+            subscriptions.add(subscription);
+            return subscription;
+        }
+    }
+
+    /**
+     * Closes all shards. All shards are closed even if closing one of them fails,
+     * the first error is rethrown afterwards.
+     *
+     * @throws IOException if communication problems occurred with underlying systems.
+     * @throws InternalErrorException internal error occurred in the system.
+     */
+    @Override
+    public void close() throws IOException, InternalErrorException {
+        subscriptions.forEach(ShardedSubscription::close);
+        List<CacheProvider> toClose;
+        synchronized (shards) {
+            toClose = new ArrayList<>(shards.values());
+        }
+
+        Exception firstError = null;
+        for (CacheProvider shard : toClose) {
+            try {
+                shard.close();
+            } catch (IOException | InternalErrorException | RuntimeException e) {
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+
+        if (firstError instanceof IOException) {
+            throw (IOException) firstError;
+        }
+        if (firstError instanceof InternalErrorException) {
+            throw (InternalErrorException) firstError;
+        }
+        if (firstError != null) {
+            throw (RuntimeException) firstError;
+        }
+    }
+
+    CacheProvider shardFor(String contextId, String key) throws InvalidArgumentException {
+        return ring.getShard(routingKey(contextId, key));
+    }
+
+    private static String routingKey(String contextId, String key) throws InvalidArgumentException {
+        if (key == null) {
+            throw new InvalidArgumentException("Invalid key specified for cache entry: null");
+        }
+        return contextId != null ? contextId : key;
+    }
+
+    private static CacheProvider createShard(String shardName, Properties properties) throws InvalidArgumentException {
+        String className = properties.getProperty(PROPERTY_SHARD_PREFIX + shardName + "." + PROPERTY_SHARD_CLASS);
+        if (className == null || className.trim().isEmpty()) {
+            throw new InvalidArgumentException("Required setting '" + PROPERTY_SHARD_PREFIX + shardName + "." + PROPERTY_SHARD_CLASS + "' missing in cache configuration");
+        }
+        try {
+            Class<?> c = Class.forName(className.trim(), true, ShardedCacheProvider.class.getClassLoader());
+            return (CacheProvider) c.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new InvalidArgumentException("Error creating cache provider '" + className + "' for shard '" + shardName + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static Properties getShardProperties(String shardName, Properties properties) {
+        String prefix = PROPERTY_SHARD_PREFIX + shardName + ".";
+        Properties shardProperties = new Properties();
+        shardProperties.putAll(properties);
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                shardProperties.setProperty(name.substring(prefix.length()), properties.getProperty(name));
+            }
+        }
+        return shardProperties;
+    }
+
+    static String encodeShardCursor(String shardName, String shardCursor) {
+        String cursor = shardName + "\n" + (shardCursor != null ? shardCursor : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Shard names are encoded in scan cursors followed by a newline, so they must not contain one.
+     */
+    private static boolean isValidShardName(String shardName) {
+        return shardName != null && shardName.indexOf('\n') < 0;
+    }
+
+    static String[] decodeShardCursor(String cursor) throws InvalidArgumentException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // Shard names never contain a newline, the cursor of the delegate may.
+            int separator = decoded.indexOf('\n');
+            if (separator < 0) {
+                throw new IllegalArgumentException("missing shard separator");
+            }
+            String shardCursor = decoded.substring(separator + 1);
+            return new String[]{decoded.substring(0, separator), shardCursor.isEmpty() ? null : shardCursor};
+        } catch (IllegalArgumentException e) {
+            throw new InvalidArgumentException("Invalid cache scan cursor specified: " + cursor, e);
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters in the string, followed by the MurmurHash3
+     * finalizer to spread nearby inputs over the whole ring.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb34fe1a85ec1L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Subscription covering the subscriptions of all shards, forwarding their events to a
+     * dispatcher delivering them to the listener.
+     */
+    private final class ShardedSubscription implements CacheEventSubscription {
+        private final CacheEventDispatcher dispatcher = new CacheEventDispatcher();
+        private final CacheEventSubscription subscription;
+        private final Map<String, CacheEventSubscription> shardSubscriptions = new ConcurrentHashMap<>();
+        private final int queueCapacity;
+        private final int maxBatchSize;
+
+        ShardedSubscription(CacheEventListener listener, int queueCapacity, int maxBatchSize) {
+            this.queueCapacity = queueCapacity;
+            this.maxBatchSize = maxBatchSize;
+            try {
+                subscription = dispatcher.subscribe(listener, queueCapacity, maxBatchSize);
+            } catch (IllegalArgumentException e) {
+                dispatcher.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Subscribe to all given shards not already subscribed to, called with the shards locked.
+         */
+        void subscribeShards(Map<String, CacheProvider> providers) throws OperationNotSupportedException {
+            for (Map.Entry<String, CacheProvider> shard : providers.entrySet()) {
+                if (!shardSubscriptions.containsKey(shard.getKey())) {
+                    subscribeShard(shard.getKey(), shard.getValue());
+                }
+            }
+        }
+
+        /**
+         * Subscribe to a shard, called with the shards locked.
+         */
+        void subscribeShard(String shardName, CacheProvider provider) throws OperationNotSupportedException {
+            shardSubscriptions.put(shardName, provider.subscribe(this::forward, queueCapacity, maxBatchSize));
+        }
+
+        /**
+         * Close the subscription of a shard, called with the shards locked.
+         */
+        void unsubscribeShard(String shardName) {
+            CacheEventSubscription shardSubscription = shardSubscriptions.remove(shardName);
+            if (shardSubscription != null) {
+                shardSubscription.close();
+            }
+        }
+
+        private void forward(CacheEventBatch batch) {
+            dispatcher.publishDropped(batch.getDroppedEvents());
+            for (CacheEvent event : batch.getEvents()) {
+                dispatcher.publish(event);
+            }
+        }
+
+        @Override
+        public long getDroppedEvents() {
+            return subscription.getDroppedEvents();
+        }
+
+        @Override
+        public int getPendingEvents() {
+            int pending = subscription.getPendingEvents();
+            for (CacheEventSubscription shardSubscription : shardSubscriptions.values()) {
+                pending += shardSubscription.getPendingEvents();
+            }
+            return pending;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return subscription.isClosed();
+        }
+
+        @Override
+        public void close() {
+            synchronized (shards) {
+                subscriptions.remove(this);
+                shardSubscriptions.values().forEach(CacheEventSubscription::close);
+                shardSubscriptions.clear();
+            }
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * Immutable hash ring, replaced as a whole when shards are added or removed.
+     */
+    private static final class HashRing {
+        private final long[] points;
+        private final int[] owners;
+        private final String[] shardNames;
+        private final CacheProvider[] providers;
+
+        HashRing(Map<String, CacheProvider> shards, int virtualNodes) {
+            shardNames = shards.keySet().toArray(new String[0]);
+            Arrays.sort(shardNames);
+            providers = new CacheProvider[shardNames.length];
+            for (int i = 0; i < shardNames.length; i++) {
+                providers[i] = shards.get(shardNames[i]);
+            }
+
+            int size = shardNames.length * virtualNodes;
+            long[][] nodes = new long[size][];
+            int n = 0;
+            for (int shard = 0; shard < shardNames.length; shard++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    nodes[n++] = new long[]{hash(shardNames[shard] + "#" + v), shard};
+                }
+            }
+            // Ties are broken by shard index, which is stable since shard names are sorted.
+            Arrays.sort(nodes, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+            points = new long[size];
+            owners = new int[size];
+            for (int i = 0; i < size; i++) {
+                points[i] = nodes[i][0];
+                owners[i] = (int) nodes[i][1];
+            }
+        }
+
+        CacheProvider getShard(String routingKey) throws InvalidArgumentException {
+            return providers[indexOf(routingKey)];
+        }
+
+        String getShardName(String routingKey) throws InvalidArgumentException {
+            return shardNames[indexOf(routingKey)];
+        }
+
+        List<String> getShardNames() {
+            return Collections.unmodifiableList(Arrays.asList(shardNames));
+        }
+
+        private int indexOf(String routingKey) throws InvalidArgumentException {
+            if (points.length == 0) {
+                throw new InvalidArgumentException("No cache shards configured");
+            }
+            int i = Arrays.binarySearch(points, hash(routingKey));
+            if (i < 0) {
+                i = -i - 1;
+                if (i == points.length) {
+                    i = 0;
+                }
+            } else {
+                // Several virtual nodes may share the same point, the first one owns it.
+                while (i > 0 && points[i - 1] == points[i]) {
+                    i--;
+                }
+            }
+            return owners[i];
+        }
+    }
+}
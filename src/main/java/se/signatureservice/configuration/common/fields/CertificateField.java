@@ -0,0 +1,168 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.fields;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fields used when requesting certificates, with the OID, attribute type and default SAML
+ * attributes of each field. This is the registry the maps in {@link Fields} are built from.
+ * The DER form of each OID is encoded once, when the enum is initialized.
+ */
+public enum CertificateField {
+    COMMONNAME(Fields.FIELDNAME_COMMONNAME, "2.5.4.3", Fields.ATTR_TYPE_RDN, "2.5.4.3", "2.16.840.1.113730.3.1.241"),
+    SERIALNUMBER(Fields.FIELDNAME_SERIALNUMBER, "2.5.4.5", Fields.ATTR_TYPE_RDN, "2.5.4.5", "1.2.752.29.4.13", "1.2.752.201.3.4"),
+    SURNAME(Fields.FIELDNAME_SURNAME, "2.5.4.4", Fields.ATTR_TYPE_RDN, "2.5.4.4"),
+    COUNTRY(Fields.FIELDNAME_COUNTRY, "2.5.4.6", Fields.ATTR_TYPE_RDN, "2.5.4.6"),
+    LOCALITY(Fields.FIELDNAME_LOCALITY, "2.5.4.7", Fields.ATTR_TYPE_RDN, "2.5.4.7"),
+    STATE(Fields.FIELDNAME_STATE, "2.5.4.8", Fields.ATTR_TYPE_RDN, "2.5.4.8"),
+    STREET(Fields.FIELDNAME_STREET, "2.5.4.9", Fields.ATTR_TYPE_RDN, "2.5.4.9", "1.2.752.201.3.9"),
+    ORGANISATION(Fields.FIELDNAME_ORGANISATION, "2.5.4.10", Fields.ATTR_TYPE_RDN, "2.5.4.10"),
+    ORGANISATIONUNIT(Fields.FIELDNAME_ORGANISATIONUNIT, "2.5.4.11", Fields.ATTR_TYPE_RDN, "2.5.4.11", "1.2.752.201.3.7"),
+    ORGANISATIONID(Fields.FIELDNAME_ORGANISATIONID, "2.5.4.97", Fields.ATTR_TYPE_RDN, "2.5.4.97"),
+    TITLE(Fields.FIELDNAME_TITLE, "2.5.4.12", Fields.ATTR_TYPE_RDN, "2.5.4.12"),
+    GIVENNAME(Fields.FIELDNAME_GIVENNAME, "2.5.4.42", Fields.ATTR_TYPE_RDN, "2.5.4.42"),
+    INITIALS(Fields.FIELDNAME_INITIALS, "2.5.4.43", Fields.ATTR_TYPE_RDN, "2.5.4.43"),
+    PSEUDONYM(Fields.FIELDNAME_PSEUDONYM, "2.5.4.65", Fields.ATTR_TYPE_RDN, "2.5.4.65", "1.2.752.201.3.5"),
+    DATEOFBIRTH(Fields.FIELDNAME_DATEOFBIRTH, "1.3.6.1.5.5.7.9.1", Fields.ATTR_TYPE_SDA, "1.3.6.1.5.5.7.9.1"),
+    PLACEOFBIRTH(Fields.FIELDNAME_PLACEOFBIRTH, "1.3.6.1.5.5.7.9.2", Fields.ATTR_TYPE_SDA, "1.3.6.1.5.5.7.9.2"),
+    GENDER(Fields.FIELDNAME_GENDER, "1.3.6.1.5.5.7.9.3", Fields.ATTR_TYPE_SDA, "1.3.6.1.5.5.7.9.3"),
+    COUNTRYOFCITIZENSHIP(Fields.FIELDNAME_COUNTRYOFCITIZENSHIP, "1.3.6.1.5.5.7.9.4", Fields.ATTR_TYPE_SDA, "1.3.6.1.5.5.7.9.4"),
+    COUNTRYOFRESIDENCE(Fields.FIELDNAME_COUNTRYOFRESIDENCE, "1.3.6.1.5.5.7.9.5", Fields.ATTR_TYPE_SDA, "1.3.6.1.5.5.7.9.5"),
+    EMAIL(Fields.FIELDNAME_EMAIL, "0.9.2342.19200300.100.1.3", Fields.ATTR_TYPE_SAN, "0.9.2342.19200300.100.1.3"),
+    EMAIL_ADDRESS(Fields.FIELDNAME_EMAIL_ADDRESS, "0.9.2342.19200300.100.1.3", Fields.ATTR_TYPE_RDN, "0.9.2342.19200300.100.1.3"),
+    UNIQUEIDENTIFIER(Fields.FIELDNAME_UNIQUEIDENTIFIER, "2.5.4.45", Fields.ATTR_TYPE_RDN, "2.5.4.45", "1.2.752.201.3.2"),
+    NAMEATBIRTH(Fields.FIELDNAME_NAMEATBIRTH, "1.3.36.8.3.14", Fields.ATTR_TYPE_SDA, "1.2.752.201.3.8"),
+    TELEPHONENUMBER(Fields.FIELDNAME_TELEPHONENUMBER, "2.5.4.20", Fields.ATTR_TYPE_RDN, "2.5.4.20");
+
+    private final String fieldName;
+    private final String attrRef;
+    private final DerObjectIdentifier attrRefDer;
+    private final String attrType;
+    private final List<String> defaultSamlAttributes;
+
+    CertificateField(String fieldName, String attrRef, String attrType, String... defaultSamlAttributeOids) {
+        this.fieldName = fieldName;
+        this.attrRef = attrRef;
+        this.attrRefDer = DerObjectIdentifier.encode(attrRef);
+        this.attrType = attrType;
+        String[] samlAttributes = new String[defaultSamlAttributeOids.length];
+        for (int i = 0; i < samlAttributes.length; i++) {
+            samlAttributes[i] = Fields.OID_URI + defaultSamlAttributeOids[i];
+        }
+        this.defaultSamlAttributes = Collections.unmodifiableList(Arrays.asList(samlAttributes));
+    }
+
+    /**
+     * @return field name used when requesting certificate, one of the {@code FIELDNAME_*}
+     * constants in {@link Fields}.
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return OID of the certificate attribute.
+     */
+    public String getAttrRef() {
+        return attrRef;
+    }
+
+    /**
+     * @return pre-encoded DER form of the OID of the certificate attribute.
+     */
+    public DerObjectIdentifier getAttrRefDer() {
+        return attrRefDer;
+    }
+
+    /**
+     * @return attribute type, one of the {@code ATTR_TYPE_*} constants in {@link Fields}.
+     */
+    public String getAttrType() {
+        return attrType;
+    }
+
+    /**
+     * @return unmodifiable list of default SAML attribute names to take the value from, in
+     * priority order.
+     */
+    public List<String> getDefaultSamlAttributes() {
+        return defaultSamlAttributes;
+    }
+
+    /**
+     * Get a field by name.
+     *
+     * @param fieldName field name, one of the {@code FIELDNAME_*} constants in {@link Fields}.
+     * @return the field or null if the field name is unknown.
+     */
+    public static CertificateField fromFieldName(String fieldName) {
+        if (fieldName == null) {
+            return null;
+        }
+        switch (fieldName) {
+            case Fields.FIELDNAME_COMMONNAME:
+                return COMMONNAME;
+            case Fields.FIELDNAME_SERIALNUMBER:
+                return SERIALNUMBER;
+            case Fields.FIELDNAME_SURNAME:
+                return SURNAME;
+            case Fields.FIELDNAME_COUNTRY:
+                return COUNTRY;
+            case Fields.FIELDNAME_LOCALITY:
+                return LOCALITY;
+            case Fields.FIELDNAME_STATE:
+                return STATE;
+            case Fields.FIELDNAME_STREET:
+                return STREET;
+            case Fields.FIELDNAME_ORGANISATION:
+                return ORGANISATION;
+            case Fields.FIELDNAME_ORGANISATIONUNIT:
+                return ORGANISATIONUNIT;
+            case Fields.FIELDNAME_ORGANISATIONID:
+                return ORGANISATIONID;
+            case Fields.FIELDNAME_TITLE:
+                return TITLE;
+            case Fields.FIELDNAME_GIVENNAME:
+                return GIVENNAME;
+            case Fields.FIELDNAME_INITIALS:
+                return INITIALS;
+            case Fields.FIELDNAME_PSEUDONYM:
+                return PSEUDONYM;
+            case Fields.FIELDNAME_DATEOFBIRTH:
+                return DATEOFBIRTH;
+            case Fields.FIELDNAME_PLACEOFBIRTH:
+                return PLACEOFBIRTH;
+            case Fields.FIELDNAME_GENDER:
+                return GENDER;
+            case Fields.FIELDNAME_COUNTRYOFCITIZENSHIP:
+                return COUNTRYOFCITIZENSHIP;
+            case Fields.FIELDNAME_COUNTRYOFRESIDENCE:
+                return COUNTRYOFRESIDENCE;
+            case Fields.FIELDNAME_EMAIL:
+                return EMAIL;
+            case Fields.FIELDNAME_EMAIL_ADDRESS:
+                return EMAIL_ADDRESS;
+            case Fields.FIELDNAME_UNIQUEIDENTIFIER:
+                return UNIQUEIDENTIFIER;
+            case Fields.FIELDNAME_NAMEATBIRTH:
+                return NAMEATBIRTH;
+            case Fields.FIELDNAME_TELEPHONENUMBER:
+                return TELEPHONENUMBER;
+            default:
+                return null;
+        }
+    }
+}
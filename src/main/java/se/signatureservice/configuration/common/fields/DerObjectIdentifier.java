@@ -0,0 +1,216 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.fields;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable, pre-encoded ASN.1 DER form of an object identifier, including tag and length,
+ * encoded once and written without allocation.
+ */
+public final class DerObjectIdentifier {
+
+    private static final byte TAG = 0x06;
+
+    /**
+     * Arcs with more digits may not fit in a long and are encoded from a BigInteger.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final String oid;
+    private final byte[] encoded;
+
+    private DerObjectIdentifier(String oid, byte[] encoded) {
+        this.oid = oid;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Encode an object identifier.
+     *
+     * @param oid object identifier in dotted form, such as {@code 2.5.4.3}.
+     * @return the encoded object identifier.
+     * @throws IllegalArgumentException if the object identifier is invalid.
+     */
+    public static DerObjectIdentifier encode(String oid) {
+        if (oid == null) {
+            throw new IllegalArgumentException("Invalid OID: null");
+        }
+        String[] parts = oid.split("\\.", -1);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid OID: " + oid);
+        }
+        long root = parseArc(parts[0], oid);
+        if (root > 2) {
+            throw new IllegalArgumentException("Invalid OID: " + oid);
+        }
+
+        // Each arc is encoded in at most as many bytes as it has digits, the first two arcs
+        // in at most one byte more than the second arc.
+        byte[] content = new byte[oid.length()];
+        int length;
+        if (parts[1].length() > MAX_LONG_DIGITS) {
+            if (root < 2) {
+                throw new IllegalArgumentException("Invalid OID: " + oid);
+            }
+            length = writeArc(content, 0, parseLargeArc(parts[1], oid).add(BigInteger.valueOf(80)));
+        } else {
+            long arc = parseArc(parts[1], oid);
+            if (root < 2 && arc > 39) {
+                throw new IllegalArgumentException("Invalid OID: " + oid);
+            }
+            length = writeArc(content, 0, root * 40 + arc);
+        }
+        for (int i = 2; i < parts.length; i++) {
+            if (parts[i].length() > MAX_LONG_DIGITS) {
+                length = writeArc(content, length, parseLargeArc(parts[i], oid));
+            } else {
+                length = writeArc(content, length, parseArc(parts[i], oid));
+            }
+        }
+        if (length > 0xffff) {
+            throw new IllegalArgumentException("Invalid OID, encoded length " + length + " exceeds 65535 bytes");
+        }
+
+        int lengthBytes = length < 0x80 ? 1 : (length < 0x100 ? 2 : 3);
+        byte[] encoded = new byte[1 + lengthBytes + length];
+        encoded[0] = TAG;
+        if (lengthBytes == 1) {
+            encoded[1] = (byte) length;
+        } else if (lengthBytes == 2) {
+            encoded[1] = (byte) 0x81;
+            encoded[2] = (byte) length;
+        } else {
+            encoded[1] = (byte) 0x82;
+            encoded[2] = (byte) (length >>> 8);
+            encoded[3] = (byte) length;
+        }
+        System.arraycopy(content, 0, encoded, 1 + lengthBytes, length);
+        return new DerObjectIdentifier(oid, encoded);
+    }
+
+    /**
+     * @return the object identifier in dotted form.
+     */
+    public String getOid() {
+        return oid;
+    }
+
+    /**
+     * @return number of bytes of the encoded form, including tag and length.
+     */
+    public int getLength() {
+        return encoded.length;
+    }
+
+    /**
+     * Write the encoded form, including tag and length.
+     *
+     * @param buffer buffer to write to.
+     * @param offset offset in the buffer to write at.
+     * @return offset after the written bytes.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     */
+    public int writeTo(byte[] buffer, int offset) {
+        System.arraycopy(encoded, 0, buffer, offset, encoded.length);
+        return offset + encoded.length;
+    }
+
+    /**
+     * Write the encoded form, including tag and length, at the position of the buffer.
+     *
+     * @param buffer buffer to write to.
+     * @throws java.nio.BufferOverflowException if the buffer has not enough remaining space.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(encoded);
+    }
+
+    /**
+     * @return copy of the encoded form, including tag and length.
+     */
+    public byte[] getEncoded() {
+        return encoded.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DerObjectIdentifier && Arrays.equals(encoded, ((DerObjectIdentifier) o).encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public String toString() {
+        return oid;
+    }
+
+    private static long parseArc(String part, String oid) {
+        checkArc(part, oid);
+        long arc = 0;
+        for (int i = 0; i < part.length(); i++) {
+            arc = arc * 10 + (part.charAt(i) - '0');
+        }
+        return arc;
+    }
+
+    /**
+     * Parse an arc too large for a long, such as the UUID arcs below 2.25 of ITU-T X.667.
+     */
+    private static BigInteger parseLargeArc(String part, String oid) {
+        checkArc(part, oid);
+        return new BigInteger(part);
+    }
+
+    private static void checkArc(String part, String oid) {
+        if (part.isEmpty() || (part.length() > 1 && part.charAt(0) == '0')) {
+            throw new IllegalArgumentException("Invalid OID: " + oid);
+        }
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid OID: " + oid);
+            }
+        }
+    }
+
+    /**
+     * Write an arc in base 128, most significant group first, with the high bit set on all
+     * groups but the last.
+     */
+    private static int writeArc(byte[] buffer, int offset, long arc) {
+        int groups = 1;
+        for (long rest = arc >>> 7; rest != 0; rest >>>= 7) {
+            groups++;
+        }
+        for (int i = groups - 1; i >= 0; i--) {
+            byte group = (byte) ((arc >>> (7 * i)) & 0x7f);
+            buffer[offset++] = i > 0 ? (byte) (group | 0x80) : group;
+        }
+        return offset;
+    }
+
+    private static int writeArc(byte[] buffer, int offset, BigInteger arc) {
+        int groups = Math.max(1, (arc.bitLength() + 6) / 7);
+        for (int i = groups - 1; i >= 0; i--) {
+            byte group = (byte) (arc.shiftRight(7 * i).intValue() & 0x7f);
+            buffer[offset++] = i > 0 ? (byte) (group | 0x80) : group;
+        }
+        return offset;
+    }
+}
@@ -12,7 +12,9 @@
  *************************************************************************/
 package se.signatureservice.configuration.common.fields;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,197 +27,273 @@ public class Fields {
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_COUNTRY = "country";
+    public static final String FIELDNAME_COUNTRY = "country";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_SERIALNUMBER = "serialnumber";
+    public static final String FIELDNAME_SERIALNUMBER = "serialnumber";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_SURNAME = "surname";
+    public static final String FIELDNAME_SURNAME = "surname";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_GIVENNAME = "givenname";
+    public static final String FIELDNAME_GIVENNAME = "givenname";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_EMAIL = "email";
+    public static final String FIELDNAME_EMAIL = "email";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_EMAIL_ADDRESS = "emailaddress";
+    public static final String FIELDNAME_EMAIL_ADDRESS = "emailaddress";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_COMMONNAME = "commonname";
+    public static final String FIELDNAME_COMMONNAME = "commonname";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_LOCALITY = "localityname";
+    public static final String FIELDNAME_LOCALITY = "localityname";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_ORGANISATION = "organisation";
+    public static final String FIELDNAME_ORGANISATION = "organisation";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_ORGANISATIONUNIT = "organisationunit";
+    public static final String FIELDNAME_ORGANISATIONUNIT = "organisationunit";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_ORGANISATIONID = "organsiationid";
+    public static final String FIELDNAME_ORGANISATIONID = "organsiationid";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_INITIALS = "initials";
+    public static final String FIELDNAME_INITIALS = "initials";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_PSEUDONYM = "pseudonym";
+    public static final String FIELDNAME_PSEUDONYM = "pseudonym";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_STATE = "state";
+    public static final String FIELDNAME_STATE = "state";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_STREET = "street";
+    public static final String FIELDNAME_STREET = "street";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_TITLE = "title";
+    public static final String FIELDNAME_TITLE = "title";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_TELEPHONENUMBER = "telephonenumber";
+    public static final String FIELDNAME_TELEPHONENUMBER = "telephonenumber";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_UNIQUEIDENTIFIER = "uniqueidentifier";
+    public static final String FIELDNAME_UNIQUEIDENTIFIER = "uniqueidentifier";
 
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_DATEOFBIRTH = "dateofbirth";
+    public static final String FIELDNAME_DATEOFBIRTH = "dateofbirth";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_PLACEOFBIRTH = "placeofbirth";
+    public static final String FIELDNAME_PLACEOFBIRTH = "placeofbirth";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_NAMEATBIRTH = "nameatbirth";
+    public static final String FIELDNAME_NAMEATBIRTH = "nameatbirth";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_GENDER = "gender";
+    public static final String FIELDNAME_GENDER = "gender";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_COUNTRYOFCITIZENSHIP = "countryofcitizenship";
+    public static final String FIELDNAME_COUNTRYOFCITIZENSHIP = "countryofcitizenship";
     /**
      * Field name used when requesting certificate.
      */
-    public static String FIELDNAME_COUNTRYOFRESIDENCE = "countryofresidence";
+    public static final String FIELDNAME_COUNTRYOFRESIDENCE = "countryofresidence";
 
-    public static final Map<String, String> fieldNameToAttrRef = new LinkedHashMap<>();
+    /**
+     * Unmodifiable map of OID by field name.
+     */
+    public static final Map<String, String> fieldNameToAttrRef;
+
+    public static final String OID_URI = "urn:oid:";
+
+    /**
+     * Unmodifiable map of default SAML attribute names, in priority order, by field name.
+     */
+    public static final Map<String, List<String>> tokenFieldMapToDefaultSAMLAttributes;
+
+    /**
+     * Unmodifiable map of attribute type by field name.
+     */
+    public static final Map<String, String> fieldNameToAttrType;
 
     static {
-        fieldNameToAttrRef.put(FIELDNAME_COMMONNAME, "2.5.4.3");
-        fieldNameToAttrRef.put(FIELDNAME_SERIALNUMBER, "2.5.4.5");
-        fieldNameToAttrRef.put(FIELDNAME_SURNAME, "2.5.4.4");
-        fieldNameToAttrRef.put(FIELDNAME_COUNTRY, "2.5.4.6");
-        fieldNameToAttrRef.put(FIELDNAME_LOCALITY, "2.5.4.7");
-        fieldNameToAttrRef.put(FIELDNAME_STATE, "2.5.4.8");
-        fieldNameToAttrRef.put(FIELDNAME_STREET, "2.5.4.9");
-        fieldNameToAttrRef.put(FIELDNAME_ORGANISATION, "2.5.4.10");
-        fieldNameToAttrRef.put(FIELDNAME_ORGANISATIONUNIT, "2.5.4.11");
-        fieldNameToAttrRef.put(FIELDNAME_ORGANISATIONID, "2.5.4.97");
-        fieldNameToAttrRef.put(FIELDNAME_TITLE, "2.5.4.12");
-        fieldNameToAttrRef.put(FIELDNAME_GIVENNAME, "2.5.4.42");
-        fieldNameToAttrRef.put(FIELDNAME_INITIALS, "2.5.4.43");
-        fieldNameToAttrRef.put(FIELDNAME_PSEUDONYM, "2.5.4.65");
-        fieldNameToAttrRef.put(FIELDNAME_DATEOFBIRTH, "1.3.6.1.5.5.7.9.1");
-        fieldNameToAttrRef.put(FIELDNAME_PLACEOFBIRTH, "1.3.6.1.5.5.7.9.2");
-        fieldNameToAttrRef.put(FIELDNAME_GENDER, "1.3.6.1.5.5.7.9.3");
-        fieldNameToAttrRef.put(FIELDNAME_COUNTRYOFCITIZENSHIP, "1.3.6.1.5.5.7.9.4");
-        fieldNameToAttrRef.put(FIELDNAME_COUNTRYOFRESIDENCE, "1.3.6.1.5.5.7.9.5");
-        fieldNameToAttrRef.put(FIELDNAME_EMAIL, "0.9.2342.19200300.100.1.3");
-        fieldNameToAttrRef.put(FIELDNAME_EMAIL_ADDRESS, "0.9.2342.19200300.100.1.3");
-        fieldNameToAttrRef.put(FIELDNAME_UNIQUEIDENTIFIER, "2.5.4.45");
-        fieldNameToAttrRef.put(FIELDNAME_NAMEATBIRTH, "1.3.36.8.3.14");
-        fieldNameToAttrRef.put(FIELDNAME_TELEPHONENUMBER, "2.5.4.20");
+        Map<String, String> attrRefs = new LinkedHashMap<>();
+        for (CertificateField field : CertificateField.values()) {
+            attrRefs.put(field.getFieldName(), field.getAttrRef());
+        }
+        fieldNameToAttrRef = Collections.unmodifiableMap(attrRefs);
+
+        Map<String, List<String>> samlAttributes = new LinkedHashMap<>();
+        for (CertificateField field : new CertificateField[]{
+                CertificateField.COMMONNAME, CertificateField.SERIALNUMBER, CertificateField.SURNAME, CertificateField.COUNTRY,
+                CertificateField.LOCALITY, CertificateField.STATE, CertificateField.STREET, CertificateField.ORGANISATION,
+                CertificateField.ORGANISATIONUNIT, CertificateField.ORGANISATIONID, CertificateField.TITLE, CertificateField.GIVENNAME,
+                CertificateField.INITIALS, CertificateField.PSEUDONYM, CertificateField.DATEOFBIRTH, CertificateField.PLACEOFBIRTH,
+                CertificateField.GENDER, CertificateField.COUNTRYOFCITIZENSHIP, CertificateField.COUNTRYOFRESIDENCE,
+                CertificateField.NAMEATBIRTH, CertificateField.EMAIL, CertificateField.EMAIL_ADDRESS,
+                CertificateField.UNIQUEIDENTIFIER, CertificateField.TELEPHONENUMBER}) {
+            samlAttributes.put(field.getFieldName(), field.getDefaultSamlAttributes());
+        }
+        tokenFieldMapToDefaultSAMLAttributes = Collections.unmodifiableMap(samlAttributes);
+
+        Map<String, String> attrTypes = new LinkedHashMap<>();
+        for (CertificateField field : new CertificateField[]{
+                CertificateField.COUNTRY, CertificateField.SERIALNUMBER, CertificateField.SURNAME, CertificateField.GIVENNAME,
+                CertificateField.EMAIL, CertificateField.EMAIL_ADDRESS, CertificateField.COMMONNAME, CertificateField.LOCALITY,
+                CertificateField.ORGANISATION, CertificateField.ORGANISATIONUNIT, CertificateField.ORGANISATIONID,
+                CertificateField.INITIALS, CertificateField.PSEUDONYM, CertificateField.STATE, CertificateField.STREET,
+                CertificateField.TITLE, CertificateField.UNIQUEIDENTIFIER, CertificateField.TELEPHONENUMBER,
+                CertificateField.DATEOFBIRTH, CertificateField.PLACEOFBIRTH, CertificateField.GENDER,
+                CertificateField.COUNTRYOFCITIZENSHIP, CertificateField.COUNTRYOFRESIDENCE, CertificateField.NAMEATBIRTH}) {
+            attrTypes.put(field.getFieldName(), field.getAttrType());
+        }
+        fieldNameToAttrType = Collections.unmodifiableMap(attrTypes);
     }
 
-    public static final String OID_URI = "urn:oid:";
+    /**
+     * Field names by OID, in the order of fieldNameToAttrRef. Built once from fieldNameToAttrRef.
+     */
+    public static final Map<String, List<String>> attrRefToFieldNames;
+
+    /**
+     * Field names by default SAML attribute name, in priority order. A field has higher priority
+     * the earlier the SAML attribute is listed in its tokenFieldMapToDefaultSAMLAttributes entry,
+     * fields with the same priority are in the order of tokenFieldMapToDefaultSAMLAttributes.
+     * Built once from tokenFieldMapToDefaultSAMLAttributes.
+     */
+    public static final Map<String, List<String>> samlAttributeToFieldNames;
 
-    public static final Map<String, List<String>> tokenFieldMapToDefaultSAMLAttributes = new LinkedHashMap<>();
+    /**
+     * Lookup tables containing the keys of the reverse indexes both with and without the OID_URI
+     * prefix, so that raw attribute names are found without creating substrings.
+     */
+    private static final Map<String, List<String>> attrRefLookup;
+    private static final Map<String, List<String>> samlAttributeLookup;
 
     static {
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_COMMONNAME, Arrays.asList(OID_URI + "2.5.4.3", OID_URI + "2.16.840.1.113730.3.1.241"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_SERIALNUMBER, Arrays.asList(OID_URI + "2.5.4.5", OID_URI + "1.2.752.29.4.13", OID_URI + "1.2.752.201.3.4"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_SURNAME, Arrays.asList(OID_URI + "2.5.4.4"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_COUNTRY, Arrays.asList(OID_URI + "2.5.4.6"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_LOCALITY, Arrays.asList(OID_URI + "2.5.4.7"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_STATE, Arrays.asList(OID_URI + "2.5.4.8"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_STREET, Arrays.asList(OID_URI + "2.5.4.9", OID_URI + "1.2.752.201.3.9"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_ORGANISATION, Arrays.asList(OID_URI + "2.5.4.10"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_ORGANISATIONUNIT, Arrays.asList(OID_URI + "2.5.4.11", OID_URI + "1.2.752.201.3.7"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_ORGANISATIONID, Arrays.asList(OID_URI + "2.5.4.97"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_TITLE, Arrays.asList(OID_URI + "2.5.4.12"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_GIVENNAME, Arrays.asList(OID_URI + "2.5.4.42"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_INITIALS, Arrays.asList(OID_URI + "2.5.4.43"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_PSEUDONYM, Arrays.asList(OID_URI + "2.5.4.65", OID_URI + "1.2.752.201.3.5"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_DATEOFBIRTH, Arrays.asList(OID_URI + "1.3.6.1.5.5.7.9.1"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_PLACEOFBIRTH, Arrays.asList(OID_URI + "1.3.6.1.5.5.7.9.2"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_GENDER, Arrays.asList(OID_URI + "1.3.6.1.5.5.7.9.3"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_COUNTRYOFCITIZENSHIP, Arrays.asList(OID_URI + "1.3.6.1.5.5.7.9.4"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_COUNTRYOFRESIDENCE, Arrays.asList(OID_URI + "1.3.6.1.5.5.7.9.5"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_NAMEATBIRTH, Arrays.asList(OID_URI + "1.2.752.201.3.8"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_EMAIL, Arrays.asList(OID_URI + "0.9.2342.19200300.100.1.3"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_EMAIL_ADDRESS, Arrays.asList(OID_URI + "0.9.2342.19200300.100.1.3"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_UNIQUEIDENTIFIER, Arrays.asList(OID_URI + "2.5.4.45", OID_URI + "1.2.752.201.3.2"));
-        tokenFieldMapToDefaultSAMLAttributes.put(FIELDNAME_TELEPHONENUMBER, Arrays.asList(OID_URI + "2.5.4.20"));
+        Map<String, List<String>> attrRefs = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : fieldNameToAttrRef.entrySet()) {
+            attrRefs.computeIfAbsent(entry.getValue(), k -> new ArrayList<>(1)).add(entry.getKey());
+        }
+        attrRefToFieldNames = freeze(attrRefs);
+
+        Map<String, List<String>> samlAttributes = new LinkedHashMap<>();
+        int maxCandidates = 0;
+        for (List<String> candidates : tokenFieldMapToDefaultSAMLAttributes.values()) {
+            maxCandidates = Math.max(maxCandidates, candidates.size());
+        }
+        for (int priority = 0; priority < maxCandidates; priority++) {
+            for (Map.Entry<String, List<String>> entry : tokenFieldMapToDefaultSAMLAttributes.entrySet()) {
+                if (priority < entry.getValue().size()) {
+                    samlAttributes.computeIfAbsent(entry.getValue().get(priority), k -> new ArrayList<>(1)).add(entry.getKey());
+                }
+            }
+        }
+        samlAttributeToFieldNames = freeze(samlAttributes);
+
+        attrRefLookup = withAndWithoutOidUri(attrRefToFieldNames);
+        samlAttributeLookup = withAndWithoutOidUri(samlAttributeToFieldNames);
     }
 
-    public static final Map<String, String> fieldNameToAttrType = new LinkedHashMap<>();
+    /**
+     * Get the fields of an OID.
+     *
+     * @param attributeName OID, with or without the OID_URI prefix.
+     * @return unmodifiable list of field names with the given OID, empty if none.
+     */
+    public static List<String> getFieldNamesByAttrRef(String attributeName) {
+        return lookup(attrRefLookup, attributeName);
+    }
 
-    static {
-        fieldNameToAttrType.put(FIELDNAME_COUNTRY, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_SERIALNUMBER, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_SURNAME, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_GIVENNAME, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_EMAIL, ATTR_TYPE_SAN);
-        fieldNameToAttrType.put(FIELDNAME_EMAIL_ADDRESS, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_COMMONNAME, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_LOCALITY, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_ORGANISATION, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_ORGANISATIONUNIT, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_ORGANISATIONID, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_INITIALS, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_PSEUDONYM, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_STATE, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_STREET, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_TITLE, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_UNIQUEIDENTIFIER, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_TELEPHONENUMBER, ATTR_TYPE_RDN);
-        fieldNameToAttrType.put(FIELDNAME_DATEOFBIRTH, ATTR_TYPE_SDA);
-        fieldNameToAttrType.put(FIELDNAME_PLACEOFBIRTH, ATTR_TYPE_SDA);
-        fieldNameToAttrType.put(FIELDNAME_GENDER, ATTR_TYPE_SDA);
-        fieldNameToAttrType.put(FIELDNAME_COUNTRYOFCITIZENSHIP, ATTR_TYPE_SDA);
-        fieldNameToAttrType.put(FIELDNAME_COUNTRYOFRESIDENCE, ATTR_TYPE_SDA);
-        fieldNameToAttrType.put(FIELDNAME_NAMEATBIRTH, ATTR_TYPE_SDA);
+    /**
+     * Get the fields with a default SAML attribute.
+     *
+     * @param attributeName SAML attribute name, OIDs may be given with or without the OID_URI prefix.
+     * @return unmodifiable list of field names in priority order, empty if none.
+     */
+    public static List<String> getFieldNamesBySamlAttribute(String attributeName) {
+        return lookup(samlAttributeLookup, attributeName);
+    }
+
+    /**
+     * Get the field with highest priority for a default SAML attribute.
+     *
+     * @param attributeName SAML attribute name, OIDs may be given with or without the OID_URI prefix.
+     * @return field name or null if no field has the given default SAML attribute.
+     */
+    public static String getFieldNameBySamlAttribute(String attributeName) {
+        List<String> fieldNames = lookup(samlAttributeLookup, attributeName);
+        return fieldNames.isEmpty() ? null : fieldNames.get(0);
+    }
+
+    /**
+     * Get the pre-encoded DER form of the OID of a field, to be written with
+     * {@link DerObjectIdentifier#writeTo(byte[], int)}.
+     *
+     * @param fieldName field name.
+     * @return the encoded OID or null if the field name is unknown.
+     */
+    public static DerObjectIdentifier getAttrRefDer(String fieldName) {
+        CertificateField field = CertificateField.fromFieldName(fieldName);
+        return field != null ? field.getAttrRefDer() : null;
+    }
+
+    private static List<String> lookup(Map<String, List<String>> index, String attributeName) {
+        if (attributeName == null) {
+            return Collections.emptyList();
+        }
+        List<String> fieldNames = index.get(attributeName);
+        return fieldNames != null ? fieldNames : Collections.emptyList();
+    }
+
+    private static Map<String, List<String>> freeze(Map<String, List<String>> index) {
+        for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static Map<String, List<String>> withAndWithoutOidUri(Map<String, List<String>> index) {
+        Map<String, List<String>> lookup = new HashMap<>(index.size() * 4);
+        for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+            String key = entry.getKey();
+            String other = key.startsWith(OID_URI) ? key.substring(OID_URI.length()) : OID_URI + key;
+            lookup.put(key, entry.getValue());
+            lookup.putIfAbsent(other, entry.getValue());
+        }
+        return lookup;
     }
 }
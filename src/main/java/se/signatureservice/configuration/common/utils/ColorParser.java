@@ -21,6 +21,11 @@ import java.awt.Color;
  */
 public class ColorParser {
 
+    private static final Color[] COMMON_COLORS = {
+            Color.BLACK, Color.WHITE, Color.GRAY, Color.LIGHT_GRAY, Color.DARK_GRAY, Color.RED,
+            Color.GREEN, Color.BLUE, Color.YELLOW, Color.ORANGE, Color.PINK, Color.MAGENTA, Color.CYAN
+    };
+
     /**
      * Parse HTML-style hex representation of a color into
      * a java.awt.Color, ex. "#ff1ab4" or "#c3c3c355"
@@ -31,36 +36,70 @@ public class ColorParser {
      * each component can get a value between 0 (00) and
      * 255 (FF).
      *
+     * Common colors, such as black and white, are returned as shared instances.
+     *
      * @param colorHex Color hex string to parse
      * @return Color based on given input.
      * @throws NumberFormatException if given input cannot be parsed into valid color.
      */
     public static Color parse(String colorHex) throws NumberFormatException {
-        Color color;
+        return toColor(parseArgb(colorHex));
+    }
 
+    /**
+     * Parse HTML-style hex representation of a color, see {@link #parse(String)}, into
+     * a packed ARGB value as used by {@link Color#getRGB()}.
+     *
+     * @param colorHex Color hex string to parse
+     * @return packed ARGB value, alpha in bits 24-31, red in 16-23, green in 8-15 and blue in 0-7.
+     * @throws NumberFormatException if given input cannot be parsed into valid color.
+     */
+    public static int parseArgb(CharSequence colorHex) throws NumberFormatException {
         if(colorHex == null){
             throw new NumberFormatException("Cannot parse null");
         }
 
-        if(colorHex.startsWith("#")){
-            colorHex = colorHex.substring(1);
+        int start = colorHex.length() > 0 && colorHex.charAt(0) == '#' ? 1 : 0;
+        int length = colorHex.length() - start;
+        if(length != 6 && length != 8){
+            throw new NumberFormatException("Input has invalid length: " + colorHex);
         }
 
-        if(colorHex.length() != 6 && colorHex.length() != 8){
-            throw new NumberFormatException("Input has invalid length");
+        int rgba = 0;
+        for(int i = start; i < colorHex.length(); i++){
+            int digit = hexDigit(colorHex.charAt(i));
+            if(digit < 0){
+                throw new NumberFormatException("Cannot parse input: invalid hex digit '" + colorHex.charAt(i) + "' in " + colorHex);
+            }
+            rgba = (rgba << 4) | digit;
         }
 
-        try {
-            int r = Integer.parseInt(colorHex.substring(0,2), 16);
-            int g = Integer.parseInt(colorHex.substring(2,4), 16);
-            int b = Integer.parseInt(colorHex.substring(4,6), 16);
-            int a = colorHex.length() == 6 ? 255 : Integer.parseInt(colorHex.substring(6,8), 16);
+        return length == 6 ? 0xff000000 | rgba : (rgba >>> 8) | (rgba << 24);
+    }
 
-            color = new Color(r,g,b,a);
-        } catch(Exception e){
-            throw new NumberFormatException("Cannot parse input: ${e.message}");
+    /**
+     * @param argb packed ARGB value.
+     * @return color with the given value, common colors are returned as shared instances.
+     */
+    public static Color toColor(int argb) {
+        for(Color color : COMMON_COLORS){
+            if(color.getRGB() == argb){
+                return color;
+            }
         }
+        return new Color(argb, true);
+    }
 
-        return color;
+    private static int hexDigit(char c) {
+        if(c >= '0' && c <= '9'){
+            return c - '0';
+        }
+        if(c >= 'a' && c <= 'f'){
+            return c - 'a' + 10;
+        }
+        if(c >= 'A' && c <= 'F'){
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 }
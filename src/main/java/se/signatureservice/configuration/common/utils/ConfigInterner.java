@@ -0,0 +1,321 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of canonical strings and small immutable lists, shared between loaded configurations.
+ *
+ * Configuration loaded for many profiles repeats the same algorithm URIs, OIDs, colors and
+ * labels. Every value passed through the pool is replaced by the first equal instance seen, so
+ * only one instance of each value is retained. Lists of strings with at most
+ * {@link #MAX_LIST_SIZE} elements are pooled as unmodifiable lists, and must not be modified.
+ *
+ * The pool keeps track of the number of duplicates replaced and an estimate of the heap
+ * retained by the duplicates if they had not been replaced, based on the layout of strings and
+ * lists in a 64-bit JVM with compressed references and compact strings.
+ *
+ * Values are never removed from the pool, a pool should therefore be kept together with the
+ * configuration it was used for. Configuration that is partly replaced over time should use a
+ * new pool for each update, seeded with the values of the configuration that is kept, see
+ * {@link #seed(String)}. Instances are thread safe.
+ */
+public class ConfigInterner {
+
+    /**
+     * Maximum number of elements of pooled lists, larger lists are copied with pooled elements.
+     */
+    public static final int MAX_LIST_SIZE = 16;
+
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int STRING_SIZE = 24;
+    private static final int ARRAY_LIST_SIZE = 24;
+    private static final int UNMODIFIABLE_LIST_SIZE = 16;
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, List<String>> lists = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Get the canonical instance of a string.
+     *
+     * @param value the string, may be null.
+     * @return the pooled string equal to the given string, or null if the given string is null.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups.increment();
+        String canonical = strings.putIfAbsent(value, value);
+        if (canonical == null) {
+            return value;
+        }
+        if (canonical != value) {
+            duplicates.increment();
+            savedBytes.add(sizeOf(value));
+        }
+        return canonical;
+    }
+
+    /**
+     * Get the canonical unmodifiable instance of a list of strings. Lists larger than
+     * {@link #MAX_LIST_SIZE} are not pooled, but copied into an unmodifiable list of pooled strings.
+     *
+     * @param list the list, may be null.
+     * @return unmodifiable list equal to the given list, an empty list if the given list is null
+     * or empty.
+     */
+    public List<String> internList(List<String> list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (list.size() > MAX_LIST_SIZE) {
+            return copyList(list);
+        }
+        lookups.increment();
+        List<String> canonical = lists.get(list);
+        if (canonical == null) {
+            List<String> copy = copyList(list);
+            canonical = lists.putIfAbsent(copy, copy);
+            if (canonical == null) {
+                return copy;
+            }
+        }
+        if (canonical != list) {
+            // The list would otherwise have been retained as an unmodifiable copy.
+            duplicates.increment();
+            savedBytes.add(UNMODIFIABLE_LIST_SIZE + ARRAY_LIST_SIZE + align(ARRAY_HEADER_SIZE + list.size() * REFERENCE_SIZE));
+        }
+        return canonical;
+    }
+
+    /**
+     * Copy a map of maps, as created by {@link ConfigUtils#parseMapOfMaps(Object, String, boolean)},
+     * into unmodifiable maps with pooled keys and values. Nested maps are copied recursively and
+     * lists of strings are pooled.
+     *
+     * @param map the map, may be null.
+     * @return unmodifiable copy of the given map, an empty map if the given map is null or empty.
+     */
+    public Map<String, Map<String, Object>> internMapOfMaps(Map<String, Map<String, Object>> map) {
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Map<String, Object>> copy = new LinkedHashMap<>(capacity(map.size()));
+        for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+            copy.put(intern(entry.getKey()), internMap(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Add a string to the pool as canonical instance, unless an equal string is already pooled.
+     * Seeded values are not counted as lookups or duplicates.
+     *
+     * @param value the string, may be null.
+     */
+    public void seed(String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, value);
+        }
+    }
+
+    /**
+     * Add an unmodifiable list of strings, previously returned by {@link #internList(List)} of
+     * any pool, and its elements to the pool as canonical instances unless equal instances are
+     * already pooled. Seeded values are not counted as lookups or duplicates.
+     *
+     * @param list the unmodifiable list, may be null.
+     */
+    public void seedList(List<String> list) {
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        for (String value : list) {
+            seed(value);
+        }
+        if (list.size() <= MAX_LIST_SIZE) {
+            lists.putIfAbsent(list, list);
+        }
+    }
+
+    /**
+     * Add the keys and values of a map of maps, previously returned by
+     * {@link #internMapOfMaps(Map)} of any pool, to the pool as canonical instances unless equal
+     * instances are already pooled. Seeded values are not counted as lookups or duplicates.
+     *
+     * @param map the map, may be null.
+     */
+    public void seedMapOfMaps(Map<String, Map<String, Object>> map) {
+        if (map == null) {
+            return;
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+            seed(entry.getKey());
+            seedValue(entry.getValue());
+        }
+    }
+
+    /**
+     * @return number of strings and lists passed through the pool.
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return number of strings and lists replaced by an equal pooled instance.
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return number of distinct strings in the pool.
+     */
+    public int getStringCount() {
+        return strings.size();
+    }
+
+    /**
+     * @return number of distinct lists in the pool.
+     */
+    public int getListCount() {
+        return lists.size();
+    }
+
+    /**
+     * @return estimated number of heap bytes that would have been retained by the replaced duplicates.
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigInterner{strings=" + getStringCount() + ", lists=" + getListCount() +
+                ", lookups=" + getLookupCount() + ", duplicates=" + getDuplicateCount() +
+                ", savedBytes=" + getSavedBytes() + "}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> internMap(Map<String, Object> map) {
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> copy = new LinkedHashMap<>(capacity(map.size()));
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            copy.put(intern(entry.getKey()), internValue(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object internValue(Object value) {
+        if (value instanceof String) {
+            return intern((String) value);
+        }
+        if (value instanceof Map) {
+            return internMap((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            boolean strings = true;
+            for (Object item : list) {
+                if (item != null && !(item instanceof String)) {
+                    strings = false;
+                    break;
+                }
+            }
+            if (strings) {
+                return internList((List<String>) value);
+            }
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(internValue(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void seedValue(Object value) {
+        if (value instanceof String) {
+            seed((String) value);
+        } else if (value instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                seed(entry.getKey());
+                seedValue(entry.getValue());
+            }
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            boolean strings = true;
+            for (Object item : list) {
+                if (item != null && !(item instanceof String)) {
+                    strings = false;
+                    break;
+                }
+            }
+            if (strings) {
+                seedList((List<String>) value);
+            } else {
+                for (Object item : list) {
+                    seedValue(item);
+                }
+            }
+        }
+    }
+
+    private List<String> copyList(List<String> list) {
+        String[] values = new String[list.size()];
+        int i = 0;
+        for (String value : list) {
+            values[i++] = intern(value);
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /**
+     * @return estimated heap size of a string and its value array.
+     */
+    private static long sizeOf(String value) {
+        int length = value.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = value.charAt(i) <= 0xff;
+        }
+        return STRING_SIZE + align(ARRAY_HEADER_SIZE + (latin1 ? length : length * 2L));
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+}
@@ -15,6 +15,8 @@ package se.signatureservice.configuration.common.utils;
 import se.signatureservice.configuration.common.InternalErrorException;
 import se.signatureservice.configuration.common.InvalidArgumentException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -42,7 +44,7 @@ public class ConfigUtils {
      * @throws InternalErrorException if error occurred parsing the value
      */
     public static Integer parseInteger(Object value, String errorMessage, boolean required, Integer defaultValue) throws InternalErrorException {
-
+        value = toStringIfCharSequence(value);
         if (value instanceof Integer) {
             return (Integer) value;
         }
@@ -86,6 +88,7 @@ public class ConfigUtils {
      * @throws InternalErrorException if error occurred parsing the value
      */
     public static Boolean parseBoolean(Object value, String errorMessage, boolean required, Boolean defaultValue) throws InternalErrorException {
+        value = toStringIfCharSequence(value);
         if (value instanceof Boolean) {
             return (Boolean) value;
         }
@@ -170,6 +173,7 @@ public class ConfigUtils {
      * @throws InternalErrorException if error occurred parsing the value
      */
     public static Float parseFloat(Object value, String errorMessage, boolean required, Float defaultValue) throws InternalErrorException {
+        value = toStringIfCharSequence(value);
         if (value instanceof Float) {
             return (Float) value;
         }
@@ -232,7 +236,7 @@ public class ConfigUtils {
      * @throws InternalErrorException if error occurred parsing the value
      */
     public static Long parseLong(Object value, String errorMessage, boolean required, Long defaultValue) throws InternalErrorException {
-
+        value = toStringIfCharSequence(value);
         if (value instanceof Integer) {
             return ((Integer) value).longValue();
         }
@@ -256,6 +260,222 @@ public class ConfigUtils {
         throw new InternalErrorException(errorMessage);
     }
 
+    /**
+     * Help method parsing a config object that can either be a character sequence or an int value,
+     * without boxing or creating intermediate strings.
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @param required if the value is required.
+     * @param defaultValue the default value if value is null or empty.
+     * @return the parsed int
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    public static int parseIntValue(Object value, String errorMessage, boolean required, int defaultValue) throws InternalErrorException {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (value instanceof CharSequence && ((CharSequence) value).length() > 0) {
+            return (int) parseDecimal((CharSequence) value, Integer.MIN_VALUE, Integer.MAX_VALUE, errorMessage);
+        }
+        return getDefault(value, errorMessage, required) ? defaultValue : 0;
+    }
+
+    /**
+     * Help method parsing a config object that can either be a character sequence or a long value,
+     * without boxing or creating intermediate strings.
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @param required if the value is required.
+     * @param defaultValue the default value if value is null or empty.
+     * @return the parsed long
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    public static long parseLongValue(Object value, String errorMessage, boolean required, long defaultValue) throws InternalErrorException {
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof CharSequence && ((CharSequence) value).length() > 0) {
+            return parseDecimal((CharSequence) value, Long.MIN_VALUE, Long.MAX_VALUE, errorMessage);
+        }
+        return getDefault(value, errorMessage, required) ? defaultValue : 0L;
+    }
+
+    /**
+     * Help method parsing a config object that can either be a character sequence or a numeric value,
+     * without boxing or creating intermediate strings for plain decimal values such as "9" or "12.5".
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @param required if the value is required.
+     * @param defaultValue the default value if value is null or empty.
+     * @return the parsed float
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    public static float parseFloatValue(Object value, String errorMessage, boolean required, float defaultValue) throws InternalErrorException {
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        }
+        if (value instanceof CharSequence && ((CharSequence) value).length() > 0) {
+            return parseFloatChars((CharSequence) value, errorMessage);
+        }
+        return getDefault(value, errorMessage, required) ? defaultValue : 0f;
+    }
+
+    /**
+     * Help method parsing a config object that can either be a character sequence or a boolean value,
+     * without boxing or creating intermediate strings. Character sequences are matched ignoring case
+     * and surrounding whitespace.
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @param required if the value is required.
+     * @param defaultValue the default value if value is null or empty.
+     * @return the parsed boolean
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    public static boolean parseBooleanValue(Object value, String errorMessage, boolean required, boolean defaultValue) throws InternalErrorException {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof CharSequence && ((CharSequence) value).length() > 0) {
+            CharSequence chars = (CharSequence) value;
+            int start = 0;
+            int end = chars.length();
+            while (start < end && chars.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && chars.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (equalsIgnoreCase(chars, start, end, "true")) {
+                return true;
+            }
+            if (equalsIgnoreCase(chars, start, end, "false")) {
+                return false;
+            }
+            throw new InternalErrorException(errorMessage);
+        }
+        return getDefault(value, errorMessage, required) ? defaultValue : false;
+    }
+
+    /**
+     * Converts character sequences other than strings, such as parser buffers, to strings so that
+     * they are handled as strings by the parse methods returning wrapper objects.
+     */
+    private static Object toStringIfCharSequence(Object value) {
+        return value instanceof CharSequence && !(value instanceof String) ? value.toString() : value;
+    }
+
+    /**
+     * Check that a missing value is allowed.
+     *
+     * @return true if the default value should be used.
+     * @throws InternalErrorException if the value is required or of an unsupported type.
+     */
+    private static boolean getDefault(Object value, String errorMessage, boolean required) throws InternalErrorException {
+        if ((value == null || value instanceof CharSequence || isNullOrEmptyMap(value)) && !required) {
+            return true;
+        }
+        throw new InternalErrorException(errorMessage);
+    }
+
+    /**
+     * Parse a decimal integer with optional sign, in the same format as Long.parseLong.
+     */
+    private static long parseDecimal(CharSequence chars, long min, long max, String errorMessage) throws InternalErrorException {
+        int length = chars.length();
+        int i = 0;
+        boolean negative = false;
+        char first = chars.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (length == 1) {
+                throw new InternalErrorException(errorMessage);
+            }
+        }
+        // Accumulate negatively to be able to represent the minimum value.
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new InternalErrorException(errorMessage);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new InternalErrorException(errorMessage);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parse a float. Plain decimals with at most 7 significant digits and a small number of
+     * decimals, such as font sizes and paddings, are calculated exactly with a single correctly
+     * rounded float operation. Other values fall back to Float.parseFloat.
+     */
+    private static float parseFloatChars(CharSequence chars, String errorMessage) throws InternalErrorException {
+        int length = chars.length();
+        int i = 0;
+        boolean negative = false;
+        if (chars.charAt(0) == '-' || chars.charAt(0) == '+') {
+            negative = chars.charAt(0) == '-';
+            i++;
+        }
+        int mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        boolean simple = i < length;
+        for (; i < length && simple; i++) {
+            char c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                simple = digits <= 7 && decimals <= 10;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                simple = false;
+            }
+        }
+        if (simple && decimals != 0) {
+            // Both the mantissa (< 10^7 < 2^24) and 10^decimals (decimals <= 10) are exact floats.
+            float result = decimals > 0 ? mantissa / FLOAT_POWERS_OF_TEN[decimals] : mantissa;
+            return negative ? -result : result;
+        }
+        try {
+            return Float.parseFloat(chars.toString());
+        } catch (NumberFormatException e) {
+            throw new InternalErrorException(errorMessage, e);
+        }
+    }
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private static boolean equalsIgnoreCase(CharSequence chars, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if ((chars.charAt(start + i) | 0x20) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Help method to parse a List of Strings from configuration.
      *
@@ -305,6 +525,99 @@ public class ConfigUtils {
     }
 
 
+    /**
+     * Help method to parse a Map of named Maps from configuration, such as
+     * requestedCertAttributes or trustedAuthenticationServices.
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @return the parsed map or null
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    public static Map<String, Map<String, Object>> parseMapOfMaps(Object value, String errorMessage) throws InternalErrorException {
+        return parseMapOfMaps(value, errorMessage, false);
+    }
+
+    /**
+     * Help method to parse a Map of named Maps from configuration, such as
+     * requestedCertAttributes or trustedAuthenticationServices.
+     *
+     * @param value the value to parse.
+     * @param errorMessage the error message if parsing fails.
+     * @param required if the value is required.
+     * @return the parsed map
+     * @throws InternalErrorException if error occurred parsing the value
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Map<String, Object>> parseMapOfMaps(Object value, String errorMessage, boolean required) throws InternalErrorException {
+        if (value instanceof Map<?, ?> && !((Map<?, ?>) value).isEmpty()) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof Map<?, ?>)) {
+                    throw new InternalErrorException(errorMessage);
+                }
+                for (Object key : ((Map<?, ?>) entry.getValue()).keySet()) {
+                    if (!(key instanceof String)) {
+                        throw new InternalErrorException(errorMessage);
+                    }
+                }
+            }
+            return (Map<String, Map<String, Object>>) value;
+        }
+
+        if (isNullOrEmptyMap(value) && !required) {
+            return null;
+        }
+
+        throw new InternalErrorException(errorMessage);
+    }
+
+    /**
+     * Help method converting maps where all keys are list indexes (0, 1, 2...) into lists ordered
+     * by index, recursively. Used for configuration formats without lists, such as properties
+     * where list items are given as "authorizedConsumerURLs.0", "authorizedConsumerURLs.1"...
+     * Maps are converted in place, other values are returned as is.
+     *
+     * @param value the value to convert.
+     * @return the converted value.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object convertIndexedMaps(Object value) {
+        if (!(value instanceof Map<?, ?>)) {
+            return value;
+        }
+        Map<Object, Object> map = (Map<Object, Object>) value;
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            entry.setValue(convertIndexedMaps(entry.getValue()));
+        }
+        if (map.isEmpty()) {
+            return map;
+        }
+        Object[] items = new Object[map.size()];
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            int index = entry.getKey() instanceof String ? parseIndex((String) entry.getKey()) : -1;
+            if (index < 0 || index >= items.length || items[index] != null) {
+                return map;
+            }
+            items[index] = entry.getValue();
+        }
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    private static int parseIndex(String key) {
+        if (key.isEmpty() || key.length() > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
     /**
      * Check if an object is null or an empty Map.
      *
@@ -0,0 +1,143 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribute values extracted from one authentication assertion according to an
+ * {@link AttributeExtractionPlan}.
+ *
+ * Each assertion attribute is passed once to {@link #accept(String, String)}, which fills the
+ * slots of the attribute with one hash lookup. When several attributes fill the same slot the
+ * attribute with highest priority wins, regardless of the order the attributes are given in.
+ * Instances are not thread safe.
+ */
+public final class AttributeExtraction {
+
+    private static final int OVERRIDE_PRIORITY = -1;
+
+    private final AttributeExtractionPlan plan;
+    private final String userIdAttribute;
+    private final String[] values;
+    private final int[] priorities;
+
+    AttributeExtraction(AttributeExtractionPlan plan, String userIdAttribute) {
+        this.plan = plan;
+        this.userIdAttribute = userIdAttribute;
+        this.values = new String[plan.getSlotCount()];
+        this.priorities = new int[values.length];
+        Arrays.fill(priorities, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Accept one assertion attribute.
+     *
+     * @param attributeName name of the attribute.
+     * @param value value of the attribute, the first value if the attribute has several values.
+     * @return this extraction.
+     */
+    public AttributeExtraction accept(String attributeName, String value) {
+        if (attributeName == null || value == null) {
+            return this;
+        }
+        if (userIdAttribute != null && userIdAttribute.equals(attributeName)) {
+            set(AttributeExtractionPlan.USER_ID_SLOT, OVERRIDE_PRIORITY, value);
+        }
+        int[] slots = plan.getSlots(attributeName);
+        if (slots != null) {
+            for (int i = 0; i < slots.length; i += 2) {
+                int slot = slots[i];
+                // The user id attributes of the profile are not used when the service overrides them.
+                if (slot != AttributeExtractionPlan.USER_ID_SLOT || userIdAttribute == null) {
+                    set(slot, slots[i + 1], value);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Accept all attributes of an assertion.
+     *
+     * @param attributes attribute values by attribute name.
+     * @return this extraction.
+     */
+    public AttributeExtraction acceptAll(Map<String, String> attributes) {
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            accept(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * @return the user id, or null if no user id attribute was found.
+     */
+    public String getUserId() {
+        return values[AttributeExtractionPlan.USER_ID_SLOT];
+    }
+
+    /**
+     * @return the display name of the user, the user id if no display name attribute was found.
+     */
+    public String getDisplayName() {
+        String displayName = values[AttributeExtractionPlan.DISPLAY_NAME_SLOT];
+        return displayName != null ? displayName : getUserId();
+    }
+
+    /**
+     * @param index index of the mapping in the {@link CertAttributeMappingPlan}.
+     * @return value of the certificate attribute, or null if none of its SAML attributes was found.
+     */
+    public String getCertAttributeValue(int index) {
+        return values[AttributeExtractionPlan.CERT_ATTRIBUTE_SLOT + index];
+    }
+
+    /**
+     * @param index index of the signer attribute, see {@link AttributeExtractionPlan#getSignerAttributeName(int)}.
+     * @return value of the signer attribute, or null if its user attribute was not found.
+     */
+    public String getSignerAttributeValue(int index) {
+        return values[AttributeExtractionPlan.CERT_ATTRIBUTE_SLOT + plan.getCertAttributes().size() + index];
+    }
+
+    /**
+     * @return names of all required certificate and signer attributes without value, empty if
+     * all required attributes were found.
+     */
+    public List<String> getMissingRequiredAttributes() {
+        List<String> missing = new ArrayList<>(0);
+        CertAttributeMappingPlan certAttributes = plan.getCertAttributes();
+        for (int i = 0; i < certAttributes.size(); i++) {
+            if (certAttributes.get(i).isRequired() && getCertAttributeValue(i) == null) {
+                missing.add(certAttributes.get(i).getName());
+            }
+        }
+        for (int i = 0; i < plan.getSignerAttributeCount(); i++) {
+            if (plan.isSignerAttributeRequired(i) && getSignerAttributeValue(i) == null) {
+                missing.add(plan.getSignerAttributeName(i));
+            }
+        }
+        return missing;
+    }
+
+    private void set(int slot, int priority, String value) {
+        if (priority < priorities[slot]) {
+            priorities[slot] = priority;
+            values[slot] = value;
+        }
+    }
+}
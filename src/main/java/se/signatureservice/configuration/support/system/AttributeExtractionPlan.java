@@ -0,0 +1,219 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable plan for extracting user and certificate attributes from the attributes of an
+ * authentication assertion, compiled once per profile.
+ *
+ * Every value to extract has a slot: the user id, the display name, one slot per requested
+ * certificate attribute in the order of the {@link CertAttributeMappingPlan}, and one slot per
+ * entry of {@link SupportProfile#getSignerAttributes()}. A table maps each attribute name to
+ * the slots it may fill together with its priority for the slot, so the assertion attributes are
+ * walked exactly once with one hash lookup each, see {@link AttributeExtraction}.
+ *
+ * The user id is taken from the attributes in {@link SupportProfile#getDefaultUserIdAttributeMappingValues()}
+ * followed by {@link SupportProfile#getDefaultUserIdAttributeMapping()}, in priority order,
+ * unless overridden by the authentication service. Signer attributes are taken from the
+ * attribute named by {@code userAttributeMapping}, or {@code samlAttributeName} if not set.
+ */
+public final class AttributeExtractionPlan {
+
+    static final int USER_ID_SLOT = 0;
+    static final int DISPLAY_NAME_SLOT = 1;
+    static final int CERT_ATTRIBUTE_SLOT = 2;
+
+    static final String SAML_ATTRIBUTE_NAME = "samlAttributeName";
+    static final String USER_ATTRIBUTE_MAPPING = "userAttributeMapping";
+    static final String REQUIRED = "required";
+
+    private final CertAttributeMappingPlan certAttributes;
+    private final String[] signerAttributeNames;
+    private final String[] signerSamlAttributeNames;
+    private final boolean[] signerAttributesRequired;
+    private final Map<String, int[]> slotsByAttribute;
+    private final int slotCount;
+
+    private AttributeExtractionPlan(CertAttributeMappingPlan certAttributes, String[] signerAttributeNames,
+                                    String[] signerSamlAttributeNames, boolean[] signerAttributesRequired,
+                                    Map<String, int[]> slotsByAttribute) {
+        this.certAttributes = certAttributes;
+        this.signerAttributeNames = signerAttributeNames;
+        this.signerSamlAttributeNames = signerSamlAttributeNames;
+        this.signerAttributesRequired = signerAttributesRequired;
+        this.slotsByAttribute = slotsByAttribute;
+        this.slotCount = CERT_ATTRIBUTE_SLOT + certAttributes.size() + signerAttributeNames.length;
+    }
+
+    /**
+     * Compile the attribute extraction plan of a profile.
+     *
+     * @param profile the profile.
+     * @return compiled plan.
+     * @throws InternalErrorException if a requested certificate attribute or signer attribute is invalid.
+     */
+    public static AttributeExtractionPlan compile(SupportProfile profile) throws InternalErrorException {
+        return compile(CertAttributeMappingPlan.compile(profile), profile.getSignerAttributes(),
+                profile.getDefaultUserIdAttributeMappingValues(), profile.getDefaultUserIdAttributeMapping(),
+                profile.getUserDisplayNameAttribute());
+    }
+
+    static AttributeExtractionPlan compile(CertAttributeMappingPlan certAttributes, Map<String, Map<String, Object>> signerAttributes,
+                                           List<String> userIdAttributes, String userIdAttribute,
+                                           String displayNameAttribute) throws InternalErrorException {
+        Map<String, List<Integer>> slots = new HashMap<>();
+        int priority = 0;
+        if (userIdAttributes != null) {
+            for (String name : userIdAttributes) {
+                addSlot(slots, name, USER_ID_SLOT, priority++);
+            }
+        }
+        addSlot(slots, userIdAttribute, USER_ID_SLOT, priority);
+        addSlot(slots, displayNameAttribute, DISPLAY_NAME_SLOT, 0);
+
+        for (int i = 0; i < certAttributes.size(); i++) {
+            CertAttributeMapping mapping = certAttributes.get(i);
+            for (int j = 0; j < mapping.getSamlAttributeNameCount(); j++) {
+                addSlot(slots, mapping.getSamlAttributeName(j), CERT_ATTRIBUTE_SLOT + i, j);
+            }
+        }
+
+        int signerCount = signerAttributes != null ? signerAttributes.size() : 0;
+        String[] names = new String[signerCount];
+        String[] samlAttributeNames = new String[signerCount];
+        boolean[] required = new boolean[signerCount];
+        int i = 0;
+        if (signerAttributes != null) {
+            int firstSlot = CERT_ATTRIBUTE_SLOT + certAttributes.size();
+            for (Map.Entry<String, Map<String, Object>> entry : signerAttributes.entrySet()) {
+                String section = "signer attribute '" + entry.getKey() + "'";
+                Map<String, Object> config = entry.getValue();
+                names[i] = entry.getKey();
+                samlAttributeNames[i] = ConfigUtils.parseString(config.get(SAML_ATTRIBUTE_NAME), message(SAML_ATTRIBUTE_NAME, section), true);
+                String userAttribute = ConfigUtils.parseString(config.get(USER_ATTRIBUTE_MAPPING), message(USER_ATTRIBUTE_MAPPING, section));
+                required[i] = ConfigUtils.parseBooleanValue(config.get(REQUIRED), message(REQUIRED, section), false, false);
+                addSlot(slots, userAttribute != null ? userAttribute : samlAttributeNames[i], firstSlot + i, 0);
+                i++;
+            }
+        }
+
+        Map<String, int[]> slotsByAttribute = new HashMap<>((int) (slots.size() / 0.75f) + 1);
+        for (Map.Entry<String, List<Integer>> entry : slots.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] array = new int[list.size()];
+            for (int j = 0; j < array.length; j++) {
+                array[j] = list.get(j);
+            }
+            slotsByAttribute.put(entry.getKey(), array);
+        }
+        return new AttributeExtractionPlan(certAttributes, names, samlAttributeNames, required, slotsByAttribute);
+    }
+
+    /**
+     * Start extracting attributes of an assertion.
+     *
+     * @param service the authentication service that issued the assertion, its
+     *                {@code userIdAttributeMapping} overrides the user id attributes of the
+     *                profile. May be null.
+     * @return new extraction, to be used by a single thread.
+     */
+    public AttributeExtraction newExtraction(TrustedAuthenticationService service) {
+        return new AttributeExtraction(this, service != null ? service.getUserIdAttributeMapping() : null);
+    }
+
+    /**
+     * @return the certificate attribute mappings, in slot order.
+     */
+    public CertAttributeMappingPlan getCertAttributes() {
+        return certAttributes;
+    }
+
+    /**
+     * @return number of signer attributes.
+     */
+    public int getSignerAttributeCount() {
+        return signerAttributeNames.length;
+    }
+
+    /**
+     * @param index index of the signer attribute, in configuration order.
+     * @return name of the entry in {@code signerAttributes}.
+     */
+    public String getSignerAttributeName(int index) {
+        return signerAttributeNames[index];
+    }
+
+    /**
+     * @param index index of the signer attribute, in configuration order.
+     * @return SAML attribute name to use for the signer attribute.
+     */
+    public String getSignerSamlAttributeName(int index) {
+        return signerSamlAttributeNames[index];
+    }
+
+    /**
+     * @param index index of the signer attribute, in configuration order.
+     * @return true if the user attribute of the signer attribute must exist.
+     */
+    public boolean isSignerAttributeRequired(int index) {
+        return signerAttributesRequired[index];
+    }
+
+    /**
+     * @return total number of slots.
+     */
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @param attributeName name of an assertion attribute.
+     * @return pairs of slot and priority filled by the attribute, or null if the attribute is not used.
+     */
+    int[] getSlots(String attributeName) {
+        return slotsByAttribute.get(attributeName);
+    }
+
+    private static void addSlot(Map<String, List<Integer>> slots, String attributeName, int slot, int priority) {
+        if (attributeName != null) {
+            List<Integer> list = slots.computeIfAbsent(attributeName, k -> new ArrayList<>(2));
+            // An attribute listed several times for one slot keeps its highest priority.
+            for (int i = 0; i < list.size(); i += 2) {
+                if (list.get(i) == slot) {
+                    return;
+                }
+            }
+            list.add(slot);
+            list.add(priority);
+        }
+    }
+
+    private static String message(String setting, String section) {
+        return "Invalid value for '" + setting + "' of " + section;
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeExtractionPlan{certAttributes=" + certAttributes.size() +
+                ", signerAttributes=" + Arrays.toString(signerAttributeNames) + ", attributes=" + slotsByAttribute.keySet() + "}";
+    }
+}
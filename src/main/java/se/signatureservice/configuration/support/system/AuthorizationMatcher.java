@@ -0,0 +1,256 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable matcher of values against a list of authorization rules, such as authorized
+ * consumer URLs or central service entity ids, compiled once per profile.
+ *
+ * A rule ending with {@code *} is a prefix rule, matching all values starting with the rest
+ * of the rule, other rules must match exactly. Exact rules are held in a hash set and prefix
+ * rules in a character trie, so a match is found in time proportional to the length of the
+ * value regardless of the number of rules.
+ *
+ * Rules and values containing {@code ://} are compared as URLs, normalized by
+ * {@link #normalize(String)}. Rules are normalized once when the matcher is built, values are
+ * only normalized if they do not match as given. A URL prefix rule must include the {@code /}
+ * following the host and port, such as {@code https://app.example.com/*}, so that it only
+ * matches URLs of that host. URL rules and values containing user info, such as
+ * {@code https://user@app.example.com/}, never match.
+ */
+public final class AuthorizationMatcher {
+
+    private static final char WILDCARD = '*';
+    private static final String SCHEME_SEPARATOR = "://";
+
+    private final Set<String> exact;
+    private final Node prefixes;
+
+    /**
+     * Compile a matcher.
+     *
+     * @param rules exact values and prefix rules ending with {@code *}, null entries are ignored.
+     * @throws IllegalArgumentException if a URL rule contains user info, or a URL prefix rule
+     * ends within the host or port.
+     */
+    public AuthorizationMatcher(Collection<String> rules) {
+        Set<String> exactRules = new HashSet<>();
+        NodeBuilder prefixRules = new NodeBuilder();
+        boolean hasPrefixes = false;
+        if (rules != null) {
+            for (String rule : rules) {
+                if (rule == null) {
+                    continue;
+                }
+                if (hasUserInfo(rule)) {
+                    throw new IllegalArgumentException("Invalid authorization rule '" + rule + "', user info is not allowed");
+                }
+                if (rule.length() > 0 && rule.charAt(rule.length() - 1) == WILDCARD) {
+                    prefixRules.add(normalizePrefix(rule.substring(0, rule.length() - 1)));
+                    hasPrefixes = true;
+                } else {
+                    exactRules.add(normalize(rule));
+                }
+            }
+        }
+        this.exact = exactRules;
+        this.prefixes = hasPrefixes ? prefixRules.build() : null;
+    }
+
+    /**
+     * Check if a value is authorized.
+     *
+     * @param value the value to check.
+     * @return true if the value matches an exact rule or starts with the prefix of a prefix rule.
+     */
+    public boolean matches(String value) {
+        if (value == null || hasUserInfo(value)) {
+            return false;
+        }
+        if (matchesNormalized(value)) {
+            return true;
+        }
+        String normalized = normalize(value);
+        return normalized != value && matchesNormalized(normalized);
+    }
+
+    /**
+     * @return true if the matcher has no rules and never matches.
+     */
+    public boolean isEmpty() {
+        return exact.isEmpty() && prefixes == null;
+    }
+
+    /**
+     * Normalize a URL, values not containing {@code ://} are returned as is. The scheme and host
+     * are converted to lower case, the default port of http and https is removed and an empty
+     * path is replaced by {@code /}.
+     *
+     * @param value the value to normalize.
+     * @return the normalized value, the given instance if already normalized.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        int schemeEnd = value.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0) {
+            return value;
+        }
+        int authorityStart = schemeEnd + SCHEME_SEPARATOR.length();
+        int authorityEnd = authorityEnd(value, authorityStart);
+        String scheme = value.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        int hostStart = value.lastIndexOf('@', authorityEnd - 1) + 1;
+        if (hostStart < authorityStart) {
+            hostStart = authorityStart;
+        }
+        String host = value.substring(hostStart, authorityEnd).toLowerCase(Locale.ROOT);
+        if (("http".equals(scheme) && host.endsWith(":80")) || ("https".equals(scheme) && host.endsWith(":443"))) {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+        String path = value.substring(authorityEnd);
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            path = "/" + path;
+        }
+        String normalized = scheme + SCHEME_SEPARATOR + value.substring(authorityStart, hostStart) + host + path;
+        return normalized.equals(value) ? value : normalized;
+    }
+
+    /**
+     * Normalize the prefix of a prefix rule, a URL prefix must include the path separator
+     * following the authority.
+     */
+    static String normalizePrefix(String prefix) {
+        int schemeEnd = prefix.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0) {
+            return prefix;
+        }
+        int authorityEnd = authorityEnd(prefix, schemeEnd + SCHEME_SEPARATOR.length());
+        if (authorityEnd == prefix.length() || prefix.charAt(authorityEnd) != '/') {
+            throw new IllegalArgumentException("Invalid authorization rule '" + prefix + WILDCARD +
+                    "', a URL prefix must include the path following the host, such as 'https://host/*'");
+        }
+        return normalize(prefix);
+    }
+
+    /**
+     * @return true if the value is a URL with user info in its authority.
+     */
+    private static boolean hasUserInfo(String value) {
+        int schemeEnd = value.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0) {
+            return false;
+        }
+        int authorityStart = schemeEnd + SCHEME_SEPARATOR.length();
+        int at = value.indexOf('@', authorityStart);
+        return at >= 0 && at < authorityEnd(value, authorityStart);
+    }
+
+    /**
+     * @return index of the first character following the authority of a URL.
+     */
+    private static int authorityEnd(String value, int authorityStart) {
+        int authorityEnd = authorityStart;
+        while (authorityEnd < value.length() && "/?#".indexOf(value.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        return authorityEnd;
+    }
+
+    private boolean matchesNormalized(String value) {
+        if (exact.contains(value)) {
+            return true;
+        }
+        Node node = prefixes;
+        int i = 0;
+        while (node != null) {
+            if (node.terminal) {
+                return true;
+            }
+            if (i == value.length()) {
+                return false;
+            }
+            node = node.child(value.charAt(i++));
+        }
+        return false;
+    }
+
+    /**
+     * Trie node with children sorted by character, found by binary search.
+     */
+    private static final class Node {
+        final boolean terminal;
+        final char[] labels;
+        final Node[] children;
+
+        Node(boolean terminal, char[] labels, Node[] children) {
+            this.terminal = terminal;
+            this.labels = labels;
+            this.children = children;
+        }
+
+        Node child(char c) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = labels[mid];
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class NodeBuilder {
+        final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        boolean terminal;
+
+        void add(String prefix) {
+            NodeBuilder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new NodeBuilder());
+            }
+            node.terminal = true;
+        }
+
+        Node build() {
+            // Children of a terminal node are never visited, a shorter prefix already matches.
+            if (terminal) {
+                return new Node(true, new char[0], new Node[0]);
+            }
+            char[] labels = new char[children.size()];
+            List<Node> nodes = new ArrayList<>(children.size());
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+                labels[i++] = entry.getKey();
+                nodes.add(entry.getValue().build());
+            }
+            return new Node(false, labels, nodes.toArray(new Node[0]));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.binding.ConfigBinaryReader;
+import se.signatureservice.configuration.common.binding.ConfigBinaryWriter;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact binary snapshot of validated support profiles, read from a memory mapped file.
+ *
+ * The file starts with a header containing a magic number, the format version, the schema hash
+ * of the configuration classes (see {@link se.signatureservice.configuration.common.binding.ConfigBinder#getSchemaHash()}),
+ * a fingerprint of the profile configuration files the snapshot was compiled from and an index
+ * with the name, offset and length of each profile. Each profile is stored as the name of the
+ * profile it inherits from, followed by its configuration as written by the generated
+ * configuration binders, with inheritance already resolved.
+ *
+ * Only the header and index are read when the snapshot is opened, each profile is decoded on first
+ * access without parsing or validating text values.
+ *
+ * @see ProfileSnapshotCompiler
+ * @see ProfileSnapshotLoader
+ */
+public final class BinaryProfileSnapshot {
+
+    /**
+     * Magic number at the start of each snapshot file, "SPSN".
+     */
+    public static final int MAGIC = 0x5350534e;
+
+    /**
+     * Version of the snapshot file format, incremented on incompatible changes.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final long fingerprint;
+    private final Map<String, long[]> index;
+    private final ConcurrentMap<String, CompiledSupportProfile> profiles = new ConcurrentHashMap<>();
+    private final ConfigInterner interner = new ConfigInterner();
+
+    private BinaryProfileSnapshot(Path file, ByteBuffer data, long fingerprint, Map<String, long[]> index) {
+        this.file = file;
+        this.data = data;
+        this.fingerprint = fingerprint;
+        this.index = index;
+    }
+
+    /**
+     * Open a snapshot file, reading only its header and index.
+     *
+     * @param file the snapshot file.
+     * @return the opened snapshot.
+     * @throws IOException if the file could not be read, is not a snapshot or was written with
+     * another format version or schema.
+     */
+    public static BinaryProfileSnapshot open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ConfigBinaryReader in = new ConfigBinaryReader(buffer);
+        if (buffer.remaining() < 8 || in.readInt() != MAGIC) {
+            throw new IOException("Not a profile snapshot file: " + file);
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported profile snapshot format version " + version + ", expected " + FORMAT_VERSION + ": " + file);
+        }
+        if (in.readLong() != SupportProfileConfigBinder.INSTANCE.getSchemaHash()) {
+            throw new IOException("Profile snapshot was compiled with other configuration classes: " + file);
+        }
+        long fingerprint = in.readLong();
+        int count = in.readInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid profile snapshot index: " + file);
+        }
+        Map<String, long[]> index = new HashMap<>((int) (count / 0.75f) + 1);
+        for (int i = 0; i < count; i++) {
+            index.put(in.readString(), new long[]{in.readLong(), in.readInt()});
+        }
+        ByteBuffer data = buffer.slice();
+        for (long[] entry : index.values()) {
+            if (entry[0] < 0 || entry[1] < 0 || entry[0] + entry[1] > data.capacity()) {
+                throw new IOException("Invalid profile snapshot index: " + file);
+            }
+        }
+        return new BinaryProfileSnapshot(file, data, fingerprint, index);
+    }
+
+    /**
+     * Write a snapshot file. The file is written to a temporary file that replaces the snapshot
+     * file when complete, so a snapshot being read is never partially overwritten.
+     *
+     * @param file the snapshot file to write.
+     * @param fingerprint fingerprint of the profile configuration files, see {@link #fingerprint(Collection)}.
+     * @param profiles validated profile configurations by name, with inheritance resolved.
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(Path file, long fingerprint, Map<String, SupportProfileConfig> profiles) throws IOException {
+        List<String> names = new ArrayList<>(profiles.keySet());
+        Collections.sort(names);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ConfigBinaryWriter dataWriter = new ConfigBinaryWriter(data);
+        long[] offsets = new long[names.size() + 1];
+        for (int i = 0; i < names.size(); i++) {
+            SupportProfileConfig profile = profiles.get(names.get(i));
+            dataWriter.writeString(profile.getParentProfile());
+            SupportProfileConfigBinder.INSTANCE.write(profile, dataWriter);
+            dataWriter.flush();
+            offsets[i + 1] = data.size();
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                ConfigBinaryWriter writer = new ConfigBinaryWriter(out);
+                writer.writeInt(MAGIC);
+                writer.writeInt(FORMAT_VERSION);
+                writer.writeLong(SupportProfileConfigBinder.INSTANCE.getSchemaHash());
+                writer.writeLong(fingerprint);
+                writer.writeInt(names.size());
+                for (int i = 0; i < names.size(); i++) {
+                    writer.writeString(names.get(i));
+                    writer.writeLong(offsets[i]);
+                    writer.writeInt((int) (offsets[i + 1] - offsets[i]));
+                }
+                writer.flush();
+                data.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Calculate the fingerprint of profile configuration files, from the name and contents
+     * of each file.
+     *
+     * @param sources directories containing profile configuration files, or profile configuration files.
+     * @return the fingerprint.
+     * @throws IOException if a file could not be read.
+     */
+    public static long fingerprint(Collection<Path> sources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        for (Path source : sources) {
+            for (Path file : ProfilePropertiesReader.listFiles(source)) {
+                digest.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+                digest.update((byte) 0);
+            }
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * @return fingerprint of the profile configuration files the snapshot was compiled from.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return unmodifiable set of the names of all profiles in the snapshot.
+     */
+    public Set<String> getProfileNames() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * @return pool of canonical values shared by the profiles decoded so far, reporting the memory saved.
+     */
+    public ConfigInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * Get a profile, decoded on first access.
+     *
+     * @param name name of the profile.
+     * @return the profile or null if no such profile exists.
+     * @throws InternalErrorException if the profile data is invalid.
+     */
+    public CompiledSupportProfile getProfile(String name) throws InternalErrorException {
+        CompiledSupportProfile profile = profiles.get(name);
+        if (profile == null) {
+            long[] entry = index.get(name);
+            if (entry == null) {
+                return null;
+            }
+            profile = decode(name, entry);
+            CompiledSupportProfile existing = profiles.putIfAbsent(name, profile);
+            if (existing != null) {
+                profile = existing;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Decode all profiles.
+     *
+     * @return all profiles by name.
+     * @throws InternalErrorException if any profile data is invalid.
+     */
+    public Map<String, CompiledSupportProfile> getProfiles() throws InternalErrorException {
+        Map<String, CompiledSupportProfile> result = new HashMap<>((int) (index.size() / 0.75f) + 1);
+        for (String name : index.keySet()) {
+            result.put(name, getProfile(name));
+        }
+        return result;
+    }
+
+    private CompiledSupportProfile decode(String name, long[] entry) throws InternalErrorException {
+        ByteBuffer buffer = data.duplicate();
+        buffer.position((int) entry[0]);
+        buffer.limit((int) (entry[0] + entry[1]));
+        try {
+            ConfigBinaryReader in = new ConfigBinaryReader(buffer.slice());
+            String parent = in.readString();
+            SupportProfileConfig profile = SupportProfileConfigBinder.INSTANCE.read(in);
+            profile.setParentProfile(parent);
+            return CompiledSupportProfile.compile(profile, interner);
+        } catch (IOException | RuntimeException e) {
+            throw new InternalErrorException("Invalid profile '" + name + "' in profile snapshot " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+/**
+ * Phases of loading support profiles with {@link SupportProfileBulkLoader}.
+ */
+public enum BulkLoadPhase {
+
+    /**
+     * Reading and parsing profile configuration files.
+     */
+    PARSE,
+
+    /**
+     * Resolving inheritance, validating and compiling profiles.
+     */
+    RESOLVE,
+
+    /**
+     * Loading shared resources referenced by profiles, such as key stores and logo images.
+     */
+    PREWARM
+}
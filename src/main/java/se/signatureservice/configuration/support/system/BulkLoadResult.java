@@ -0,0 +1,116 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of loading support profiles with {@link SupportProfileBulkLoader}.
+ */
+public final class BulkLoadResult {
+
+    private final Map<String, CompiledSupportProfile> profiles;
+    private final Map<String, List<String>> errors;
+    private final EnumMap<BulkLoadPhase, Long> phaseNanos;
+    private final ProfileResources resources;
+    private final ConfigInterner interner;
+
+    BulkLoadResult(Map<String, CompiledSupportProfile> profiles, Map<String, List<String>> errors,
+                   EnumMap<BulkLoadPhase, Long> phaseNanos, ProfileResources resources, ConfigInterner interner) {
+        this.profiles = Collections.unmodifiableMap(profiles);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.phaseNanos = phaseNanos;
+        this.resources = resources;
+        this.interner = interner;
+    }
+
+    /**
+     * @return compiled profiles by name, for all profiles loaded without errors.
+     */
+    public Map<String, CompiledSupportProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @return all error messages by profile name, for profiles that failed to load.
+     */
+    public Map<String, List<String>> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if all profiles were loaded without errors.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @param phase the load phase.
+     * @return time spent in the given phase in nanoseconds, 0 if the phase was skipped.
+     */
+    public long getPhaseNanos(BulkLoadPhase phase) {
+        Long nanos = phaseNanos.get(phase);
+        return nanos != null ? nanos : 0L;
+    }
+
+    /**
+     * @param phase the load phase.
+     * @return time spent in the given phase in milliseconds, 0 if the phase was skipped.
+     */
+    public long getPhaseMillis(BulkLoadPhase phase) {
+        return getPhaseNanos(phase) / 1000000L;
+    }
+
+    /**
+     * @return total time spent loading in nanoseconds.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (Long nanos : phaseNanos.values()) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return shared resources loaded while pre-warming, to be reused when processing requests.
+     */
+    public ProfileResources getResources() {
+        return resources;
+    }
+
+    /**
+     * @return pool of canonical values shared by the loaded profiles, reporting the memory saved.
+     */
+    public ConfigInterner getInterner() {
+        return interner;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BulkLoadResult{profiles=").append(profiles.size())
+                .append(", failed=").append(errors.size())
+                .append(", resources=").append(resources.size())
+                .append(", savedBytes=").append(interner.getSavedBytes());
+        for (Map.Entry<BulkLoadPhase, Long> entry : phaseNanos.entrySet()) {
+            sb.append(", ").append(entry.getKey().name().toLowerCase()).append("Millis=").append(entry.getValue() / 1000000L);
+        }
+        return sb.append("}").toString();
+    }
+}
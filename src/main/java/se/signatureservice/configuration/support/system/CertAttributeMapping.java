@@ -0,0 +1,119 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.fields.DerObjectIdentifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, fully resolved mapping of one requested certificate attribute, an entry of a
+ * {@link CertAttributeMappingPlan}.
+ */
+public final class CertAttributeMapping {
+
+    private final String name;
+    private final String fieldName;
+    private final String oid;
+    private final DerObjectIdentifier oidDer;
+    private final String attributeType;
+    private final String[] samlAttributeNames;
+    private final boolean required;
+
+    CertAttributeMapping(String name, String fieldName, DerObjectIdentifier oid, String attributeType,
+                         String[] samlAttributeNames, boolean required) {
+        this.name = name;
+        this.fieldName = fieldName;
+        this.oid = oid.getOid();
+        this.oidDer = oid;
+        this.attributeType = attributeType;
+        this.samlAttributeNames = samlAttributeNames;
+        this.required = required;
+    }
+
+    /**
+     * @return name of the entry in {@code requestedCertAttributes}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return certificate field name, see {@link se.signatureservice.configuration.common.fields.Fields},
+     * or null if the attribute is not a known certificate field.
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return OID of the certificate attribute.
+     */
+    public String getOid() {
+        return oid;
+    }
+
+    /**
+     * @return pre-encoded DER form of the OID of the certificate attribute.
+     */
+    public DerObjectIdentifier getOidDer() {
+        return oidDer;
+    }
+
+    /**
+     * @return type of the certificate attribute, one of the {@code ATTR_TYPE_*} constants in
+     * {@link se.signatureservice.configuration.common.fields.Fields}.
+     */
+    public String getAttributeType() {
+        return attributeType;
+    }
+
+    /**
+     * @return number of candidate SAML attribute names.
+     */
+    public int getSamlAttributeNameCount() {
+        return samlAttributeNames.length;
+    }
+
+    /**
+     * @param index index of the candidate, in priority order.
+     * @return candidate SAML attribute name.
+     */
+    public String getSamlAttributeName(int index) {
+        return samlAttributeNames[index];
+    }
+
+    /**
+     * @return unmodifiable list of candidate SAML attribute names to take the value from, in
+     * priority order.
+     */
+    public List<String> getSamlAttributeNames() {
+        return Collections.unmodifiableList(Arrays.asList(samlAttributeNames));
+    }
+
+    /**
+     * @return true if the attribute must be present in the certificate.
+     */
+    public boolean isRequired() {
+        return required;
+    }
+
+    @Override
+    public String toString() {
+        return "CertAttributeMapping{name=" + name + ", fieldName=" + fieldName + ", oid=" + oid +
+                ", attributeType=" + attributeType + ", samlAttributeNames=" + Arrays.toString(samlAttributeNames) +
+                ", required=" + required + "}";
+    }
+}
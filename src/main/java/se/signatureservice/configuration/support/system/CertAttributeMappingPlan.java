@@ -0,0 +1,199 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.fields.CertificateField;
+import se.signatureservice.configuration.common.fields.DerObjectIdentifier;
+import se.signatureservice.configuration.common.fields.Fields;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable plan for building the certificate attributes of a profile, compiled once from
+ * {@link SupportProfile#getRequestedCertAttributes()}, {@link SupportProfile#getMetadataCustomCertAttribute()}
+ * and the tables in {@link Fields}.
+ *
+ * Each requested attribute is resolved into a {@link CertAttributeMapping}:
+ * <ul>
+ *     <li>The field name is the entry name if it is a known field name, ignoring case, otherwise
+ *     the first field with the OID of the entry.</li>
+ *     <li>The OID is taken from {@code certAttributeRef}, or the OID of the field.</li>
+ *     <li>The attribute type is taken from {@code certNameType}, or the type of the field, or
+ *     {@link Fields#ATTR_TYPE_RDN}.</li>
+ *     <li>The candidate SAML attribute names are the names in {@code samlAttributeName}, or the
+ *     default SAML attributes of the field, followed by the names of all
+ *     {@code metadataCustomCertAttribute} entries with the same OID.</li>
+ * </ul>
+ * The mappings are held in a flat array in configuration order, and are used without any
+ * lookups when a request is processed.
+ */
+public final class CertAttributeMappingPlan {
+
+    static final String SAML_ATTRIBUTE_NAME = "samlAttributeName";
+    static final String CERT_ATTRIBUTE_REF = "certAttributeRef";
+    static final String CERT_NAME_TYPE = "certNameType";
+    static final String REQUIRED = "required";
+
+    private static final CertAttributeMappingPlan EMPTY = new CertAttributeMappingPlan(new CertAttributeMapping[0]);
+
+    private final CertAttributeMapping[] mappings;
+
+    private CertAttributeMappingPlan(CertAttributeMapping[] mappings) {
+        this.mappings = mappings;
+    }
+
+    /**
+     * Compile the certificate attribute mapping plan of a profile.
+     *
+     * @param profile the profile.
+     * @return compiled plan.
+     * @throws InternalErrorException if a requested attribute is invalid or its OID can not be resolved.
+     */
+    public static CertAttributeMappingPlan compile(SupportProfile profile) throws InternalErrorException {
+        return compile(profile.getRequestedCertAttributes(), profile.getMetadataCustomCertAttribute());
+    }
+
+    static CertAttributeMappingPlan compile(Map<String, Map<String, Object>> requested,
+                                            Map<String, Map<String, Object>> custom) throws InternalErrorException {
+        if (requested == null || requested.isEmpty()) {
+            return EMPTY;
+        }
+        CertAttributeMapping[] mappings = new CertAttributeMapping[requested.size()];
+        int i = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : requested.entrySet()) {
+            mappings[i++] = compile(entry.getKey(), entry.getValue(), custom);
+        }
+        return new CertAttributeMappingPlan(mappings);
+    }
+
+    /**
+     * @return number of requested certificate attributes.
+     */
+    public int size() {
+        return mappings.length;
+    }
+
+    /**
+     * @param index index of the mapping, in configuration order.
+     * @return the mapping.
+     */
+    public CertAttributeMapping get(int index) {
+        return mappings[index];
+    }
+
+    /**
+     * @return unmodifiable list of all mappings, in configuration order.
+     */
+    public List<CertAttributeMapping> getMappings() {
+        return Collections.unmodifiableList(Arrays.asList(mappings));
+    }
+
+    private static CertAttributeMapping compile(String name, Map<String, Object> config,
+                                                Map<String, Map<String, Object>> custom) throws InternalErrorException {
+        String section = "requested certificate attribute '" + name + "'";
+        String oid = ConfigUtils.parseString(config.get(CERT_ATTRIBUTE_REF), message(CERT_ATTRIBUTE_REF, section));
+        CertificateField field = getField(name, oid);
+        String fieldName = field != null ? field.getFieldName() : null;
+        if (oid == null) {
+            oid = field != null ? field.getAttrRef() : null;
+            if (oid == null) {
+                throw new InternalErrorException("Requested certificate attribute '" + name + "' has no " + CERT_ATTRIBUTE_REF +
+                        " and is not a known certificate field");
+            }
+        }
+
+        String attributeType = ConfigUtils.parseString(config.get(CERT_NAME_TYPE), message(CERT_NAME_TYPE, section));
+        if (attributeType == null) {
+            attributeType = field != null ? field.getAttrType() : Fields.ATTR_TYPE_RDN;
+        } else {
+            attributeType = getAttributeType(attributeType, message(CERT_NAME_TYPE, section));
+        }
+
+        Set<String> samlAttributeNames = new LinkedHashSet<>(parseSamlAttributeNames(config.get(SAML_ATTRIBUTE_NAME),
+                message(SAML_ATTRIBUTE_NAME, section)));
+        if (samlAttributeNames.isEmpty() && field != null) {
+            samlAttributeNames.addAll(field.getDefaultSamlAttributes());
+        }
+        if (custom != null) {
+            for (Map.Entry<String, Map<String, Object>> entry : custom.entrySet()) {
+                String customSection = "metadata custom certificate attribute '" + entry.getKey() + "'";
+                if (oid.equals(ConfigUtils.parseString(entry.getValue().get(CERT_ATTRIBUTE_REF), message(CERT_ATTRIBUTE_REF, customSection)))) {
+                    samlAttributeNames.addAll(parseSamlAttributeNames(entry.getValue().get(SAML_ATTRIBUTE_NAME),
+                            message(SAML_ATTRIBUTE_NAME, customSection)));
+                }
+            }
+        }
+
+        boolean required = ConfigUtils.parseBooleanValue(config.get(REQUIRED), message(REQUIRED, section), false, false);
+        DerObjectIdentifier oidDer;
+        if (field != null && oid.equals(field.getAttrRef())) {
+            oidDer = field.getAttrRefDer();
+        } else {
+            try {
+                oidDer = DerObjectIdentifier.encode(oid);
+            } catch (IllegalArgumentException e) {
+                throw new InternalErrorException(message(CERT_ATTRIBUTE_REF, section));
+            }
+        }
+        return new CertAttributeMapping(name, fieldName, oidDer, attributeType, samlAttributeNames.toArray(new String[0]), required);
+    }
+
+    /**
+     * @return the known field matching the entry name ignoring case, or the first field with
+     * the given OID, or null if none.
+     */
+    private static CertificateField getField(String name, String oid) {
+        CertificateField field = CertificateField.fromFieldName(name.toLowerCase(Locale.ROOT));
+        if (field != null) {
+            return field;
+        }
+        List<String> fieldNames = Fields.getFieldNamesByAttrRef(oid);
+        return fieldNames.isEmpty() ? null : CertificateField.fromFieldName(fieldNames.get(0));
+    }
+
+    private static String getAttributeType(String type, String message) throws InternalErrorException {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case Fields.ATTR_TYPE_RDN:
+                return Fields.ATTR_TYPE_RDN;
+            case Fields.ATTR_TYPE_SAN:
+                return Fields.ATTR_TYPE_SAN;
+            case Fields.ATTR_TYPE_SDA:
+                return Fields.ATTR_TYPE_SDA;
+            default:
+                throw new InternalErrorException(message);
+        }
+    }
+
+    private static String message(String setting, String section) {
+        return "Invalid value for '" + setting + "' of " + section;
+    }
+
+    private static List<String> parseSamlAttributeNames(Object value, String message) throws InternalErrorException {
+        if (value instanceof String) {
+            List<String> names = new ArrayList<>(1);
+            names.add(ConfigUtils.parseString(value, message, true));
+            return names;
+        }
+        List<String> names = ConfigUtils.parseListOfString(value, message);
+        return names != null ? names : Collections.emptyList();
+    }
+}
@@ -0,0 +1,682 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable support profile, compiled once from configuration.
+ *
+ * All values are validated and converted when the profile is compiled, and all getters
+ * return final fields. Lists and maps are unmodifiable copies, missing lists and maps are
+ * returned as empty collections. The visible signature and time stamp configurations are
+ * private copies of the source configurations, shared between callers and cannot be modified.
+ *
+ * Profiles compiled with a {@link ConfigInterner} share equal strings and small lists with all
+ * other profiles compiled with the same pool.
+ */
+public final class CompiledSupportProfile implements SupportProfile {
+
+    private final String relatedProfile;
+    private final String xadesSignatureLevel;
+    private final String xadesSignaturePacking;
+    private final String xadesCanonicalizationAlgorithmURI;
+    private final String xadesXPathLocationString;
+    private final String padesSignatureLevel;
+    private final String padesSignaturePacking;
+    private final int padesContentSize;
+    private final String cadesSignatureLevel;
+    private final String cadesSignaturePacking;
+    private final int signatureValidityOverlapMinutes;
+    private final int signatureValidityMinutes;
+    private final String signatureAlgorithm;
+    private final String encryptionAlgorithmScheme;
+    private final boolean useEncryptedSignMessage;
+    private final boolean signMessageMustShow;
+    private final String signMessageMimeType;
+    private final String userIdAttributeMapping;
+    private final String defaultUserIdAttributeMapping;
+    private final String userDisplayNameAttribute;
+    private final String signServiceId;
+    private final String signServiceRequestURL;
+    private final String signRequester;
+    private final boolean fetchAuthnContextClassRefFromMetaData;
+    private final String authnContextClassRef;
+    private final String defaultAuthnContextClassRef;
+    private final List<String> defaultAuthnContextClassRefs;
+    private final String certificateType;
+    private final List<String> defaultUserIdAttributeMappingValues;
+    private final boolean fetchCertAttributesFromMetaData;
+    private final Map<String, Map<String,Object>> metadataCustomCertAttribute;
+    private final Map<String, Map<String,Object>> requestedCertAttributes;
+    private final Map<String, Map<String,Object>> signerAttributes;
+    private final Map<String, Map<String,Object>> trustedAuthenticationServices;
+    private final List<String> authorizedCentralServiceEntityIds;
+    private final List<String> authorizedConsumerURLs;
+    private final String validationPolicy;
+    private final boolean enableEnhancedLogging;
+    private final boolean enableAuthnProfile;
+    private final boolean enableAutomaticValidation;
+    private final String signRequestExtensionVersion;
+    private final String parentProfile;
+    private final VisibleSignatureConfig visibleSignature;
+    private final TimeStampConfig timeStamp;
+    private final AuthorizationMatcher centralServiceEntityIdMatcher;
+    private final AuthorizationMatcher consumerURLMatcher;
+    private final Map<String, TrustedAuthenticationService> trustedAuthenticationServicesByEntityId;
+    private final CertAttributeMappingPlan certAttributeMappingPlan;
+    private final AttributeExtractionPlan attributeExtractionPlan;
+    private final SignatureTextTemplate signatureTextTemplate;
+
+    @SuppressWarnings("deprecation")
+    private CompiledSupportProfile(SupportProfile source, ConfigInterner interner) throws InternalErrorException {
+        relatedProfile = intern(source.getRelatedProfile(), interner);
+        xadesSignatureLevel = intern(source.getXadesSignatureLevel(), interner);
+        xadesSignaturePacking = intern(source.getXadesSignaturePacking(), interner);
+        xadesCanonicalizationAlgorithmURI = intern(source.getXadesCanonicalizationAlgorithmURI(), interner);
+        xadesXPathLocationString = intern(source.getXadesXPathLocationString(), interner);
+        padesSignatureLevel = intern(source.getPadesSignatureLevel(), interner);
+        padesSignaturePacking = intern(source.getPadesSignaturePacking(), interner);
+        padesContentSize = source.getPadesContentSize();
+        cadesSignatureLevel = intern(source.getCadesSignatureLevel(), interner);
+        cadesSignaturePacking = intern(source.getCadesSignaturePacking(), interner);
+        signatureValidityOverlapMinutes = source.getSignatureValidityOverlapMinutes();
+        signatureValidityMinutes = source.getSignatureValidityMinutes();
+        signatureAlgorithm = intern(source.getSignatureAlgorithm(), interner);
+        encryptionAlgorithmScheme = intern(source.getEncryptionAlgorithmScheme(), interner);
+        useEncryptedSignMessage = source.isUseEncryptedSignMessage();
+        signMessageMustShow = source.isSignMessageMustShow();
+        signMessageMimeType = intern(source.getSignMessageMimeType(), interner);
+        userIdAttributeMapping = intern(source.getUserIdAttributeMapping(), interner);
+        defaultUserIdAttributeMapping = intern(source.getDefaultUserIdAttributeMapping(), interner);
+        userDisplayNameAttribute = intern(source.getUserDisplayNameAttribute(), interner);
+        signServiceId = intern(source.getSignServiceId(), interner);
+        signServiceRequestURL = intern(source.getSignServiceRequestURL(), interner);
+        signRequester = intern(source.getSignRequester(), interner);
+        fetchAuthnContextClassRefFromMetaData = source.isFetchAuthnContextClassRefFromMetaData();
+        authnContextClassRef = intern(source.getAuthnContextClassRef(), interner);
+        defaultAuthnContextClassRef = intern(source.getDefaultAuthnContextClassRef(), interner);
+        defaultAuthnContextClassRefs = copyList(source.getDefaultAuthnContextClassRefs(), interner);
+        certificateType = intern(source.getCertificateType(), interner);
+        defaultUserIdAttributeMappingValues = copyList(source.getDefaultUserIdAttributeMappingValues(), interner);
+        fetchCertAttributesFromMetaData = source.isFetchCertAttributesFromMetaData();
+        metadataCustomCertAttribute = copyMapOfMaps(source.getMetadataCustomCertAttribute(), interner);
+        requestedCertAttributes = copyMapOfMaps(source.getRequestedCertAttributes(), interner);
+        signerAttributes = copyMapOfMaps(source.getSignerAttributes(), interner);
+        trustedAuthenticationServices = copyMapOfMaps(source.getTrustedAuthenticationServices(), interner);
+        authorizedCentralServiceEntityIds = copyList(source.getAuthorizedCentralServiceEntityIds(), interner);
+        authorizedConsumerURLs = copyList(source.getAuthorizedConsumerURLs(), interner);
+        validationPolicy = intern(source.getValidationPolicy(), interner);
+        enableEnhancedLogging = source.isEnableEnhancedLogging();
+        enableAuthnProfile = source.isEnableAuthnProfile();
+        enableAutomaticValidation = source.isEnableAutomaticValidation();
+        signRequestExtensionVersion = intern(source.getSignRequestExtensionVersion(), interner);
+        parentProfile = intern(getParentProfile(source), interner);
+        VisibleSignatureConfig sourceVisibleSignature = source.getVisibleSignature();
+        TimeStampConfig sourceTimeStamp = source.getTimeStamp();
+        visibleSignature = sourceVisibleSignature != null ? VisibleSignatureConfigBinder.INSTANCE.copy(sourceVisibleSignature) : null;
+        timeStamp = sourceTimeStamp != null ? TimeStampConfigBinder.INSTANCE.copy(sourceTimeStamp) : null;
+        centralServiceEntityIdMatcher = compileMatcher("authorizedCentralServiceEntityIds", authorizedCentralServiceEntityIds);
+        consumerURLMatcher = compileMatcher("authorizedConsumerURLs", authorizedConsumerURLs);
+        trustedAuthenticationServicesByEntityId = indexTrustedAuthenticationServices(trustedAuthenticationServices,
+                defaultAuthnContextClassRef, defaultAuthnContextClassRefs);
+        certAttributeMappingPlan = CertAttributeMappingPlan.compile(requestedCertAttributes, metadataCustomCertAttribute);
+        attributeExtractionPlan = AttributeExtractionPlan.compile(certAttributeMappingPlan, signerAttributes,
+                defaultUserIdAttributeMappingValues, defaultUserIdAttributeMapping, userDisplayNameAttribute);
+        if (visibleSignature != null) {
+            if (interner != null) {
+                VisibleSignatureConfigBinder.INSTANCE.intern(visibleSignature, interner);
+            }
+            visibleSignature.freeze();
+            signatureTextTemplate = SignatureTextTemplate.compile(visibleSignature);
+        } else {
+            signatureTextTemplate = null;
+        }
+        if (timeStamp != null) {
+            if (interner != null) {
+                TimeStampConfigBinder.INSTANCE.intern(timeStamp, interner);
+            }
+            timeStamp.freeze();
+        }
+    }
+
+    /**
+     * Compile an immutable profile from another profile implementation. The visible signature and
+     * time stamp configurations of the source are fetched once, so any errors are thrown here.
+     *
+     * @param profile the profile to compile.
+     * @return compiled profile, the given profile if it already is compiled.
+     * @throws InternalErrorException if the profile contains invalid configuration.
+     */
+    public static CompiledSupportProfile compile(SupportProfile profile) throws InternalErrorException {
+        return compile(profile, null);
+    }
+
+    /**
+     * Compile an immutable profile from another profile implementation, replacing all strings
+     * and small lists by canonical instances from the given pool. The visible signature and time
+     * stamp configurations of the source are updated with pooled values.
+     *
+     * @param profile the profile to compile.
+     * @param interner pool of canonical values, or null to not pool values.
+     * @return compiled profile, the given profile if it already is compiled.
+     * @throws InternalErrorException if the profile contains invalid configuration.
+     */
+    public static CompiledSupportProfile compile(SupportProfile profile, ConfigInterner interner) throws InternalErrorException {
+        if (profile instanceof CompiledSupportProfile) {
+            return (CompiledSupportProfile) profile;
+        }
+        return new CompiledSupportProfile(profile, interner);
+    }
+
+    /**
+     * Compile an immutable profile from a configuration map, see {@link SupportProfileConfig}
+     * for the format.
+     *
+     * @param config Map containing profile configuration parameters.
+     * @return compiled profile.
+     * @throws InternalErrorException if the configuration contains invalid values.
+     */
+    public static CompiledSupportProfile compile(Map<String, Object> config) throws InternalErrorException {
+        return compile(config, null);
+    }
+
+    /**
+     * Compile an immutable profile from a configuration map, replacing all strings and small
+     * lists by canonical instances from the given pool.
+     *
+     * @param config Map containing profile configuration parameters.
+     * @param interner pool of canonical values, or null to not pool values.
+     * @return compiled profile.
+     * @throws InternalErrorException if the configuration contains invalid values.
+     */
+    public static CompiledSupportProfile compile(Map<String, Object> config, ConfigInterner interner) throws InternalErrorException {
+        return new CompiledSupportProfile(new SupportProfileConfig(config), interner);
+    }
+
+    /**
+     * Add the strings, lists and maps of this profile to a pool as canonical instances, so that
+     * profiles compiled later with the pool share them with this profile.
+     *
+     * @param interner the pool to seed.
+     */
+    void seed(ConfigInterner interner) {
+        interner.seed(relatedProfile);
+        interner.seed(xadesSignatureLevel);
+        interner.seed(xadesSignaturePacking);
+        interner.seed(xadesCanonicalizationAlgorithmURI);
+        interner.seed(xadesXPathLocationString);
+        interner.seed(padesSignatureLevel);
+        interner.seed(padesSignaturePacking);
+        interner.seed(cadesSignatureLevel);
+        interner.seed(cadesSignaturePacking);
+        interner.seed(signatureAlgorithm);
+        interner.seed(encryptionAlgorithmScheme);
+        interner.seed(signMessageMimeType);
+        interner.seed(userIdAttributeMapping);
+        interner.seed(defaultUserIdAttributeMapping);
+        interner.seed(userDisplayNameAttribute);
+        interner.seed(signServiceId);
+        interner.seed(signServiceRequestURL);
+        interner.seed(signRequester);
+        interner.seed(authnContextClassRef);
+        interner.seed(defaultAuthnContextClassRef);
+        interner.seedList(defaultAuthnContextClassRefs);
+        interner.seed(certificateType);
+        interner.seedList(defaultUserIdAttributeMappingValues);
+        interner.seedMapOfMaps(metadataCustomCertAttribute);
+        interner.seedMapOfMaps(requestedCertAttributes);
+        interner.seedMapOfMaps(signerAttributes);
+        interner.seedMapOfMaps(trustedAuthenticationServices);
+        interner.seedList(authorizedCentralServiceEntityIds);
+        interner.seedList(authorizedConsumerURLs);
+        interner.seed(validationPolicy);
+        interner.seed(signRequestExtensionVersion);
+        interner.seed(parentProfile);
+        if (visibleSignature != null) {
+            VisibleSignatureConfigBinder.INSTANCE.seed(visibleSignature, interner);
+        }
+        if (timeStamp != null) {
+            TimeStampConfigBinder.INSTANCE.seed(timeStamp, interner);
+        }
+    }
+
+    @Override
+    public String getRelatedProfile() {
+        return relatedProfile;
+    }
+
+    @Override
+    public String getXadesSignatureLevel() {
+        return xadesSignatureLevel;
+    }
+
+    @Override
+    public String getXadesSignaturePacking() {
+        return xadesSignaturePacking;
+    }
+
+    @Override
+    public String getXadesCanonicalizationAlgorithmURI() {
+        return xadesCanonicalizationAlgorithmURI;
+    }
+
+    @Override
+    public String getXadesXPathLocationString() {
+        return xadesXPathLocationString;
+    }
+
+    @Override
+    public String getPadesSignatureLevel() {
+        return padesSignatureLevel;
+    }
+
+    @Override
+    public String getPadesSignaturePacking() {
+        return padesSignaturePacking;
+    }
+
+    @Override
+    public int getPadesContentSize() {
+        return padesContentSize;
+    }
+
+    @Override
+    public String getCadesSignatureLevel() {
+        return cadesSignatureLevel;
+    }
+
+    @Override
+    public String getCadesSignaturePacking() {
+        return cadesSignaturePacking;
+    }
+
+    @Override
+    public int getSignatureValidityOverlapMinutes() {
+        return signatureValidityOverlapMinutes;
+    }
+
+    @Override
+    public int getSignatureValidityMinutes() {
+        return signatureValidityMinutes;
+    }
+
+    @Override
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    @Override
+    public String getEncryptionAlgorithmScheme() {
+        return encryptionAlgorithmScheme;
+    }
+
+    @Override
+    public boolean isUseEncryptedSignMessage() {
+        return useEncryptedSignMessage;
+    }
+
+    @Override
+    public boolean isSignMessageMustShow() {
+        return signMessageMustShow;
+    }
+
+    @Override
+    public String getSignMessageMimeType() {
+        return signMessageMimeType;
+    }
+
+    @Deprecated
+    @Override
+    public String getUserIdAttributeMapping() {
+        return userIdAttributeMapping;
+    }
+
+    @Override
+    public String getDefaultUserIdAttributeMapping() {
+        return defaultUserIdAttributeMapping;
+    }
+
+    @Override
+    public String getUserDisplayNameAttribute() {
+        return userDisplayNameAttribute;
+    }
+
+    @Override
+    public String getSignServiceId() {
+        return signServiceId;
+    }
+
+    @Override
+    public String getSignServiceRequestURL() {
+        return signServiceRequestURL;
+    }
+
+    @Override
+    public String getSignRequester() {
+        return signRequester;
+    }
+
+    @Override
+    public boolean isFetchAuthnContextClassRefFromMetaData() {
+        return fetchAuthnContextClassRefFromMetaData;
+    }
+
+    @Deprecated
+    @Override
+    public String getAuthnContextClassRef() {
+        return authnContextClassRef;
+    }
+
+    @Override
+    public String getDefaultAuthnContextClassRef() {
+        return defaultAuthnContextClassRef;
+    }
+
+    @Override
+    public List<String> getDefaultAuthnContextClassRefs() {
+        return defaultAuthnContextClassRefs;
+    }
+
+    @Override
+    public String getCertificateType() {
+        return certificateType;
+    }
+
+    @Override
+    public List<String> getDefaultUserIdAttributeMappingValues() {
+        return defaultUserIdAttributeMappingValues;
+    }
+
+    @Override
+    public boolean isFetchCertAttributesFromMetaData() {
+        return fetchCertAttributesFromMetaData;
+    }
+
+    @Override
+    public Map<String, Map<String,Object>> getMetadataCustomCertAttribute() {
+        return metadataCustomCertAttribute;
+    }
+
+    @Override
+    public Map<String, Map<String,Object>> getRequestedCertAttributes() {
+        return requestedCertAttributes;
+    }
+
+    @Override
+    public Map<String, Map<String,Object>> getSignerAttributes() {
+        return signerAttributes;
+    }
+
+    @Override
+    public Map<String, Map<String,Object>> getTrustedAuthenticationServices() {
+        return trustedAuthenticationServices;
+    }
+
+    @Override
+    public List<String> getAuthorizedCentralServiceEntityIds() {
+        return authorizedCentralServiceEntityIds;
+    }
+
+    @Override
+    public List<String> getAuthorizedConsumerURLs() {
+        return authorizedConsumerURLs;
+    }
+
+    @Override
+    public String getValidationPolicy() {
+        return validationPolicy;
+    }
+
+    @Override
+    public boolean isEnableEnhancedLogging() {
+        return enableEnhancedLogging;
+    }
+
+    @Override
+    public boolean isEnableAuthnProfile() {
+        return enableAuthnProfile;
+    }
+
+    @Override
+    public boolean isEnableAutomaticValidation() {
+        return enableAutomaticValidation;
+    }
+
+    @Override
+    public String getSignRequestExtensionVersion() {
+        return signRequestExtensionVersion;
+    }
+
+    /**
+     * Get visible signature configuration, shared by all callers. Setters throw
+     * UnsupportedOperationException, see {@link VisibleSignatureConfig#isFrozen()}.
+     * @return VisibleSignatureConfig instance
+     */
+    @Override
+    public VisibleSignatureConfig getVisibleSignature() {
+        return visibleSignature;
+    }
+
+    /**
+     * Get timestamp configuration, shared by all callers. Setters throw
+     * UnsupportedOperationException, see {@link TimeStampConfig#isFrozen()}.
+     * @return TimeStampConfig instance or null if not configured.
+     */
+    @Override
+    public TimeStampConfig getTimeStamp() {
+        return timeStamp;
+    }
+
+    /**
+     * Get the name of the profile this profile inherits from through {@code relatedProfile},
+     * see {@link SupportProfileResolver}. Profiles resolved by the resolver return their own
+     * name from {@link #getRelatedProfile()}.
+     *
+     * @return name of the parent profile, or null if the profile does not inherit from another profile.
+     */
+    public String getParentProfile() {
+        return parentProfile;
+    }
+
+    /**
+     * Check if a central service is authorized, see {@link AuthorizationMatcher} for how the
+     * entity id is matched against {@link #getAuthorizedCentralServiceEntityIds()}.
+     *
+     * @param entityId entity id of the central service.
+     * @return true if the central service is authorized.
+     */
+    public boolean isAuthorizedCentralServiceEntityId(String entityId) {
+        return centralServiceEntityIdMatcher.matches(entityId);
+    }
+
+    /**
+     * Check if a consumer URL is authorized, see {@link AuthorizationMatcher} for how the
+     * URL is matched against {@link #getAuthorizedConsumerURLs()}.
+     *
+     * @param consumerURL consumer URL specified by the driving application.
+     * @return true if the consumer URL is authorized.
+     */
+    public boolean isAuthorizedConsumerURL(String consumerURL) {
+        return consumerURLMatcher.matches(consumerURL);
+    }
+
+    /**
+     * Get a trusted authentication service by entity id, services configured without entity id
+     * can not be found.
+     *
+     * @param entityId Meta Data Entity Id of the service.
+     * @return the service or null if the service is not trusted by this profile.
+     */
+    public TrustedAuthenticationService getTrustedAuthenticationService(String entityId) {
+        return entityId != null ? trustedAuthenticationServicesByEntityId.get(entityId) : null;
+    }
+
+    /**
+     * @return unmodifiable map of trusted authentication services by entity id.
+     */
+    public Map<String, TrustedAuthenticationService> getTrustedAuthenticationServicesByEntityId() {
+        return trustedAuthenticationServicesByEntityId;
+    }
+
+    /**
+     * Check if an authentication service is trusted by this profile and permitted to authenticate
+     * users with the given type/level of authentication.
+     *
+     * @param entityId Meta Data Entity Id of the service.
+     * @param authnContextClassRef type/level of authentication.
+     * @return true if the service is trusted and the authentication context is permitted.
+     */
+    public boolean isAuthnContextClassRefAllowed(String entityId, String authnContextClassRef) {
+        TrustedAuthenticationService service = getTrustedAuthenticationService(entityId);
+        return service != null && service.isAuthnContextClassRefAllowed(authnContextClassRef);
+    }
+
+    /**
+     * @return plan for building the requested certificate attributes, compiled with the profile.
+     */
+    public CertAttributeMappingPlan getCertAttributeMappingPlan() {
+        return certAttributeMappingPlan;
+    }
+
+    /**
+     * @return plan for extracting user, certificate and signer attributes from an assertion,
+     * compiled with the profile.
+     */
+    public AttributeExtractionPlan getAttributeExtractionPlan() {
+        return attributeExtractionPlan;
+    }
+
+    /**
+     * @return text template of the visible signature, compiled with the profile, or null if
+     * no visible signature is configured.
+     */
+    public SignatureTextTemplate getSignatureTextTemplate() {
+        return signatureTextTemplate;
+    }
+
+    private static String getParentProfile(SupportProfile source) {
+        if (source instanceof SupportProfileConfig) {
+            return ((SupportProfileConfig) source).getParentProfile();
+        }
+        if (source instanceof CompiledSupportProfile) {
+            return ((CompiledSupportProfile) source).getParentProfile();
+        }
+        return null;
+    }
+
+    private static AuthorizationMatcher compileMatcher(String setting, List<String> rules) throws InternalErrorException {
+        try {
+            return new AuthorizationMatcher(rules);
+        } catch (IllegalArgumentException e) {
+            throw new InternalErrorException("Invalid value for '" + setting + "' in profile configuration: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, TrustedAuthenticationService> indexTrustedAuthenticationServices(
+            Map<String, Map<String, Object>> services, String defaultAuthnContextClassRef,
+            List<String> defaultAuthnContextClassRefs) throws InternalErrorException {
+        if (services.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, TrustedAuthenticationService> index = new HashMap<>(capacity(services.size()));
+        for (Map.Entry<String, Map<String, Object>> entry : services.entrySet()) {
+            TrustedAuthenticationServiceConfig config;
+            try {
+                config = new TrustedAuthenticationServiceConfig(entry.getValue());
+            } catch (InternalErrorException e) {
+                throw new InternalErrorException("Invalid trusted authentication service '" + entry.getKey() + "': " + e.getMessage());
+            }
+            if (config.getEntityId() == null) {
+                continue;
+            }
+            TrustedAuthenticationService service = new TrustedAuthenticationService(entry.getKey(), config,
+                    defaultAuthnContextClassRef, defaultAuthnContextClassRefs);
+            TrustedAuthenticationService existing = index.put(service.getEntityId(), service);
+            if (existing != null) {
+                throw new InternalErrorException("Trusted authentication services '" + existing.getName() + "' and '" +
+                        service.getName() + "' have the same entity id " + service.getEntityId());
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static String intern(String value, ConfigInterner interner) {
+        return interner != null ? interner.intern(value) : value;
+    }
+
+    private static List<String> copyList(List<String> list, ConfigInterner interner) {
+        if (interner != null) {
+            return interner.internList(list);
+        }
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    private static Map<String, Map<String, Object>> copyMapOfMaps(Map<String, Map<String, Object>> map, ConfigInterner interner) {
+        if (interner != null) {
+            return interner.internMapOfMaps(map);
+        }
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Map<String, Object>> copy = new LinkedHashMap<>(capacity(map.size()));
+        for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+            copy.put(entry.getKey(), copyMap(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Map<String, Object> copyMap(Map<String, Object> map) {
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> copy = new LinkedHashMap<>(capacity(map.size()));
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            copy.put(entry.getKey(), copyValue(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            return copyMap((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<Object>) value).size());
+            for (Object item : (List<Object>) value) {
+                list.add(copyValue(item));
+            }
+            return Collections.unmodifiableList(list);
+        }
+        return value;
+    }
+
+    /**
+     * @return initial capacity of a hash map holding the given number of entries without resizing.
+     */
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+}
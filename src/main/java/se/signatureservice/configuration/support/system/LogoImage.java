@@ -0,0 +1,86 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+
+/**
+ * Decoded logo image of a visible signature, as returned by {@link LogoImageCache}.
+ *
+ * The image and encoded data are shared between all users of the cache and must not be modified.
+ */
+public final class LogoImage {
+
+    private final String path;
+    private final BufferedImage image;
+    private final byte[] encoded;
+    private final long size;
+
+    LogoImage(String path, BufferedImage image, byte[] encoded) {
+        this.path = path;
+        this.image = image;
+        this.encoded = encoded;
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        this.size = (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8
+                + encoded.length;
+    }
+
+    /**
+     * @return path of the image, on the file system or class path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return width in pixels.
+     */
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    /**
+     * @return height in pixels.
+     */
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    /**
+     * @return the decoded image, must not be modified.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return the encoded image, ready to embed. PNG for scaled images and the contents of the
+     * image file for images in original size. Must not be modified.
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * @return estimated number of bytes used by the decoded and encoded image.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + getWidth() + "x" + getHeight() + ")";
+    }
+}
@@ -0,0 +1,335 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of decoded and scaled logo images of visible signatures, keyed by image path and
+ * target dimensions.
+ *
+ * Each image is decoded once and scaled once for each requested size, concurrent requests for
+ * the same image and size wait for a single load. The image files are looked up on the file
+ * system first and then on the class path, and are not kept by {@link ProfileResources}, so the
+ * file contents are only held by the cached images and counted in their size. Images in
+ * unsupported formats, or larger than the maximum image dimension, are rejected without being
+ * decoded. The least recently used images are evicted when the cache holds more than the
+ * maximum number of images or the estimated memory used by the images exceeds the maximum
+ * number of bytes. A failed load is reported to the requests waiting for it but is not cached.
+ */
+public class LogoImageCache {
+
+    /**
+     * Default maximum number of cached images.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /**
+     * Default maximum estimated memory used by cached images, 64 MB.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Default maximum width and height of a logo image, in pixels.
+     */
+    public static final int DEFAULT_MAX_IMAGE_DIMENSION = 4096;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxImageDimension;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache with default limits.
+     */
+    public LogoImageCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_MAX_IMAGE_DIMENSION);
+    }
+
+    /**
+     * @param maxEntries maximum number of cached images, original and scaled.
+     * @param maxBytes maximum estimated memory used by cached images.
+     * @param maxImageDimension maximum width and height of a logo image, in pixels.
+     */
+    public LogoImageCache(int maxEntries, long maxBytes, int maxImageDimension) {
+        if (maxEntries < 1 || maxBytes < 1 || maxImageDimension < 1) {
+            throw new IllegalArgumentException("Invalid logo image cache, limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxImageDimension = maxImageDimension;
+    }
+
+    /**
+     * Get a logo image in its original size. Used to validate logo images when profiles are loaded.
+     *
+     * @param path path to the image, on the file system or class path.
+     * @return the decoded image.
+     * @throws InternalErrorException if the image could not be read, is in an unsupported format
+     * or is too large.
+     */
+    public LogoImage getImage(String path) throws InternalErrorException {
+        return get(path, 0, 0);
+    }
+
+    /**
+     * Get a logo image scaled to fit within the given dimensions, keeping its aspect ratio.
+     *
+     * @param path path to the image, on the file system or class path.
+     * @param width maximum width in pixels.
+     * @param height maximum height in pixels.
+     * @return the scaled image.
+     * @throws InternalErrorException if the image could not be read, is in an unsupported format
+     * or is too large.
+     */
+    public LogoImage getImage(String path, int width, int height) throws InternalErrorException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid logo image size " + width + "x" + height);
+        }
+        return get(path, width, height);
+    }
+
+    /**
+     * @return number of cached images, original and scaled.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return estimated memory used by cached images.
+     */
+    public long getUsedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * @return number of requests served from the cache.
+     */
+    public long getHitCount() {
+        synchronized (entries) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * @return number of requests that loaded an image.
+     */
+    public long getMissCount() {
+        synchronized (entries) {
+            return missCount;
+        }
+    }
+
+    /**
+     * @return number of images evicted from the cache.
+     */
+    public long getEvictionCount() {
+        synchronized (entries) {
+            return evictionCount;
+        }
+    }
+
+    /**
+     * Remove all cached images.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (entries) {
+            return "LogoImageCache{size=" + entries.size() + ", usedBytes=" + usedBytes + ", hitCount=" + hitCount +
+                    ", missCount=" + missCount + ", evictionCount=" + evictionCount + "}";
+        }
+    }
+
+    private LogoImage get(String path, int width, int height) throws InternalErrorException {
+        if (path == null) {
+            throw new InternalErrorException("Logo image path is null");
+        }
+        String key = path + "\n" + width + "\n" + height;
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+            } else {
+                missCount++;
+                entry = new Entry(key, path, width, height);
+                entries.put(key, entry);
+            }
+        }
+        try {
+            return entry.get();
+        } catch (InternalErrorException e) {
+            // Load again on the next request, the error may be transient.
+            synchronized (entries) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private LogoImage load(String path, int width, int height) throws Exception {
+        if (width == 0) {
+            byte[] data = ProfileResources.readResource(path);
+            return new LogoImage(path, decode(path, data), data);
+        }
+        LogoImage original = getImage(path);
+        BufferedImage image = scale(original.getImage(), width, height);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new LogoImage(path, image, out.toByteArray());
+    }
+
+    private BufferedImage decode(String path, byte[] data) throws Exception {
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new InternalErrorException("Unsupported image format: " + path);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > maxImageDimension || height > maxImageDimension) {
+                    throw new InternalErrorException("Image too large: " + path + " is " + width + "x" + height +
+                            " pixels, maximum is " + maxImageDimension + "x" + maxImageDimension);
+                }
+                return reader.read(0);
+            } catch (IOException e) {
+                throw new InternalErrorException("Invalid image: " + path + ": " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxWidth, int maxHeight) {
+        double scale = Math.min((double) maxWidth / source.getWidth(), (double) maxHeight / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Adds the size of a loaded image and evicts the least recently used images until the
+     * cache is within its limits. Images still loading are only evicted by number.
+     */
+    private void loaded(Entry entry) {
+        synchronized (entries) {
+            if (entries.get(entry.key) != entry) {
+                return;
+            }
+            entry.accounted = true;
+            usedBytes += entry.size;
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while ((usedBytes > maxBytes || entries.size() > maxEntries) && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                if (eldest.accounted) {
+                    usedBytes -= eldest.size;
+                } else if (entries.size() <= maxEntries) {
+                    continue;
+                }
+                iterator.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    private final class Entry {
+        private final String key;
+        private final String path;
+        private final int width;
+        private final int height;
+        private boolean loaded;
+        private LogoImage image;
+        private String error;
+        private long size;
+        private boolean accounted;
+
+        private Entry(String key, String path, int width, int height) {
+            this.key = key;
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        private LogoImage get() throws InternalErrorException {
+            synchronized (this) {
+                if (!loaded) {
+                    try {
+                        image = load(path, width, height);
+                        size = image.getSize();
+                    } catch (InternalErrorException e) {
+                        error = e.getMessage();
+                    } catch (Exception e) {
+                        error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    }
+                    loaded = true;
+                } else {
+                    return result();
+                }
+            }
+            loaded(this);
+            return result();
+        }
+
+        private LogoImage result() throws InternalErrorException {
+            if (error != null) {
+                throw new InternalErrorException(error);
+            }
+            return image;
+        }
+    }
+}
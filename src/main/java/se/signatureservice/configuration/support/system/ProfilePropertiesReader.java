@@ -0,0 +1,175 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.binding.PropertiesConfigParser;
+import se.signatureservice.configuration.common.binding.StreamingConfigBinder;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Help class reading a support profile from a properties file into the nested
+ * configuration map expected by {@link SupportProfileConfig}.
+ *
+ * Dotted keys are split into nested maps and maps with only numeric keys
+ * (0, 1, 2...) are converted into lists ordered by index, ex:
+ * <pre>
+ * authorizedConsumerURLs.0 = https://app.example.com/sign/response
+ * visibleSignature.fontSize = 9
+ * trustedAuthenticationServices.iDPTest.entityId = https://idptest.example.com/metadata
+ * </pre>
+ *
+ * Profiles not inheriting from another profile can instead be bound directly to a
+ * {@link SupportProfileConfig} while the file is parsed, see {@link #bind(Path, String)}.
+ */
+final class ProfilePropertiesReader {
+
+    static final String FILE_SUFFIX = ".properties";
+
+    private ProfilePropertiesReader() {
+    }
+
+    /**
+     * Read a profile configuration file.
+     *
+     * @param file properties file, read as UTF-8.
+     * @return nested configuration map.
+     * @throws IOException if the file could not be read.
+     */
+    static Map<String, Object> read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file); Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return toConfigMap(new PropertiesConfigParser(reader));
+        }
+    }
+
+    /**
+     * Bind a profile configuration file directly to a profile configuration while it is parsed,
+     * without building a map tree of the configuration. Inherited settings are merged as maps by
+     * {@link SupportProfileResolver}, so profiles inheriting from another profile must be read
+     * by {@link #read(Path)} instead.
+     *
+     * @param file properties file, read as UTF-8.
+     * @param name name of the profile.
+     * @return the profile configuration, with the profile name as relatedProfile, or null if the
+     * profile inherits from another profile.
+     * @throws IOException if the file could not be read.
+     * @throws InternalErrorException if the profile does not inherit from another profile and
+     * contains invalid configuration.
+     */
+    static SupportProfileConfig bind(Path file, String name) throws IOException, InternalErrorException {
+        SupportProfileConfig config = new SupportProfileConfig();
+        try (InputStream in = Files.newInputStream(file); Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            StreamingConfigBinder.bind(new PropertiesConfigParser(reader), SupportProfileConfigBinder.INSTANCE, config);
+        } catch (InternalErrorException e) {
+            // Missing or invalid settings of an inheriting profile are checked after merging.
+            if (SupportProfileResolver.getParent(name, config.getRelatedProfile()) != null) {
+                return null;
+            }
+            throw e;
+        }
+        if (SupportProfileResolver.getParent(name, config.getRelatedProfile()) != null) {
+            return null;
+        }
+        config.setRelatedProfile(name);
+        config.setParentProfile(null);
+        return config;
+    }
+
+    /**
+     * List profile configuration files.
+     *
+     * @param source a directory containing profile configuration files, or a profile configuration file.
+     * @return the profile configuration files in the directory, or the given file, sorted by name.
+     * @throws IOException if the directory could not be listed or the file is not a profile configuration file.
+     */
+    static List<Path> listFiles(Path source) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(source)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(source, "*" + FILE_SUFFIX)) {
+                for (Path file : stream) {
+                    if (Files.isRegularFile(file) && getProfileName(file) != null) {
+                        files.add(file);
+                    }
+                }
+            }
+            Collections.sort(files);
+        } else if (Files.isRegularFile(source) && getProfileName(source) != null) {
+            files.add(source);
+        } else {
+            throw new IOException("Not a profile configuration directory or file ending with " + FILE_SUFFIX + ": " + source);
+        }
+        return files;
+    }
+
+    /**
+     * Get the profile name of a configuration file.
+     *
+     * @param file the configuration file.
+     * @return the file name without suffix, or null if not a profile configuration file.
+     */
+    static String getProfileName(Path file) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(FILE_SUFFIX) || fileName.length() == FILE_SUFFIX.length()) {
+            return null;
+        }
+        return fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+    }
+
+    /**
+     * Convert properties with dotted keys into a nested configuration map.
+     *
+     * @param parser parser of the properties to convert.
+     * @return nested configuration map.
+     * @throws IOException if the properties could not be read or a key is used both as a value
+     * and as a parent of other keys.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> toConfigMap(PropertiesConfigParser parser) throws IOException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        while (parser.next()) {
+            String key = parser.getKey();
+            Map<String, Object> current = root;
+            int start = 0;
+            int dot;
+            while ((dot = key.indexOf('.', start)) != -1) {
+                String part = key.substring(start, dot);
+                Object child = current.computeIfAbsent(part, k -> new LinkedHashMap<String, Object>());
+                if (!(child instanceof Map<?, ?>)) {
+                    throw new IOException("Conflicting configuration key '" + key + "', '" + key.substring(0, dot) + "' is already set to a value");
+                }
+                current = (Map<String, Object>) child;
+                start = dot + 1;
+            }
+            String last = key.substring(start);
+            if (current.get(last) instanceof Map<?, ?>) {
+                throw new IOException("Conflicting configuration key '" + key + "', it is also used as parent of other keys");
+            }
+            current.put(last, parser.getValue());
+        }
+        return (Map<String, Object>) ConfigUtils.convertIndexedMaps(root);
+    }
+}
@@ -0,0 +1,28 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+/**
+ * Listener notified by {@link SupportProfileRegistry} after each reload that changed
+ * profiles or reported errors.
+ */
+@FunctionalInterface
+public interface ProfileReloadListener {
+
+    /**
+     * Called on the reloading thread after a new snapshot has been published.
+     *
+     * @param result the outcome of the reload.
+     */
+    void onReload(ProfileReloadResult result);
+}
@@ -0,0 +1,120 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a single reload performed by {@link SupportProfileRegistry}.
+ */
+public final class ProfileReloadResult {
+
+    private final long version;
+    private final long startTime;
+    private final long durationNanos;
+    private final List<String> addedProfiles;
+    private final List<String> updatedProfiles;
+    private final List<String> removedProfiles;
+    private final Map<String, String> errors;
+
+    ProfileReloadResult(long version, long startTime, long durationNanos, List<String> addedProfiles,
+                        List<String> updatedProfiles, List<String> removedProfiles, Map<String, String> errors) {
+        this.version = version;
+        this.startTime = startTime;
+        this.durationNanos = durationNanos;
+        this.addedProfiles = Collections.unmodifiableList(addedProfiles);
+        this.updatedProfiles = Collections.unmodifiableList(updatedProfiles);
+        this.removedProfiles = Collections.unmodifiableList(removedProfiles);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return version of the snapshot published after the reload, unchanged if nothing was changed.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return time the reload started, in milliseconds since epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return time spent reloading, in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return time spent reloading, in milliseconds.
+     */
+    public long getDurationMillis() {
+        return durationNanos / 1000000L;
+    }
+
+    /**
+     * @return names of profiles added by the reload.
+     */
+    public List<String> getAddedProfiles() {
+        return addedProfiles;
+    }
+
+    /**
+     * @return names of existing profiles replaced by the reload.
+     */
+    public List<String> getUpdatedProfiles() {
+        return updatedProfiles;
+    }
+
+    /**
+     * @return names of profiles removed by the reload.
+     */
+    public List<String> getRemovedProfiles() {
+        return removedProfiles;
+    }
+
+    /**
+     * @return error message by profile name, for profiles that failed to load and kept
+     * their previous configuration.
+     */
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if a new snapshot was published.
+     */
+    public boolean isChanged() {
+        return !addedProfiles.isEmpty() || !updatedProfiles.isEmpty() || !removedProfiles.isEmpty();
+    }
+
+    /**
+     * @return true if all changed profiles were loaded without errors.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileReloadResult{version=" + version + ", durationMillis=" + getDurationMillis() +
+                ", added=" + addedProfiles + ", updated=" + updatedProfiles + ", removed=" + removedProfiles +
+                ", errors=" + errors + "}";
+    }
+}
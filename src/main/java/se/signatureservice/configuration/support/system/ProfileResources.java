@@ -0,0 +1,227 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.InvalidArgumentException;
+import se.signatureservice.configuration.common.utils.ConfigUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared resources referenced by support profiles, such as key stores, logo images and
+ * validation policies.
+ *
+ * Each distinct resource is loaded once, on first request, and shared by all profiles
+ * referencing it. Concurrent requests for the same resource wait for a single load, requests
+ * for different resources load in parallel. A failed load is reported to the requests waiting
+ * for it but is not cached, the resource is loaded again on the next request. Resource paths are looked up on the file system first and then on the class path.
+ */
+public class ProfileResources {
+
+    private final Path policyDirectory;
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<>();
+    private final byte[] passwordSalt = new byte[16];
+    private final LogoImageCache logoImages = new LogoImageCache();
+
+    /**
+     * Create resources without validation policies.
+     */
+    public ProfileResources() {
+        this(null);
+    }
+
+    /**
+     * @param policyDirectory directory containing validation policy files, or null if
+     *                        validation policies should not be loaded.
+     */
+    public ProfileResources(Path policyDirectory) {
+        this.policyDirectory = policyDirectory;
+        new SecureRandom().nextBytes(passwordSalt);
+    }
+
+    /**
+     * Get a key store, such as the time stamp client key store or trust store.
+     *
+     * @param path path to the key store, on the file system or class path.
+     * @param type key store type, or null to derive it from the file extension.
+     * @param password key store password, or null.
+     * @return the loaded key store.
+     * @throws InternalErrorException if the key store could not be loaded.
+     */
+    public KeyStore getKeyStore(String path, String type, String password) throws InternalErrorException {
+        return (KeyStore) get("keystore\n" + path + "\n" + type + "\n" + digestPassword(password), () -> loadKeyStore(path, type, password));
+    }
+
+    /**
+     * Get the contents of a logo image.
+     *
+     * @param path path to the image, on the file system or class path.
+     * @return the image data, must not be modified.
+     * @throws InternalErrorException if the image could not be read.
+     */
+    public byte[] getLogo(String path) throws InternalErrorException {
+        return (byte[]) get("logo\n" + path, () -> readResource(path));
+    }
+
+    /**
+     * @return cache of decoded and scaled logo images. The image files are read by the cache,
+     * not through {@link #getLogo(String)}, so they are only held while cached.
+     */
+    public LogoImageCache getLogoImages() {
+        return logoImages;
+    }
+
+    /**
+     * Get the contents of a validation policy.
+     *
+     * @param name name of the policy file in the policy directory, with or without .xml extension.
+     * @return the policy data, must not be modified.
+     * @throws InternalErrorException if no policy directory is configured or the policy could not be read.
+     */
+    public byte[] getValidationPolicy(String name) throws InternalErrorException {
+        return (byte[]) get("policy\n" + name, () -> {
+            if (policyDirectory == null) {
+                throw new InternalErrorException("Validation policy directory not configured, cannot load validation policy " + name);
+            }
+            return Files.readAllBytes(policyDirectory.resolve(name.endsWith(".xml") ? name : name + ".xml"));
+        });
+    }
+
+    /**
+     * @return true if validation policies are loaded.
+     */
+    public boolean hasPolicyDirectory() {
+        return policyDirectory != null;
+    }
+
+    /**
+     * @return number of distinct resources requested.
+     */
+    public int size() {
+        return resources.size();
+    }
+
+    private Object get(String key, Loader loader) throws InternalErrorException {
+        Resource resource = resources.computeIfAbsent(key, k -> new Resource(loader));
+        try {
+            return resource.get();
+        } catch (InternalErrorException e) {
+            // Load again on the next request, the error may be transient.
+            resources.remove(key, resource);
+            throw e;
+        }
+    }
+
+    /**
+     * Digest a key store password with a salt of this instance, so that key stores opened with
+     * different passwords are cached separately without keeping the passwords in the cache keys.
+     */
+    private String digestPassword(String password) throws InternalErrorException {
+        if (password == null) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(passwordSalt);
+            return Base64.getEncoder().encodeToString(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalErrorException("SHA-256 not available: " + e.getMessage());
+        }
+    }
+
+    private static KeyStore loadKeyStore(String path, String type, String password) throws Exception {
+        int extension = path.lastIndexOf('.');
+        String keyStoreType;
+        try {
+            keyStoreType = ConfigUtils.getKeyStoreExtension(type, extension != -1 ? path.substring(extension + 1) : "");
+        } catch (InvalidArgumentException e) {
+            throw new InternalErrorException(e.getMessage() + " (" + path + ")");
+        }
+        KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+        try (InputStream in = openResource(path)) {
+            keyStore.load(in, password != null ? password.toCharArray() : null);
+        }
+        return keyStore;
+    }
+
+    /**
+     * Read a resource without caching it.
+     *
+     * @param path path to the resource, on the file system or class path.
+     * @return the contents of the resource.
+     * @throws IOException if the resource could not be read.
+     */
+    static byte[] readResource(String path) throws IOException {
+        try (InputStream in = openResource(path)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream openResource(String path) throws IOException {
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            return Files.newInputStream(file);
+        }
+        InputStream in = ProfileResources.class.getResourceAsStream(path.startsWith("/") ? path : "/" + path);
+        if (in == null) {
+            throw new FileNotFoundException("Resource not found on file system or class path: " + path);
+        }
+        return in;
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        Object load() throws Exception;
+    }
+
+    private static final class Resource {
+        private Loader loader;
+        private Object value;
+        private String error;
+
+        private Resource(Loader loader) {
+            this.loader = loader;
+        }
+
+        private synchronized Object get() throws InternalErrorException {
+            if (loader != null) {
+                try {
+                    value = loader.load();
+                } catch (InternalErrorException e) {
+                    error = e.getMessage();
+                } catch (Exception e) {
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+                loader = null;
+            }
+            if (error != null) {
+                throw new InternalErrorException(error);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable index routing sign requests to support profiles.
+ *
+ * Profiles are indexed by sign requester, sign service id and each authorized consumer URL,
+ * so finding the profiles matching a request is a single hash lookup regardless of the number
+ * of profiles. Several profiles may share a key, the names of matching profiles are returned
+ * in name order. Consumer URLs are normalized by {@link AuthorizationMatcher#normalize(String)}.
+ * Consumer URL prefix rules, such as {@code https://app.example.com/*}, are held in a character
+ * trie, so they are found in time proportional to the length of the URL.
+ *
+ * The index is built together with each {@link SupportProfileSnapshot}, and is therefore
+ * replaced atomically on reload.
+ */
+public final class ProfileRoutingIndex {
+
+    private final Map<String, List<String>> bySignRequester;
+    private final Map<String, List<String>> bySignServiceId;
+    private final Map<String, List<String>> byConsumerURL;
+    private final PrefixNode byConsumerURLPrefix;
+
+    /**
+     * Build an index of the given profiles.
+     *
+     * @param profiles compiled profiles by name.
+     */
+    public ProfileRoutingIndex(Map<String, CompiledSupportProfile> profiles) {
+        Map<String, List<String>> signRequesters = new HashMap<>();
+        Map<String, List<String>> signServiceIds = new HashMap<>();
+        Map<String, List<String>> consumerURLs = new HashMap<>();
+        PrefixNodeBuilder consumerURLPrefixes = new PrefixNodeBuilder();
+        for (Map.Entry<String, CompiledSupportProfile> entry : new TreeMap<>(profiles).entrySet()) {
+            String name = entry.getKey();
+            CompiledSupportProfile profile = entry.getValue();
+            add(signRequesters, profile.getSignRequester(), name);
+            add(signServiceIds, profile.getSignServiceId(), name);
+            for (String url : profile.getAuthorizedConsumerURLs()) {
+                if (url == null) {
+                    continue;
+                }
+                if (url.endsWith("*")) {
+                    consumerURLPrefixes.add(AuthorizationMatcher.normalizePrefix(url.substring(0, url.length() - 1)), name);
+                } else {
+                    add(consumerURLs, AuthorizationMatcher.normalize(url), name);
+                }
+            }
+        }
+        bySignRequester = freeze(signRequesters);
+        bySignServiceId = freeze(signServiceIds);
+        byConsumerURL = freeze(consumerURLs);
+        byConsumerURLPrefix = consumerURLPrefixes.children.isEmpty() ? null : consumerURLPrefixes.build();
+    }
+
+    /**
+     * @param signRequester entity id of the sign requester.
+     * @return unmodifiable list of names of the profiles with the given sign requester, empty if none.
+     */
+    public List<String> findBySignRequester(String signRequester) {
+        return find(bySignRequester, signRequester);
+    }
+
+    /**
+     * @param signServiceId entity id of the sign service.
+     * @return unmodifiable list of names of the profiles with the given sign service id, empty if none.
+     */
+    public List<String> findBySignServiceId(String signServiceId) {
+        return find(bySignServiceId, signServiceId);
+    }
+
+    /**
+     * @param consumerURL consumer URL specified by the driving application.
+     * @return unmodifiable list of names of the profiles with the given consumer URL, or a
+     * prefix rule matching it, in {@code authorizedConsumerURLs}, empty if none.
+     */
+    public List<String> findByConsumerURL(String consumerURL) {
+        String url = AuthorizationMatcher.normalize(consumerURL);
+        List<String> names = find(byConsumerURL, url);
+        if (url == null) {
+            return names;
+        }
+        TreeSet<String> matches = null;
+        PrefixNode node = byConsumerURLPrefix;
+        int i = 0;
+        while (node != null) {
+            if (node.names != null) {
+                if (matches == null) {
+                    matches = new TreeSet<>(names);
+                }
+                matches.addAll(node.names);
+            }
+            if (i == url.length()) {
+                break;
+            }
+            node = node.child(url.charAt(i++));
+        }
+        return matches != null ? Collections.unmodifiableList(new ArrayList<>(matches)) : names;
+    }
+
+    private static List<String> find(Map<String, List<String>> index, String key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = index.get(key);
+        return names != null ? names : Collections.emptyList();
+    }
+
+    private static void add(Map<String, List<String>> index, String key, String name) {
+        if (key != null) {
+            add(index.computeIfAbsent(key, k -> new ArrayList<>(1)), name);
+        }
+    }
+
+    private static void add(List<String> names, String name) {
+        // A profile listing the same URL twice is only added once, names are added in order.
+        if (names.isEmpty() || !names.get(names.size() - 1).equals(name)) {
+            names.add(name);
+        }
+    }
+
+    private static Map<String, List<String>> freeze(Map<String, List<String>> index) {
+        for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return index;
+    }
+
+    /**
+     * Trie node of consumer URL prefixes with children sorted by character, found by binary
+     * search, and the names of the profiles with a prefix rule ending at the node.
+     */
+    private static final class PrefixNode {
+        final List<String> names;
+        final char[] labels;
+        final PrefixNode[] children;
+
+        PrefixNode(List<String> names, char[] labels, PrefixNode[] children) {
+            this.names = names;
+            this.labels = labels;
+            this.children = children;
+        }
+
+        PrefixNode child(char c) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = labels[mid];
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class PrefixNodeBuilder {
+        final TreeMap<Character, PrefixNodeBuilder> children = new TreeMap<>();
+        List<String> names;
+
+        void add(String prefix, String name) {
+            PrefixNodeBuilder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixNodeBuilder());
+            }
+            if (node.names == null) {
+                node.names = new ArrayList<>(1);
+            }
+            ProfileRoutingIndex.add(node.names, name);
+        }
+
+        PrefixNode build() {
+            char[] labels = new char[children.size()];
+            PrefixNode[] nodes = new PrefixNode[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, PrefixNodeBuilder> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                nodes[i++] = entry.getValue().build();
+            }
+            return new PrefixNode(names != null ? Collections.unmodifiableList(names) : null, labels, nodes);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Build time tool compiling support profile configuration files into a {@link BinaryProfileSnapshot}.
+ *
+ * All profiles are parsed, resolved and validated, and the snapshot is only written if every
+ * profile is valid. Usage:
+ * <pre>
+ * java -cp signservice-java-configuration.jar se.signatureservice.configuration.support.system.ProfileSnapshotCompiler \
+ *     &lt;snapshot file&gt; &lt;profile directory or file&gt;...
+ * </pre>
+ */
+public final class ProfileSnapshotCompiler {
+
+    private ProfileSnapshotCompiler() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ProfileSnapshotCompiler <snapshot file> <profile directory or file>...");
+            System.exit(2);
+        }
+        List<Path> sources = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sources.add(Paths.get(args[i]));
+        }
+        try {
+            int count = compile(sources, Paths.get(args[0]));
+            System.out.println("Compiled " + count + " profiles into " + args[0]);
+        } catch (InternalErrorException | IOException e) {
+            System.err.println("Failed to compile profile snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compile profile configuration files into a snapshot file.
+     *
+     * @param sources directories containing profile configuration files, or profile configuration files.
+     * @param snapshotFile the snapshot file to write.
+     * @return number of profiles written.
+     * @throws InternalErrorException if any profile is invalid, with the errors of all invalid profiles.
+     * @throws IOException if a file could not be read or the snapshot could not be written.
+     */
+    public static int compile(Collection<Path> sources, Path snapshotFile) throws InternalErrorException, IOException {
+        long fingerprint = BinaryProfileSnapshot.fingerprint(sources);
+        Map<String, Map<String, Object>> configs = new HashMap<>();
+        Map<String, String> errors = new TreeMap<>();
+        for (Path source : sources) {
+            for (Path file : ProfilePropertiesReader.listFiles(source)) {
+                String name = ProfilePropertiesReader.getProfileName(file);
+                if (configs.put(name, ProfilePropertiesReader.read(file)) != null) {
+                    errors.put(name, "Profile '" + name + "' is configured more than once, last in " + file);
+                }
+            }
+        }
+
+        // Profiles are only compiled to validate them, so values are not pooled.
+        SupportProfileResolver resolver = new SupportProfileResolver(null);
+        resolver.update(configs, Collections.emptyList(), errors);
+        if (!errors.isEmpty()) {
+            List<String> messages = new ArrayList<>(errors.size());
+            for (Map.Entry<String, String> entry : errors.entrySet()) {
+                messages.add(entry.getKey() + ": " + entry.getValue());
+            }
+            throw new InternalErrorException("Invalid profiles, " + String.join(", ", messages));
+        }
+
+        Map<String, SupportProfileConfig> profiles = new HashMap<>();
+        for (String name : configs.keySet()) {
+            SupportProfileConfig profile = new SupportProfileConfig(resolver.getResolvedConfig(name));
+            profile.setParentProfile(resolver.getParent(name));
+            profiles.put(name, profile);
+        }
+        BinaryProfileSnapshot.write(snapshotFile, fingerprint, profiles);
+        return profiles.size();
+    }
+}
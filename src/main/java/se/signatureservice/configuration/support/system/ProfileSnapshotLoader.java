@@ -0,0 +1,112 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads support profiles at startup from a {@link BinaryProfileSnapshot} if it is up to date,
+ * otherwise by parsing the profile configuration files with {@link SupportProfileBulkLoader}.
+ *
+ * The snapshot is used if it can be opened, was written with the current format and configuration
+ * classes and its fingerprint matches the current profile configuration files. Profiles are then
+ * decoded lazily on first access.
+ */
+public final class ProfileSnapshotLoader {
+
+    private final BinaryProfileSnapshot snapshot;
+    private final Map<String, CompiledSupportProfile> profiles;
+    private final Map<String, List<String>> errors;
+    private final String fallbackReason;
+
+    private ProfileSnapshotLoader(BinaryProfileSnapshot snapshot, Map<String, CompiledSupportProfile> profiles,
+                                  Map<String, List<String>> errors, String fallbackReason) {
+        this.snapshot = snapshot;
+        this.profiles = profiles;
+        this.errors = errors;
+        this.fallbackReason = fallbackReason;
+    }
+
+    /**
+     * Load profiles from the snapshot, or from the profile configuration files if the snapshot is stale.
+     *
+     * @param snapshotFile the snapshot file, need not exist.
+     * @param sources directories containing profile configuration files, or profile configuration files.
+     * @return the loaded profiles.
+     */
+    public static ProfileSnapshotLoader load(Path snapshotFile, Collection<Path> sources) {
+        String reason;
+        try {
+            BinaryProfileSnapshot snapshot = BinaryProfileSnapshot.open(snapshotFile);
+            if (snapshot.getFingerprint() == BinaryProfileSnapshot.fingerprint(sources)) {
+                return new ProfileSnapshotLoader(snapshot, null, Collections.emptyMap(), null);
+            }
+            reason = "Profile snapshot is stale, profile configuration files have changed";
+        } catch (IOException e) {
+            reason = "Profile snapshot not available: " + e.getMessage();
+        }
+        try (SupportProfileBulkLoader loader = new SupportProfileBulkLoader()) {
+            BulkLoadResult result = loader.loadFiles(sources, null);
+            return new ProfileSnapshotLoader(null, result.getProfiles(), result.getErrors(), reason);
+        }
+    }
+
+    /**
+     * Get a profile.
+     *
+     * @param name name of the profile.
+     * @return the profile or null if no such profile exists.
+     * @throws InternalErrorException if the profile could not be decoded from the snapshot.
+     */
+    public CompiledSupportProfile getProfile(String name) throws InternalErrorException {
+        return snapshot != null ? snapshot.getProfile(name) : profiles.get(name);
+    }
+
+    /**
+     * @return names of all loaded profiles.
+     */
+    public Set<String> getProfileNames() {
+        return snapshot != null ? snapshot.getProfileNames() : profiles.keySet();
+    }
+
+    /**
+     * @return true if profiles are loaded from the snapshot.
+     */
+    public boolean isSnapshotUsed() {
+        return snapshot != null;
+    }
+
+    /**
+     * @return why the profile configuration files were parsed instead of using the snapshot,
+     * or null if the snapshot is used.
+     */
+    public String getFallbackReason() {
+        return fallbackReason;
+    }
+
+    /**
+     * @return errors by profile name from parsing the profile configuration files, always empty
+     * if the snapshot is used since only valid profiles are compiled into snapshots.
+     */
+    public Map<String, List<String>> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,217 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable text template of a visible signature, compiled once per profile.
+ *
+ * Placeholders are written as {@code {name}}. The placeholders {@code {headlineText}},
+ * {@code {signerLabel}} and {@code {timeStampLabel}} are replaced by the configured values when
+ * the template is compiled, {@code {signerName}} and {@code {timestamp}} and any other
+ * placeholders are filled in when the template is rendered. Placeholders without a value are
+ * rendered as written.
+ *
+ * If no {@code signatureTextTemplate} is configured the default template is used:
+ * <pre>
+ * {headlineText}
+ * {signerLabel}: {signerName}
+ * {timeStampLabel}: {timestamp}
+ * </pre>
+ * where the headline line is left out if {@code showHeadline} is disabled.
+ */
+public final class SignatureTextTemplate {
+
+    public static final String HEADLINE_TEXT = "headlineText";
+    public static final String SIGNER_LABEL = "signerLabel";
+    public static final String TIME_STAMP_LABEL = "timeStampLabel";
+    public static final String SIGNER_NAME = "signerName";
+    public static final String TIMESTAMP = "timestamp";
+
+    static final String DEFAULT_TEMPLATE = "{" + SIGNER_LABEL + "}: {" + SIGNER_NAME + "}\n{" +
+            TIME_STAMP_LABEL + "}: {" + TIMESTAMP + "}";
+    static final String DEFAULT_TEMPLATE_WITH_HEADLINE = "{" + HEADLINE_TEXT + "}\n" + DEFAULT_TEMPLATE;
+
+    private static final byte LITERAL = 0;
+    private static final byte SIGNER_NAME_TOKEN = 1;
+    private static final byte TIMESTAMP_TOKEN = 2;
+    private static final byte PLACEHOLDER = 3;
+
+    private final String template;
+    private final byte[] kinds;
+    private final String[] tokens;
+    private final int literalLength;
+
+    private SignatureTextTemplate(String template, byte[] kinds, String[] tokens) {
+        this.template = template;
+        this.kinds = kinds;
+        this.tokens = tokens;
+        int length = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == LITERAL) {
+                length += tokens[i].length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile the text template of a visible signature configuration.
+     *
+     * @param config the visible signature configuration.
+     * @return compiled template.
+     */
+    public static SignatureTextTemplate compile(VisibleSignatureConfig config) {
+        String template = config.getSignatureTextTemplate();
+        if (template == null) {
+            template = config.isShowHeadline() ? DEFAULT_TEMPLATE_WITH_HEADLINE : DEFAULT_TEMPLATE;
+        }
+        return compile(template, config.getHeadlineText(), config.getSignerLabel(), config.getTimeStampLabel());
+    }
+
+    /**
+     * Compile a text template.
+     *
+     * @param template the template.
+     * @param headlineText value of {@code {headlineText}}, or null to fill it in when rendering.
+     * @param signerLabel value of {@code {signerLabel}}, or null to fill it in when rendering.
+     * @param timeStampLabel value of {@code {timeStampLabel}}, or null to fill it in when rendering.
+     * @return compiled template.
+     */
+    public static SignatureTextTemplate compile(String template, String headlineText, String signerLabel, String timeStampLabel) {
+        List<String> tokens = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            int start = template.indexOf('{', i);
+            int end = start >= 0 ? template.indexOf('}', start + 1) : -1;
+            if (end < 0) {
+                literal.append(template, i, template.length());
+                break;
+            }
+            start = template.lastIndexOf('{', end);
+            literal.append(template, i, start);
+            String name = template.substring(start + 1, end);
+            String constant = getConstant(name, headlineText, signerLabel, timeStampLabel);
+            if (constant != null) {
+                literal.append(constant);
+            } else {
+                if (literal.length() > 0) {
+                    tokens.add(literal.toString());
+                    kinds.add(LITERAL);
+                    literal.setLength(0);
+                }
+                tokens.add(name);
+                kinds.add(SIGNER_NAME.equals(name) ? SIGNER_NAME_TOKEN : TIMESTAMP.equals(name) ? TIMESTAMP_TOKEN : PLACEHOLDER);
+            }
+            i = end + 1;
+        }
+        if (literal.length() > 0) {
+            tokens.add(literal.toString());
+            kinds.add(LITERAL);
+        }
+        byte[] kindArray = new byte[kinds.size()];
+        for (int j = 0; j < kindArray.length; j++) {
+            kindArray[j] = kinds.get(j);
+        }
+        return new SignatureTextTemplate(template, kindArray, tokens.toArray(new String[0]));
+    }
+
+    /**
+     * Render the template into a buffer, which may be reused between signatures.
+     *
+     * @param out buffer to append the text to.
+     * @param signerName value of {@code {signerName}}, rendered as written if null.
+     * @param timestamp value of {@code {timestamp}}, rendered as written if null.
+     * @return the given buffer.
+     */
+    public StringBuilder render(StringBuilder out, CharSequence signerName, CharSequence timestamp) {
+        return render(out, signerName, timestamp, null);
+    }
+
+    /**
+     * Render the template into a buffer, which may be reused between signatures.
+     *
+     * @param out buffer to append the text to.
+     * @param signerName value of {@code {signerName}}, rendered as written if null.
+     * @param timestamp value of {@code {timestamp}}, rendered as written if null.
+     * @param values values of other placeholders by name, may be null.
+     * @return the given buffer.
+     */
+    public StringBuilder render(StringBuilder out, CharSequence signerName, CharSequence timestamp,
+                                Map<String, ? extends CharSequence> values) {
+        out.ensureCapacity(out.length() + literalLength + 32);
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL:
+                    out.append(tokens[i]);
+                    break;
+                case SIGNER_NAME_TOKEN:
+                    appendValue(out, tokens[i], signerName);
+                    break;
+                case TIMESTAMP_TOKEN:
+                    appendValue(out, tokens[i], timestamp);
+                    break;
+                default:
+                    appendValue(out, tokens[i], values != null ? values.get(tokens[i]) : null);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param signerName value of {@code {signerName}}.
+     * @param timestamp value of {@code {timestamp}}.
+     * @return the rendered text.
+     */
+    public String render(CharSequence signerName, CharSequence timestamp) {
+        return render(new StringBuilder(literalLength + 32), signerName, timestamp, null).toString();
+    }
+
+    /**
+     * @return the template the text was compiled from.
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static String getConstant(String name, String headlineText, String signerLabel, String timeStampLabel) {
+        switch (name) {
+            case HEADLINE_TEXT:
+                return headlineText;
+            case SIGNER_LABEL:
+                return signerLabel;
+            case TIME_STAMP_LABEL:
+                return timeStampLabel;
+            default:
+                return null;
+        }
+    }
+
+    private static void appendValue(StringBuilder out, String name, CharSequence value) {
+        if (value != null) {
+            out.append(value);
+        } else {
+            out.append('{').append(name).append('}');
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a large number of support profiles in parallel, typically at startup.
+ *
+ * Loading is performed in three phases, each run in parallel on a fork-join pool and timed
+ * separately:
+ * <ul>
+ *     <li>{@link BulkLoadPhase#PARSE}: profile configuration files are read and parsed. Profiles
+ *     not inheriting from another profile, and not inherited from, are bound directly while
+ *     parsed without building a map tree of their configuration, see
+ *     {@link ProfilePropertiesReader#bind(Path, String)}.</li>
+ *     <li>{@link BulkLoadPhase#RESOLVE}: inheritance is resolved and profiles are validated and
+ *     compiled, see {@link SupportProfileResolver}.</li>
+ *     <li>{@link BulkLoadPhase#PREWARM}: key stores, logo images and validation policies referenced
+ *     by the profiles are loaded into {@link ProfileResources}. Each distinct resource is loaded
+ *     once, however many profiles reference it. Logo images are decoded, and invalid or too
+ *     large images rejected, see {@link LogoImageCache}.</li>
+ * </ul>
+ * All errors are collected per profile, a profile with errors in any phase is not included
+ * in the loaded profiles.
+ *
+ * Parsing and compiling are CPU bound, so the default pool has one thread per available
+ * processor. Virtual threads would not make these phases faster. The pre-warm phase mostly
+ * waits on file reads, but it runs on the same bounded pool so that loading thousands of
+ * resources does not open thousands of files at once.
+ */
+public class SupportProfileBulkLoader implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final boolean ownedPool;
+
+    /**
+     * Create a loader with its own pool, using one thread per available processor.
+     */
+    public SupportProfileBulkLoader() {
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.ownedPool = true;
+    }
+
+    /**
+     * Create a loader using the given pool.
+     *
+     * @param pool pool used to load profiles, not shut down by this loader.
+     */
+    public SupportProfileBulkLoader(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Invalid bulk loader, pool required");
+        }
+        this.pool = pool;
+        this.ownedPool = false;
+    }
+
+    /**
+     * Load profiles from profile configuration files.
+     *
+     * @param sources directories containing {@code <profile name>.properties} files, or profile files.
+     * @param resources resources to pre-warm, or null to skip the pre-warm phase.
+     * @return the outcome of the load.
+     */
+    public BulkLoadResult loadFiles(Collection<Path> sources, ProfileResources resources) {
+        Map<String, List<String>> errors = new TreeMap<>();
+        EnumMap<BulkLoadPhase, Long> phaseNanos = new EnumMap<>(BulkLoadPhase.class);
+
+        long start = System.nanoTime();
+        Map<String, Path> files = new TreeMap<>();
+        for (Path source : sources) {
+            try {
+                for (Path file : ProfilePropertiesReader.listFiles(source)) {
+                    String name = ProfilePropertiesReader.getProfileName(file);
+                    Path existing = files.putIfAbsent(name, file);
+                    if (existing != null) {
+                        addError(errors, name, "Profile '" + name + "' is configured in both " + existing + " and " + file);
+                    }
+                }
+            } catch (IOException e) {
+                addError(errors, source.toString(), "Failed to list profile configuration files: " + e.getMessage());
+            }
+        }
+        // A duplicated profile is not loaded from any of its files.
+        files.keySet().removeAll(errors.keySet());
+        List<Callable<Object>> tasks = new ArrayList<>(files.size());
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            tasks.add(() -> {
+                try {
+                    SupportProfileConfig config = ProfilePropertiesReader.bind(entry.getValue(), entry.getKey());
+                    return config != null ? config : read(entry.getValue());
+                } catch (InternalErrorException e) {
+                    return e;
+                } catch (IOException | RuntimeException e) {
+                    return getReadError(entry.getValue(), e);
+                }
+            });
+        }
+        Object[] parsed = invokeAll(tasks);
+        Set<String> parents = new HashSet<>();
+        int i = 0;
+        for (String name : files.keySet()) {
+            if (parsed[i] instanceof Map<?, ?>) {
+                String parent = SupportProfileResolver.getParent(name, ((Map<?, ?>) parsed[i]).get(SupportProfileResolver.RELATED_PROFILE));
+                if (parent != null) {
+                    parents.add(parent);
+                }
+            }
+            i++;
+        }
+        Map<String, Map<String, Object>> configs = new HashMap<>();
+        Map<String, SupportProfileConfig> bound = new HashMap<>();
+        i = 0;
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            String name = entry.getKey();
+            Object result = parsed[i++];
+            if (result instanceof SupportProfileConfig || result instanceof InternalErrorException) {
+                if (parents.contains(name)) {
+                    // Inherited settings are merged as maps, read the parent again as a map.
+                    result = read(entry.getValue());
+                } else if (result instanceof SupportProfileConfig) {
+                    bound.put(name, (SupportProfileConfig) result);
+                    continue;
+                } else {
+                    result = ((InternalErrorException) result).getMessage();
+                }
+            }
+            addResult(configs, errors, name, result);
+        }
+        phaseNanos.put(BulkLoadPhase.PARSE, System.nanoTime() - start);
+
+        return load(configs, bound, resources, errors, phaseNanos);
+    }
+
+    /**
+     * Load profiles from configuration maps.
+     *
+     * @param configs configuration by profile name.
+     * @param resources resources to pre-warm, or null to skip the pre-warm phase.
+     * @return the outcome of the load.
+     */
+    public BulkLoadResult load(Map<String, Map<String, Object>> configs, ProfileResources resources) {
+        return load(configs, Collections.emptyMap(), resources, new TreeMap<>(), new EnumMap<>(BulkLoadPhase.class));
+    }
+
+    /**
+     * Shut down the pool if created by this loader.
+     */
+    @Override
+    public void close() {
+        if (ownedPool) {
+            pool.shutdown();
+        }
+    }
+
+    private BulkLoadResult load(Map<String, Map<String, Object>> configs, Map<String, SupportProfileConfig> bound,
+                                ProfileResources resources, Map<String, List<String>> errors, EnumMap<BulkLoadPhase, Long> phaseNanos) {
+        long start = System.nanoTime();
+        Map<String, String> resolveErrors = new HashMap<>();
+        ConfigInterner interner = new ConfigInterner();
+        Map<String, CompiledSupportProfile> profiles = new TreeMap<>(
+                new SupportProfileResolver(interner).update(configs, Collections.emptyList(), resolveErrors, pool));
+        for (Map.Entry<String, String> entry : resolveErrors.entrySet()) {
+            addError(errors, entry.getKey(), entry.getValue());
+        }
+        List<Callable<Object>> tasks = new ArrayList<>(bound.size());
+        for (SupportProfileConfig config : bound.values()) {
+            tasks.add(() -> {
+                try {
+                    return CompiledSupportProfile.compile(config, interner);
+                } catch (InternalErrorException | RuntimeException e) {
+                    return e.getMessage();
+                }
+            });
+        }
+        Object[] compiled = invokeAll(tasks);
+        int i = 0;
+        for (String name : bound.keySet()) {
+            Object result = compiled[i++];
+            if (result instanceof CompiledSupportProfile) {
+                profiles.put(name, (CompiledSupportProfile) result);
+            } else {
+                addError(errors, name, (String) result);
+            }
+        }
+        phaseNanos.put(BulkLoadPhase.RESOLVE, System.nanoTime() - start);
+
+        if (resources != null) {
+            start = System.nanoTime();
+            prewarm(profiles, resources, errors);
+            phaseNanos.put(BulkLoadPhase.PREWARM, System.nanoTime() - start);
+        }
+        return new BulkLoadResult(profiles, errors, phaseNanos, resources != null ? resources : new ProfileResources(), interner);
+    }
+
+    private void prewarm(Map<String, CompiledSupportProfile> profiles, ProfileResources resources, Map<String, List<String>> errors) {
+        Map<ResourceRequest, List<String>> requests = new LinkedHashMap<>();
+        for (Map.Entry<String, CompiledSupportProfile> entry : profiles.entrySet()) {
+            CompiledSupportProfile profile = entry.getValue();
+            VisibleSignatureConfig visibleSignature = profile.getVisibleSignature();
+            if (visibleSignature != null && visibleSignature.isEnable() && visibleSignature.isShowLogo() && visibleSignature.getLogoImage() != null) {
+                addRequest(requests, new ResourceRequest(ResourceKind.LOGO_IMAGE, visibleSignature.getLogoImage(), null, null), entry.getKey());
+            }
+            TimeStampConfig timeStamp = profile.getTimeStamp();
+            if (timeStamp != null && timeStamp.getKeyStorePath() != null) {
+                addRequest(requests, new ResourceRequest(ResourceKind.TIME_STAMP_KEY_STORE, timeStamp.getKeyStorePath(),
+                        timeStamp.getKeyStoreType(), timeStamp.getKeyStorePassword()), entry.getKey());
+            }
+            if (timeStamp != null && timeStamp.getTrustStorePath() != null) {
+                addRequest(requests, new ResourceRequest(ResourceKind.TIME_STAMP_TRUST_STORE, timeStamp.getTrustStorePath(),
+                        timeStamp.getTrustStoreType(), timeStamp.getTrustStorePassword()), entry.getKey());
+            }
+            if (resources.hasPolicyDirectory() && profile.getValidationPolicy() != null) {
+                addRequest(requests, new ResourceRequest(ResourceKind.VALIDATION_POLICY, profile.getValidationPolicy(), null, null), entry.getKey());
+            }
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(requests.size());
+        for (ResourceRequest request : requests.keySet()) {
+            tasks.add(() -> {
+                try {
+                    request.load(resources);
+                    return null;
+                } catch (InternalErrorException e) {
+                    return "Failed to load " + request.kind.description + " " + request.path + ": " + e.getMessage();
+                }
+            });
+        }
+        Object[] loaded = invokeAll(tasks);
+        int i = 0;
+        for (List<String> names : requests.values()) {
+            Object error = loaded[i++];
+            if (error != null) {
+                for (String name : names) {
+                    profiles.remove(name);
+                    addError(errors, name, (String) error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run tasks on the pool and wait for all to complete.
+     *
+     * @return result of each task, or an error message if the task failed.
+     */
+    private Object[] invokeAll(List<Callable<Object>> tasks) {
+        Object[] results = new Object[tasks.size()];
+        List<Future<Object>> futures = pool.invokeAll(tasks);
+        for (int i = 0; i < results.length; i++) {
+            try {
+                results[i] = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[i] = "Loading interrupted";
+            } catch (ExecutionException e) {
+                results[i] = "Loading failed: " + e.getCause();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Read a profile configuration file as a map.
+     *
+     * @return the configuration map, or an error message if the file could not be read.
+     */
+    private static Object read(Path file) {
+        try {
+            return ProfilePropertiesReader.read(file);
+        } catch (IOException | RuntimeException e) {
+            return getReadError(file, e);
+        }
+    }
+
+    private static String getReadError(Path file, Exception e) {
+        return "Failed to read profile configuration " + file + ": " + e.getMessage();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addResult(Map<String, Map<String, Object>> configs, Map<String, List<String>> errors, String name, Object result) {
+        if (result instanceof Map<?, ?>) {
+            configs.put(name, (Map<String, Object>) result);
+        } else {
+            addError(errors, name, (String) result);
+        }
+    }
+
+    private static void addError(Map<String, List<String>> errors, String name, String message) {
+        errors.computeIfAbsent(name, k -> new ArrayList<>()).add(message);
+    }
+
+    private static void addRequest(Map<ResourceRequest, List<String>> requests, ResourceRequest request, String profile) {
+        requests.computeIfAbsent(request, k -> new ArrayList<>()).add(profile);
+    }
+
+    private enum ResourceKind {
+        LOGO_IMAGE("logo image"),
+        TIME_STAMP_KEY_STORE("time stamp key store"),
+        TIME_STAMP_TRUST_STORE("time stamp trust store"),
+        VALIDATION_POLICY("validation policy");
+
+        private final String description;
+
+        ResourceKind(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final class ResourceRequest {
+        private final ResourceKind kind;
+        private final String path;
+        private final String type;
+        private final String password;
+
+        private ResourceRequest(ResourceKind kind, String path, String type, String password) {
+            this.kind = kind;
+            this.path = path;
+            this.type = type;
+            this.password = password;
+        }
+
+        private void load(ProfileResources resources) throws InternalErrorException {
+            switch (kind) {
+                case LOGO_IMAGE:
+                    resources.getLogoImages().getImage(path);
+                    break;
+                case VALIDATION_POLICY:
+                    resources.getValidationPolicy(path);
+                    break;
+                case TIME_STAMP_KEY_STORE:
+                case TIME_STAMP_TRUST_STORE:
+                    resources.getKeyStore(path, type, password);
+                    break;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResourceRequest)) {
+                return false;
+            }
+            // Key stores opened with different passwords are loaded separately, the password is
+            // compared but not hashed.
+            ResourceRequest other = (ResourceRequest) o;
+            return kind == other.kind && path.equals(other.path) && Objects.equals(type, other.type) && Objects.equals(password, other.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, path, type);
+        }
+    }
+}
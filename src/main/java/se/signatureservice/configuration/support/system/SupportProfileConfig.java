@@ -0,0 +1,550 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.binding.ConfigBindable;
+import se.signatureservice.configuration.common.binding.ConfigProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable support profile configuration, parsed from a configuration map where each
+ * setting is named after the related property of {@link SupportProfile}, ex:
+ * <pre>
+ * signRequester: "https://requester.example.se"
+ * signatureValidityMinutes: 10
+ * authorizedConsumerURLs:
+ *   - "https://requester.example.se/consume"
+ * visibleSignature:
+ *   enable: true
+ * </pre>
+ * Use {@link CompiledSupportProfile} to get an immutable profile to use when processing requests.
+ */
+@ConfigBindable("profile")
+public class SupportProfileConfig implements SupportProfile {
+
+    static final String DEFAULT_SIGN_REQUEST_EXTENSION_VERSION = "1.5";
+
+    @ConfigProperty
+    String relatedProfile;
+
+    @ConfigProperty
+    String xadesSignatureLevel = Constants.DEFAULT_XADES_SIGNATURELEVEL;
+
+    @ConfigProperty
+    String xadesSignaturePacking = Constants.DEFAULT_XADES_SIGNATUREPACKAGING;
+
+    @ConfigProperty
+    String xadesCanonicalizationAlgorithmURI = Constants.DEFAULT_XADES_SIGNEDINFOCANONICALIZATIONMETHOD;
+
+    @ConfigProperty
+    String xadesXPathLocationString = Constants.DEFAULT_XADES_XPATHLOCATIONSTRING;
+
+    @ConfigProperty
+    String padesSignatureLevel = Constants.DEFAULT_PADES_SIGNATURELEVEL;
+
+    @ConfigProperty
+    String padesSignaturePacking = Constants.DEFAULT_PADES_SIGNATUREPACKING;
+
+    @ConfigProperty
+    int padesContentSize = Constants.DEFAULT_PADES_CONTENT_SIZE;
+
+    @ConfigProperty
+    String cadesSignatureLevel = Constants.DEFAULT_CADES_SIGNATURELEVEL;
+
+    @ConfigProperty
+    String cadesSignaturePacking = Constants.DEFAULT_CADES_SIGNATUREPACKING;
+
+    @ConfigProperty
+    int signatureValidityOverlapMinutes;
+
+    @ConfigProperty
+    int signatureValidityMinutes;
+
+    @ConfigProperty
+    String signatureAlgorithm = Constants.DEFAULT_SIGNATUREALGORITHM;
+
+    @ConfigProperty
+    String encryptionAlgorithmScheme = Constants.DEFAULT_ENCRYPTION_ALGORITHM_SCHEME;
+
+    @ConfigProperty
+    boolean useEncryptedSignMessage;
+
+    @ConfigProperty
+    boolean signMessageMustShow;
+
+    @ConfigProperty
+    String signMessageMimeType;
+
+    @ConfigProperty
+    String userIdAttributeMapping;
+
+    @ConfigProperty
+    String defaultUserIdAttributeMapping = Constants.DEFAULT_USER_ID_ATTRIBUTE_MAPPING;
+
+    @ConfigProperty
+    String userDisplayNameAttribute;
+
+    @ConfigProperty
+    String signServiceId;
+
+    @ConfigProperty
+    String signServiceRequestURL;
+
+    @ConfigProperty
+    String signRequester;
+
+    @ConfigProperty
+    boolean fetchAuthnContextClassRefFromMetaData;
+
+    @ConfigProperty
+    String authnContextClassRef;
+
+    @ConfigProperty
+    String defaultAuthnContextClassRef;
+
+    @ConfigProperty
+    List<String> defaultAuthnContextClassRefs;
+
+    @ConfigProperty
+    String certificateType;
+
+    @ConfigProperty
+    List<String> defaultUserIdAttributeMappingValues;
+
+    @ConfigProperty
+    boolean fetchCertAttributesFromMetaData;
+
+    @ConfigProperty
+    Map<String, Map<String,Object>> metadataCustomCertAttribute;
+
+    @ConfigProperty
+    Map<String, Map<String,Object>> requestedCertAttributes;
+
+    @ConfigProperty
+    Map<String, Map<String,Object>> signerAttributes;
+
+    @ConfigProperty
+    Map<String, Map<String,Object>> trustedAuthenticationServices;
+
+    @ConfigProperty(required = true)
+    List<String> authorizedCentralServiceEntityIds;
+
+    @ConfigProperty(required = true)
+    List<String> authorizedConsumerURLs;
+
+    @ConfigProperty
+    String validationPolicy;
+
+    @ConfigProperty
+    boolean enableEnhancedLogging;
+
+    @ConfigProperty
+    boolean enableAuthnProfile;
+
+    @ConfigProperty
+    boolean enableAutomaticValidation;
+
+    @ConfigProperty
+    String signRequestExtensionVersion = DEFAULT_SIGN_REQUEST_EXTENSION_VERSION;
+
+    /**
+     * Name of the profile this profile inherits from, set by {@link SupportProfileResolver}
+     * when resolving {@code relatedProfile}. Not a configuration property, so it is never bound
+     * from profile files or maps.
+     */
+    String parentProfile;
+
+    @ConfigProperty
+    VisibleSignatureConfig visibleSignature = new VisibleSignatureConfig();
+
+    @ConfigProperty
+    TimeStampConfig timeStamp;
+
+    /**
+     * Create profile configuration with default values.
+     */
+    public SupportProfileConfig() {
+    }
+
+    /**
+     * Create profile configuration based on given map values.
+     *
+     * @param config Map containing profile configuration parameters to use, that will
+     * override default configuration values.
+     * @throws InternalErrorException if the configuration contains invalid values.
+     */
+    public SupportProfileConfig(Map<String, Object> config) throws InternalErrorException {
+        if (config != null) {
+            SupportProfileConfigBinder.INSTANCE.bind(config, this);
+        }
+    }
+
+    public String getRelatedProfile() {
+        return relatedProfile;
+    }
+
+    public void setRelatedProfile(String relatedProfile) {
+        this.relatedProfile = relatedProfile;
+    }
+
+    public String getXadesSignatureLevel() {
+        return xadesSignatureLevel;
+    }
+
+    public void setXadesSignatureLevel(String xadesSignatureLevel) {
+        this.xadesSignatureLevel = xadesSignatureLevel;
+    }
+
+    public String getXadesSignaturePacking() {
+        return xadesSignaturePacking;
+    }
+
+    public void setXadesSignaturePacking(String xadesSignaturePacking) {
+        this.xadesSignaturePacking = xadesSignaturePacking;
+    }
+
+    public String getXadesCanonicalizationAlgorithmURI() {
+        return xadesCanonicalizationAlgorithmURI;
+    }
+
+    public void setXadesCanonicalizationAlgorithmURI(String xadesCanonicalizationAlgorithmURI) {
+        this.xadesCanonicalizationAlgorithmURI = xadesCanonicalizationAlgorithmURI;
+    }
+
+    public String getXadesXPathLocationString() {
+        return xadesXPathLocationString;
+    }
+
+    public void setXadesXPathLocationString(String xadesXPathLocationString) {
+        this.xadesXPathLocationString = xadesXPathLocationString;
+    }
+
+    public String getPadesSignatureLevel() {
+        return padesSignatureLevel;
+    }
+
+    public void setPadesSignatureLevel(String padesSignatureLevel) {
+        this.padesSignatureLevel = padesSignatureLevel;
+    }
+
+    public String getPadesSignaturePacking() {
+        return padesSignaturePacking;
+    }
+
+    public void setPadesSignaturePacking(String padesSignaturePacking) {
+        this.padesSignaturePacking = padesSignaturePacking;
+    }
+
+    public int getPadesContentSize() {
+        return padesContentSize;
+    }
+
+    public void setPadesContentSize(int padesContentSize) {
+        this.padesContentSize = padesContentSize;
+    }
+
+    public String getCadesSignatureLevel() {
+        return cadesSignatureLevel;
+    }
+
+    public void setCadesSignatureLevel(String cadesSignatureLevel) {
+        this.cadesSignatureLevel = cadesSignatureLevel;
+    }
+
+    public String getCadesSignaturePacking() {
+        return cadesSignaturePacking;
+    }
+
+    public void setCadesSignaturePacking(String cadesSignaturePacking) {
+        this.cadesSignaturePacking = cadesSignaturePacking;
+    }
+
+    public int getSignatureValidityOverlapMinutes() {
+        return signatureValidityOverlapMinutes;
+    }
+
+    public void setSignatureValidityOverlapMinutes(int signatureValidityOverlapMinutes) {
+        this.signatureValidityOverlapMinutes = signatureValidityOverlapMinutes;
+    }
+
+    public int getSignatureValidityMinutes() {
+        return signatureValidityMinutes;
+    }
+
+    public void setSignatureValidityMinutes(int signatureValidityMinutes) {
+        this.signatureValidityMinutes = signatureValidityMinutes;
+    }
+
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public void setSignatureAlgorithm(String signatureAlgorithm) {
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public String getEncryptionAlgorithmScheme() {
+        return encryptionAlgorithmScheme;
+    }
+
+    public void setEncryptionAlgorithmScheme(String encryptionAlgorithmScheme) {
+        this.encryptionAlgorithmScheme = encryptionAlgorithmScheme;
+    }
+
+    public boolean isUseEncryptedSignMessage() {
+        return useEncryptedSignMessage;
+    }
+
+    public void setUseEncryptedSignMessage(boolean useEncryptedSignMessage) {
+        this.useEncryptedSignMessage = useEncryptedSignMessage;
+    }
+
+    public boolean isSignMessageMustShow() {
+        return signMessageMustShow;
+    }
+
+    public void setSignMessageMustShow(boolean signMessageMustShow) {
+        this.signMessageMustShow = signMessageMustShow;
+    }
+
+    public String getSignMessageMimeType() {
+        return signMessageMimeType;
+    }
+
+    public void setSignMessageMimeType(String signMessageMimeType) {
+        this.signMessageMimeType = signMessageMimeType;
+    }
+
+    @Deprecated
+    public String getUserIdAttributeMapping() {
+        return userIdAttributeMapping;
+    }
+
+    @Deprecated
+    public void setUserIdAttributeMapping(String userIdAttributeMapping) {
+        this.userIdAttributeMapping = userIdAttributeMapping;
+    }
+
+    public String getDefaultUserIdAttributeMapping() {
+        return defaultUserIdAttributeMapping;
+    }
+
+    public void setDefaultUserIdAttributeMapping(String defaultUserIdAttributeMapping) {
+        this.defaultUserIdAttributeMapping = defaultUserIdAttributeMapping;
+    }
+
+    public String getUserDisplayNameAttribute() {
+        return userDisplayNameAttribute;
+    }
+
+    public void setUserDisplayNameAttribute(String userDisplayNameAttribute) {
+        this.userDisplayNameAttribute = userDisplayNameAttribute;
+    }
+
+    public String getSignServiceId() {
+        return signServiceId;
+    }
+
+    public void setSignServiceId(String signServiceId) {
+        this.signServiceId = signServiceId;
+    }
+
+    public String getSignServiceRequestURL() {
+        return signServiceRequestURL;
+    }
+
+    public void setSignServiceRequestURL(String signServiceRequestURL) {
+        this.signServiceRequestURL = signServiceRequestURL;
+    }
+
+    public String getSignRequester() {
+        return signRequester;
+    }
+
+    public void setSignRequester(String signRequester) {
+        this.signRequester = signRequester;
+    }
+
+    public boolean isFetchAuthnContextClassRefFromMetaData() {
+        return fetchAuthnContextClassRefFromMetaData;
+    }
+
+    public void setFetchAuthnContextClassRefFromMetaData(boolean fetchAuthnContextClassRefFromMetaData) {
+        this.fetchAuthnContextClassRefFromMetaData = fetchAuthnContextClassRefFromMetaData;
+    }
+
+    @Deprecated
+    public String getAuthnContextClassRef() {
+        return authnContextClassRef;
+    }
+
+    @Deprecated
+    public void setAuthnContextClassRef(String authnContextClassRef) {
+        this.authnContextClassRef = authnContextClassRef;
+    }
+
+    public String getDefaultAuthnContextClassRef() {
+        return defaultAuthnContextClassRef;
+    }
+
+    public void setDefaultAuthnContextClassRef(String defaultAuthnContextClassRef) {
+        this.defaultAuthnContextClassRef = defaultAuthnContextClassRef;
+    }
+
+    public List<String> getDefaultAuthnContextClassRefs() {
+        return defaultAuthnContextClassRefs;
+    }
+
+    public void setDefaultAuthnContextClassRefs(List<String> defaultAuthnContextClassRefs) {
+        this.defaultAuthnContextClassRefs = defaultAuthnContextClassRefs;
+    }
+
+    public String getCertificateType() {
+        return certificateType;
+    }
+
+    public void setCertificateType(String certificateType) {
+        this.certificateType = certificateType;
+    }
+
+    public List<String> getDefaultUserIdAttributeMappingValues() {
+        return defaultUserIdAttributeMappingValues;
+    }
+
+    public void setDefaultUserIdAttributeMappingValues(List<String> defaultUserIdAttributeMappingValues) {
+        this.defaultUserIdAttributeMappingValues = defaultUserIdAttributeMappingValues;
+    }
+
+    public boolean isFetchCertAttributesFromMetaData() {
+        return fetchCertAttributesFromMetaData;
+    }
+
+    public void setFetchCertAttributesFromMetaData(boolean fetchCertAttributesFromMetaData) {
+        this.fetchCertAttributesFromMetaData = fetchCertAttributesFromMetaData;
+    }
+
+    public Map<String, Map<String,Object>> getMetadataCustomCertAttribute() {
+        return metadataCustomCertAttribute;
+    }
+
+    public void setMetadataCustomCertAttribute(Map<String, Map<String,Object>> metadataCustomCertAttribute) {
+        this.metadataCustomCertAttribute = metadataCustomCertAttribute;
+    }
+
+    public Map<String, Map<String,Object>> getRequestedCertAttributes() {
+        return requestedCertAttributes;
+    }
+
+    public void setRequestedCertAttributes(Map<String, Map<String,Object>> requestedCertAttributes) {
+        this.requestedCertAttributes = requestedCertAttributes;
+    }
+
+    public Map<String, Map<String,Object>> getSignerAttributes() {
+        return signerAttributes;
+    }
+
+    public void setSignerAttributes(Map<String, Map<String,Object>> signerAttributes) {
+        this.signerAttributes = signerAttributes;
+    }
+
+    public Map<String, Map<String,Object>> getTrustedAuthenticationServices() {
+        return trustedAuthenticationServices;
+    }
+
+    public void setTrustedAuthenticationServices(Map<String, Map<String,Object>> trustedAuthenticationServices) {
+        this.trustedAuthenticationServices = trustedAuthenticationServices;
+    }
+
+    public List<String> getAuthorizedCentralServiceEntityIds() {
+        return authorizedCentralServiceEntityIds;
+    }
+
+    public void setAuthorizedCentralServiceEntityIds(List<String> authorizedCentralServiceEntityIds) {
+        this.authorizedCentralServiceEntityIds = authorizedCentralServiceEntityIds;
+    }
+
+    public List<String> getAuthorizedConsumerURLs() {
+        return authorizedConsumerURLs;
+    }
+
+    public void setAuthorizedConsumerURLs(List<String> authorizedConsumerURLs) {
+        this.authorizedConsumerURLs = authorizedConsumerURLs;
+    }
+
+    public String getValidationPolicy() {
+        return validationPolicy;
+    }
+
+    public void setValidationPolicy(String validationPolicy) {
+        this.validationPolicy = validationPolicy;
+    }
+
+    public boolean isEnableEnhancedLogging() {
+        return enableEnhancedLogging;
+    }
+
+    public void setEnableEnhancedLogging(boolean enableEnhancedLogging) {
+        this.enableEnhancedLogging = enableEnhancedLogging;
+    }
+
+    public boolean isEnableAuthnProfile() {
+        return enableAuthnProfile;
+    }
+
+    public void setEnableAuthnProfile(boolean enableAuthnProfile) {
+        this.enableAuthnProfile = enableAuthnProfile;
+    }
+
+    public boolean isEnableAutomaticValidation() {
+        return enableAutomaticValidation;
+    }
+
+    public void setEnableAutomaticValidation(boolean enableAutomaticValidation) {
+        this.enableAutomaticValidation = enableAutomaticValidation;
+    }
+
+    public String getSignRequestExtensionVersion() {
+        return signRequestExtensionVersion;
+    }
+
+    public void setSignRequestExtensionVersion(String signRequestExtensionVersion) {
+        this.signRequestExtensionVersion = signRequestExtensionVersion;
+    }
+
+    public String getParentProfile() {
+        return parentProfile;
+    }
+
+    public void setParentProfile(String parentProfile) {
+        this.parentProfile = parentProfile;
+    }
+
+    public VisibleSignatureConfig getVisibleSignature() {
+        return visibleSignature;
+    }
+
+    public void setVisibleSignature(VisibleSignatureConfig visibleSignature) {
+        this.visibleSignature = visibleSignature;
+    }
+
+    public TimeStampConfig getTimeStamp() {
+        return timeStamp;
+    }
+
+    public void setTimeStamp(TimeStampConfig timeStamp) {
+        this.timeStamp = timeStamp;
+    }
+}
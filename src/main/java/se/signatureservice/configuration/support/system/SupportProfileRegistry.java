@@ -0,0 +1,454 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of support profiles loaded from configuration files, reloaded when the files change.
+ *
+ * Each profile is configured in a separate file named {@code <profile name>.properties}, see
+ * {@link ProfilePropertiesReader} for the format. Sources are directories, containing profile
+ * files, or individual profile files. Changes are detected by polling the last modified time and
+ * size of each file on a background thread, and only changed files are read and compiled.
+ * A recently changed file is only read once its last modified time and size are unchanged
+ * between two checks, so that a file being written is not loaded half-written. Writers should
+ * preferably replace profile files by an atomic rename of a complete file.
+ * Profiles inheriting from a changed profile through {@code relatedProfile} are resolved again,
+ * see {@link SupportProfileResolver}. Profiles not inheriting from another profile, and not
+ * inherited from, are bound directly while their file is parsed, see
+ * {@link ProfilePropertiesReader#bind(Path, String)}, and are only read again as a map when
+ * another profile starts inheriting from them.
+ *
+ * All compiled profiles are published together as an immutable {@link SupportProfileSnapshot}
+ * through a single atomic reference, readers never block and always see either the complete
+ * previous or the complete new set of profiles. A profile that fails to load keeps its previous
+ * configuration and the error is reported in the {@link ProfileReloadResult}. A file that could not
+ * be read is read again on every check, the same error is only reported once.
+ *
+ * Each reload compiling profiles uses a new {@link ConfigInterner}, seeded with the values of the
+ * current profiles, so changed profiles share equal values with the profiles kept while values
+ * of replaced profiles are not retained by the pool.
+ */
+public class SupportProfileRegistry implements AutoCloseable {
+
+    /**
+     * Files last modified at least this long ago are read when first seen, other changed files
+     * only when unchanged since the previous check.
+     */
+    static final long STABLE_MILLIS = 2000;
+
+    private final List<Path> sources;
+    private final long pollIntervalMillis;
+    private final AtomicReference<SupportProfileSnapshot> snapshot =
+            new AtomicReference<>(new SupportProfileSnapshot(0, System.currentTimeMillis(), Collections.emptyMap()));
+    private final List<ProfileReloadListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object reloadLock = new Object();
+    private final Map<Path, FileState> fileStates = new HashMap<>();
+    private final Map<Path, FileState> pendingFiles = new HashMap<>();
+    private final Map<Path, FileState> rejectedFiles = new HashMap<>();
+    private final Map<Path, String> readErrors = new HashMap<>();
+    private final Set<String> boundProfiles = new HashSet<>();
+    private final SupportProfileResolver resolver = new SupportProfileResolver();
+    private volatile ConfigInterner interner = resolver.getInterner();
+    private volatile ProfileReloadResult lastReloadResult;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create a registry, profiles are loaded by {@link #start()} or {@link #reload()}.
+     *
+     * @param sources directories containing profile files, or profile files.
+     * @param pollIntervalMillis interval between checks for changed files, 0 to only reload
+     *                           when {@link #reload()} is called.
+     */
+    public SupportProfileRegistry(Collection<Path> sources, long pollIntervalMillis) {
+        if (sources == null || sources.isEmpty() || pollIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid support profile registry, at least one source required and poll interval must not be negative");
+        }
+        List<Path> normalized = new ArrayList<>(sources.size());
+        for (Path source : sources) {
+            normalized.add(source.toAbsolutePath().normalize());
+        }
+        this.sources = Collections.unmodifiableList(normalized);
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Load all profiles and start polling for changes.
+     *
+     * @return result of the initial load.
+     */
+    public synchronized ProfileReloadResult start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Support profile registry already started");
+        }
+        ProfileReloadResult result = reload();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "support-profile-registry");
+            t.setDaemon(true);
+            return t;
+        });
+        if (pollIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Stop polling for changes, the current snapshot remains available.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Get a profile from the current snapshot, never blocks.
+     *
+     * @param name name of the profile.
+     * @return the profile or null if no such profile exists.
+     */
+    public CompiledSupportProfile getProfile(String name) {
+        return snapshot.get().getProfile(name);
+    }
+
+    /**
+     * @return the current snapshot of all profiles, never null.
+     */
+    public SupportProfileSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return routing index of the current snapshot, never null.
+     */
+    public ProfileRoutingIndex getRoutingIndex() {
+        return snapshot.get().getRoutingIndex();
+    }
+
+    /**
+     * @return pool of canonical values of the latest reload that compiled profiles, reporting the
+     * memory saved by the profiles compiled in that reload.
+     */
+    public ConfigInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * @return result of the latest reload, or null if no reload has been performed.
+     */
+    public ProfileReloadResult getLastReloadResult() {
+        return lastReloadResult;
+    }
+
+    /**
+     * Register a listener notified after each reload that changed profiles or reported errors.
+     *
+     * @param listener the listener to add.
+     */
+    public void addReloadListener(ProfileReloadListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Invalid reload listener, listener required");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove.
+     */
+    public void removeReloadListener(ProfileReloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Check all sources for changed files and publish a new snapshot if any profile was
+     * added, changed or removed. Reloads are serialized, readers are never blocked.
+     *
+     * @return the outcome of the reload.
+     */
+    public ProfileReloadResult reload() {
+        ProfileReloadResult result;
+        synchronized (reloadLock) {
+            result = doReload();
+            lastReloadResult = result;
+        }
+        if (result.isChanged() || !result.isSuccessful()) {
+            for (ProfileReloadListener listener : listeners) {
+                try {
+                    listener.onReload(result);
+                } catch (RuntimeException e) {
+                    // A failing listener must not affect the registry or other listeners.
+                }
+            }
+        }
+        return result;
+    }
+
+    private void poll() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Keep polling, the error is reported again on the next change.
+        }
+    }
+
+    private ProfileReloadResult doReload() {
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        SupportProfileSnapshot current = snapshot.get();
+        Map<String, String> errors = new TreeMap<>();
+        Set<Path> failedSources = new HashSet<>();
+        Map<Path, BasicFileAttributes> files = listFiles(errors, failedSources);
+
+        Map<String, Map<String, Object>> changedConfigs = new HashMap<>();
+        Map<String, SupportProfileConfig> boundConfigs = new HashMap<>();
+        Map<String, Path> owners = new HashMap<>();
+        for (Map.Entry<Path, FileState> entry : fileStates.entrySet()) {
+            owners.put(entry.getValue().name, entry.getKey());
+        }
+
+        List<String> removed = new ArrayList<>();
+        Iterator<Map.Entry<Path, FileState>> states = fileStates.entrySet().iterator();
+        while (states.hasNext()) {
+            Map.Entry<Path, FileState> entry = states.next();
+            Path file = entry.getKey();
+            if (!files.containsKey(file) && !failedSources.contains(file) && !failedSources.contains(file.getParent())) {
+                states.remove();
+                owners.remove(entry.getValue().name);
+                removed.add(entry.getValue().name);
+            }
+        }
+
+        pendingFiles.keySet().retainAll(files.keySet());
+        rejectedFiles.keySet().retainAll(files.keySet());
+        readErrors.keySet().retainAll(files.keySet());
+        for (Map.Entry<Path, BasicFileAttributes> entry : files.entrySet()) {
+            Path file = entry.getKey();
+            BasicFileAttributes attributes = entry.getValue();
+            String name = ProfilePropertiesReader.getProfileName(file);
+            FileState observed = new FileState(name, attributes.lastModifiedTime().toMillis(), attributes.size());
+            Path owner = owners.get(name);
+            if (owner != null && !owner.equals(file)) {
+                // Reported once, until the file changes.
+                if (!observed.equals(rejectedFiles.put(file, observed))) {
+                    errors.put(name, "Profile '" + name + "' is configured in both " + owner + " and " + file);
+                }
+                continue;
+            }
+            rejectedFiles.remove(file);
+            if (observed.equals(fileStates.get(file))) {
+                pendingFiles.remove(file);
+                continue;
+            }
+            if (!observed.equals(pendingFiles.put(file, observed)) && observed.lastModified > startTime - STABLE_MILLIS) {
+                // Changed since the previous check, the file may still be being written.
+                continue;
+            }
+            try {
+                SupportProfileConfig config = null;
+                if (resolver.getDependants(name).isEmpty()) {
+                    config = ProfilePropertiesReader.bind(file, name);
+                }
+                if (config != null) {
+                    boundConfigs.put(name, config);
+                } else {
+                    changedConfigs.put(name, ProfilePropertiesReader.read(file));
+                }
+            } catch (InternalErrorException e) {
+                // Keeps the previous configuration of the profile, as for profiles failing to compile.
+                errors.put(name, e.getMessage());
+                boundProfiles.add(name);
+            } catch (IOException | RuntimeException e) {
+                // Read again on every check, reported once until the error changes.
+                String error = "Failed to read profile configuration " + file + ": " + e.getMessage();
+                if (!error.equals(readErrors.put(file, error))) {
+                    errors.put(name, error);
+                }
+                continue;
+            }
+            fileStates.put(file, observed);
+            pendingFiles.remove(file);
+            readErrors.remove(file);
+            owners.put(name, file);
+        }
+
+        removed.removeAll(changedConfigs.keySet());
+        removed.removeAll(boundConfigs.keySet());
+        boundProfiles.removeAll(removed);
+        boundProfiles.removeAll(changedConfigs.keySet());
+        Set<String> unchanged = readParents(changedConfigs, boundConfigs, owners, errors);
+
+        if (!changedConfigs.isEmpty() || !boundConfigs.isEmpty()) {
+            ConfigInterner pool = new ConfigInterner();
+            for (CompiledSupportProfile profile : current.getProfiles().values()) {
+                profile.seed(pool);
+            }
+            resolver.setInterner(pool);
+            interner = pool;
+        }
+
+        // Bound profiles are not resolved, remove any previous configuration from the resolver.
+        List<String> unresolved = new ArrayList<>(removed);
+        unresolved.addAll(boundConfigs.keySet());
+        Map<String, CompiledSupportProfile> changed = resolver.update(changedConfigs, unresolved, errors);
+        changed.keySet().removeAll(unchanged);
+        for (Map.Entry<String, SupportProfileConfig> entry : boundConfigs.entrySet()) {
+            try {
+                changed.put(entry.getKey(), CompiledSupportProfile.compile(entry.getValue(), interner));
+            } catch (InternalErrorException | RuntimeException e) {
+                errors.put(entry.getKey(), e.getMessage());
+            }
+        }
+        boundProfiles.addAll(boundConfigs.keySet());
+        removed.removeIf(name -> current.getProfile(name) == null);
+        List<String> added = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        for (String name : changed.keySet()) {
+            if (current.getProfile(name) == null) {
+                added.add(name);
+            } else {
+                updated.add(name);
+            }
+        }
+        Collections.sort(added);
+        Collections.sort(updated);
+        Collections.sort(removed);
+
+        long version = current.getVersion();
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            Map<String, CompiledSupportProfile> profiles = new HashMap<>(current.getProfiles());
+            for (String name : removed) {
+                profiles.remove(name);
+            }
+            profiles.putAll(changed);
+            version++;
+            snapshot.set(new SupportProfileSnapshot(version, System.currentTimeMillis(), profiles));
+        }
+        return new ProfileReloadResult(version, startTime, System.nanoTime() - start, added, updated, removed, errors);
+    }
+
+    /**
+     * Read bound profiles that changed profiles inherit from again as maps, since inherited
+     * settings are merged as maps by the resolver.
+     *
+     * @return names of the profiles read again whose files did not change.
+     */
+    private Set<String> readParents(Map<String, Map<String, Object>> changedConfigs, Map<String, SupportProfileConfig> boundConfigs,
+                                    Map<String, Path> owners, Map<String, String> errors) {
+        Set<String> unchanged = new HashSet<>();
+        for (Map.Entry<String, Map<String, Object>> entry : new ArrayList<>(changedConfigs.entrySet())) {
+            String parent = SupportProfileResolver.getParent(entry.getKey(), entry.getValue().get(SupportProfileResolver.RELATED_PROFILE));
+            if (parent == null || !(boundProfiles.contains(parent) || boundConfigs.containsKey(parent))) {
+                continue;
+            }
+            Path file = owners.get(parent);
+            try {
+                changedConfigs.put(parent, ProfilePropertiesReader.read(file));
+            } catch (IOException | RuntimeException e) {
+                errors.put(parent, "Failed to read profile configuration " + file + ": " + e.getMessage());
+                continue;
+            }
+            if (boundConfigs.remove(parent) == null) {
+                unchanged.add(parent);
+            }
+            boundProfiles.remove(parent);
+        }
+        return unchanged;
+    }
+
+    private Map<Path, BasicFileAttributes> listFiles(Map<String, String> errors, Set<Path> failedSources) {
+        Map<Path, BasicFileAttributes> files = new TreeMap<>();
+        for (Path source : sources) {
+            try {
+                if (Files.isDirectory(source)) {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(source, "*" + ProfilePropertiesReader.FILE_SUFFIX)) {
+                        for (Path file : stream) {
+                            addFile(files, file);
+                        }
+                    }
+                } else if (Files.exists(source)) {
+                    if (ProfilePropertiesReader.getProfileName(source) == null) {
+                        errors.put(source.toString(), "Profile configuration file must end with " + ProfilePropertiesReader.FILE_SUFFIX);
+                    } else {
+                        addFile(files, source);
+                    }
+                }
+            } catch (IOException e) {
+                failedSources.add(source);
+                errors.put(source.toString(), "Failed to list profile configuration files: " + e.getMessage());
+            }
+        }
+        return files;
+    }
+
+    private static void addFile(Map<Path, BasicFileAttributes> files, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.isRegularFile() && ProfilePropertiesReader.getProfileName(file) != null) {
+            files.put(file.toAbsolutePath().normalize(), attributes);
+        }
+    }
+
+    private static final class FileState {
+        private final String name;
+        private final long lastModified;
+        private final long size;
+
+        private FileState(String name, long lastModified, long size) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) o;
+            return name.equals(other.name) && lastModified == other.lastModified && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, lastModified, size);
+        }
+    }
+}
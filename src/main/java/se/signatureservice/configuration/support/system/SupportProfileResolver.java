@@ -0,0 +1,355 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.utils.ConfigInterner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves inheritance between support profiles into flat compiled profiles.
+ *
+ * A profile inherits all settings of the profile named by its {@code relatedProfile} setting,
+ * unless it names the profile itself. Settings of the profile override inherited settings,
+ * nested maps (such as {@code visibleSignature} or {@code trustedAuthenticationServices}) are
+ * merged recursively and lists are replaced. The {@code relatedProfile} setting itself is never
+ * inherited. Every compiled profile gets its own name as {@code relatedProfile}, and the name of
+ * the profile it inherits from, if any, as {@code parentProfile}.
+ *
+ * The dependency graph is built once and each profile is merged with the already resolved
+ * configuration of its parent, so every compiled profile contains its effective values and
+ * no chain is walked when the profile is used. When profiles change only the changed profiles
+ * and the profiles inheriting from them are resolved again. Cyclic inheritance, missing parents
+ * and invalid configuration are reported per profile.
+ *
+ * Profiles are compiled with the {@link ConfigInterner} of the resolver, so equal strings and
+ * small lists are shared between the compiled profiles. The pool can be replaced between updates,
+ * see {@link #setInterner(ConfigInterner)}.
+ *
+ * Instances are not thread safe, updates must be serialized by the caller.
+ */
+public class SupportProfileResolver {
+
+    static final String RELATED_PROFILE = "relatedProfile";
+
+    private final Map<String, Map<String, Object>> rawConfigs = new HashMap<>();
+    private final Map<String, Map<String, Object>> resolvedConfigs = new HashMap<>();
+    private final Map<String, Set<String>> dependants = new HashMap<>();
+    private ConfigInterner interner;
+
+    /**
+     * Create a resolver compiling profiles with a new pool of canonical values.
+     */
+    public SupportProfileResolver() {
+        this(new ConfigInterner());
+    }
+
+    /**
+     * Create a resolver compiling profiles with the given pool of canonical values.
+     *
+     * @param interner pool of canonical values, or null to not pool values.
+     */
+    public SupportProfileResolver(ConfigInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Add, replace and remove profile configurations and resolve all affected profiles.
+     *
+     * @param changed configuration by profile name of added or changed profiles.
+     * @param removed names of removed profiles.
+     * @param errors map to add error messages to, by profile name, for profiles that could
+     *               not be resolved.
+     * @return compiled profiles by name, for all profiles resolved again without errors.
+     */
+    public Map<String, CompiledSupportProfile> update(Map<String, Map<String, Object>> changed, Collection<String> removed,
+                                                      Map<String, String> errors) {
+        return update(changed, removed, errors, null);
+    }
+
+    /**
+     * Add, replace and remove profile configurations and resolve all affected profiles,
+     * compiling the resolved profiles in parallel.
+     *
+     * @param changed configuration by profile name of added or changed profiles.
+     * @param removed names of removed profiles.
+     * @param errors map to add error messages to, by profile name, for profiles that could
+     *               not be resolved.
+     * @param executor executor used to compile profiles, or null to compile on the calling thread.
+     * @return compiled profiles by name, for all profiles resolved again without errors.
+     */
+    public Map<String, CompiledSupportProfile> update(Map<String, Map<String, Object>> changed, Collection<String> removed,
+                                                      Map<String, String> errors, ExecutorService executor) {
+        Set<String> affected = new TreeSet<>();
+        for (String name : removed) {
+            Map<String, Object> config = rawConfigs.remove(name);
+            if (config != null) {
+                removeDependant(getParent(name, config), name);
+                resolvedConfigs.remove(name);
+                affected.addAll(getDependants(name));
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : changed.entrySet()) {
+            String name = entry.getKey();
+            Map<String, Object> previous = rawConfigs.put(name, entry.getValue());
+            if (previous != null) {
+                removeDependant(getParent(name, previous), name);
+            }
+            String parent = getParent(name, entry.getValue());
+            if (parent != null) {
+                dependants.computeIfAbsent(parent, k -> new HashSet<>()).add(name);
+            }
+            affected.add(name);
+        }
+
+        Deque<String> pending = new ArrayDeque<>(affected);
+        while (!pending.isEmpty()) {
+            for (String dependant : getDependants(pending.poll())) {
+                if (affected.add(dependant)) {
+                    pending.add(dependant);
+                }
+            }
+        }
+        affected.retainAll(rawConfigs.keySet());
+        resolvedConfigs.keySet().removeAll(affected);
+
+        // Order affected profiles so that each profile comes after the profile it inherits from.
+        List<String> order = new ArrayList<>(affected.size());
+        Set<String> done = new HashSet<>();
+        for (String name : affected) {
+            // Collect the unresolved part of the inheritance chain, ending at an already
+            // resolved (or failed) parent, a root profile or a cycle.
+            List<String> chain = new ArrayList<>();
+            String current = name;
+            int cycleStart = -1;
+            while (current != null && affected.contains(current) && !done.contains(current)) {
+                cycleStart = chain.indexOf(current);
+                if (cycleStart != -1) {
+                    break;
+                }
+                chain.add(current);
+                current = getParent(current, rawConfigs.get(current));
+            }
+            int resolveFrom = chain.size() - 1;
+            if (cycleStart != -1) {
+                String message = "Cyclic profile inheritance: " + String.join(" -> ", chain.subList(cycleStart, chain.size())) + " -> " + chain.get(cycleStart);
+                for (String member : chain.subList(cycleStart, chain.size())) {
+                    errors.put(member, message);
+                    done.add(member);
+                }
+                resolveFrom = cycleStart - 1;
+            }
+            for (int i = resolveFrom; i >= 0; i--) {
+                done.add(chain.get(i));
+                order.add(chain.get(i));
+            }
+        }
+
+        // Merging is cheap and done in order, compiling is independent for each profile.
+        List<String> merged = new ArrayList<>(order.size());
+        for (String name : order) {
+            Map<String, Object> config = rawConfigs.get(name);
+            String parent = getParent(name, config);
+            Map<String, Object> parentConfig = parent != null ? resolvedConfigs.get(parent) : Collections.emptyMap();
+            if (parentConfig == null) {
+                errors.put(name, getParentError(name, parent));
+                continue;
+            }
+            Map<String, Object> resolved = merge(parentConfig, config);
+            resolved.put(RELATED_PROFILE, name);
+            resolvedConfigs.put(name, resolved);
+            merged.add(name);
+        }
+        Object[] compiled = compile(merged, executor);
+
+        Map<String, CompiledSupportProfile> result = new HashMap<>();
+        Set<String> failed = new HashSet<>();
+        for (int i = 0; i < compiled.length; i++) {
+            String name = merged.get(i);
+            String parent = getParent(name);
+            if (parent != null && failed.contains(parent)) {
+                errors.put(name, getParentError(name, parent));
+            } else if (compiled[i] instanceof CompiledSupportProfile) {
+                result.put(name, (CompiledSupportProfile) compiled[i]);
+                continue;
+            } else {
+                errors.put(name, (String) compiled[i]);
+            }
+            failed.add(name);
+            resolvedConfigs.remove(name);
+        }
+        return result;
+    }
+
+    /**
+     * @param name name of the profile.
+     * @return the effective configuration of the profile, or null if the profile does not
+     * exist or could not be resolved. The map must not be modified.
+     */
+    public Map<String, Object> getResolvedConfig(String name) {
+        return resolvedConfigs.get(name);
+    }
+
+    /**
+     * @param name name of the profile.
+     * @return name of the profile the given profile inherits from, or null if none.
+     */
+    public String getParent(String name) {
+        Map<String, Object> config = rawConfigs.get(name);
+        return config != null ? getParent(name, config) : null;
+    }
+
+    /**
+     * @return pool of canonical values used when compiling profiles, or null if values are not pooled.
+     */
+    public ConfigInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * Replace the pool of canonical values used when compiling profiles in later updates. A pool
+     * only growing with changed values can be replaced by a new pool seeded with the values of
+     * the profiles that are kept.
+     *
+     * @param interner pool of canonical values, or null to not pool values.
+     */
+    public void setInterner(ConfigInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * @param name name of the profile.
+     * @return names of the profiles directly inheriting from the given profile.
+     */
+    public Set<String> getDependants(String name) {
+        Set<String> result = dependants.get(name);
+        return result != null ? Collections.unmodifiableSet(result) : Collections.emptySet();
+    }
+
+    /**
+     * Compile resolved profiles.
+     *
+     * @return compiled profile or error message, in the same order as the given names.
+     */
+    private Object[] compile(List<String> names, ExecutorService executor) {
+        Object[] compiled = new Object[names.size()];
+        if (executor == null || names.size() < 2) {
+            for (int i = 0; i < compiled.length; i++) {
+                String name = names.get(i);
+                compiled[i] = compile(resolvedConfigs.get(name), getParent(name));
+            }
+            return compiled;
+        }
+        List<Callable<Object>> tasks = new ArrayList<>(names.size());
+        for (String name : names) {
+            Map<String, Object> config = resolvedConfigs.get(name);
+            String parent = getParent(name);
+            tasks.add(() -> compile(config, parent));
+        }
+        try {
+            List<Future<Object>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Arrays.fill(compiled, "Profile resolution interrupted");
+        } catch (ExecutionException e) {
+            Arrays.fill(compiled, "Profile resolution failed: " + e.getCause());
+        }
+        return compiled;
+    }
+
+    private Object compile(Map<String, Object> config, String parent) {
+        try {
+            SupportProfileConfig profile = new SupportProfileConfig(config);
+            profile.setParentProfile(parent);
+            return CompiledSupportProfile.compile(profile, interner);
+        } catch (InternalErrorException | RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private String getParentError(String name, String parent) {
+        return "Related profile '" + parent + "' of profile '" + name + "' " +
+                (rawConfigs.containsKey(parent) ? "is invalid" : "does not exist");
+    }
+
+    private void removeDependant(String parent, String name) {
+        if (parent != null) {
+            Set<String> names = dependants.get(parent);
+            if (names != null && names.remove(name) && names.isEmpty()) {
+                dependants.remove(parent);
+            }
+        }
+    }
+
+    private static String getParent(String name, Map<String, Object> config) {
+        return getParent(name, config.get(RELATED_PROFILE));
+    }
+
+    /**
+     * @param name name of the profile.
+     * @param parent configured relatedProfile of the profile.
+     * @return name of the profile the given profile inherits from, or null if none.
+     */
+    static String getParent(String name, Object parent) {
+        if (parent instanceof String) {
+            String value = ((String) parent).trim();
+            if (!value.isEmpty() && !value.equals(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deep merge two configuration maps into a new map, where values of the child override
+     * values of the parent and nested maps present in both are merged. The configuration order
+     * is kept, inherited keys first followed by keys only present in the child.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> merge(Map<String, Object> parent, Map<String, Object> child) {
+        Map<String, Object> result = new LinkedHashMap<>(Math.max(16, (int) ((parent.size() + child.size()) / 0.75f) + 1));
+        for (Map.Entry<String, Object> entry : parent.entrySet()) {
+            Object value = entry.getValue();
+            result.put(entry.getKey(), value instanceof Map<?, ?> ? merge((Map<String, Object>) value, Collections.emptyMap()) : value);
+        }
+        for (Map.Entry<String, Object> entry : child.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map<?, ?>) {
+                Object inherited = result.get(entry.getKey());
+                value = merge(inherited instanceof Map<?, ?> ? (Map<String, Object>) inherited : Collections.emptyMap(), (Map<String, Object>) value);
+            }
+            result.put(entry.getKey(), value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable set of compiled support profiles published by {@link SupportProfileRegistry}.
+ *
+ * A snapshot is never modified after it is published, a reload publishes a new snapshot
+ * with a higher version. Callers that need several profiles to be consistent with each
+ * other should look them up from the same snapshot. Each snapshot has its own
+ * {@link ProfileRoutingIndex}, built when the snapshot is created.
+ */
+public final class SupportProfileSnapshot {
+
+    private final long version;
+    private final long createdTime;
+    private final Map<String, CompiledSupportProfile> profiles;
+    private final ProfileRoutingIndex routingIndex;
+
+    SupportProfileSnapshot(long version, long createdTime, Map<String, CompiledSupportProfile> profiles) {
+        this.version = version;
+        this.createdTime = createdTime;
+        this.profiles = Collections.unmodifiableMap(profiles);
+        this.routingIndex = new ProfileRoutingIndex(profiles);
+    }
+
+    /**
+     * @return version of the snapshot, incremented each time a changed snapshot is published.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return time the snapshot was created, in milliseconds since epoch.
+     */
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * Get a profile by name.
+     *
+     * @param name name of the profile.
+     * @return the profile or null if no such profile exists.
+     */
+    public CompiledSupportProfile getProfile(String name) {
+        return profiles.get(name);
+    }
+
+    /**
+     * @return unmodifiable set of all profile names.
+     */
+    public Set<String> getProfileNames() {
+        return profiles.keySet();
+    }
+
+    /**
+     * @return unmodifiable map of all profiles by name.
+     */
+    public Map<String, CompiledSupportProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @return index finding the profiles of this snapshot by sign requester, sign service id
+     * or consumer URL.
+     */
+    public ProfileRoutingIndex getRoutingIndex() {
+        return routingIndex;
+    }
+}
@@ -13,7 +13,8 @@
 package se.signatureservice.configuration.support.system;
 
 import se.signatureservice.configuration.common.InternalErrorException;
-import se.signatureservice.configuration.common.utils.ConfigUtils;
+import se.signatureservice.configuration.common.binding.ConfigBindable;
+import se.signatureservice.configuration.common.binding.ConfigProperty;
 
 import java.util.Map;
 
@@ -22,6 +23,7 @@ import java.util.Map;
  *
  * @author Tobias Agerberg
  */
+@ConfigBindable("timeStamp")
 public class TimeStampConfig {
 
     private static final String DEFAULT_SSL_PROTOCOL = "TLSv1.2";
@@ -31,88 +33,109 @@ public class TimeStampConfig {
     /**
      * Time Stamp Authority (TSA) URL to use when requesting time stamp.
      */
+    @ConfigProperty(required = true)
     String url;
 
     /**
      * Username to use for connection to TSA.
      */
+    @ConfigProperty
     String username;
 
     /**
      * Password to use for connection to TSA.
      */
+    @ConfigProperty
     String password;
 
     /**
      * Path to keystore to use, containing client certificate, when connecting
      * to TSA. Must exist either on file system or on class-path.
      */
+    @ConfigProperty
     String keyStorePath;
 
     /**
      * Keystore password.
      */
+    @ConfigProperty
     String keyStorePassword;
 
     /**
      * Keystore type ("JKS", or "PKCS12")
      */
+    @ConfigProperty
     String keyStoreType;
 
     /**
      * Path to truststore to use, containing trusted TSA server certificate issuers.
      * Must exist either on file system or on class-path.
      */
+    @ConfigProperty
     String trustStorePath;
 
     /**
      * Truststore password.
      */
+    @ConfigProperty
     String trustStorePassword;
 
     /**
      * Truststore type ("JKS", or "PKCS12").
      */
+    @ConfigProperty
     String trustStoreType;
 
     /**
      * Proxy hostname to use.
      */
+    @ConfigProperty
     String proxyHost;
 
     /**
      * Proxy port to connect to.
      * (Default: 80)
      */
-    int proxyPort;
+    @ConfigProperty
+    int proxyPort = DEFAULT_PROXY_PORT;
 
     /**
      * Proxy scheme to use for connection, ex: "http" or "https".
      * (Default: http)
      */
+    @ConfigProperty
     String proxyScheme = DEFAULT_PROXY_SCHEME;
 
     /**
      * Username to use when connecting to proxy.
      */
+    @ConfigProperty
     String proxyUser;
 
     /**
      * Password to use when connecting to proxy.
      */
+    @ConfigProperty
     String proxyPassword;
 
     /**
      * Comma-separated list of hosts to exclude from the proxy.
      */
+    @ConfigProperty
     String proxyExcludedHosts;
 
     /**
      * SSL/TLS protocol to use when connecting to TSA.
      * (Default: "TLS v1.2")
      */
+    @ConfigProperty
     String sslProtocol = DEFAULT_SSL_PROTOCOL;
 
+    /**
+     * Set when the configuration belongs to a compiled profile, after which it cannot be modified.
+     */
+    private boolean frozen;
+
     /**
      * Create an empty timestamp configuration.
      */
@@ -123,25 +146,11 @@ public class TimeStampConfig {
      * Create timestamp configuration based on given map values.
      *
      * @param config Map containing timestamp configuration parameters to use.
+     * @throws InternalErrorException if the configuration contains invalid values.
      */
     public TimeStampConfig(Map<String,String> config) throws InternalErrorException {
         if (config != null) {
-            url = ConfigUtils.parseString(config.get("url"), "Invalid value for 'url' in timeStamp configuration", true, null);
-            username = ConfigUtils.parseString(config.get("username"), "Invalid value for 'username' in timeStamp configuration", false, null);
-            password = ConfigUtils.parseString(config.get("password"), "Invalid value for 'password' in timeStamp configuration", false, null);
-            keyStorePath = ConfigUtils.parseString(config.get("keyStorePath"), "Invalid value for 'keyStorePath' in timeStamp configuration", false, null);
-            keyStorePassword = ConfigUtils.parseString(config.get("keyStorePassword"), "Invalid value for 'keyStorePassword' in timeStamp configuration", false, null);
-            keyStoreType = ConfigUtils.parseString(config.get("keyStoreType"), "Invalid value for 'keyStoreType' in timeStamp configuration", false, null);
-            trustStorePath = ConfigUtils.parseString(config.get("trustStorePath"), "Invalid value for 'trustStorePath' in timeStamp configuration", false, null);
-            trustStorePassword = ConfigUtils.parseString(config.get("trustStorePassword"), "Invalid value for 'trustStorePassword' in timeStamp configuration", false, null);
-            trustStoreType = ConfigUtils.parseString(config.get("trustStoreType"), "Invalid value for 'trustStoreType' in timeStamp configuration", false, null);
-            proxyHost = ConfigUtils.parseString(config.get("proxyHost"), "Invalid value for 'proxyHost' in timeStamp configuration", false, null);
-            proxyPort = ConfigUtils.parseInteger(config.get("proxyPort"), "Invalid value for 'proxyPort' in timeStamp configuration", false, DEFAULT_PROXY_PORT);
-            proxyScheme = ConfigUtils.parseString(config.get("proxyScheme"), "Invalid value for 'proxyScheme' in timeStamp configuration", false, DEFAULT_PROXY_SCHEME);
-            proxyUser = ConfigUtils.parseString(config.get("proxyUser"), "Invalid value for 'proxyUser' in timeStamp configuration", false, null);
-            proxyPassword = ConfigUtils.parseString(config.get("proxyPassword"), "Invalid value for 'proxyPassword' in timeStamp configuration", false, null);
-            proxyExcludedHosts = ConfigUtils.parseString(config.get("proxyExcludedHosts"), "Invalid value for 'proxyExcludedHosts' in timeStamp configuration", false, null);
-            sslProtocol = ConfigUtils.parseString(config.get("sslProtocol"), "Invalid value for 'sslProtocol' in timeStamp configuration", false, null);
+            TimeStampConfigBinder.INSTANCE.bind(config, this);
         }
     }
 
@@ -150,6 +159,7 @@ public class TimeStampConfig {
     }
 
     public void setUrl(String url) {
+        checkModifiable();
         this.url = url;
     }
 
@@ -158,6 +168,7 @@ public class TimeStampConfig {
     }
 
     public void setUsername(String username) {
+        checkModifiable();
         this.username = username;
     }
 
@@ -166,6 +177,7 @@ public class TimeStampConfig {
     }
 
     public void setPassword(String password) {
+        checkModifiable();
         this.password = password;
     }
 
@@ -174,6 +186,7 @@ public class TimeStampConfig {
     }
 
     public void setKeyStorePath(String keyStorePath) {
+        checkModifiable();
         this.keyStorePath = keyStorePath;
     }
 
@@ -182,6 +195,7 @@ public class TimeStampConfig {
     }
 
     public void setKeyStorePassword(String keyStorePassword) {
+        checkModifiable();
         this.keyStorePassword = keyStorePassword;
     }
 
@@ -190,6 +204,7 @@ public class TimeStampConfig {
     }
 
     public void setKeyStoreType(String keyStoreType) {
+        checkModifiable();
         this.keyStoreType = keyStoreType;
     }
 
@@ -198,6 +213,7 @@ public class TimeStampConfig {
     }
 
     public void setTrustStorePath(String trustStorePath) {
+        checkModifiable();
         this.trustStorePath = trustStorePath;
     }
 
@@ -206,6 +222,7 @@ public class TimeStampConfig {
     }
 
     public void setTrustStorePassword(String trustStorePassword) {
+        checkModifiable();
         this.trustStorePassword = trustStorePassword;
     }
 
@@ -214,6 +231,7 @@ public class TimeStampConfig {
     }
 
     public void setTrustStoreType(String trustStoreType) {
+        checkModifiable();
         this.trustStoreType = trustStoreType;
     }
 
@@ -222,6 +240,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyHost(String proxyHost) {
+        checkModifiable();
         this.proxyHost = proxyHost;
     }
 
@@ -230,6 +249,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyPort(int proxyPort) {
+        checkModifiable();
         this.proxyPort = proxyPort;
     }
 
@@ -238,6 +258,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyScheme(String proxyScheme){
+        checkModifiable();
         this.proxyScheme = proxyScheme;
     }
 
@@ -246,6 +267,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyUser(String proxyUser) {
+        checkModifiable();
         this.proxyUser = proxyUser;
     }
 
@@ -254,6 +276,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyPassword(String proxyPassword) {
+        checkModifiable();
         this.proxyPassword = proxyPassword;
     }
 
@@ -262,6 +285,7 @@ public class TimeStampConfig {
     }
 
     public void setProxyExcludedHosts(String proxyExcludedHosts) {
+        checkModifiable();
         this.proxyExcludedHosts = proxyExcludedHosts;
     }
 
@@ -270,6 +294,27 @@ public class TimeStampConfig {
     }
 
     public void setSslProtocol(String sslProtocol) {
+        checkModifiable();
         this.sslProtocol = sslProtocol;
     }
+
+    /**
+     * Prevent further modification, used for configurations of compiled profiles.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * @return true if the configuration cannot be modified.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkModifiable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Time stamp configuration of a compiled profile cannot be modified");
+        }
+    }
 }
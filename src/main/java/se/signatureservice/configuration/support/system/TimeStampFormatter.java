@@ -0,0 +1,144 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * Immutable and thread-safe formatter of the time stamp of a visible signature, compiled once
+ * from the {@code timeStampFormat} pattern of a {@link VisibleSignatureConfig}.
+ *
+ * The pattern is interpreted by {@link DateTimeFormatter#ofPattern(String)}, using the default
+ * locale and time zone of the JVM when the formatter was compiled.
+ */
+public final class TimeStampFormatter {
+
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+
+    private TimeStampFormatter(String pattern, DateTimeFormatter formatter) {
+        this.pattern = pattern;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Compile a time stamp pattern.
+     *
+     * @param pattern the pattern, such as "yyyy-MM-dd HH:mm:ss".
+     * @return compiled formatter.
+     * @throws InternalErrorException if the pattern is invalid.
+     */
+    public static TimeStampFormatter compile(String pattern) throws InternalErrorException {
+        try {
+            return of(pattern);
+        } catch (IllegalArgumentException e) {
+            throw new InternalErrorException("Invalid value for 'timeStampFormat' in visibleSignature configuration: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param pattern the pattern.
+     * @return compiled formatter.
+     * @throws IllegalArgumentException if the pattern is null or invalid.
+     */
+    static TimeStampFormatter of(String pattern) {
+        if (pattern == null || pattern.isEmpty()) {
+            throw new IllegalArgumentException("pattern is empty");
+        }
+        return new TimeStampFormatter(pattern, DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * @return the pattern the formatter was compiled from.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the compiled formatter, with the time zone set.
+     */
+    public DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * @param time the time to format, such as an {@link Instant} or a {@link java.time.ZonedDateTime}.
+     * @return the formatted time.
+     */
+    public String format(TemporalAccessor time) {
+        return formatter.format(time);
+    }
+
+    /**
+     * @param time the time to format.
+     * @return the formatted time.
+     */
+    public String format(Date time) {
+        return formatter.format(time.toInstant());
+    }
+
+    /**
+     * Format a time into a buffer, which may be reused between signatures.
+     *
+     * @param time the time to format, such as an {@link Instant} or a {@link java.time.ZonedDateTime}.
+     * @param out buffer to append the formatted time to.
+     * @return the given buffer.
+     */
+    public StringBuilder formatTo(TemporalAccessor time, StringBuilder out) {
+        formatter.formatTo(time, out);
+        return out;
+    }
+
+    /**
+     * Format a time into a buffer, which may be reused between signatures.
+     *
+     * @param time the time to format.
+     * @param out buffer to append the formatted time to.
+     * @return the given buffer.
+     */
+    public StringBuilder formatTo(Date time, StringBuilder out) {
+        return formatTo(time.toInstant(), out);
+    }
+
+    /**
+     * Format a time into an appendable, such as a writer.
+     *
+     * @param time the time to format, such as an {@link Instant} or a {@link java.time.ZonedDateTime}.
+     * @param out the appendable to append the formatted time to.
+     * @throws IOException if an error occurred appending to the appendable.
+     */
+    public void formatTo(TemporalAccessor time, Appendable out) throws IOException {
+        try {
+            formatter.formatTo(time, out);
+        } catch (DateTimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,110 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable trusted authentication service of a compiled support profile.
+ *
+ * The authentication contexts permitted for the service are the contexts configured for the
+ * service merged with the default contexts of the profile, computed once when the profile is
+ * compiled.
+ */
+public final class TrustedAuthenticationService {
+
+    private final String name;
+    private final String entityId;
+    private final String defaultDisplayName;
+    private final String userIdAttributeMapping;
+    private final Set<String> authnContextClassRefs;
+
+    TrustedAuthenticationService(String name, TrustedAuthenticationServiceConfig config,
+                                 String defaultAuthnContextClassRef, List<String> defaultAuthnContextClassRefs) {
+        this.name = name;
+        this.entityId = config.getEntityId();
+        this.defaultDisplayName = config.getDefaultDisplayName();
+        this.userIdAttributeMapping = config.getUserIdAttributeMapping();
+        Set<String> refs = new LinkedHashSet<>();
+        addIfNotNull(refs, config.getAuthnContextClassRef());
+        if (config.getAuthnContextClassRefs() != null) {
+            for (String ref : config.getAuthnContextClassRefs()) {
+                addIfNotNull(refs, ref);
+            }
+        }
+        addIfNotNull(refs, defaultAuthnContextClassRef);
+        for (String ref : defaultAuthnContextClassRefs) {
+            addIfNotNull(refs, ref);
+        }
+        this.authnContextClassRefs = Collections.unmodifiableSet(refs);
+    }
+
+    /**
+     * @return name of the service entry in the profile configuration.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Meta Data Entity Id of the service.
+     */
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return display name to use if no display name is available in metadata, or null.
+     */
+    public String getDefaultDisplayName() {
+        return defaultDisplayName;
+    }
+
+    /**
+     * @return user attribute key to use as user id for users of the service, or null.
+     */
+    public String getUserIdAttributeMapping() {
+        return userIdAttributeMapping;
+    }
+
+    /**
+     * @return unmodifiable set of permitted authentication contexts, in configuration order with
+     * the contexts of the service first.
+     */
+    public Set<String> getAuthnContextClassRefs() {
+        return authnContextClassRefs;
+    }
+
+    /**
+     * @param authnContextClassRef type/level of authentication.
+     * @return true if the authentication context is permitted for the service.
+     */
+    public boolean isAuthnContextClassRefAllowed(String authnContextClassRef) {
+        return authnContextClassRef != null && authnContextClassRefs.contains(authnContextClassRef);
+    }
+
+    @Override
+    public String toString() {
+        return "TrustedAuthenticationService{name=" + name + ", entityId=" + entityId +
+                ", authnContextClassRefs=" + authnContextClassRefs + "}";
+    }
+
+    private static void addIfNotNull(Set<String> refs, String ref) {
+        if (ref != null) {
+            refs.add(ref);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.binding.ConfigBindable;
+import se.signatureservice.configuration.common.binding.ConfigProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration of one trusted authentication service/identity provider, an entry of
+ * {@link SupportProfile#getTrustedAuthenticationServices()}.
+ */
+@ConfigBindable("trustedAuthenticationService")
+public class TrustedAuthenticationServiceConfig {
+
+    /**
+     * Meta Data Entity Id of the authentication service.
+     */
+    @ConfigProperty
+    String entityId;
+
+    /**
+     * Display name to use if no display name is available in metadata.
+     */
+    @ConfigProperty
+    String defaultDisplayName;
+
+    /**
+     * Type/level of authentication to request from the authentication service.
+     */
+    @ConfigProperty
+    String authnContextClassRef;
+
+    /**
+     * List of types/levels of authentication to request from the authentication service.
+     */
+    @ConfigProperty
+    List<String> authnContextClassRefs;
+
+    /**
+     * User attribute key to use as user id for users of the authentication service.
+     */
+    @ConfigProperty
+    String userIdAttributeMapping;
+
+    /**
+     * Create an empty trusted authentication service configuration.
+     */
+    public TrustedAuthenticationServiceConfig() {
+    }
+
+    /**
+     * Create trusted authentication service configuration based on given map values.
+     *
+     * @param config Map containing trusted authentication service configuration parameters to use.
+     * @throws InternalErrorException if the configuration contains invalid values.
+     */
+    public TrustedAuthenticationServiceConfig(Map<String, ?> config) throws InternalErrorException {
+        if (config != null) {
+            TrustedAuthenticationServiceConfigBinder.INSTANCE.bind(config, this);
+        }
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(String entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getDefaultDisplayName() {
+        return defaultDisplayName;
+    }
+
+    public void setDefaultDisplayName(String defaultDisplayName) {
+        this.defaultDisplayName = defaultDisplayName;
+    }
+
+    public String getAuthnContextClassRef() {
+        return authnContextClassRef;
+    }
+
+    public void setAuthnContextClassRef(String authnContextClassRef) {
+        this.authnContextClassRef = authnContextClassRef;
+    }
+
+    public List<String> getAuthnContextClassRefs() {
+        return authnContextClassRefs;
+    }
+
+    public void setAuthnContextClassRefs(List<String> authnContextClassRefs) {
+        this.authnContextClassRefs = authnContextClassRefs;
+    }
+
+    public String getUserIdAttributeMapping() {
+        return userIdAttributeMapping;
+    }
+
+    public void setUserIdAttributeMapping(String userIdAttributeMapping) {
+        this.userIdAttributeMapping = userIdAttributeMapping;
+    }
+}
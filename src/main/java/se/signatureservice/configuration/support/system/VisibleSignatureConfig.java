@@ -13,8 +13,13 @@
 package se.signatureservice.configuration.support.system;
 
 import se.signatureservice.configuration.common.InternalErrorException;
-import se.signatureservice.configuration.common.utils.ConfigUtils;
+import se.signatureservice.configuration.common.binding.ConfigBindable;
+import se.signatureservice.configuration.common.binding.ConfigBinder;
+import se.signatureservice.configuration.common.binding.ConfigProperty;
+import se.signatureservice.configuration.common.binding.ConfigValidate;
+import se.signatureservice.configuration.common.utils.ColorParser;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,12 +27,19 @@ import java.util.Map;
  *
  * @author Tobias Agerberg
  */
+@ConfigBindable("visibleSignature")
 public class VisibleSignatureConfig {
 
     private static final boolean DEFAULT_ENABLE=false;
     private static final String DEFAULT_FONT=null;
     private static final boolean DEFAULT_SHOW_LOGO=true;
     private static final boolean DEFAULT_SHOW_HEADLINE=true;
+    private static final String DEFAULT_FONT_COLOR="#000000";
+    private static final String DEFAULT_BACKGROUND_COLOR="#ffffff";
+    private static final String DEFAULT_TIME_STAMP_FORMAT="yyyy-MM-dd HH:mm:ss";
+    private static final int DEFAULT_FONT_COLOR_ARGB = ColorParser.parseArgb(DEFAULT_FONT_COLOR);
+    private static final int DEFAULT_BACKGROUND_COLOR_ARGB = ColorParser.parseArgb(DEFAULT_BACKGROUND_COLOR);
+    private static final TimeStampFormatter DEFAULT_TIME_STAMP_FORMATTER = TimeStampFormatter.of(DEFAULT_TIME_STAMP_FORMAT);
 
     /**
      * Flag to enable/disable visible signatures in signed PDF documents. Visible signatures
@@ -35,74 +47,86 @@ public class VisibleSignatureConfig {
      * in the "signatureAttributes" parameters in call to prepareSignature.
      * Default is disabled.
      */
+    @ConfigProperty
     boolean enable = DEFAULT_ENABLE;
 
     /**
      * Class path to font file to use when rendering text for visible signature.
      * Default, if not specified, is PT Serif Regular.
      */
+    @ConfigProperty
     String font = DEFAULT_FONT;
 
     /**
      * Font size for rendered text.
      * Default size is 9.
      */
+    @ConfigProperty
     float fontSize = 9;
 
     /**
      * Font color for rendered text.
      * Default is black.
      */
-    String fontColor = "#000000";
+    @ConfigProperty
+    String fontColor = DEFAULT_FONT_COLOR;
 
     /**
      * Background for rendered text.
      * Default is white.
      */
-    String backgroundColor = "#ffffff";
+    @ConfigProperty
+    String backgroundColor = DEFAULT_BACKGROUND_COLOR;
 
     /**
      * Flag to control if logo image should be displayed or not
      * within the visible signature.
      * Default is true.
      */
+    @ConfigProperty
     boolean showLogo = DEFAULT_SHOW_LOGO;
 
     /**
      * Class path to logo image to display if `showLogo` is enabled.
      * Default: CGI logo
      */
+    @ConfigProperty
     String logoImage = Constants.DEFAULT_IMAGE_PATH;
 
     /**
      * Flag to control if header line should be displayed or not.
      * Default is true.
      */
+    @ConfigProperty
     boolean showHeadline = true;
 
     /**
      * Text content of header line to display.
      * Default is "Document Digital Signed"
      */
+    @ConfigProperty
     String headlineText = "Document Digital Signed";
 
     /**
      * Label to use before name of signer.
      * Default is "Signer"
      */
+    @ConfigProperty
     String signerLabel = "Signer";
 
     /**
      * Label to use before time stamp.
      * Default is "Time"
      */
+    @ConfigProperty
     String timeStampLabel = "Time";
 
     /**
      * Time format to use for time stamp.
      * Default is "yyyy-MM-dd HH:mm:ss"
      */
-    String timeStampFormat = "yyyy-MM-dd HH:mm:ss";
+    @ConfigProperty
+    String timeStampFormat = DEFAULT_TIME_STAMP_FORMAT;
 
     /**
      * Template to use when displaying text within visible signature.
@@ -110,14 +134,32 @@ public class VisibleSignatureConfig {
      * "showHeadline" will be ignored and the template takes precedence.
      * Default is null (not used).
      */
+    @ConfigProperty
     String signatureTextTemplate = null;
 
     /**
      * Padding to use around text.
      * Default is 50.
      */
+    @ConfigProperty
     float textPadding = 50;
 
+    /**
+     * Formatter compiled from timeStampFormat, updated by setTimeStampFormat and validate.
+     */
+    private volatile TimeStampFormatter timeStampFormatter = DEFAULT_TIME_STAMP_FORMATTER;
+
+    /**
+     * Colors parsed from fontColor and backgroundColor, updated by the setters and validate.
+     */
+    private volatile int fontColorArgb = DEFAULT_FONT_COLOR_ARGB;
+    private volatile int backgroundColorArgb = DEFAULT_BACKGROUND_COLOR_ARGB;
+
+    /**
+     * Set when the configuration belongs to a compiled profile, after which it cannot be modified.
+     */
+    private boolean frozen;
+
     /**
      * Create visible signature configuration with default values.
      */
@@ -129,39 +171,11 @@ public class VisibleSignatureConfig {
      *
      * @param config Map containing visible signature configuration parameters
      * to use, that will override default configuration values.
+     * @throws InternalErrorException if the configuration contains invalid values.
      */
     public VisibleSignatureConfig(Map<String,String> config) throws InternalErrorException {
         if(config != null){
-            enable = ConfigUtils.parseBoolean(config.get("enable"), "Invalid value for 'enable' in visibleSignature configuration", false, DEFAULT_ENABLE);
-            font = ConfigUtils.parseString(config.get("font"), "Invalid value for 'font' in visibleSignature configuration", false, DEFAULT_FONT);
-            fontSize = ConfigUtils.parseFloat(config.get("fontSize"), "Invalid value for 'fontSize' in visibleSignature configuration", false, fontSize);
-            showLogo = ConfigUtils.parseBoolean(config.get("showLogo"), "Invalid value for 'showLogo' in visibleSignature configuration", false, DEFAULT_SHOW_LOGO);
-            logoImage = ConfigUtils.parseString(config.get("logoImage"), "Invalid value for 'logoImage' in visibleSignature configuration", false, logoImage);
-            showHeadline = ConfigUtils.parseBoolean(config.get("showHeadline"), "Invalid value for 'showHeadline' in visibleSignature configuration", false, DEFAULT_SHOW_HEADLINE);
-            headlineText = ConfigUtils.parseString(config.get("headlineText"), "Invalid value for 'headlineText' in visibleSignature configuration", false, headlineText);
-            signerLabel = ConfigUtils.parseString(config.get("signerLabel"), "Invalid value for 'signerLabel' in visibleSignature configuration", false, signerLabel);
-            timeStampLabel = ConfigUtils.parseString(config.get("timeStampLabel"), "Invalid value for 'timeStampLabel' in visibleSignature configuration", false, timeStampLabel);
-            timeStampFormat = ConfigUtils.parseString(config.get("timeStampFormat"), "Invalid value for 'timeStampFormat' in visibleSignature configuration", false, timeStampFormat);
-            textPadding = ConfigUtils.parseFloat(config.get("textPadding"), "Invalid value for 'textPadding' in visibleSignature configuration", false, textPadding);
-            signatureTextTemplate = ConfigUtils.parseString(config.get("signatureTextTemplate"), "Invalid value for 'signatureTextTemplate' in visibleSignature configuration", false, signatureTextTemplate);
-
-            try {
-                String colorHex = ConfigUtils.parseString(config.get("fontColor"), "Invalid value for 'fontColor' in visibleSignature configuration", false, null);
-                if(colorHex != null){
-                    fontColor = colorHex;
-                }
-            } catch(Exception e){
-                throw new InternalErrorException("Invalid color specified for 'fontColor' in visibleSignature configuration: ${e.message}");
-            }
-
-            try {
-                String colorHex = ConfigUtils.parseString(config.get("backgroundColor"), "Invalid value for 'backgroundColor' in visibleSignature configuration", false, null);
-                if(colorHex != null){
-                    backgroundColor = colorHex;
-                }
-            } catch(Exception e){
-                throw new InternalErrorException("Invalid color specified for 'backgroundColor' in visibleSignature configuration: ${e.message}");
-            }
+            VisibleSignatureConfigBinder.INSTANCE.bind(config, this);
         }
     }
 
@@ -170,6 +184,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setEnable(boolean enable) {
+        checkModifiable();
         this.enable = enable;
     }
 
@@ -178,6 +193,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setFont(String font) {
+        checkModifiable();
         this.font = font;
     }
 
@@ -186,6 +202,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setFontSize(float fontSize) {
+        checkModifiable();
         this.fontSize = fontSize;
     }
 
@@ -193,7 +210,13 @@ public class VisibleSignatureConfig {
         return fontColor;
     }
 
-    public void setFontColor(String fontColor) {
+    /**
+     * @param fontColor font color in HTML-style hex, see {@link ColorParser#parseArgb(CharSequence)}.
+     * @throws NumberFormatException if fontColor is not a valid color.
+     */
+    public void setFontColor(String fontColor) throws NumberFormatException {
+        checkModifiable();
+        this.fontColorArgb = ColorParser.parseArgb(fontColor);
         this.fontColor = fontColor;
     }
 
@@ -201,15 +224,36 @@ public class VisibleSignatureConfig {
         return backgroundColor;
     }
 
-    public void setBackgroundColor(String backgroundColor) {
+    /**
+     * @param backgroundColor background color in HTML-style hex, see {@link ColorParser#parseArgb(CharSequence)}.
+     * @throws NumberFormatException if backgroundColor is not a valid color.
+     */
+    public void setBackgroundColor(String backgroundColor) throws NumberFormatException {
+        checkModifiable();
+        this.backgroundColorArgb = ColorParser.parseArgb(backgroundColor);
         this.backgroundColor = backgroundColor;
     }
 
+    /**
+     * @return fontColor as packed ARGB value, see {@link ColorParser#parseArgb(CharSequence)}.
+     */
+    public int getFontColorArgb() {
+        return fontColorArgb;
+    }
+
+    /**
+     * @return backgroundColor as packed ARGB value, see {@link ColorParser#parseArgb(CharSequence)}.
+     */
+    public int getBackgroundColorArgb() {
+        return backgroundColorArgb;
+    }
+
     public boolean isShowLogo() {
         return showLogo;
     }
 
     public void setShowLogo(boolean showLogo) {
+        checkModifiable();
         this.showLogo = showLogo;
     }
 
@@ -218,6 +262,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setLogoImage(String logoImage) {
+        checkModifiable();
         this.logoImage = logoImage;
     }
 
@@ -226,6 +271,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setShowHeadline(boolean showHeadline) {
+        checkModifiable();
         this.showHeadline = showHeadline;
     }
 
@@ -234,6 +280,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setHeadlineText(String headlineText) {
+        checkModifiable();
         this.headlineText = headlineText;
     }
 
@@ -242,6 +289,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setSignerLabel(String signerLabel) {
+        checkModifiable();
         this.signerLabel = signerLabel;
     }
 
@@ -250,6 +298,7 @@ public class VisibleSignatureConfig {
     }
 
     public void setTimeStampLabel(String timeStampLabel) {
+        checkModifiable();
         this.timeStampLabel = timeStampLabel;
     }
 
@@ -257,15 +306,64 @@ public class VisibleSignatureConfig {
         return timeStampFormat;
     }
 
-    public void setTimeStampFormat(String timeStampFormat) {
+    /**
+     * @param timeStampFormat time stamp pattern, see {@link java.time.format.DateTimeFormatter}.
+     * @throws IllegalArgumentException if timeStampFormat is not a valid pattern.
+     */
+    public void setTimeStampFormat(String timeStampFormat) throws IllegalArgumentException {
+        checkModifiable();
+        this.timeStampFormatter = TimeStampFormatter.of(timeStampFormat);
         this.timeStampFormat = timeStampFormat;
     }
 
+    /**
+     * Get the formatter of timeStampFormat, compiled once and safe to share between threads.
+     *
+     * @return the time stamp formatter.
+     */
+    public TimeStampFormatter getTimeStampFormatter() {
+        return timeStampFormatter;
+    }
+
+    /**
+     * Parse fontColor and backgroundColor and compile timeStampFormat, so that invalid values
+     * are reported when the configuration is loaded instead of when signing. Called by the binder
+     * after the settings have been bound, read or copied.
+     *
+     * @throws InternalErrorException if any of the values is invalid.
+     */
+    @ConfigValidate
+    void validate() throws InternalErrorException {
+        List<String> errors = null;
+        try {
+            fontColorArgb = ColorParser.parseArgb(fontColor);
+        } catch (NumberFormatException e) {
+            errors = ConfigBinder.addError(errors, getErrorMessage("fontColor", e));
+        }
+        try {
+            backgroundColorArgb = ColorParser.parseArgb(backgroundColor);
+        } catch (NumberFormatException e) {
+            errors = ConfigBinder.addError(errors, getErrorMessage("backgroundColor", e));
+        }
+        try {
+            timeStampFormatter = TimeStampFormatter.compile(timeStampFormat);
+        } catch (InternalErrorException e) {
+            errors = ConfigBinder.addError(errors, e.getMessage());
+        }
+        ConfigBinder.throwIfErrors(errors);
+    }
+
+    private static String getErrorMessage(String name, Exception e) {
+        VisibleSignatureConfigBinder binder = VisibleSignatureConfigBinder.INSTANCE;
+        return binder.getErrorMessage(binder.indexOf(name)) + ": " + e.getMessage();
+    }
+
     public float getTextPadding() {
         return textPadding;
     }
 
     public void setTextPadding(float textPadding) {
+        checkModifiable();
         this.textPadding = textPadding;
     }
 
@@ -274,6 +372,27 @@ public class VisibleSignatureConfig {
     }
 
     public void setSignatureTextTemplate(String template) {
+        checkModifiable();
         this.signatureTextTemplate = template;
     }
-}
\ No newline at end of file
+
+    /**
+     * Prevent further modification, used for configurations of compiled profiles.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * @return true if the configuration cannot be modified.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkModifiable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Visible signature configuration of a compiled profile cannot be modified");
+        }
+    }
+}
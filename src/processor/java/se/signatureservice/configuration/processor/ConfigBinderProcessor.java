@@ -0,0 +1,719 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a ConfigBinder for each class annotated with ConfigBindable.
+ *
+ * The annotations are referenced by name only, so the processor can be compiled before the
+ * sources it processes.
+ */
+@SupportedAnnotationTypes(ConfigBinderProcessor.CONFIG_BINDABLE)
+public class ConfigBinderProcessor extends AbstractProcessor {
+
+    static final String BINDING_PACKAGE = "se.signatureservice.configuration.common.binding";
+    static final String CONFIG_BINDABLE = BINDING_PACKAGE + ".ConfigBindable";
+    static final String CONFIG_PROPERTY = BINDING_PACKAGE + ".ConfigProperty";
+    static final String CONFIG_VALIDATE = BINDING_PACKAGE + ".ConfigValidate";
+    static final String CONFIG_UTILS = "se.signatureservice.configuration.common.utils.ConfigUtils";
+    static final String CONFIG_INTERNER = "se.signatureservice.configuration.common.utils.ConfigInterner";
+
+    private static final int MAX_PROPERTIES = 64;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@ConfigBindable is only supported on classes");
+                    continue;
+                }
+                try {
+                    generateBinder((TypeElement) element);
+                } catch (IOException e) {
+                    error(element, "Error generating config binder: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generateBinder(TypeElement type) throws IOException {
+        String section = (String) getAnnotationValue(type, CONFIG_BINDABLE, "value");
+        List<Property> properties = getProperties(type);
+        List<String> validateMethods = getValidateMethods(type);
+        if (properties == null || validateMethods == null) {
+            return;
+        }
+        String validateMethod = validateMethods.isEmpty() ? null : validateMethods.get(0);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getSimpleName().toString();
+        String binderName = typeName + "Binder";
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName + "." + binderName, type).openWriter())) {
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("import " + BINDING_PACKAGE + ".ConfigBinaryReader;");
+            out.println("import " + BINDING_PACKAGE + ".ConfigBinaryWriter;");
+            out.println("import " + BINDING_PACKAGE + ".ConfigBinder;");
+            out.println("import " + BINDING_PACKAGE + ".ConfigPropertyType;");
+            out.println("import se.signatureservice.configuration.common.InternalErrorException;");
+            out.println("import " + CONFIG_INTERNER + ";");
+            out.println("import " + CONFIG_UTILS + ";");
+            out.println();
+            out.println("import java.io.IOException;");
+            out.println();
+            out.println("/**");
+            out.println(" * Configuration binder for {@link " + typeName + "}, generated at build time, do not edit.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + ConfigBinderProcessor.class.getName() + "\")");
+            out.println("public final class " + binderName + " extends ConfigBinder<" + typeName + "> {");
+            out.println();
+            out.println("    public static final " + binderName + " INSTANCE = new " + binderName + "();");
+            out.println();
+            out.println("    private static final String SECTION = " + literal(section) + ";");
+            out.println();
+            out.println("    private static final String[] NAMES = {");
+            for (Property p : properties) {
+                out.println("        " + literal(p.name) + ",");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    private static final String[] MESSAGES = {");
+            for (Property p : properties) {
+                out.println("        " + literal("Invalid value for '" + p.name + "' in " + section + " configuration") + ",");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    private static final ConfigPropertyType[] TYPES = {");
+            for (Property p : properties) {
+                out.println("        ConfigPropertyType." + p.kind.propertyType + ",");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    private " + binderName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getSection() {");
+            out.println("        return SECTION;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int getPropertyCount() {");
+            out.println("        return " + properties.size() + ";");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int indexOf(String name) {");
+            out.println("        switch (name) {");
+            for (int i = 0; i < properties.size(); i++) {
+                out.println("            case " + literal(properties.get(i).name) + ":");
+                out.println("                return " + i + ";");
+            }
+            out.println("            default:");
+            out.println("                return -1;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getName(int index) {");
+            out.println("        return NAMES[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getErrorMessage(int index) {");
+            out.println("        return MESSAGES[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public ConfigPropertyType getPropertyType(int index) {");
+            out.println("        return TYPES[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public ConfigBinder<?> getNestedBinder(int index) {");
+            out.println("        switch (index) {");
+            for (int i = 0; i < properties.size(); i++) {
+                if (properties.get(i).kind == Kind.NESTED) {
+                    out.println("            case " + i + ":");
+                    out.println("                return " + properties.get(i).type + "Binder.INSTANCE;");
+                }
+            }
+            out.println("            default:");
+            out.println("                return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            long requiredMask = 0;
+            for (int i = 0; i < properties.size(); i++) {
+                if (properties.get(i).required) {
+                    requiredMask |= 1L << i;
+                }
+            }
+            out.println("    @Override");
+            out.println("    public long getRequiredMask() {");
+            out.println("        return " + requiredMask + "L;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + typeName + " newInstance() {");
+            out.println("        return new " + typeName + "();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public String bindValue(" + typeName + " target, int index, Object value) {");
+            out.println("        try {");
+            out.println("            switch (index) {");
+            for (int i = 0; i < properties.size(); i++) {
+                Property p = properties.get(i);
+                out.println("                case " + i + ":");
+                for (String line : p.bindStatements("MESSAGES[" + i + "]")) {
+                    out.println("                    " + line);
+                }
+            }
+            out.println("                default:");
+            out.println("                    throw new IllegalArgumentException(\"Invalid property index: \" + index);");
+            out.println("            }");
+            out.println("        } catch (InternalErrorException e) {");
+            out.println("            return e.getMessage();");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void write(" + typeName + " source, ConfigBinaryWriter out) throws IOException {");
+            for (Property p : properties) {
+                for (String line : p.writeStatements()) {
+                    out.println("        " + line);
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public " + typeName + " read(ConfigBinaryReader in) throws IOException {");
+            out.println("        " + typeName + " target = new " + typeName + "();");
+            for (Property p : properties) {
+                for (String line : p.readStatements()) {
+                    out.println("        " + line);
+                }
+            }
+            out.println(validateMethod != null ? "        return validateRead(target);" : "        return target;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public long getSchemaHash() {");
+            out.println("        long hash = " + schemaHash(typeName, properties) + "L;");
+            for (Property p : properties) {
+                if (p.kind == Kind.NESTED) {
+                    out.println("        hash = hash * 31 + " + p.type + "Binder.INSTANCE.getSchemaHash();");
+                }
+            }
+            out.println("        return hash;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void intern(" + typeName + " target, ConfigInterner interner) {");
+            for (Property p : properties) {
+                for (String line : p.internStatements()) {
+                    out.println("        " + line);
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void seed(" + typeName + " source, ConfigInterner interner) {");
+            for (Property p : properties) {
+                for (String line : p.seedStatements()) {
+                    out.println("        " + line);
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + typeName + " copy(" + typeName + " source) {");
+            out.println("        " + typeName + " target = newInstance();");
+            for (Property p : properties) {
+                out.println("        " + p.copyStatement());
+            }
+            out.println(validateMethod != null ? "        return validateCopy(target);" : "        return target;");
+            out.println("    }");
+            if (validateMethod != null) {
+                out.println();
+                out.println("    @Override");
+                out.println("    public void validate(" + typeName + " target) throws InternalErrorException {");
+                out.println("        target." + validateMethod + "();");
+                out.println("    }");
+            }
+            out.println("}");
+        }
+    }
+
+    private List<Property> getProperties(TypeElement type) {
+        List<Property> properties = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        boolean valid = true;
+
+        boolean hasConstructor = false;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            error(type, "@ConfigBindable class must have a non-private no-argument constructor");
+            valid = false;
+        }
+
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.FIELD || getAnnotation(member, CONFIG_PROPERTY) == null) {
+                continue;
+            }
+            VariableElement field = (VariableElement) member;
+            if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)
+                    || field.getModifiers().contains(Modifier.STATIC)) {
+                error(field, "@ConfigProperty field must not be private, final or static");
+                valid = false;
+                continue;
+            }
+            String name = (String) getAnnotationValue(field, CONFIG_PROPERTY, "name");
+            if (name.isEmpty()) {
+                name = field.getSimpleName().toString();
+            }
+            if (!names.add(name)) {
+                error(field, "Duplicate @ConfigProperty name: " + name);
+                valid = false;
+                continue;
+            }
+            Kind kind = getKind(field.asType());
+            if (kind == null) {
+                error(field, "Unsupported @ConfigProperty type: " + field.asType() +
+                        ", lists must be List<String> and maps Map<String, Map<String, Object>>");
+                valid = false;
+                continue;
+            }
+            properties.add(new Property(field.getSimpleName().toString(), name,
+                    (Boolean) getAnnotationValue(field, CONFIG_PROPERTY, "required"), kind, field.asType()));
+        }
+
+        if (properties.size() > MAX_PROPERTIES) {
+            error(type, "@ConfigBindable class can have at most " + MAX_PROPERTIES + " properties");
+            valid = false;
+        }
+        return valid ? properties : null;
+    }
+
+    /**
+     * @return names of the methods annotated with ConfigValidate, at most one, or null if invalid.
+     */
+    private List<String> getValidateMethods(TypeElement type) {
+        List<String> methods = new ArrayList<>();
+        boolean valid = true;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD || getAnnotation(member, CONFIG_VALIDATE) == null) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)
+                    || !method.getParameters().isEmpty()) {
+                error(method, "@ConfigValidate method must not be private or static and must not take any arguments");
+                valid = false;
+                continue;
+            }
+            if (!methods.isEmpty()) {
+                error(method, "@ConfigBindable class can have at most one @ConfigValidate method");
+                valid = false;
+                continue;
+            }
+            methods.add(method.getSimpleName().toString());
+        }
+        return valid ? methods : null;
+    }
+
+    private Kind getKind(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case FLOAT:
+                return Kind.FLOAT;
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                switch (element.getQualifiedName().toString()) {
+                    case "java.lang.String":
+                        return Kind.STRING;
+                    case "java.lang.Boolean":
+                        return Kind.BOOLEAN;
+                    case "java.lang.Integer":
+                        return Kind.INT;
+                    case "java.lang.Long":
+                        return Kind.LONG;
+                    case "java.lang.Float":
+                        return Kind.FLOAT;
+                    case "java.util.List":
+                        return isSameType(type, getDeclaredType("java.util.List", getDeclaredType("java.lang.String"))) ? Kind.LIST_OF_STRING : null;
+                    case "java.util.Map":
+                        return isSameType(type, getDeclaredType("java.util.Map", getDeclaredType("java.lang.String"),
+                                getDeclaredType("java.util.Map", getDeclaredType("java.lang.String"), getDeclaredType("java.lang.Object"))))
+                                ? Kind.MAP_OF_MAPS : null;
+                    default:
+                        return getAnnotation(element, CONFIG_BINDABLE) != null ? Kind.NESTED : null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    private boolean isSameType(TypeMirror type, TypeMirror expected) {
+        return processingEnv.getTypeUtils().isSameType(type, expected);
+    }
+
+    private DeclaredType getDeclaredType(String className, TypeMirror... typeArguments) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(className);
+        return processingEnv.getTypeUtils().getDeclaredType(element, typeArguments);
+    }
+
+    private AnnotationMirror getAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object getAnnotationValue(Element element, String annotationName, String valueName) {
+        AnnotationMirror mirror = getAnnotation(element, annotationName);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(valueName)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * FNV-1a hash of the type name and the name, type and order of all properties.
+     */
+    private static long schemaHash(String typeName, List<Property> properties) {
+        StringBuilder sb = new StringBuilder(typeName);
+        for (Property p : properties) {
+            sb.append(';').append(p.field).append(':').append(p.kind).append(':').append(p.isPrimitive());
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < sb.length(); i++) {
+            hash ^= sb.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private enum Kind {
+        STRING("STRING"),
+        BOOLEAN("BOOLEAN"),
+        INT("INT"),
+        LONG("LONG"),
+        FLOAT("FLOAT"),
+        LIST_OF_STRING("LIST"),
+        MAP_OF_MAPS("MAP"),
+        NESTED("NESTED");
+
+        /**
+         * Name of the matching ConfigPropertyType constant.
+         */
+        final String propertyType;
+
+        Kind(String propertyType) {
+            this.propertyType = propertyType;
+        }
+    }
+
+    private static final class Property {
+        final String field;
+        final String name;
+        final boolean required;
+        final Kind kind;
+        final TypeMirror type;
+
+        Property(String field, String name, boolean required, Kind kind, TypeMirror type) {
+            this.field = field;
+            this.name = name;
+            this.required = required;
+            this.kind = kind;
+            this.type = type;
+        }
+
+        List<String> bindStatements(String message) {
+            List<String> lines = new ArrayList<>();
+            String target = "target." + field;
+            String primitive = isPrimitive() ? "Value" : "";
+            switch (kind) {
+                case STRING:
+                    lines.add(target + " = ConfigUtils.parseString(value, " + message + ", " + required + ", " + target + ");");
+                    break;
+                case BOOLEAN:
+                    lines.add(target + " = ConfigUtils.parseBoolean" + primitive + "(value, " + message + ", " + required + ", " + target + ");");
+                    break;
+                case INT:
+                    lines.add(target + " = ConfigUtils.parse" + (isPrimitive() ? "IntValue" : "Integer") + "(value, " + message + ", " + required + ", " + target + ");");
+                    break;
+                case LONG:
+                    lines.add(target + " = ConfigUtils.parseLong" + primitive + "(value, " + message + ", " + required + ", " + target + ");");
+                    break;
+                case FLOAT:
+                    lines.add(target + " = ConfigUtils.parseFloat" + primitive + "(value, " + message + ", " + required + ", " + target + ");");
+                    break;
+                case LIST_OF_STRING:
+                    addParseIfPresent(lines, target + " = ConfigUtils.parseListOfString(value, " + message + ", " + required + ");");
+                    break;
+                case MAP_OF_MAPS:
+                    addParseIfPresent(lines, target + " = ConfigUtils.parseMapOfMaps(value, " + message + ", " + required + ");");
+                    break;
+                case NESTED:
+                    String nestedType = type.toString();
+                    String nestedBinder = nestedType + "Binder.INSTANCE";
+                    lines.add("if (value instanceof " + nestedType + ") {");
+                    lines.add("    " + target + " = (" + nestedType + ") value;");
+                    lines.add("} else if (value instanceof java.util.Map && !((java.util.Map<?, ?>) value).isEmpty()) {");
+                    lines.add("    " + target + " = " + nestedBinder + ".bind((java.util.Map<String, ?>) value, " + nestedBinder + ".newInstance());");
+                    lines.add(required ? "} else {" : "} else if (!ConfigUtils.isNullOrEmptyMap(value)) {");
+                    lines.add("    return " + message + ";");
+                    lines.add("}");
+                    break;
+            }
+            lines.add("return null;");
+            return lines;
+        }
+
+        boolean isPrimitive() {
+            return type.getKind().isPrimitive();
+        }
+
+        List<String> writeStatements() {
+            List<String> lines = new ArrayList<>();
+            String source = "source." + field;
+            if (!isPrimitive() && kind != Kind.STRING && kind != Kind.LIST_OF_STRING) {
+                // Nullable values other than strings and lists are written with a presence flag
+                // or a type tag.
+                if (kind == Kind.NESTED) {
+                    lines.add("out.writeBoolean(" + source + " != null);");
+                    lines.add("if (" + source + " != null) {");
+                    lines.add("    " + type + "Binder.INSTANCE.write(" + source + ", out);");
+                    lines.add("}");
+                } else {
+                    lines.add("out.writeValue(" + source + ");");
+                }
+                return lines;
+            }
+            switch (kind) {
+                case STRING:
+                    lines.add("out.writeString(" + source + ");");
+                    break;
+                case LIST_OF_STRING:
+                    lines.add("out.writeStringList(" + source + ");");
+                    break;
+                case BOOLEAN:
+                    lines.add("out.writeBoolean(" + source + ");");
+                    break;
+                case INT:
+                    lines.add("out.writeInt(" + source + ");");
+                    break;
+                case LONG:
+                    lines.add("out.writeLong(" + source + ");");
+                    break;
+                case FLOAT:
+                    lines.add("out.writeFloat(" + source + ");");
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported primitive kind: " + kind);
+            }
+            return lines;
+        }
+
+        List<String> readStatements() {
+            List<String> lines = new ArrayList<>();
+            String target = "target." + field;
+            if (!isPrimitive() && kind != Kind.STRING && kind != Kind.LIST_OF_STRING) {
+                if (kind == Kind.NESTED) {
+                    lines.add(target + " = in.readBoolean() ? " + type + "Binder.INSTANCE.read(in) : null;");
+                } else {
+                    lines.add(target + " = (" + type + ") in.readValue();");
+                }
+                return lines;
+            }
+            switch (kind) {
+                case STRING:
+                    lines.add(target + " = in.readString();");
+                    break;
+                case LIST_OF_STRING:
+                    lines.add(target + " = in.readStringList();");
+                    break;
+                case BOOLEAN:
+                    lines.add(target + " = in.readBoolean();");
+                    break;
+                case INT:
+                    lines.add(target + " = in.readInt();");
+                    break;
+                case LONG:
+                    lines.add(target + " = in.readLong();");
+                    break;
+                case FLOAT:
+                    lines.add(target + " = in.readFloat();");
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported primitive kind: " + kind);
+            }
+            return lines;
+        }
+
+        List<String> internStatements() {
+            List<String> lines = new ArrayList<>();
+            String target = "target." + field;
+            switch (kind) {
+                case STRING:
+                    lines.add(target + " = interner.intern(" + target + ");");
+                    break;
+                case LIST_OF_STRING:
+                    lines.add("if (" + target + " != null) {");
+                    lines.add("    " + target + " = interner.internList(" + target + ");");
+                    lines.add("}");
+                    break;
+                case MAP_OF_MAPS:
+                    lines.add("if (" + target + " != null) {");
+                    lines.add("    " + target + " = interner.internMapOfMaps(" + target + ");");
+                    lines.add("}");
+                    break;
+                case NESTED:
+                    lines.add("if (" + target + " != null) {");
+                    lines.add("    " + type + "Binder.INSTANCE.intern(" + target + ", interner);");
+                    lines.add("}");
+                    break;
+                default:
+                    break;
+            }
+            return lines;
+        }
+
+        List<String> seedStatements() {
+            List<String> lines = new ArrayList<>();
+            String source = "source." + field;
+            switch (kind) {
+                case STRING:
+                    lines.add("interner.seed(" + source + ");");
+                    break;
+                case LIST_OF_STRING:
+                    lines.add("interner.seedList(" + source + ");");
+                    break;
+                case MAP_OF_MAPS:
+                    lines.add("interner.seedMapOfMaps(" + source + ");");
+                    break;
+                case NESTED:
+                    lines.add("if (" + source + " != null) {");
+                    lines.add("    " + type + "Binder.INSTANCE.seed(" + source + ", interner);");
+                    lines.add("}");
+                    break;
+                default:
+                    break;
+            }
+            return lines;
+        }
+
+        String copyStatement() {
+            String target = "target." + field;
+            String source = "source." + field;
+            switch (kind) {
+                case LIST_OF_STRING:
+                    return target + " = copyList(" + source + ");";
+                case MAP_OF_MAPS:
+                    return target + " = copyMapOfMaps(" + source + ");";
+                case NESTED:
+                    return target + " = " + source + " != null ? " + type + "Binder.INSTANCE.copy(" + source + ") : null;";
+                default:
+                    return target + " = " + source + ";";
+            }
+        }
+
+        /**
+         * Adds the parse statement, only executed if a value is given unless the property is
+         * required, so the current value of the field is kept when the setting is missing.
+         */
+        private void addParseIfPresent(List<String> lines, String statement) {
+            if (required) {
+                lines.add(statement);
+            } else {
+                lines.add("if (value != null) {");
+                lines.add("    " + statement);
+                lines.add("}");
+            }
+        }
+    }
+}
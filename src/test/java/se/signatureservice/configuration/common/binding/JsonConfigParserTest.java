@@ -0,0 +1,143 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link JsonConfigParser}.
+ */
+public class JsonConfigParserTest {
+
+    @Test
+    public void readsTokens() throws IOException {
+        JsonConfigParser parser = parser("{\"a\": [1, -2.5e+3, true, false, null], \"b\": {}, \"c\": \"x\"}");
+        assertEquals(ConfigToken.START_OBJECT, parser.next());
+        assertField(parser, "a");
+        assertEquals(ConfigToken.START_ARRAY, parser.next());
+        assertEquals(ConfigToken.VALUE_NUMBER, parser.next());
+        assertEquals("1", parser.getText());
+        assertEquals(ConfigToken.VALUE_NUMBER, parser.next());
+        assertEquals("-2.5e+3", parser.getText());
+        assertEquals(ConfigToken.VALUE_TRUE, parser.next());
+        assertEquals(ConfigToken.VALUE_FALSE, parser.next());
+        assertEquals(ConfigToken.VALUE_NULL, parser.next());
+        assertEquals(ConfigToken.END_ARRAY, parser.next());
+        assertField(parser, "b");
+        assertEquals(ConfigToken.START_OBJECT, parser.next());
+        assertEquals(ConfigToken.END_OBJECT, parser.next());
+        assertField(parser, "c");
+        assertEquals(ConfigToken.VALUE_STRING, parser.next());
+        assertEquals("x", parser.getText());
+        assertEquals(ConfigToken.END_OBJECT, parser.next());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void readsEscapes() throws IOException {
+        JsonConfigParser parser = parser("[\"\\\"\\\\\\/\\b\\f\\n\\r\\t\", \"\\u00e5\\u00C4\\u20ac\"]");
+        parser.next();
+        assertEquals(ConfigToken.VALUE_STRING, parser.next());
+        assertEquals("\"\\/\b\f\n\r\t", parser.getText());
+        assertEquals(ConfigToken.VALUE_STRING, parser.next());
+        assertEquals("\u00e5\u00c4\u20ac", parser.getText());
+    }
+
+    @Test
+    public void rejectsInvalidEscapes() {
+        assertInvalid("[\"\\x\"]");
+        assertInvalid("[\"\\u00g0\"]");
+        assertInvalid("[\"\\u00\"]");
+    }
+
+    @Test
+    public void readsValidNumbers() throws IOException {
+        for (String number : new String[]{"0", "-0", "7", "-120", "0.5", "-0.5e10", "1E5", "1e-5", "12.25E+2"}) {
+            JsonConfigParser parser = parser("[" + number + "]");
+            parser.next();
+            assertEquals(ConfigToken.VALUE_NUMBER, parser.next());
+            assertEquals(number, parser.getText());
+            assertEquals(ConfigToken.END_ARRAY, parser.next());
+        }
+    }
+
+    @Test
+    public void rejectsInvalidNumbers() {
+        for (String number : new String[]{"-", "1-2e", "01", "-01", "1.", ".5", "1e", "1e+", "1.e5", "+1", "1.2.3", "--1"}) {
+            assertInvalid("[" + number + "]");
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedDocuments() {
+        for (String document : new String[]{"{", "{\"a\"", "{\"a\":", "{\"a\": 1", "{\"a\": 1,", "[1, 2", "{\"a\": \"b", "[tru", "{\"a\": [{}"}) {
+            assertInvalid(document);
+        }
+    }
+
+    @Test
+    public void rejectsInvalidStructure() {
+        assertInvalid("{\"a\" 1}");
+        assertInvalid("{a: 1}");
+        assertInvalid("[1 2]");
+        assertInvalid("[1}");
+        assertInvalid("{} {}");
+    }
+
+    @Test
+    public void skipsChildren() throws IOException {
+        JsonConfigParser parser = parser("{\"a\": {\"b\": [1, {\"c\": 2}]}, \"d\": 3}");
+        parser.next();
+        assertField(parser, "a");
+        assertEquals(ConfigToken.START_OBJECT, parser.next());
+        parser.skipChildren();
+        assertField(parser, "d");
+        assertEquals(ConfigToken.VALUE_NUMBER, parser.next());
+        assertEquals("3", parser.getText());
+    }
+
+    @Test
+    public void reportsLine() {
+        IOException e = assertThrows(IOException.class, () -> readAll(parser("{\n\"a\": 1,\n\"b\": -\n}")));
+        assertTrue(e.getMessage().endsWith("at line 3"), e.getMessage());
+    }
+
+    private static JsonConfigParser parser(String json) {
+        return new JsonConfigParser(new StringReader(json));
+    }
+
+    private static void assertField(JsonConfigParser parser, String name) throws IOException {
+        assertEquals(ConfigToken.FIELD_NAME, parser.next());
+        assertEquals(name, parser.getText());
+    }
+
+    private static void assertInvalid(String json) {
+        assertThrows(IOException.class, () -> readAll(parser(json)), json);
+    }
+
+    private static void readAll(JsonConfigParser parser) throws IOException {
+        int tokens = 0;
+        while (parser.next() != null) {
+            tokens++;
+        }
+        assertTrue(tokens > 0);
+    }
+}
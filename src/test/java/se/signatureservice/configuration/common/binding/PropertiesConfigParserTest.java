@@ -0,0 +1,118 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.binding;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link PropertiesConfigParser}.
+ */
+public class PropertiesConfigParserTest {
+
+    @Test
+    public void readsSeparatorsAndComments() throws IOException {
+        Map<String, String> properties = readAll("# comment\n! comment\n\na=1\nb : 2\nc 3\n  d=  4  \ne=\nf\n");
+        assertEquals("1", properties.get("a"));
+        assertEquals("2", properties.get("b"));
+        assertEquals("3", properties.get("c"));
+        assertEquals("4", properties.get("d"));
+        assertEquals("", properties.get("e"));
+        assertEquals("", properties.get("f"));
+        assertEquals(6, properties.size());
+    }
+
+    @Test
+    public void readsEscapes() throws IOException {
+        Map<String, String> properties = readAll("a\\=b\\ c=x\\ty\\nz\\\\\nu=\\u00e5\\u00C4\\u20ac\nv=\\q\\#\\!\n");
+        assertEquals("x\ty\nz\\", properties.get("a=b c"));
+        assertEquals("\u00e5\u00c4\u20ac", properties.get("u"));
+        assertEquals("q#!", properties.get("v"));
+    }
+
+    @Test
+    public void readsContinuationLines() throws IOException {
+        Map<String, String> properties = readAll("a=one, \\\n    two, \\\r\n\tthree\nb=x\\\n\nc=y\n");
+        assertEquals("one, two, three", properties.get("a"));
+        assertEquals("x", properties.get("b"));
+        assertEquals("y", properties.get("c"));
+    }
+
+    @Test
+    public void readsLineBreaks() throws IOException {
+        Map<String, String> properties = readAll("a=1\r\nb=2\rc=3\n\r\nd=4");
+        assertEquals("1", properties.get("a"));
+        assertEquals("2", properties.get("b"));
+        assertEquals("3", properties.get("c"));
+        assertEquals("4", properties.get("d"));
+        assertEquals(4, properties.size());
+    }
+
+    @Test
+    public void matchesJavaProperties() throws IOException {
+        String document = "# profile\r\nsignRequester = https://app.example.com \r\nvisibleSignature.headline:Signed\\\r\n  by \\u00c5sa\n"
+                + "trustedAuthenticationServices.iDPTest.entityId\thttps://idp.example.com\n  \\  leading=\\ x\nkey\\:colon=1\\=2\n";
+        Properties expected = new Properties();
+        expected.load(new StringReader(document));
+        Map<String, String> properties = readAll(document);
+        assertEquals(expected.size(), properties.size());
+        for (String key : expected.stringPropertyNames()) {
+            assertEquals(expected.getProperty(key).trim(), properties.get(key), key);
+        }
+    }
+
+    @Test
+    public void reportsLines() throws IOException {
+        PropertiesConfigParser parser = parser("# comment\r\na=1\r\n\r\nb=x\\\r\n  y\r\nc=3\n");
+        assertTrue(parser.next());
+        assertEquals(2, parser.getLine());
+        assertTrue(parser.next());
+        assertEquals(4, parser.getLine());
+        assertTrue(parser.next());
+        assertEquals("c", parser.getKey());
+        assertEquals(6, parser.getLine());
+        assertFalse(parser.next());
+    }
+
+    @Test
+    public void readsTruncatedDocuments() throws IOException {
+        assertEquals("x", readAll("a=x\\").get("a"));
+        assertEquals("", readAll("a").get("a"));
+        assertThrows(IOException.class, () -> readAll("a=\\u00"));
+        assertThrows(IOException.class, () -> readAll("a=\\u00g0\n"));
+        assertThrows(IOException.class, () -> readAll("\\u12"));
+    }
+
+    private static PropertiesConfigParser parser(String properties) {
+        return new PropertiesConfigParser(new StringReader(properties));
+    }
+
+    private static Map<String, String> readAll(String properties) throws IOException {
+        PropertiesConfigParser parser = parser(properties);
+        Map<String, String> result = new LinkedHashMap<>();
+        while (parser.next()) {
+            result.put(parser.getKey(), parser.getValue());
+        }
+        return result;
+    }
+}
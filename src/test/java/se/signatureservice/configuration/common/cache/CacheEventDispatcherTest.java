@@ -0,0 +1,151 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link CacheEventDispatcher}, delivering on a manually driven executor.
+ */
+public class CacheEventDispatcherTest {
+
+    private final ManualExecutor executor = new ManualExecutor();
+    private final CacheEventDispatcher dispatcher = new CacheEventDispatcher(executor);
+    private final List<CacheEventBatch> batches = new ArrayList<>();
+
+    @Test
+    public void deliversEventsInOrderedBatches() {
+        CacheEventSubscription subscription = dispatcher.subscribe(batches::add, 10, 2);
+        dispatcher.publish(CacheEventType.INSERT, null, "a");
+        dispatcher.publish(CacheEventType.UPDATE, "ctx", "a");
+        dispatcher.publish(CacheEventType.DELETE, null, "a");
+        assertEquals(1, executor.tasks.size());
+        assertEquals(3, subscription.getPendingEvents());
+
+        executor.runAll();
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).getEvents().size());
+        assertEquals(CacheEventType.INSERT, batches.get(0).getEvents().get(0).getType());
+        assertEquals("ctx", batches.get(0).getEvents().get(1).getContextId());
+        assertEquals(CacheEventType.DELETE, batches.get(1).getEvents().get(0).getType());
+        assertEquals(0, batches.get(1).getDroppedEvents());
+        assertEquals(0, subscription.getPendingEvents());
+    }
+
+    @Test
+    public void countsDroppedEvents() {
+        CacheEventSubscription subscription = dispatcher.subscribe(batches::add, 2, 10);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.publish(CacheEventType.INSERT, null, "key" + i);
+        }
+        assertEquals(3, subscription.getDroppedEvents());
+        assertEquals(2, subscription.getPendingEvents());
+
+        executor.runAll();
+
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).getEvents().size());
+        assertEquals("key0", batches.get(0).getEvents().get(0).getKey());
+        assertEquals(3, batches.get(0).getDroppedEvents());
+
+        dispatcher.publish(CacheEventType.INSERT, null, "next");
+        executor.runAll();
+        assertEquals(0, batches.get(1).getDroppedEvents());
+        assertEquals(3, subscription.getDroppedEvents());
+    }
+
+    @Test
+    public void reportsForwardedEventsAndDrops() {
+        CacheEventSubscription subscription = dispatcher.subscribe(batches::add, 10, 10);
+        CacheEvent event = new CacheEvent(CacheEventType.EXPIRE, null, "a", 1234L);
+        dispatcher.publishDropped(4);
+        dispatcher.publish(event);
+
+        executor.runAll();
+
+        assertEquals(1, batches.size());
+        assertEquals(1234L, batches.get(0).getEvents().get(0).getTimestamp());
+        assertEquals(4, batches.get(0).getDroppedEvents());
+        assertEquals(4, subscription.getDroppedEvents());
+    }
+
+    @Test
+    public void closeStopsDelivery() {
+        CacheEventSubscription subscription = dispatcher.subscribe(batches::add, 10, 10);
+        CacheEventSubscription other = dispatcher.subscribe(batch -> { }, 10, 10);
+        dispatcher.publish(CacheEventType.INSERT, null, "a");
+        subscription.close();
+        dispatcher.publish(CacheEventType.INSERT, null, "b");
+        executor.runAll();
+
+        assertTrue(subscription.isClosed());
+        assertEquals(0, subscription.getPendingEvents());
+        assertTrue(batches.isEmpty());
+        assertTrue(dispatcher.hasSubscribers());
+
+        dispatcher.close();
+        assertTrue(other.isClosed());
+        assertFalse(dispatcher.hasSubscribers());
+    }
+
+    @Test
+    public void failingListenerKeepsReceivingBatches() {
+        dispatcher.subscribe(batch -> {
+            batches.add(batch);
+            throw new IllegalStateException("listener failure");
+        }, 10, 1);
+        dispatcher.publish(CacheEventType.INSERT, null, "a");
+        dispatcher.publish(CacheEventType.INSERT, null, "b");
+        executor.runAll();
+
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void rejectsInvalidSubscriptions() {
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.subscribe(null, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.subscribe(batches::add, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.subscribe(batches::add, 10, 0));
+    }
+
+    /**
+     * Executor running tasks only when asked to.
+     */
+    private static final class ManualExecutor implements Executor {
+        final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import org.junit.jupiter.api.Test;
+import se.signatureservice.configuration.common.InvalidArgumentException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static se.signatureservice.configuration.common.cache.ShardedCacheProviderTest.waitFor;
+
+/**
+ * Unit tests for the atomic operations, change events and scans of {@link InMemoryCacheProvider}.
+ */
+public class InMemoryCacheProviderTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void publishesExpireBeforeReplacingExpiredEntries() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        List<CacheEvent> events = Collections.synchronizedList(new ArrayList<>());
+        cache.subscribe(batch -> events.addAll(batch.getEvents()), 100, 10);
+
+        cache.set("counter", "5", new MetaData(0));
+        assertEquals(2, cache.incrementAndGet("counter", 2, null));
+        cache.set("cas", "old", new MetaData(0));
+        assertTrue(cache.setIfAbsent("cas", "new", null));
+        cache.set("put", "old", new MetaData(0));
+        cache.set("put", "new");
+        waitFor(() -> events.size() == 9);
+
+        List<CacheEventType> types = new ArrayList<>();
+        for (CacheEvent event : events) {
+            types.add(event.getType());
+        }
+        List<CacheEventType> replaced = List.of(CacheEventType.INSERT, CacheEventType.EXPIRE, CacheEventType.INSERT);
+        List<CacheEventType> expected = new ArrayList<>(replaced);
+        expected.addAll(replaced);
+        expected.addAll(replaced);
+        assertEquals(expected, types);
+        assertEquals(3, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void incrementsCountersConcurrently() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        List<CacheEvent> events = Collections.synchronizedList(new ArrayList<>());
+        cache.subscribe(batch -> events.addAll(batch.getEvents()), 100000, 1000);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                cache.incrementAndGet("counter", 1, null);
+                cache.incrementAndGet("context", "counter", -1, null);
+            }
+            return null;
+        });
+        assertEquals("8000", cache.get("counter"));
+        assertEquals("-8000", cache.get("context", "counter"));
+        assertEquals(2, cache.size());
+
+        waitFor(() -> events.size() == 16000);
+        int inserts = 0;
+        for (CacheEvent event : events) {
+            if (event.getType() == CacheEventType.INSERT) {
+                inserts++;
+            }
+        }
+        assertEquals(2, inserts);
+        cache.close();
+    }
+
+    @Test
+    public void comparesAndSetsConcurrently() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        cache.set("value", "0");
+        List<Object> created = runConcurrently(() -> {
+            for (int i = 0; i < 500; i++) {
+                String current;
+                do {
+                    current = cache.get("value");
+                } while (!cache.compareAndSet("value", current, Integer.toString(Integer.parseInt(current) + 1), null));
+            }
+            return cache.setIfAbsent("once", Thread.currentThread().getName(), null);
+        });
+        assertEquals("4000", cache.get("value"));
+        assertEquals(1, Collections.frequency(created, Boolean.TRUE));
+        assertFalse(cache.compareAndSet("value", "3999", "0", null));
+        assertEquals(2, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void rejectsInvalidCounters() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        cache.set("text", "abc");
+        cache.set("max", Long.toString(Long.MAX_VALUE));
+        assertThrows(InvalidArgumentException.class, () -> cache.incrementAndGet("text", 1, null));
+        assertThrows(InvalidArgumentException.class, () -> cache.incrementAndGet("max", 1, null));
+        assertEquals("abc", cache.get("text"));
+        assertEquals(Long.toString(Long.MAX_VALUE), cache.get("max"));
+        cache.close();
+    }
+
+    @Test
+    public void scansPagesWithFilters() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        for (int i = 0; i < 50; i++) {
+            cache.set(String.format("a%02d", i), "value");
+            cache.set(String.format("b%02d", i), "value");
+            cache.set("context", String.format("a%02d", i), "value");
+            cache.set("other", String.format("a%02d", i), "value");
+        }
+        cache.set("a-expired", "value", new MetaData(0));
+
+        assertEquals(200, scanAll(cache, null, null, 9).size());
+        List<CacheEntryKey> prefixed = scanAll(cache, null, "a", 9);
+        assertEquals(150, prefixed.size());
+        for (CacheEntryKey key : prefixed) {
+            assertTrue(key.getKey().startsWith("a"), key.getKey());
+        }
+        List<CacheEntryKey> context = scanAll(cache, "context", "a4", 3);
+        assertEquals(10, context.size());
+        for (CacheEntryKey key : context) {
+            assertEquals("context", key.getContextId());
+        }
+        assertEquals(0, scanAll(cache, "missing", null, 3).size());
+        assertThrows(InvalidArgumentException.class, () -> cache.scan(null, null, null, 0));
+        assertThrows(InvalidArgumentException.class, () -> cache.scan(null, null, "not a cursor", 10));
+        cache.close();
+    }
+
+    @Test
+    public void limitsEntriesExaminedByOneScan() throws Exception {
+        InMemoryCacheProvider cache = new InMemoryCacheProvider();
+        for (int i = 0; i < 100; i++) {
+            cache.set(String.format("a%03d", i), "value");
+        }
+        cache.set("b", "value");
+        CacheScanPage page = cache.scan(null, "b", null, 1);
+        assertEquals(0, page.getKeys().size());
+        assertTrue(page.getNextCursor() != null);
+        assertEquals(1, scanAll(cache, null, "b", 1).size());
+
+        page = cache.scan(null, null, null, Integer.MAX_VALUE);
+        assertEquals(101, page.getKeys().size());
+        assertEquals(null, page.getNextCursor());
+        cache.close();
+    }
+
+    private static List<CacheEntryKey> scanAll(InMemoryCacheProvider cache, String contextId, String keyPrefix, int pageSize) throws Exception {
+        List<CacheEntryKey> keys = new ArrayList<>();
+        String cursor = null;
+        do {
+            CacheScanPage page = cache.scan(contextId, keyPrefix, cursor, pageSize);
+            assertTrue(page.getKeys().size() <= pageSize);
+            keys.addAll(page.getKeys());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(keys.size(), new HashSet<>(keys).size());
+        return keys;
+    }
+
+    /**
+     * Run the task on several threads started at the same time.
+     *
+     * @return the result of each thread.
+     */
+    private static List<Object> runConcurrently(Callable<Object> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.cache;
+
+import org.junit.jupiter.api.Test;
+import se.signatureservice.configuration.common.InvalidArgumentException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ShardedCacheProvider} using {@link InMemoryCacheProvider} delegates.
+ */
+public class ShardedCacheProviderTest {
+
+    @Test
+    public void deliversEventsOfAllShardsOneBatchAtATime() throws Exception {
+        ShardedCacheProvider cache = newCache(4);
+        AtomicBoolean inProgress = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        List<CacheEvent> events = Collections.synchronizedList(new ArrayList<>());
+        CacheEventSubscription subscription = cache.subscribe(batch -> {
+            if (!inProgress.compareAndSet(false, true)) {
+                overlapped.set(true);
+            }
+            events.addAll(batch.getEvents());
+            Thread.yield();
+            inProgress.set(false);
+        }, 10000, 7);
+
+        for (int i = 0; i < 200; i++) {
+            cache.set("key" + i, "value");
+            cache.delete("key" + i);
+        }
+        waitFor(() -> events.size() == 400);
+
+        assertFalse(overlapped.get());
+        Map<String, List<CacheEventType>> byKey = new HashMap<>();
+        for (CacheEvent event : events) {
+            byKey.computeIfAbsent(event.getKey(), k -> new ArrayList<>()).add(event.getType());
+        }
+        assertEquals(200, byKey.size());
+        for (List<CacheEventType> types : byKey.values()) {
+            assertEquals(List.of(CacheEventType.INSERT, CacheEventType.DELETE), types);
+        }
+        assertEquals(0, subscription.getDroppedEvents());
+        subscription.close();
+        cache.close();
+    }
+
+    @Test
+    public void subscribesShardsAddedLater() throws Exception {
+        ShardedCacheProvider cache = newCache(2);
+        List<CacheEvent> events = Collections.synchronizedList(new ArrayList<>());
+        CacheEventSubscription subscription = cache.subscribe(batch -> events.addAll(batch.getEvents()), 100, 10);
+
+        InMemoryCacheProvider added = new InMemoryCacheProvider();
+        cache.addShard("added", added);
+        String key = keyOnShard(cache, "added");
+        cache.set(key, "value");
+        waitFor(() -> events.size() == 1);
+        assertEquals(key, events.get(0).getKey());
+
+        InMemoryCacheProvider removed = (InMemoryCacheProvider) cache.removeShard("shard0");
+        removed.set("direct", "value");
+        cache.set(key, "updated");
+        waitFor(() -> events.size() == 2);
+        assertEquals(CacheEventType.UPDATE, events.get(1).getType());
+        Thread.sleep(50);
+        assertEquals(2, events.size());
+
+        subscription.close();
+        cache.close();
+    }
+
+    @Test
+    public void reportsEveryEventAsDeliveredOrDropped() throws Exception {
+        ShardedCacheProvider cache = newCache(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong delivered = new AtomicLong();
+        AtomicLong reportedDropped = new AtomicLong();
+        CacheEventSubscription subscription = cache.subscribe(batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.addAndGet(batch.getEvents().size());
+            reportedDropped.addAndGet(batch.getDroppedEvents());
+        }, 5, 2);
+
+        for (int i = 0; i < 100; i++) {
+            cache.set("key" + i, "value");
+        }
+        waitFor(() -> subscription.getDroppedEvents() > 0);
+        release.countDown();
+        waitFor(() -> delivered.get() + reportedDropped.get() == 100);
+
+        assertEquals(subscription.getDroppedEvents(), reportedDropped.get());
+        assertEquals(0, subscription.getPendingEvents());
+        subscription.close();
+        cache.close();
+    }
+
+    @Test
+    public void closeStopsDeliveryFromAllShards() throws Exception {
+        ShardedCacheProvider cache = newCache(3);
+        List<CacheEvent> events = Collections.synchronizedList(new ArrayList<>());
+        CacheEventSubscription subscription = cache.subscribe(batch -> events.addAll(batch.getEvents()), 100, 10);
+        subscription.close();
+        assertTrue(subscription.isClosed());
+
+        for (int i = 0; i < 20; i++) {
+            cache.set("key" + i, "value");
+        }
+        cache.addShard("added", new InMemoryCacheProvider());
+        cache.set(keyOnShard(cache, "added"), "value");
+        Thread.sleep(50);
+        assertTrue(events.isEmpty());
+        assertEquals(0, subscription.getPendingEvents());
+        cache.close();
+    }
+
+    @Test
+    public void distributesKeysEvenlyOverShards() throws Exception {
+        ShardedCacheProvider cache = newCache(4);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            counts.merge(cache.getShardName(null, "key" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 3500 && count < 6500, "Uneven distribution " + counts);
+        }
+    }
+
+    @Test
+    public void movesOnlyKeysOfAddedOrRemovedShard() throws Exception {
+        ShardedCacheProvider cache = newCache(4);
+        Map<String, String> before = shardsOf(cache, 10000);
+
+        cache.addShard("shard4", new InMemoryCacheProvider());
+        Map<String, String> added = shardsOf(cache, 10000);
+        int moved = 0;
+        for (Map.Entry<String, String> entry : added.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                assertEquals("shard4", entry.getValue());
+                moved++;
+            }
+        }
+        assertTrue(moved > 1000 && moved < 3000, "Moved " + moved + " of 10000 keys");
+
+        cache.removeShard("shard4");
+        assertEquals(before, shardsOf(cache, 10000));
+
+        cache.removeShard("shard1");
+        for (Map.Entry<String, String> entry : shardsOf(cache, 10000).entrySet()) {
+            String previous = before.get(entry.getKey());
+            assertTrue(previous.equals("shard1") || previous.equals(entry.getValue()), entry.getKey());
+        }
+    }
+
+    @Test
+    public void routesEntriesOfAContextToOneShard() throws Exception {
+        ShardedCacheProvider cache = newCache(4);
+        String shardName = cache.getShardName("context", "key0");
+        for (int i = 0; i < 50; i++) {
+            cache.set("context", "key" + i, "value" + i);
+            assertEquals(shardName, cache.getShardName("context", "key" + i));
+        }
+        assertEquals("value7", cache.get("context", "key7"));
+        assertEquals(null, cache.get("key7"));
+        for (String name : cache.getShardNames()) {
+            InMemoryCacheProvider shard = (InMemoryCacheProvider) cache.shardFor(null, keyOnShard(cache, name));
+            assertEquals(name.equals(shardName) ? 50 : 0, shard.size(), name);
+        }
+
+        CacheScanPage page = cache.scan("context", "key1", null, 100);
+        assertEquals(11, page.getKeys().size());
+        assertEquals(null, page.getNextCursor());
+        cache.close();
+    }
+
+    @Test
+    public void scansAllShardsWithCursors() throws Exception {
+        ShardedCacheProvider cache = newCache(3);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String key = i % 10 == 0 ? "line\nbreak" + i : "key" + i;
+            cache.set(key, "value");
+            expected.add(key);
+        }
+        cache.set("context", "key", "value");
+
+        List<String> scanned = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CacheScanPage page = cache.scan(null, null, cursor, 7);
+            for (CacheEntryKey key : page.getKeys()) {
+                if (key.getContextId() == null) {
+                    scanned.add(key.getKey());
+                }
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        assertTrue(pages >= 15, "Scanned in " + pages + " pages");
+        Collections.sort(expected);
+        Collections.sort(scanned);
+        assertEquals(expected, scanned);
+        cache.close();
+    }
+
+    @Test
+    public void roundTripsShardCursors() throws Exception {
+        String[] decoded = ShardedCacheProvider.decodeShardCursor(ShardedCacheProvider.encodeShardCursor("shard1", "a\nb\n"));
+        assertEquals("shard1", decoded[0]);
+        assertEquals("a\nb\n", decoded[1]);
+        decoded = ShardedCacheProvider.decodeShardCursor(ShardedCacheProvider.encodeShardCursor("shard\u00e5", null));
+        assertEquals("shard\u00e5", decoded[0]);
+        assertEquals(null, decoded[1]);
+
+        ShardedCacheProvider cache = newCache(2);
+        assertThrows(InvalidArgumentException.class, () -> cache.scan(null, null, "not a cursor", 10));
+        assertThrows(InvalidArgumentException.class, () -> cache.scan(null, null,
+                Base64.getUrlEncoder().encodeToString("no separator".getBytes(StandardCharsets.UTF_8)), 10));
+        assertThrows(InvalidArgumentException.class, () -> cache.addShard("line\nbreak", new InMemoryCacheProvider()));
+    }
+
+    static ShardedCacheProvider newCache(int shardCount) {
+        Map<String, CacheProvider> shards = new LinkedHashMap<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.put("shard" + i, new InMemoryCacheProvider());
+        }
+        return new ShardedCacheProvider(shards);
+    }
+
+    private static Map<String, String> shardsOf(ShardedCacheProvider cache, int keyCount) throws Exception {
+        Map<String, String> shards = new HashMap<>();
+        for (int i = 0; i < keyCount; i++) {
+            shards.put("key" + i, cache.getShardName(null, "key" + i));
+        }
+        return shards;
+    }
+
+    static String keyOnShard(ShardedCacheProvider cache, String shardName) throws Exception {
+        for (int i = 0; ; i++) {
+            if (cache.getShardName(null, "key" + i).equals(shardName)) {
+                return "key" + i;
+            }
+        }
+    }
+
+    static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
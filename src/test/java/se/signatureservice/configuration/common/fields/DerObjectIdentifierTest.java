@@ -0,0 +1,105 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.fields;
+
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.Oid;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link DerObjectIdentifier}, comparing the encoding with {@link Oid}.
+ */
+public class DerObjectIdentifierTest {
+
+    @Test
+    public void encodesLikeJgss() throws GSSException {
+        UUID uuid = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+        BigInteger uuidArc = new BigInteger(1, ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array());
+        String[] oids = {
+                "2.5.4.3",
+                "0.0",
+                "1.39",
+                "2.999.3",
+                "1.2.840.113549.1.9.1",
+                "0.9.2342.19200300.100.1.1",
+                "1.3.6.1.4.1.311.60.2.1.3",
+                "1.2.127.128.16383.16384",
+                "1.2.999999999999999999",
+                "1.2.9223372036854775807",
+                "1.2.18446744073709551616",
+                "2.25." + uuidArc,
+                "2.100000000000000000000.1",
+        };
+        for (String oid : oids) {
+            DerObjectIdentifier encoded = DerObjectIdentifier.encode(oid);
+            assertArrayEquals(new Oid(oid).getDER(), encoded.getEncoded(), oid);
+            assertEquals(oid, encoded.getOid());
+            assertEquals(encoded.getEncoded().length, encoded.getLength());
+        }
+    }
+
+    @Test
+    public void encodesLongLengthForms() throws GSSException {
+        StringBuilder oid = new StringBuilder("1.2");
+        for (int i = 0; i < 100; i++) {
+            oid.append(".123456");
+            if (i == 40 || i == 99) {
+                DerObjectIdentifier encoded = DerObjectIdentifier.encode(oid.toString());
+                assertArrayEquals(new Oid(oid.toString()).getDER(), encoded.getEncoded(), oid.toString());
+            }
+        }
+    }
+
+    @Test
+    public void writesEncodedForm() {
+        DerObjectIdentifier encoded = DerObjectIdentifier.encode("2.5.4.3");
+        byte[] expected = {0x06, 0x03, 0x55, 0x04, 0x03};
+        byte[] buffer = new byte[7];
+        assertEquals(6, encoded.writeTo(buffer, 1));
+        assertArrayEquals(expected, Arrays.copyOfRange(buffer, 1, 6));
+        ByteBuffer byteBuffer = ByteBuffer.allocate(5);
+        encoded.writeTo(byteBuffer);
+        assertArrayEquals(expected, byteBuffer.array());
+        assertEquals(encoded, DerObjectIdentifier.encode("2.5.4.3"));
+    }
+
+    @Test
+    public void rejectsInvalidIdentifiers() {
+        for (String oid : new String[]{"", "1", "3.1", "1.40", "0.100000000000000000000", "1.01", "1..2", "1.2.", ".1.2", "1.a", "1.-2", "1.2.+3"}) {
+            assertThrows(IllegalArgumentException.class, () -> DerObjectIdentifier.encode(oid), oid);
+        }
+        assertThrows(IllegalArgumentException.class, () -> DerObjectIdentifier.encode(null));
+    }
+
+    @Test
+    public void rejectsContentLongerThan65535Bytes() {
+        // One byte for the first two arcs and one for each following arc.
+        StringBuilder oid = new StringBuilder("1.2");
+        for (int i = 1; i < 0xffff; i++) {
+            oid.append(".1");
+        }
+        assertEquals(4 + 0xffff, DerObjectIdentifier.encode(oid.toString()).getLength());
+        oid.append(".1");
+        assertThrows(IllegalArgumentException.class, () -> DerObjectIdentifier.encode(oid.toString()));
+    }
+}
@@ -0,0 +1,70 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link ColorParser}.
+ */
+public class ColorParserTest {
+
+    @Test
+    public void parsesRgbAsOpaque() {
+        assertEquals(0xff000000, ColorParser.parseArgb("#000000"));
+        assertEquals(0xffffffff, ColorParser.parseArgb("#ffffff"));
+        assertEquals(0xffff1ab4, ColorParser.parseArgb("#FF1AB4"));
+        assertEquals(0xff123456, ColorParser.parseArgb("123456"));
+    }
+
+    @Test
+    public void parsesRgbaIntoArgb() {
+        assertEquals(0x55c3c3c3, ColorParser.parseArgb("#c3c3c355"));
+        assertEquals(0x00ffffff, ColorParser.parseArgb("ffffff00"));
+        assertEquals(0x80123456, ColorParser.parseArgb(new StringBuilder("#12345680")));
+    }
+
+    @Test
+    public void rejectsInvalidInput() {
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb(null));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb(""));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#12345"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#1234567"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("##123456"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("-12345"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#12345g"));
+        assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#12345\u0661"));
+
+        NumberFormatException e = assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#0g0000"));
+        assertEquals("Cannot parse input: invalid hex digit 'g' in #0g0000", e.getMessage());
+        e = assertThrows(NumberFormatException.class, () -> ColorParser.parseArgb("#fff"));
+        assertEquals("Input has invalid length: #fff", e.getMessage());
+    }
+
+    @Test
+    public void parsesColors() {
+        assertSame(Color.BLACK, ColorParser.parse("#000000"));
+        assertSame(Color.WHITE, ColorParser.parse("#FFFFFF"));
+        Color color = ColorParser.parse("#c3c3c355");
+        assertEquals(0xc3, color.getRed());
+        assertEquals(0x55, color.getAlpha());
+        assertEquals(ColorParser.parseArgb("#c3c3c355"), color.getRGB());
+    }
+}
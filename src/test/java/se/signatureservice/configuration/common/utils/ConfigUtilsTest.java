@@ -0,0 +1,133 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.common.utils;
+
+import org.junit.jupiter.api.Test;
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the primitive parse methods of {@link ConfigUtils}.
+ */
+public class ConfigUtilsTest {
+
+    private static final String ERROR = "Invalid value";
+
+    @Test
+    public void parsesIntValues() throws Exception {
+        assertEquals(0, ConfigUtils.parseIntValue("0", ERROR, true, 1));
+        assertEquals(0, ConfigUtils.parseIntValue("-0", ERROR, true, 1));
+        assertEquals(5, ConfigUtils.parseIntValue("+5", ERROR, true, 1));
+        assertEquals(-42, ConfigUtils.parseIntValue("-42", ERROR, true, 1));
+        assertEquals(Integer.MAX_VALUE, ConfigUtils.parseIntValue("2147483647", ERROR, true, 1));
+        assertEquals(Integer.MIN_VALUE, ConfigUtils.parseIntValue("-2147483648", ERROR, true, 1));
+        assertEquals(123, ConfigUtils.parseIntValue(new StringBuilder("123"), ERROR, true, 1));
+        assertEquals(7, ConfigUtils.parseIntValue(7, ERROR, true, 1));
+    }
+
+    @Test
+    public void rejectsInvalidIntValues() {
+        for (String value : new String[]{"-", "+", "2147483648", "-2147483649", "12a", " 1", "1.5", "99999999999"}) {
+            InternalErrorException e = assertThrows(InternalErrorException.class, () -> ConfigUtils.parseIntValue(value, ERROR, false, 1));
+            assertEquals(ERROR, e.getMessage());
+        }
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseIntValue(1.5f, ERROR, false, 1));
+    }
+
+    @Test
+    public void intValuesMatchParseInteger() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            String value = Integer.toString(random.nextInt());
+            assertEquals(ConfigUtils.parseInteger(value, ERROR).intValue(), ConfigUtils.parseIntValue(value, ERROR, true, 0));
+        }
+    }
+
+    @Test
+    public void parsesLongValues() throws Exception {
+        assertEquals(Long.MAX_VALUE, ConfigUtils.parseLongValue("9223372036854775807", ERROR, true, 1L));
+        assertEquals(Long.MIN_VALUE, ConfigUtils.parseLongValue("-9223372036854775808", ERROR, true, 1L));
+        assertEquals(2147483648L, ConfigUtils.parseLongValue(new StringBuilder("2147483648"), ERROR, true, 1L));
+        assertEquals(7L, ConfigUtils.parseLongValue(7, ERROR, true, 1L));
+        assertEquals(7L, ConfigUtils.parseLongValue(7L, ERROR, true, 1L));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseLongValue("9223372036854775808", ERROR, true, 1L));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseLongValue("-9223372036854775809", ERROR, true, 1L));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseLongValue("1x", ERROR, true, 1L));
+    }
+
+    @Test
+    public void parsesFloatValues() throws Exception {
+        assertEquals(12.5f, ConfigUtils.parseFloatValue("12.5", ERROR, true, 1f));
+        assertEquals(-0.75f, ConfigUtils.parseFloatValue("-0.75", ERROR, true, 1f));
+        assertEquals(9f, ConfigUtils.parseFloatValue(new StringBuilder("9"), ERROR, true, 1f));
+        assertEquals(0.1f, ConfigUtils.parseFloatValue("0.1", ERROR, true, 1f));
+        assertEquals(12.5f, ConfigUtils.parseFloatValue("00012.50", ERROR, true, 1f));
+        assertEquals(2.5f, ConfigUtils.parseFloatValue(2.5d, ERROR, true, 1f));
+        assertEquals(-0f, ConfigUtils.parseFloatValue("-0", ERROR, true, 1f));
+    }
+
+    @Test
+    public void parsesOtherFloatFormats() throws Exception {
+        assertEquals(1000f, ConfigUtils.parseFloatValue("1e3", ERROR, true, 1f));
+        assertEquals(12f, ConfigUtils.parseFloatValue("12.", ERROR, true, 1f));
+        assertEquals(0.5f, ConfigUtils.parseFloatValue(".5", ERROR, true, 1f));
+        assertEquals(123456789f, ConfigUtils.parseFloatValue("123456789", ERROR, true, 1f));
+        assertTrue(Float.isNaN(ConfigUtils.parseFloatValue("NaN", ERROR, true, 1f)));
+        for (String value : new String[]{"-", "abc", "1..2", "1.2.3"}) {
+            assertThrows(InternalErrorException.class, () -> ConfigUtils.parseFloatValue(value, ERROR, true, 1f));
+        }
+    }
+
+    @Test
+    public void floatValuesMatchFloatParseFloat() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            String digits = Integer.toString(random.nextInt(10000000));
+            int decimals = random.nextInt(Math.min(digits.length(), 10) + 1);
+            String value = decimals == 0 ? digits : digits.substring(0, digits.length() - decimals) + "." + digits.substring(digits.length() - decimals);
+            if (random.nextBoolean()) {
+                value = "-" + value;
+            }
+            assertEquals(Float.parseFloat(value), ConfigUtils.parseFloatValue(value, ERROR, true, 0f), value);
+        }
+    }
+
+    @Test
+    public void parsesBooleanValues() throws Exception {
+        assertTrue(ConfigUtils.parseBooleanValue("true", ERROR, true, false));
+        assertTrue(ConfigUtils.parseBooleanValue(" TRUE ", ERROR, true, false));
+        assertFalse(ConfigUtils.parseBooleanValue(new StringBuilder("False"), ERROR, true, true));
+        assertTrue(ConfigUtils.parseBooleanValue(Boolean.TRUE, ERROR, true, false));
+        for (String value : new String[]{"yes", "1", "tru", "truex", "   "}) {
+            assertThrows(InternalErrorException.class, () -> ConfigUtils.parseBooleanValue(value, ERROR, true, false));
+        }
+    }
+
+    @Test
+    public void usesDefaultForMissingValues() throws Exception {
+        assertEquals(3, ConfigUtils.parseIntValue(null, ERROR, false, 3));
+        assertEquals(3, ConfigUtils.parseIntValue("", ERROR, false, 3));
+        assertEquals(3L, ConfigUtils.parseLongValue(new StringBuilder(), ERROR, false, 3L));
+        assertEquals(3f, ConfigUtils.parseFloatValue(null, ERROR, false, 3f));
+        assertTrue(ConfigUtils.parseBooleanValue("", ERROR, false, true));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseIntValue(null, ERROR, true, 3));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseFloatValue("", ERROR, true, 3f));
+        assertThrows(InternalErrorException.class, () -> ConfigUtils.parseBooleanValue(null, ERROR, true, true));
+    }
+}
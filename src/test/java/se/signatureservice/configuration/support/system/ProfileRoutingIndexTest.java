@@ -0,0 +1,68 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import org.junit.jupiter.api.Test;
+import se.signatureservice.configuration.common.InternalErrorException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link ProfileRoutingIndex}.
+ */
+public class ProfileRoutingIndexTest {
+
+    @Test
+    public void findsProfilesByExactConsumerURL() throws InternalErrorException {
+        Map<String, CompiledSupportProfile> profiles = new HashMap<>();
+        profiles.put("b", profile("requester", "https://app.example.com/sign", "https://APP.example.com:443/sign"));
+        profiles.put("a", profile("requester", "https://app.example.com/sign"));
+        ProfileRoutingIndex index = new ProfileRoutingIndex(profiles);
+
+        assertEquals(List.of("a", "b"), index.findByConsumerURL("https://app.example.com/sign"));
+        assertEquals(List.of("a", "b"), index.findByConsumerURL("HTTPS://app.example.com:443/sign"));
+        assertEquals(List.of(), index.findByConsumerURL("https://app.example.com/other"));
+        assertEquals(List.of(), index.findByConsumerURL(null));
+        assertEquals(List.of("a", "b"), index.findBySignRequester("requester"));
+    }
+
+    @Test
+    public void findsProfilesByConsumerURLPrefix() throws InternalErrorException {
+        Map<String, CompiledSupportProfile> profiles = new HashMap<>();
+        profiles.put("host", profile("host", "https://app.example.com/*"));
+        profiles.put("path", profile("path", "https://APP.example.com/sign/*", "https://app.example.com/sign/v2/*"));
+        profiles.put("exact", profile("exact", "https://app.example.com/sign/response"));
+        profiles.put("other", profile("other", "https://other.example.com/*", "urn:app:*"));
+        ProfileRoutingIndex index = new ProfileRoutingIndex(profiles);
+
+        assertEquals(List.of("exact", "host", "path"), index.findByConsumerURL("https://app.example.com/sign/response"));
+        assertEquals(List.of("host", "path"), index.findByConsumerURL("https://app.example.com:443/sign/v2/response"));
+        assertEquals(List.of("host"), index.findByConsumerURL("https://app.example.com/"));
+        assertEquals(List.of("host"), index.findByConsumerURL("https://app.example.com"));
+        assertEquals(List.of("other"), index.findByConsumerURL("urn:app:response"));
+        assertEquals(List.of(), index.findByConsumerURL("https://app.example.com.evil.com/sign"));
+        assertEquals(List.of(), index.findByConsumerURL("https://user@app.example.com/sign"));
+    }
+
+    private static CompiledSupportProfile profile(String signRequester, String... consumerURLs) throws InternalErrorException {
+        Map<String, Object> config = new HashMap<>();
+        config.put("signRequester", signRequester);
+        config.put("authorizedCentralServiceEntityIds", List.of("https://central.example.com/idp"));
+        config.put("authorizedConsumerURLs", List.of(consumerURLs));
+        return CompiledSupportProfile.compile(config);
+    }
+}
@@ -0,0 +1,66 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link SupportProfileBulkLoader}.
+ */
+public class SupportProfileBulkLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void loadsBoundAndInheritingProfiles() throws IOException {
+        write("base", SupportProfileRegistryTest.REQUIRED + "signRequester=base\n");
+        write("child", "relatedProfile=base\nsignServiceId=child\n");
+        write("grandchild", "relatedProfile=child\n");
+        write("other", SupportProfileRegistryTest.REQUIRED + "relatedProfile=other\nsignRequester=other\n");
+        write("invalid", SupportProfileRegistryTest.REQUIRED + "signatureValidityMinutes=soon\n");
+        write("orphan", "relatedProfile=invalid\n");
+        write("incomplete", "signRequester=incomplete\n");
+
+        BulkLoadResult result;
+        try (SupportProfileBulkLoader loader = new SupportProfileBulkLoader()) {
+            result = loader.loadFiles(Collections.singletonList(directory), null);
+        }
+        assertEquals(List.of("base", "child", "grandchild", "other"), List.copyOf(result.getProfiles().keySet()));
+        assertEquals("base", result.getProfiles().get("grandchild").getSignRequester());
+        assertEquals("child", result.getProfiles().get("grandchild").getSignServiceId());
+        assertEquals("child", result.getProfiles().get("grandchild").getParentProfile());
+        assertEquals("other", result.getProfiles().get("other").getRelatedProfile());
+
+        assertEquals(List.of("incomplete", "invalid", "orphan"), List.copyOf(result.getErrors().keySet()));
+        assertEquals(1, result.getErrors().get("invalid").size());
+        assertTrue(result.getErrors().get("invalid").get(0).contains("signatureValidityMinutes"), result.toString());
+        assertTrue(result.getErrors().get("orphan").get(0).contains("is invalid"), result.toString());
+        assertTrue(result.getErrors().get("incomplete").get(0).contains("authorizedConsumerURLs"), result.toString());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(directory.resolve(name + ".properties"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,126 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link SupportProfileRegistry}.
+ */
+public class SupportProfileRegistryTest {
+
+    static final String REQUIRED = "authorizedCentralServiceEntityIds.0=https://central.example.com/idp\n"
+            + "authorizedConsumerURLs.0=https://app.example.com/consumer\n";
+
+    @TempDir
+    Path directory;
+
+    private long lastModified = System.currentTimeMillis() - 600000;
+
+    @Test
+    public void reloadsBoundAndInheritingProfiles() throws IOException {
+        SupportProfileRegistry registry = new SupportProfileRegistry(Collections.singletonList(directory), 0);
+        write("base", REQUIRED + "signRequester=base\n");
+        ProfileReloadResult result = registry.reload();
+        assertEquals(List.of("base"), result.getAddedProfiles());
+        assertEquals("base", registry.getProfile("base").getSignRequester());
+        assertEquals("base", registry.getProfile("base").getRelatedProfile());
+        assertNull(registry.getProfile("base").getParentProfile());
+
+        // The bound base profile is read again to be inherited, but is not reported as updated.
+        write("child", "relatedProfile=base\nsignServiceId=child\n");
+        result = registry.reload();
+        assertTrue(result.isSuccessful(), result.toString());
+        assertEquals(List.of("child"), result.getAddedProfiles());
+        assertEquals(List.of(), result.getUpdatedProfiles());
+        assertEquals("base", registry.getProfile("child").getSignRequester());
+        assertEquals("base", registry.getProfile("child").getParentProfile());
+
+        write("base", REQUIRED + "signRequester=changed\n");
+        result = registry.reload();
+        assertEquals(List.of("base", "child"), result.getUpdatedProfiles());
+        assertEquals("changed", registry.getProfile("child").getSignRequester());
+
+        Files.delete(directory.resolve("child.properties"));
+        assertEquals(List.of("child"), registry.reload().getRemovedProfiles());
+        write("base", REQUIRED + "signRequester=again\n");
+        result = registry.reload();
+        assertEquals(List.of("base"), result.getUpdatedProfiles());
+        assertEquals("again", registry.getProfile("base").getSignRequester());
+
+        write("child", "relatedProfile=base\n");
+        result = registry.reload();
+        assertEquals(List.of("child"), result.getAddedProfiles());
+        assertEquals("again", registry.getProfile("child").getSignRequester());
+    }
+
+    @Test
+    public void reportsInvalidBoundProfiles() throws IOException {
+        SupportProfileRegistry registry = new SupportProfileRegistry(Collections.singletonList(directory), 0);
+        write("base", REQUIRED + "signatureValidityMinutes=soon\n");
+        ProfileReloadResult result = registry.reload();
+        assertTrue(result.getErrors().get("base").contains("signatureValidityMinutes"), result.toString());
+        assertNull(registry.getProfile("base"));
+
+        write("child", "relatedProfile=base\n");
+        result = registry.reload();
+        assertTrue(result.getErrors().get("child").contains("is invalid"), result.toString());
+        assertNull(registry.getProfile("child"));
+
+        write("base", REQUIRED);
+        result = registry.reload();
+        assertEquals(List.of("base", "child"), result.getAddedProfiles());
+        assertTrue(result.isSuccessful(), result.toString());
+    }
+
+    @Test
+    public void internsChangedProfilesWithNewPool() throws IOException {
+        SupportProfileRegistry registry = new SupportProfileRegistry(Collections.singletonList(directory), 0);
+        write("other", REQUIRED + "signRequester=shared\n");
+        registry.reload();
+        int strings = -1;
+        for (int i = 0; i < 5; i++) {
+            write("base", REQUIRED + "signServiceId=shared\nsignRequester=value" + i + "\n");
+            ProfileReloadResult result = registry.reload();
+            assertTrue(result.isSuccessful(), result.toString());
+            assertSame(registry.getProfile("other").getSignRequester(), registry.getProfile("base").getSignServiceId());
+            if (i > 1) {
+                // Seeded with the replaced value of base, but not with any earlier values.
+                assertEquals(strings, registry.getInterner().getStringCount(), registry.getInterner().toString());
+            }
+            strings = registry.getInterner().getStringCount();
+        }
+        assertTrue(registry.getInterner().getDuplicateCount() > 0, registry.getInterner().toString());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = directory.resolve(name + ".properties");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        lastModified += 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+}
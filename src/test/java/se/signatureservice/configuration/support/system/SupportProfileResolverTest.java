@@ -0,0 +1,278 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link SupportProfileResolver}.
+ */
+public class SupportProfileResolverTest {
+
+    @Test
+    public void resolvesInheritedSettings() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "base", baseProfile("visibleSignature", config("fontSize", "7", "enable", "true")),
+                "child", config("relatedProfile", "base", "signRequester", "requester", "visibleSignature", config("fontSize", "9")),
+                "grandchild", config("relatedProfile", "child", "padesContentSize", "5")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals(Set.of("base", "child", "grandchild"), result.keySet());
+        CompiledSupportProfile grandchild = result.get("grandchild");
+        assertEquals("requester", grandchild.getSignRequester());
+        assertEquals(5, grandchild.getPadesContentSize());
+        assertEquals(9f, grandchild.getVisibleSignature().getFontSize());
+        assertTrue(grandchild.getVisibleSignature().isEnable());
+        assertEquals("grandchild", grandchild.getRelatedProfile());
+        assertEquals("child", grandchild.getParentProfile());
+        assertEquals("base", result.get("base").getRelatedProfile());
+        assertNull(result.get("base").getParentProfile());
+        assertEquals("child", resolver.getParent("grandchild"));
+        assertEquals(Set.of("grandchild"), resolver.getDependants("child"));
+    }
+
+    @Test
+    public void profileNamingItselfHasNoParent() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "base", baseProfile("relatedProfile", "base")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals("base", result.get("base").getRelatedProfile());
+        assertNull(result.get("base").getParentProfile());
+    }
+
+    @Test
+    public void reportsCyclicInheritance() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "first", baseProfile("relatedProfile", "second"),
+                "second", baseProfile("relatedProfile", "first"),
+                "below", config("relatedProfile", "first"),
+                "unrelated", baseProfile()
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Set.of("unrelated"), result.keySet());
+        assertEquals(Set.of("first", "second", "below"), errors.keySet());
+        assertTrue(errors.get("first").startsWith("Cyclic profile inheritance: "), errors.get("first"));
+        assertEquals(errors.get("first"), errors.get("second"));
+        assertEquals("Related profile 'first' of profile 'below' is invalid", errors.get("below"));
+        assertNull(resolver.getResolvedConfig("first"));
+    }
+
+    @Test
+    public void breakingCycleResolvesMembers() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        resolver.update(profiles(
+                "first", baseProfile("relatedProfile", "second"),
+                "second", baseProfile("relatedProfile", "first")
+        ), Collections.emptyList(), new TreeMap<>());
+
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "second", baseProfile()
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals(Set.of("first", "second"), result.keySet());
+        assertEquals("second", result.get("first").getParentProfile());
+    }
+
+    @Test
+    public void reResolvesOnlyDependantsOfChangedProfile() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        resolver.update(profiles(
+                "base", baseProfile(),
+                "child", config("relatedProfile", "base", "signRequester", "first"),
+                "grandchild", config("relatedProfile", "child"),
+                "sibling", config("relatedProfile", "base"),
+                "unrelated", baseProfile()
+        ), Collections.emptyList(), new TreeMap<>());
+
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "child", config("relatedProfile", "base", "signRequester", "second")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals(Set.of("child", "grandchild"), result.keySet());
+        assertEquals("second", result.get("grandchild").getSignRequester());
+        assertEquals("second", resolver.getResolvedConfig("grandchild").get("signRequester"));
+        assertNull(resolver.getResolvedConfig("sibling").get("signRequester"));
+    }
+
+    @Test
+    public void changingParentMovesDependant() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        resolver.update(profiles(
+                "first", baseProfile("signRequester", "first"),
+                "second", baseProfile("signRequester", "second"),
+                "child", config("relatedProfile", "first")
+        ), Collections.emptyList(), new TreeMap<>());
+
+        resolver.update(profiles(
+                "child", config("relatedProfile", "second")
+        ), Collections.emptyList(), new TreeMap<>());
+        assertEquals(Collections.emptySet(), resolver.getDependants("first"));
+
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "first", baseProfile("signRequester", "changed")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Set.of("first"), result.keySet());
+        assertEquals("second", resolver.getResolvedConfig("child").get("signRequester"));
+    }
+
+    @Test
+    public void reportsMissingParent() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "orphan", baseProfile("relatedProfile", "missing"),
+                "below", config("relatedProfile", "orphan")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), result);
+        assertEquals("Related profile 'missing' of profile 'orphan' does not exist", errors.get("orphan"));
+        assertEquals("Related profile 'orphan' of profile 'below' is invalid", errors.get("below"));
+
+        errors.clear();
+        result = resolver.update(profiles(
+                "missing", baseProfile()
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals(Set.of("missing", "orphan", "below"), result.keySet());
+    }
+
+    @Test
+    public void reportsRemovedParent() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        resolver.update(profiles(
+                "base", baseProfile(),
+                "child", config("relatedProfile", "base"),
+                "grandchild", config("relatedProfile", "child")
+        ), Collections.emptyList(), new TreeMap<>());
+
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(Collections.emptyMap(), List.of("base"), errors);
+
+        assertEquals(Collections.emptyMap(), result);
+        assertEquals("Related profile 'base' of profile 'child' does not exist", errors.get("child"));
+        assertEquals("Related profile 'child' of profile 'grandchild' is invalid", errors.get("grandchild"));
+        assertNull(resolver.getResolvedConfig("base"));
+        assertNull(resolver.getResolvedConfig("child"));
+    }
+
+    @Test
+    public void reportsFailedParent() {
+        SupportProfileResolver resolver = new SupportProfileResolver();
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = resolver.update(profiles(
+                "base", config("signRequester", "requester"),
+                "child", config("relatedProfile", "base")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), result);
+        assertTrue(errors.get("base").contains("Invalid value for 'authorizedConsumerURLs'"), errors.get("base"));
+        assertEquals("Related profile 'base' of profile 'child' is invalid", errors.get("child"));
+
+        errors.clear();
+        result = resolver.update(profiles(
+                "base", baseProfile()
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertEquals(Set.of("base", "child"), result.keySet());
+    }
+
+    @Test
+    public void ignoresConfiguredParentProfile() {
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = new SupportProfileResolver().update(profiles(
+                "base", baseProfile("parentProfile", "other"),
+                "child", config("relatedProfile", "base", "parentProfile", "other")
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        assertNull(result.get("base").getParentProfile());
+        assertEquals("base", result.get("child").getParentProfile());
+    }
+
+    @Test
+    public void keepsConfigurationOrderOfInheritedMaps() {
+        Map<String, Object> signerAttributes = new LinkedHashMap<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 20; i > 0; i--) {
+            signerAttributes.put("attribute" + i, config("samlAttributeName", "urn:attribute:" + i));
+            expected.add("attribute" + i);
+        }
+        expected.add("extra");
+        Map<String, String> errors = new TreeMap<>();
+        Map<String, CompiledSupportProfile> result = new SupportProfileResolver().update(profiles(
+                "base", baseProfile("signerAttributes", signerAttributes),
+                "child", config("relatedProfile", "base", "signerAttributes", config(
+                        "extra", config("samlAttributeName", "urn:extra"),
+                        "attribute7", config("required", "true")))
+        ), Collections.emptyList(), errors);
+
+        assertEquals(Collections.emptyMap(), errors);
+        CompiledSupportProfile child = result.get("child");
+        assertEquals(expected, new ArrayList<>(child.getSignerAttributes().keySet()));
+        assertEquals(List.of("samlAttributeName", "required"), new ArrayList<>(child.getSignerAttributes().get("attribute7").keySet()));
+    }
+
+    private static Map<String, Object> baseProfile(Object... keyValues) {
+        Map<String, Object> config = config(keyValues);
+        config.put("authorizedCentralServiceEntityIds", List.of("https://central.example.com/idp"));
+        config.put("authorizedConsumerURLs", List.of("https://app.example.com/consumer"));
+        return config;
+    }
+
+    private static Map<String, Object> config(Object... keyValues) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            config.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> profiles(Object... nameConfigs) {
+        Map<String, Map<String, Object>> profiles = new HashMap<>();
+        for (int i = 0; i < nameConfigs.length; i += 2) {
+            profiles.put((String) nameConfigs[i], (Map<String, Object>) nameConfigs[i + 1]);
+        }
+        return profiles;
+    }
+}
@@ -0,0 +1,133 @@
+/************************************************************************
+ *                                                                       *
+ *  Signature Service - Java Configuration Library                       *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public License   *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 3 of the License, or any later version.                      *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package se.signatureservice.configuration.support.system;
+
+import org.junit.jupiter.api.Test;
+import se.signatureservice.configuration.common.InternalErrorException;
+import se.signatureservice.configuration.common.binding.ConfigBinaryReader;
+import se.signatureservice.configuration.common.binding.ConfigBinaryWriter;
+import se.signatureservice.configuration.common.binding.JsonConfigParser;
+import se.signatureservice.configuration.common.binding.PropertiesConfigParser;
+import se.signatureservice.configuration.common.binding.StreamingConfigBinder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the parsed colors and compiled time stamp formatter of {@link VisibleSignatureConfig}.
+ */
+public class VisibleSignatureConfigTest {
+
+    private static final String REQUIRED_JSON = "\"authorizedCentralServiceEntityIds\": [\"https://central.example.com/idp\"], "
+            + "\"authorizedConsumerURLs\": [\"https://app.example.com/consumer\"], ";
+    private static final String REQUIRED_PROPERTIES = "authorizedCentralServiceEntityIds.0=https://central.example.com/idp\n"
+            + "authorizedConsumerURLs.0=https://app.example.com/consumer\n";
+
+    @Test
+    public void usesDefaults() {
+        VisibleSignatureConfig config = new VisibleSignatureConfig();
+        assertEquals(0xff000000, config.getFontColorArgb());
+        assertEquals(0xffffffff, config.getBackgroundColorArgb());
+        assertEquals("yyyy-MM-dd HH:mm:ss", config.getTimeStampFormatter().getPattern());
+    }
+
+    @Test
+    public void settersUpdateDerivedValues() {
+        VisibleSignatureConfig config = new VisibleSignatureConfig();
+        config.setFontColor("#ff0000");
+        config.setBackgroundColor("#00ff0080");
+        config.setTimeStampFormat("yyyy");
+        assertEquals(0xffff0000, config.getFontColorArgb());
+        assertEquals(0x8000ff00, config.getBackgroundColorArgb());
+        assertEquals("yyyy", config.getTimeStampFormatter().getPattern());
+    }
+
+    @Test
+    public void settersRejectInvalidValues() {
+        VisibleSignatureConfig config = new VisibleSignatureConfig();
+        assertThrows(NumberFormatException.class, () -> config.setFontColor("#12"));
+        assertThrows(NumberFormatException.class, () -> config.setBackgroundColor(null));
+        assertThrows(IllegalArgumentException.class, () -> config.setTimeStampFormat("yyyy{p"));
+        assertEquals("#000000", config.getFontColor());
+        assertEquals(0xff000000, config.getFontColorArgb());
+        assertEquals("yyyy-MM-dd HH:mm:ss", config.getTimeStampFormat());
+    }
+
+    @Test
+    public void bindsThroughSupportProfileConfig() throws Exception {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("authorizedCentralServiceEntityIds", List.of("https://central.example.com/idp"));
+        profile.put("authorizedConsumerURLs", List.of("https://app.example.com/consumer"));
+        profile.put("visibleSignature", visibleSignature("#ff0000", "dd.MM.yyyy"));
+        VisibleSignatureConfig config = new SupportProfileConfig(profile).getVisibleSignature();
+        assertBound(config);
+
+        profile.put("visibleSignature", visibleSignature("#ff00", "dd.MM.yyyy"));
+        InternalErrorException e = assertThrows(InternalErrorException.class, () -> new SupportProfileConfig(profile));
+        assertTrue(e.getMessage().contains("Invalid value for 'fontColor' in visibleSignature configuration"), e.getMessage());
+    }
+
+    @Test
+    public void bindsThroughStreamingBinder() throws Exception {
+        SupportProfileConfig json = StreamingConfigBinder.bind(new JsonConfigParser(new StringReader(
+                "{" + REQUIRED_JSON + "\"visibleSignature\": {\"fontColor\": \"#ff0000\", \"timeStampFormat\": \"dd.MM.yyyy\"}}")),
+                SupportProfileConfigBinder.INSTANCE, new SupportProfileConfig());
+        assertBound(json.getVisibleSignature());
+
+        SupportProfileConfig properties = StreamingConfigBinder.bind(new PropertiesConfigParser(new StringReader(
+                REQUIRED_PROPERTIES + "visibleSignature.fontColor=#ff0000\nvisibleSignature.timeStampFormat=dd.MM.yyyy\n")),
+                SupportProfileConfigBinder.INSTANCE, new SupportProfileConfig());
+        assertBound(properties.getVisibleSignature());
+
+        assertThrows(InternalErrorException.class, () -> StreamingConfigBinder.bind(new JsonConfigParser(new StringReader(
+                "{" + REQUIRED_JSON + "\"visibleSignature\": {\"backgroundColor\": \"#gg0000\"}}")),
+                SupportProfileConfigBinder.INSTANCE, new SupportProfileConfig()));
+        assertThrows(InternalErrorException.class, () -> StreamingConfigBinder.bind(new PropertiesConfigParser(new StringReader(
+                REQUIRED_PROPERTIES + "visibleSignature.timeStampFormat=yyyy{p\n")),
+                SupportProfileConfigBinder.INSTANCE, new SupportProfileConfig()));
+    }
+
+    @Test
+    public void readAndCopyUpdateDerivedValues() throws Exception {
+        VisibleSignatureConfig source = new VisibleSignatureConfig(Map.of("fontColor", "#ff0000", "timeStampFormat", "dd.MM.yyyy"));
+        assertBound(VisibleSignatureConfigBinder.INSTANCE.copy(source));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConfigBinaryWriter out = new ConfigBinaryWriter(bytes);
+        VisibleSignatureConfigBinder.INSTANCE.write(source, out);
+        out.flush();
+        assertBound(VisibleSignatureConfigBinder.INSTANCE.read(new ConfigBinaryReader(ByteBuffer.wrap(bytes.toByteArray()))));
+    }
+
+    private static Map<String, Object> visibleSignature(String fontColor, String timeStampFormat) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("fontColor", fontColor);
+        config.put("timeStampFormat", timeStampFormat);
+        return config;
+    }
+
+    private static void assertBound(VisibleSignatureConfig config) {
+        assertEquals("#ff0000", config.getFontColor());
+        assertEquals(0xffff0000, config.getFontColorArgb());
+        assertEquals(0xffffffff, config.getBackgroundColorArgb());
+        assertEquals("dd.MM.yyyy", config.getTimeStampFormatter().getPattern());
+    }
+}